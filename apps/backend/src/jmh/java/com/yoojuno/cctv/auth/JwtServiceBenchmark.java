@@ -0,0 +1,60 @@
+package com.yoojuno.cctv.auth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification runs on every API and HLS request; {@code allowedStreams} is the claim that
+ * grows with the deployment. {@code compact} compares the {@code ent} reference with the full
+ * {@code streams} list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+    @Param({"1", "50", "500"})
+    public int allowedStreams;
+
+    @Param({"true", "false"})
+    public boolean compact;
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        Set<String> streams = new LinkedHashSet<>();
+        for (int i = 0; i < allowedStreams; i++) {
+            streams.add("cam" + i);
+        }
+        // Compact tokens resolve against the user's current permissions in the directory.
+        UserAccountService users = new UserAccountService(new BCryptPasswordEncoder(), new PasswordVerifier());
+        ReflectionTestUtils.setField(users, "usersRaw", "viewer:{plain}viewer123:" + String.join(",", streams));
+        ReflectionTestUtils.setField(users, "usersFile", "");
+        users.load();
+        jwtService = new JwtService(new EntitlementRegistry(users));
+        ReflectionTestUtils.setField(jwtService, "secret", "benchmark-jwt-secret-should-be-32-bytes-minimum");
+        ReflectionTestUtils.setField(jwtService, "expirationSeconds", 3_600L);
+        ReflectionTestUtils.setField(jwtService, "compactEntitlements", compact);
+        jwtService.initSigningKey();
+
+        token = jwtService.issueToken(new AuthenticatedUser("viewer", "Viewer", streams));
+    }
+
+    @Benchmark
+    public AuthenticatedUser parseToken() {
+        return jwtService.parseToken(token);
+    }
+}
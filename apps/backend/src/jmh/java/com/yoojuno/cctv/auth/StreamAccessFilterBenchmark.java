@@ -0,0 +1,98 @@
+package com.yoojuno.cctv.auth;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yoojuno.cctv.stream.BandwidthShaper;
+import com.yoojuno.cctv.stream.HlsTrafficAccounting;
+import com.yoojuno.cctv.stream.ViewerPresenceTracker;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of HLS authorization, accounting, presence, shaping and auditing. The chain
+ * stands in for the resource handler and only sets Content-Length, so disk I/O is excluded.
+ * Mock request/response construction is included and constant across runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StreamAccessFilterBenchmark {
+    @Param({"/hls/cam1.m3u8", "/hls/cam1_1042.ts", "/hls/vault.m3u8"})
+    public String path;
+
+    private final FilterChain chain = (request, response) ->
+            ((HttpServletResponse) response).setHeader(HttpHeaders.CONTENT_LENGTH, "376000");
+
+    private StreamAccessFilter filter;
+    private AccessAuditLog auditLog;
+    private UsernamePasswordAuthenticationToken authentication;
+
+    @Setup
+    public void setUp() {
+        HlsTrafficAccounting trafficAccounting = new HlsTrafficAccounting();
+        ReflectionTestUtils.setField(trafficAccounting, "maxKeys", 10_000);
+        ReflectionTestUtils.setField(trafficAccounting, "sampleIntervalMs", 5_000L);
+
+        BandwidthShaper shaper = new BandwidthShaper();
+        ReflectionTestUtils.setField(shaper, "enabled", true);
+        ReflectionTestUtils.setField(shaper, "burstSeconds", 4.0);
+        ReflectionTestUtils.setField(shaper, "userMaxConcurrentSegments", 8);
+
+        ViewerPresenceTracker presenceTracker = new ViewerPresenceTracker();
+        ReflectionTestUtils.setField(presenceTracker, "ttlMs", 30_000L);
+        ReflectionTestUtils.setField(presenceTracker, "tickMs", 1_000L);
+        ReflectionTestUtils.setField(presenceTracker, "maxSessions", 100_000);
+        presenceTracker.init();
+
+        auditLog = new AccessAuditLog(new ObjectMapper());
+        ReflectionTestUtils.setField(auditLog, "enabled", true);
+        ReflectionTestUtils.setField(auditLog, "auditDir", "");
+        ReflectionTestUtils.setField(auditLog, "allowedPolicy", "manifests");
+        ReflectionTestUtils.setField(auditLog, "ringCapacity", 65_536);
+        ReflectionTestUtils.setField(auditLog, "drainIntervalMs", 250L);
+        // One window for the whole run: repeated denials aggregate instead of flooding the log.
+        ReflectionTestUtils.setField(auditLog, "denialWindowMs", 3_600_000L);
+        ReflectionTestUtils.setField(auditLog, "recentDenials", 500);
+        ReflectionTestUtils.setField(auditLog, "maxFileBytes", 52_428_800L);
+        ReflectionTestUtils.setField(auditLog, "maxFiles", 30);
+        auditLog.start();
+
+        filter = new StreamAccessFilter(trafficAccounting, shaper, presenceTracker, auditLog);
+        authentication = new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser("viewer", "Viewer", Set.of("cam1")), null, List.of());
+    }
+
+    @TearDown
+    public void tearDown() {
+        auditLog.stop();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public int filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader("X-Client-Id", "bench-client");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+}
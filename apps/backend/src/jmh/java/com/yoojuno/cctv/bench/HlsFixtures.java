@@ -0,0 +1,116 @@
+package com.yoojuno.cctv.bench;
+
+import com.yoojuno.cctv.stream.StreamHealthService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Fixture trees shaped like the converter's output: a sliding-window live playlist per stream
+ * ({@code cam0.m3u8}) next to its MPEG-TS segments ({@code cam0_1042.ts}).
+ */
+public final class HlsFixtures {
+    public static final int TS_PACKET_BYTES = 188;
+
+    private HlsFixtures() {
+    }
+
+    /**
+     * Creates {@code streams} live streams, each with a playlist listing {@code segmentsPerPlaylist}
+     * segments of {@code segmentBytes} bytes. Media sequences differ per stream so file names do not
+     * repeat across streams.
+     */
+    public static Path createHlsTree(int streams, int segmentsPerPlaylist, int segmentBytes) {
+        try {
+            Path root = Files.createTempDirectory("cctv-jmh-hls");
+            byte[] segment = tsPayload(segmentBytes);
+            for (int i = 0; i < streams; i++) {
+                String streamId = streamId(i);
+                long firstSequence = 1_000L + i * 7L;
+                Files.writeString(root.resolve(streamId + ".m3u8"), playlist(streamId, firstSequence, segmentsPerPlaylist, 2.0));
+                for (int s = 0; s < segmentsPerPlaylist; s++) {
+                    Files.write(root.resolve(streamId + "_" + (firstSequence + s) + ".ts"), segment);
+                }
+            }
+            return root;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String streamId(int index) {
+        return "cam" + index;
+    }
+
+    public static String playlist(String streamId, long firstSequence, int segments, double segmentSeconds) {
+        StringBuilder manifest = new StringBuilder(128 + segments * 48);
+        manifest.append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n")
+                .append("#EXT-X-TARGETDURATION:").append((long) Math.ceil(segmentSeconds)).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:").append(firstSequence).append('\n');
+        for (int s = 0; s < segments; s++) {
+            manifest.append("#EXTINF:").append(String.format(Locale.ROOT, "%.6f", segmentSeconds)).append(",\n")
+                    .append(streamId).append('_').append(firstSequence + s).append(".ts\n");
+        }
+        return manifest.toString();
+    }
+
+    /**
+     * Health results in roughly the proportions a large site sees: mostly live, some warming up,
+     * a few stale or offline, rare errors.
+     */
+    public static List<StreamHealthService.StreamHealth> healthMix(int streams) {
+        long now = System.currentTimeMillis();
+        List<StreamHealthService.StreamHealth> result = new ArrayList<>(streams);
+        for (int i = 0; i < streams; i++) {
+            int bucket = i % 20;
+            String id = streamId(i);
+            if (bucket < 15) {
+                result.add(new StreamHealthService.StreamHealth(id, true, true, now - 1_000, 1,
+                        StreamHealthService.StreamState.LIVE, "OK", 6, 2, false, true, 376_000));
+            } else if (bucket < 17) {
+                result.add(new StreamHealthService.StreamHealth(id, false, true, now - 2_000, 2,
+                        StreamHealthService.StreamState.STARTING, "INSUFFICIENT_SEGMENTS", 1, 2, false, true, 376_000));
+            } else if (bucket == 17) {
+                result.add(new StreamHealthService.StreamHealth(id, false, true, now - 60_000, 60,
+                        StreamHealthService.StreamState.STALE, "MANIFEST_STALE", 6, 2, false, true, 376_000));
+            } else if (bucket == 18) {
+                result.add(new StreamHealthService.StreamHealth(id, false, false, 0, -1,
+                        StreamHealthService.StreamState.OFFLINE, "MANIFEST_MISSING", 0, 0, false, false, -1));
+            } else {
+                result.add(new StreamHealthService.StreamHealth(id, false, true, 0, -1,
+                        StreamHealthService.StreamState.ERROR, "MANIFEST_UNREADABLE", 0, 0, false, false, -1));
+            }
+        }
+        return result;
+    }
+
+    public static void deleteTree(Path root) {
+        if (root == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Sync byte every 188 bytes, like a real transport stream, so sniffers treat it as TS.
+    private static byte[] tsPayload(int bytes) {
+        byte[] payload = new byte[Math.max(TS_PACKET_BYTES, bytes - bytes % TS_PACKET_BYTES)];
+        for (int offset = 0; offset < payload.length; offset += TS_PACKET_BYTES) {
+            payload[offset] = 0x47;
+        }
+        return payload;
+    }
+}
@@ -0,0 +1,50 @@
+package com.yoojuno.cctv.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of request timing: {@code timed} minus {@code baseline} is what every request pays
+ * for the latency histograms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestMetricsFilterBenchmark {
+    private final FilterChain chain = (request, response) -> {
+    };
+
+    private RequestMetricsFilter filter;
+
+    @Setup
+    public void setUp() {
+        filter = new RequestMetricsFilter(new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public int baseline() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hls/cam1_1042.ts");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        chain.doFilter(request, response);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int timed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hls/cam1_1042.ts");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,85 @@
+package com.yoojuno.cctv.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yoojuno.cctv.bench.HlsFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One poll interval of {@code pollers} dashboards sharing a stream set: every burst follows a
+ * health version change. {@code shared} builds the body once through the payload cache and serves
+ * the rest from it; {@code perPoller} serializes every response, which is what each poller cost
+ * before bodies were shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HealthPayloadCacheBenchmark {
+    @Param({"50", "500"})
+    public int streams;
+
+    @Param({"500"})
+    public int pollers;
+
+    private ObjectMapper objectMapper;
+    private HealthPayloadCache cache;
+    private List<StreamHealthService.StreamHealth> health;
+    private long version;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        health = HlsFixtures.healthMix(streams);
+        StreamCatalogService catalog = new StreamCatalogService();
+        ReflectionTestUtils.setField(catalog, "streamCatalogRaw",
+                String.join(";", health.stream().map(item -> item.id() + ":" + item.id()).toList()));
+        ReflectionTestUtils.setField(catalog, "streamCatalogFile", "");
+        catalog.load();
+        cache = new HealthPayloadCache(objectMapper, catalog);
+        ReflectionTestUtils.setField(cache, "maxEntries", 512);
+        ReflectionTestUtils.setField(cache, "maxAgeMs", 60_000L);
+    }
+
+    @Benchmark
+    public long shared() {
+        long currentVersion = ++version;
+        long bytes = 0;
+        for (int i = 0; i < pollers; i++) {
+            HealthPayloadCache.Payload payload = cache.memoize("streams-health|full", currentVersion,
+                    () -> cache.payload(body(cache.fragments(health), currentVersion)));
+            bytes += payload.json().length;
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long perPoller() throws JsonProcessingException {
+        long currentVersion = ++version;
+        long bytes = 0;
+        for (int i = 0; i < pollers; i++) {
+            bytes += objectMapper.writeValueAsBytes(body(health, currentVersion)).length;
+        }
+        return bytes;
+    }
+
+    private static Map<String, Object> body(List<?> streams, long version) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("streams", streams);
+        body.put("version", version);
+        body.put("delta", false);
+        return body;
+    }
+}
@@ -0,0 +1,59 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.bench.HlsFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manifest read + parse ({@code readManifestSnapshot}) and the full per-stream evaluation
+ * ({@code healthForStream}: stat, parse, latest segment stat) against files on local disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ManifestParsingBenchmark {
+    @Param({"6", "30"})
+    public int segmentsPerPlaylist;
+
+    private Path root;
+    private Path manifest;
+    private StreamHealthService healthService;
+
+    @Setup
+    public void setUp() {
+        root = HlsFixtures.createHlsTree(1, segmentsPerPlaylist, 64 * HlsFixtures.TS_PACKET_BYTES);
+        manifest = root.resolve(HlsFixtures.streamId(0) + ".m3u8");
+        healthService = new StreamHealthService();
+        ReflectionTestUtils.setField(healthService, "hlsPath", root.toString());
+        // Fixture files are fresh; keep them LIVE regardless of how long the fork runs.
+        ReflectionTestUtils.setField(healthService, "liveThresholdSeconds", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(healthService, "liveMinSegments", 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        HlsFixtures.deleteTree(root);
+    }
+
+    @Benchmark
+    public StreamHealthService.ManifestSnapshot readManifestSnapshot() throws IOException {
+        return healthService.readManifestSnapshot(manifest);
+    }
+
+    @Benchmark
+    public StreamHealthService.StreamHealth healthForStream() {
+        return healthService.healthForStream(HlsFixtures.streamId(0));
+    }
+}
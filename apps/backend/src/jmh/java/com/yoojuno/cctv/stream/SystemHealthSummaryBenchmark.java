@@ -0,0 +1,34 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.bench.HlsFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SystemHealthSummaryBenchmark {
+    @Param({"50", "500", "5000"})
+    public int streams;
+
+    private List<StreamHealthService.StreamHealth> health;
+
+    @Setup
+    public void setUp() {
+        health = HlsFixtures.healthMix(streams);
+    }
+
+    @Benchmark
+    public SystemHealthService.StreamHealthSummary summarize() {
+        return SystemHealthService.summarize(health);
+    }
+}
@@ -0,0 +1,435 @@
+package com.yoojuno.cctv.auth;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Structured HLS access/audit log. Request threads only claim a slot in a lock-free ring, and one
+ * background thread writes JSON lines, folding repeated denials into one summary per window.
+ */
+@Component
+public class AccessAuditLog {
+    private static final Logger log = LoggerFactory.getLogger(AccessAuditLog.class);
+
+    private final ObjectMapper objectMapper;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private volatile long head;
+    private AtomicReferenceArray<AuditEvent> ring;
+    private int mask;
+
+    // Consumer-thread state.
+    // Access order: least recently repeated first, so the snapshot needs no sort and eviction is LRU.
+    private final Map<String, DenialSummary> openDenials = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<DenialSummary> closedDenials = new ArrayDeque<>();
+    private volatile List<DenialSummary> denialSnapshot = List.of();
+    private boolean denialsChanged;
+    private BufferedWriter writer;
+    private Path currentFile;
+    private LocalDate currentDay;
+    private long currentFileBytes;
+
+    private ScheduledExecutorService drainer;
+
+    @Value("${audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.dir:}")
+    private String auditDir;
+
+    @Value("${audit.allowed:manifests}")
+    private String allowedPolicy;
+
+    @Value("${audit.ring-capacity:65536}")
+    private int ringCapacity;
+
+    @Value("${audit.drain-interval-ms:250}")
+    private long drainIntervalMs;
+
+    @Value("${audit.denial-window-ms:60000}")
+    private long denialWindowMs;
+
+    @Value("${audit.recent-denials:500}")
+    private int recentDenials;
+
+    @Value("${audit.max-open-denials:10000}")
+    private int maxOpenDenials;
+
+    @Value("${audit.max-file-bytes:52428800}")
+    private long maxFileBytes;
+
+    @Value("${audit.max-files:30}")
+    private int maxFiles;
+
+    public AccessAuditLog(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        int capacity = Integer.highestOneBit(Math.max(16, ringCapacity) - 1) << 1;
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        if (!enabled) {
+            return;
+        }
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "access-audit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(this::drainSafely, drainIntervalMs, Math.max(10, drainIntervalMs), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (drainer == null) {
+            return;
+        }
+        drainer.shutdown();
+        try {
+            drainer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainSafely();
+        closeWriter();
+    }
+
+    public void allowed(String username, String streamId, String path, boolean segment, String clientAddress) {
+        // Allow decisions only go to audit files; the application log gets denials only.
+        if (!fileSink()) {
+            return;
+        }
+        String policy = allowedPolicy == null ? "" : allowedPolicy.trim().toLowerCase(Locale.ROOT);
+        if (policy.equals("all") || (policy.equals("manifests") && !segment)) {
+            offer(new AuditEvent(System.currentTimeMillis(), Decision.ALLOW, username, streamId, path, "ok", clientAddress));
+        }
+    }
+
+    public void denied(String username, String streamId, String path, String reason, String clientAddress) {
+        offer(new AuditEvent(System.currentTimeMillis(), Decision.DENY, username, streamId, path, reason, clientAddress));
+    }
+
+    /**
+     * Most recent denial aggregates (open windows first), newest first.
+     */
+    public List<DenialSummary> recentDenials(int limit) {
+        List<DenialSummary> snapshot = denialSnapshot;
+        return snapshot.size() > limit ? List.copyOf(snapshot.subList(0, Math.max(0, limit))) : snapshot;
+    }
+
+    public AuditStats stats() {
+        return new AuditStats(enabled, tail.get() - head, ring.length(), written.sum(), dropped.sum(), suppressed.sum());
+    }
+
+    boolean offer(AuditEvent event) {
+        if (!enabled) {
+            return false;
+        }
+        while (true) {
+            long claimed = tail.get();
+            if (claimed - head >= ring.length()) {
+                dropped.increment();
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                ring.lazySet((int) (claimed & mask), event);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Single consumer: take published events in order until an unpublished slot (claimed but not
+     * yet written by its producer) or the end of the ring is reached.
+     */
+    void drain() {
+        long nowMs = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>();
+        long position = head;
+        long limit = tail.get();
+        while (position < limit) {
+            int index = (int) (position & mask);
+            AuditEvent event = ring.get(index);
+            if (event == null) {
+                break;
+            }
+            ring.lazySet(index, null);
+            position++;
+            head = position;
+            if (event.decision() == Decision.DENY && !openDenial(event, lines)) {
+                continue;
+            }
+            lines.add(json(event));
+        }
+        closeDenialWindows(nowMs, lines);
+        write(lines);
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.warn("Audit drain failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * @return true when this denial opens a new window and should be written as is
+     */
+    private boolean openDenial(AuditEvent event, List<String> lines) {
+        boolean anonymous = event.username() == null;
+        String key = anonymous
+                ? "\n" + event.clientAddress() + '\n' + event.reason()
+                : event.username() + '\n' + event.streamId() + '\n' + event.reason();
+        denialsChanged = true;
+        DenialSummary open = openDenials.get(key);
+        if (open != null && event.epochMs() - open.firstEpochMs() < denialWindowMs) {
+            openDenials.put(key, open.repeated(event.epochMs()));
+            suppressed.increment();
+            return false;
+        }
+        if (open != null) {
+            closeDenial(key, open, lines);
+        }
+        while (openDenials.size() >= Math.max(1, maxOpenDenials)) {
+            Map.Entry<String, DenialSummary> eldest = openDenials.entrySet().iterator().next();
+            closeDenial(eldest.getKey(), eldest.getValue(), lines);
+        }
+        openDenials.put(key, new DenialSummary(event.username(), anonymous ? "*" : event.streamId(), event.reason(),
+                event.path(), event.clientAddress(), event.epochMs(), event.epochMs(), 1));
+        return true;
+    }
+
+    private void closeDenialWindows(long nowMs, List<String> lines) {
+        List<String> expired = new ArrayList<>();
+        openDenials.forEach((key, summary) -> {
+            if (nowMs - summary.firstEpochMs() >= denialWindowMs) {
+                expired.add(key);
+            }
+        });
+        for (String key : expired) {
+            closeDenial(key, openDenials.remove(key), lines);
+        }
+        if (!denialsChanged) {
+            return;
+        }
+        denialsChanged = false;
+
+        List<DenialSummary> snapshot = new ArrayList<>(openDenials.size() + closedDenials.size());
+        snapshot.addAll(openDenials.values());
+        Collections.reverse(snapshot);
+        snapshot.addAll(closedDenials);
+        denialSnapshot = List.copyOf(snapshot);
+    }
+
+    private void closeDenial(String key, DenialSummary summary, List<String> lines) {
+        if (summary == null) {
+            return;
+        }
+        openDenials.remove(key);
+        denialsChanged = true;
+        if (summary.count() > 1) {
+            lines.add(json(Map.of(
+                    "ts", Instant.ofEpochMilli(summary.lastEpochMs()).toString(),
+                    "decision", "DENY_SUMMARY",
+                    "user", String.valueOf(summary.username()),
+                    "stream", String.valueOf(summary.streamId()),
+                    "reason", summary.reason(),
+                    "count", summary.count(),
+                    "windowStart", Instant.ofEpochMilli(summary.firstEpochMs()).toString()
+            )));
+        }
+        closedDenials.addFirst(summary);
+        while (closedDenials.size() > Math.max(1, recentDenials)) {
+            closedDenials.removeLast();
+        }
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            return "{\"error\":\"unserializable audit event\"}";
+        }
+    }
+
+    private void write(List<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        if (!fileSink()) {
+            for (String line : lines) {
+                log.info("audit {}", line);
+            }
+            written.add(lines.size());
+            return;
+        }
+        try {
+            for (String line : lines) {
+                int lineBytes = utf8Length(line) + 1;
+                BufferedWriter out = writer(lineBytes);
+                out.write(line);
+                out.write('\n');
+                currentFileBytes += lineBytes;
+            }
+            writer.flush();
+            written.add(lines.size());
+        } catch (IOException e) {
+            dropped.add(lines.size());
+            log.warn("Cannot write audit log {}: {}", currentFile, e.toString());
+            closeWriter();
+        }
+    }
+
+    // Size accounting for rollover has to match what lands on disk, not the char count.
+    static int utf8Length(String value) {
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private boolean fileSink() {
+        return auditDir != null && !auditDir.isBlank();
+    }
+
+    private BufferedWriter writer(int nextLineBytes) throws IOException {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        boolean roll = writer == null
+                || !today.equals(currentDay)
+                || currentFileBytes + nextLineBytes > Math.max(1024, maxFileBytes);
+        if (!roll) {
+            return writer;
+        }
+        closeWriter();
+        Path dir = Path.of(auditDir.trim());
+        Files.createDirectories(dir);
+        int sequence = 0;
+        Path file;
+        do {
+            file = dir.resolve("access-" + today + (sequence == 0 ? "" : "." + sequence) + ".log");
+            sequence++;
+        } while (Files.exists(file) && Files.size(file) + nextLineBytes > Math.max(1024, maxFileBytes));
+        currentFile = file;
+        currentDay = today;
+        currentFileBytes = Files.exists(file) ? Files.size(file) : 0;
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        pruneOldFiles(dir);
+        return writer;
+    }
+
+    private void pruneOldFiles(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing
+                    .filter(path -> path.getFileName().toString().startsWith("access-"))
+                    .sorted(Comparator.comparing(this::lastModifiedMillis).reversed())
+                    .toList();
+        }
+        for (int i = Math.max(1, maxFiles); i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private long lastModifiedMillis(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // nothing left to do with a broken audit file
+        }
+        writer = null;
+    }
+
+    public enum Decision {
+        ALLOW,
+        DENY
+    }
+
+    public record AuditEvent(
+            long epochMs,
+            Decision decision,
+            String username,
+            String streamId,
+            String path,
+            String reason,
+            String clientAddress
+    ) {
+    }
+
+    public record DenialSummary(
+            String username,
+            String streamId,
+            String reason,
+            String samplePath,
+            String clientAddress,
+            long firstEpochMs,
+            long lastEpochMs,
+            long count
+    ) {
+        private DenialSummary repeated(long epochMs) {
+            return new DenialSummary(username, streamId, reason, samplePath, clientAddress, firstEpochMs,
+                    Math.max(lastEpochMs, epochMs), count + 1);
+        }
+    }
+
+    public record AuditStats(boolean enabled, long queued, int capacity, long written, long dropped, long suppressed) {
+    }
+}
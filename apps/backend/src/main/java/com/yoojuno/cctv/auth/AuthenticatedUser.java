@@ -7,4 +7,7 @@ public record AuthenticatedUser(
         String displayName,
         Set<String> allowedStreams
 ) {
+    public boolean canAccess(String streamId) {
+        return allowedStreams.contains("*") || allowedStreams.contains(streamId);
+    }
 }
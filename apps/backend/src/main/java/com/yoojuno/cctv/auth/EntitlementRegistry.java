@@ -0,0 +1,112 @@
+package com.yoojuno.cctv.auth;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allowed-stream sets referenced from access tokens by a content hash ({@code ent} claim), so the
+ * cookie has the same size for one camera or a thousand. An id resolves only while it matches the
+ * user's current set.
+ */
+@Component
+public class EntitlementRegistry {
+    private static final int MAX_SETS = 4096;
+    private static final int ID_BYTES = 12;
+
+    private final UserAccountService userAccountService;
+    private final Map<String, Set<String>> byId = new ConcurrentHashMap<>();
+    private final Map<String, CurrentEntry> currentByUser = new ConcurrentHashMap<>();
+
+    public EntitlementRegistry(UserAccountService userAccountService) {
+        this.userAccountService = userAccountService;
+    }
+
+    /**
+     * Returns the id for the given set, registering the set if it is new.
+     */
+    public String intern(Set<String> allowedStreams) {
+        return register(allowedStreams).id();
+    }
+
+    /**
+     * The shared set for {@code id}, or empty when {@code username} is unknown or their current
+     * permissions hash to a different id.
+     */
+    public Optional<Set<String>> resolve(String username, String id) {
+        Optional<AuthenticatedUser> user = userAccountService.findUser(username);
+        if (user.isEmpty()) {
+            if (username != null) {
+                currentByUser.remove(username);
+            }
+            return Optional.empty();
+        }
+        Entry current = currentEntry(user.get());
+        return current.id().equals(id) ? Optional.of(current.streams()) : Optional.empty();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * The directory keeps one set instance per user until the user file is reloaded, so the
+     * hash is only recomputed when that instance changes.
+     */
+    private Entry currentEntry(AuthenticatedUser user) {
+        CurrentEntry cached = currentByUser.get(user.username());
+        if (cached != null && cached.source() == user.allowedStreams()) {
+            return cached.entry();
+        }
+        Entry entry = register(user.allowedStreams());
+        currentByUser.put(user.username(), new CurrentEntry(user.allowedStreams(), entry));
+        return entry;
+    }
+
+    private Entry register(Set<String> allowedStreams) {
+        List<String> sorted = new ArrayList<>(allowedStreams);
+        sorted.sort(null);
+        String id = idOf(sorted);
+        Set<String> existing = byId.get(id);
+        if (existing != null) {
+            return new Entry(id, existing);
+        }
+        if (byId.size() >= MAX_SETS) {
+            // Entries are recoverable from the user directory, so trimming is always safe.
+            byId.clear();
+        }
+        Set<String> streams = Set.copyOf(sorted);
+        Set<String> raced = byId.putIfAbsent(id, streams);
+        return new Entry(id, raced == null ? streams : raced);
+    }
+
+    private static String idOf(List<String> sortedStreams) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+        for (String stream : sortedStreams) {
+            digest.update(stream.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest.digest(), ID_BYTES));
+    }
+
+    private record Entry(String id, Set<String> streams) {
+    }
+
+    private record CurrentEntry(Set<String> source, Entry entry) {
+    }
+}
@@ -1,5 +1,8 @@
 package com.yoojuno.cctv.auth;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -16,15 +19,29 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    /**
+     * Request attribute holding the verified access token's expiry in epoch milliseconds.
+     */
+    public static final String TOKEN_EXPIRES_AT_ATTRIBUTE = "cctv.auth.tokenExpiresAt";
+
     private final JwtService jwtService;
+    private final Timer verificationTimer;
+    private final Counter validTokens;
+    private final Counter invalidTokens;
     @Value("${auth.jwt.cookie-name:CCTV_AUTH}")
     private String authCookieName;
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
+    public JwtAuthenticationFilter(JwtService jwtService, MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
+        this.verificationTimer = Timer.builder("cctv.auth.token.verification")
+                .description("JWT signature and claim verification time")
+                .register(meterRegistry);
+        this.validTokens = Counter.builder("cctv.auth.tokens").tag("outcome", "valid").register(meterRegistry);
+        this.invalidTokens = Counter.builder("cctv.auth.tokens").tag("outcome", "invalid").register(meterRegistry);
     }
 
     @Override
@@ -39,8 +56,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        long startedAt = System.nanoTime();
         try {
-            AuthenticatedUser user = jwtService.parseToken(token);
+            JwtService.VerifiedToken verified = jwtService.verify(token);
+            AuthenticatedUser user = verified.user();
+            verificationTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            validTokens.increment();
             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                     user,
                     null,
@@ -48,7 +69,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             );
             authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authentication);
+            request.setAttribute(TOKEN_EXPIRES_AT_ATTRIBUTE, verified.expiresAtEpochMs());
         } catch (Exception ignored) {
+            verificationTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            invalidTokens.increment();
             SecurityContextHolder.clearContext();
         }
 
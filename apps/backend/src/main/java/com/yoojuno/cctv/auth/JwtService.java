@@ -3,6 +3,8 @@ package com.yoojuno.cctv.auth;
 import jakarta.annotation.PostConstruct;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -16,16 +18,30 @@ import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Issues and verifies the access token. Stream permissions travel as an {@code ent} reference
+ * into the {@link EntitlementRegistry}, so token size and verification cost do not depend on how
+ * many cameras a user may see. Tokens carrying the older {@code streams} list are still accepted.
+ */
 @Service
 public class JwtService {
+    private final EntitlementRegistry entitlementRegistry;
+
     @Value("${auth.jwt.secret:}")
     private String secret;
 
-    @Value("${auth.jwt.expiration-seconds:3600}")
+    @Value("${auth.jwt.expiration-seconds:900}")
     private long expirationSeconds;
 
+    @Value("${auth.jwt.compact-entitlements:true}")
+    private boolean compactEntitlements;
+
     private SecretKey cachedSigningKey;
 
+    public JwtService(EntitlementRegistry entitlementRegistry) {
+        this.entitlementRegistry = entitlementRegistry;
+    }
+
     @PostConstruct
     void initSigningKey() {
         if (secret == null || secret.isBlank()) {
@@ -40,10 +56,15 @@ public class JwtService {
     public String issueToken(AuthenticatedUser user) {
         Instant now = Instant.now();
         Instant expiry = now.plusSeconds(expirationSeconds);
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .subject(user.username())
-                .claim("displayName", user.displayName())
-                .claim("streams", List.copyOf(user.allowedStreams()))
+                .claim("displayName", user.displayName());
+        if (compactEntitlements) {
+            builder.claim("ent", entitlementRegistry.intern(user.allowedStreams()));
+        } else {
+            builder.claim("streams", List.copyOf(user.allowedStreams()));
+        }
+        return builder
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(expiry))
                 .signWith(signingKey())
@@ -51,6 +72,14 @@ public class JwtService {
     }
 
     public AuthenticatedUser parseToken(String token) {
+        return verify(token).user();
+    }
+
+    /**
+     * The token's user together with its expiry, for responses that report the remaining
+     * lifetime of the session.
+     */
+    public VerifiedToken verify(String token) {
         Jws<Claims> parsed = Jwts.parser()
                 .verifyWith(signingKey())
                 .build()
@@ -58,13 +87,21 @@ public class JwtService {
         Claims claims = parsed.getPayload();
         String username = claims.getSubject();
         String displayName = claims.get("displayName", String.class);
-        Object streamsClaim = claims.get("streams");
-        Set<String> streamSet = parseStreamsClaim(streamsClaim);
-        return new AuthenticatedUser(
+        String entitlement = claims.get("ent", String.class);
+        Set<String> streamSet;
+        if (entitlement != null) {
+            streamSet = entitlementRegistry.resolve(username, entitlement)
+                    .orElseThrow(() -> new JwtException("stream permissions changed since the token was issued"));
+        } else {
+            streamSet = parseStreamsClaim(claims.get("streams"));
+        }
+        AuthenticatedUser user = new AuthenticatedUser(
                 username,
                 displayName == null || displayName.isBlank() ? username : displayName,
                 streamSet
         );
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(user, expiration == null ? 0 : expiration.getTime());
     }
 
     public long expirationSeconds() {
@@ -122,4 +159,7 @@ public class JwtService {
         }
         return normalized;
     }
+
+    public record VerifiedToken(AuthenticatedUser user, long expiresAtEpochMs) {
+    }
 }
@@ -0,0 +1,24 @@
+package com.yoojuno.cctv.auth;
+
+/**
+ * Login was not attempted: either the caller is throttled after repeated failures (429) or the
+ * password verification pool is saturated (503). Both carry a Retry-After hint.
+ */
+public class LoginRejectedException extends RuntimeException {
+    private final int status;
+    private final long retryAfterSeconds;
+
+    public LoginRejectedException(int status, String message, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,94 @@
+package com.yoojuno.cctv.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts failed logins per account and per client address in fixed windows. A key that reached
+ * its limit is refused until the window ends, before any password hashing is spent on it.
+ * Accounts and addresses use separate limits because control rooms often share both.
+ */
+@Component
+public class LoginThrottle {
+    private final Map<String, Window> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Window> addresses = new ConcurrentHashMap<>();
+
+    @Value("${auth.login.throttle.window-seconds:300}")
+    private long windowSeconds;
+
+    @Value("${auth.login.throttle.max-failures-per-account:10}")
+    private int maxFailuresPerAccount;
+
+    @Value("${auth.login.throttle.max-failures-per-ip:50}")
+    private int maxFailuresPerIp;
+
+    /**
+     * @throws LoginRejectedException with status 429 when the account or address is blocked
+     */
+    public void check(String username, String remoteAddress) {
+        long now = System.currentTimeMillis();
+        long retryAfterMs = Math.max(
+                blockedForMs(accounts.get(accountKey(username)), maxFailuresPerAccount, now),
+                blockedForMs(addresses.get(addressKey(remoteAddress)), maxFailuresPerIp, now)
+        );
+        if (retryAfterMs > 0) {
+            throw new LoginRejectedException(429, "too many failed login attempts", (retryAfterMs + 999) / 1000);
+        }
+    }
+
+    public void recordFailure(String username, String remoteAddress) {
+        long now = System.currentTimeMillis();
+        increment(accounts, accountKey(username), now);
+        increment(addresses, addressKey(remoteAddress), now);
+    }
+
+    public void recordSuccess(String username) {
+        accounts.remove(accountKey(username));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.login.throttle.purge-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        accounts.values().removeIf(window -> window.expired(now, windowMs()));
+        addresses.values().removeIf(window -> window.expired(now, windowMs()));
+    }
+
+    private void increment(Map<String, Window> windows, String key, long now) {
+        windows.compute(key, (ignored, window) -> {
+            if (window == null || window.expired(now, windowMs())) {
+                return new Window(now, 1);
+            }
+            return new Window(window.startedAtMs(), window.failures() + 1);
+        });
+    }
+
+    private long blockedForMs(Window window, int maxFailures, long now) {
+        if (window == null || maxFailures <= 0 || window.failures() < maxFailures || window.expired(now, windowMs())) {
+            return 0;
+        }
+        return window.startedAtMs() + windowMs() - now;
+    }
+
+    private long windowMs() {
+        return Math.max(1, windowSeconds) * 1000;
+    }
+
+    private static String accountKey(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String addressKey(String remoteAddress) {
+        return remoteAddress == null ? "" : remoteAddress;
+    }
+
+    private record Window(long startedAtMs, int failures) {
+        private boolean expired(long now, long windowMs) {
+            return now - startedAtMs >= windowMs;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.yoojuno.cctv.auth;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt checks on a small fixed pool with a bounded queue, so a login storm uses at most
+ * {@code auth.login.verify-threads} cores and leaves the rest to segment delivery. Once the queue
+ * is full further logins are rejected immediately instead of piling up on request threads, and
+ * callers get a future so no request thread waits for the hash either.
+ */
+@Component
+public class PasswordVerifier {
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    @Value("${auth.login.verify-threads:0}")
+    private int verifyThreads;
+
+    @Value("${auth.login.verify-queue:64}")
+    private int verifyQueue;
+
+    @Value("${auth.login.verify-timeout-ms:5000}")
+    private long verifyTimeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        int threads = verifyThreads > 0
+                ? verifyThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, verifyQueue)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verify-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Completes with the check's result, or exceptionally with {@link LoginRejectedException}
+     * when the pool is saturated or the check outlives {@code auth.login.verify-timeout-ms}.
+     */
+    public CompletableFuture<Boolean> verify(Callable<Boolean> check) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(check.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(new IllegalStateException("password verification failed", e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new LoginRejectedException(503, "login service busy", 1));
+        }
+        return result.orTimeout(Math.max(1, verifyTimeoutMs), TimeUnit.MILLISECONDS).handle((matches, error) -> {
+            if (error == null) {
+                verified.increment();
+                return matches;
+            }
+            if (error instanceof TimeoutException) {
+                task.cancel(true);
+                timedOut.increment();
+                throw new LoginRejectedException(503, "login service busy", 1);
+            }
+            throw error instanceof RuntimeException runtime ? runtime : new IllegalStateException(error);
+        });
+    }
+
+    public VerifierStats stats() {
+        return new VerifierStats(
+                executor.getMaximumPoolSize(),
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                executor.getQueue().remainingCapacity(),
+                verified.sum(),
+                rejected.sum(),
+                timedOut.sum()
+        );
+    }
+
+    public record VerifierStats(
+            int threads,
+            int active,
+            int queued,
+            int queueRemaining,
+            long verified,
+            long rejected,
+            long timedOut
+    ) {
+    }
+}
@@ -0,0 +1,221 @@
+package com.yoojuno.cctv.auth;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-side store of rotating, opaque refresh tokens, kept as SHA-256 hashes. Reusing a rotated
+ * token outside {@code auth.refresh.reuse-grace-seconds} revokes its whole family.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    @Value("${auth.refresh.expiration-seconds:604800}")
+    private long expirationSeconds;
+
+    @Value("${auth.refresh.reuse-grace-seconds:10}")
+    private long reuseGraceSeconds;
+
+    @Value("${auth.refresh.reuse-detection-seconds:86400}")
+    private long reuseDetectionSeconds;
+
+    @Value("${auth.refresh.store-file:}")
+    private String storeFile;
+
+    @PostConstruct
+    public void load() {
+        Path path = storePath();
+        if (path == null || !Files.isRegularFile(path)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length != 5) {
+                    continue;
+                }
+                Session session = new Session(parts[1], parts[2], Long.parseLong(parts[3]), Long.parseLong(parts[4]));
+                if (session.expiresAtMs() > now) {
+                    sessions.put(parts[0], session);
+                }
+            }
+            log.info("Loaded {} refresh sessions from {}.", sessions.size(), path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable refresh token store {}: {}", path, e.toString());
+        }
+    }
+
+    public String issue(String username) {
+        return store(username, newId());
+    }
+
+    /**
+     * Consumes {@code token} and returns its replacement, or empty when the token is unknown,
+     * expired or was reused after rotation (which also revokes its family).
+     */
+    public Optional<Rotation> rotate(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        Session[] consumed = new Session[1];
+        Session[] reused = new Session[1];
+        sessions.computeIfPresent(hash(token), (key, session) -> {
+            if (session.expiresAtMs() <= now) {
+                return null;
+            }
+            if (session.rotatedAtMs() > 0 && now - session.rotatedAtMs() >= reuseGraceMs()) {
+                reused[0] = session;
+                return session;
+            }
+            consumed[0] = session;
+            if (session.rotatedAtMs() > 0) {
+                return session;
+            }
+            // Keep the consumed token as a tombstone so a later replay can be recognised.
+            long tombstoneExpiry = Math.min(session.expiresAtMs(), now + Math.max(0, reuseDetectionSeconds) * 1000);
+            return new Session(session.username(), session.familyId(), tombstoneExpiry, now);
+        });
+        if (reused[0] != null) {
+            log.warn("Refresh token reuse detected for user '{}'; revoking its sessions.", reused[0].username());
+            revokeFamily(reused[0].familyId());
+            return Optional.empty();
+        }
+        if (consumed[0] == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Rotation(consumed[0].username(), store(consumed[0].username(), consumed[0].familyId())));
+    }
+
+    public void revoke(String token) {
+        if (token == null || token.isBlank()) {
+            return;
+        }
+        Session session = sessions.remove(hash(token));
+        if (session != null) {
+            revokeFamily(session.familyId());
+        }
+    }
+
+    public void revokeUser(String username) {
+        if (sessions.values().removeIf(session -> session.username().equals(username))) {
+            dirty.set(true);
+        }
+    }
+
+    public long expirationSeconds() {
+        return expirationSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${auth.refresh.persist-interval-ms:5000}")
+    public void maintain() {
+        long now = System.currentTimeMillis();
+        if (sessions.values().removeIf(session -> session.expiresAtMs() <= now)) {
+            dirty.set(true);
+        }
+        if (dirty.getAndSet(false)) {
+            persist();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist();
+    }
+
+    private String store(String username, String familyId) {
+        String token = newId() + newId();
+        long expiresAtMs = System.currentTimeMillis() + Math.max(60, expirationSeconds) * 1000;
+        sessions.put(hash(token), new Session(username, familyId, expiresAtMs, 0));
+        dirty.set(true);
+        return token;
+    }
+
+    private void revokeFamily(String familyId) {
+        sessions.values().removeIf(session -> session.familyId().equals(familyId));
+        dirty.set(true);
+    }
+
+    private void persist() {
+        Path path = storePath();
+        if (path == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(sessions.size());
+        sessions.forEach((key, session) -> lines.add(String.join("\t",
+                key,
+                session.username(),
+                session.familyId(),
+                Long.toString(session.expiresAtMs()),
+                Long.toString(session.rotatedAtMs()))));
+        try {
+            Path parent = path.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Cannot persist refresh token store {}: {}", path, e.toString());
+        }
+    }
+
+    private Path storePath() {
+        return storeFile == null || storeFile.isBlank() ? null : Path.of(storeFile.trim());
+    }
+
+    private long reuseGraceMs() {
+        return Math.max(0, reuseGraceSeconds) * 1000;
+    }
+
+    private static String newId() {
+        byte[] bytes = new byte[24];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Session(String username, String familyId, long expiresAtMs, long rotatedAtMs) {
+    }
+
+    public record Rotation(String username, String token) {
+    }
+}
@@ -1,11 +1,15 @@
 package com.yoojuno.cctv.auth;
 
+import com.yoojuno.cctv.stream.BandwidthShaper;
+import com.yoojuno.cctv.stream.HlsTrafficAccounting;
+import com.yoojuno.cctv.stream.RewindBuffer;
+import com.yoojuno.cctv.stream.ViewerPresenceTracker;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -18,8 +22,26 @@ import java.util.regex.Pattern;
 
 @Component
 public class StreamAccessFilter extends OncePerRequestFilter {
-    private static final Logger log = LoggerFactory.getLogger(StreamAccessFilter.class);
     private static final Pattern SEGMENT_SUFFIX = Pattern.compile("_(\\d+)$");
+    private static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final int MAX_CLIENT_ID_LENGTH = 64;
+
+    private final HlsTrafficAccounting trafficAccounting;
+    private final BandwidthShaper bandwidthShaper;
+    private final ViewerPresenceTracker presenceTracker;
+    private final AccessAuditLog auditLog;
+
+    public StreamAccessFilter(
+            HlsTrafficAccounting trafficAccounting,
+            BandwidthShaper bandwidthShaper,
+            ViewerPresenceTracker presenceTracker,
+            AccessAuditLog auditLog
+    ) {
+        this.trafficAccounting = trafficAccounting;
+        this.bandwidthShaper = bandwidthShaper;
+        this.presenceTracker = presenceTracker;
+        this.auditLog = auditLog;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -35,6 +57,7 @@ public class StreamAccessFilter extends OncePerRequestFilter {
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            auditLog.denied(null, extractStreamId(path), path, "unauthenticated", request.getRemoteAddr());
             writeJsonError(response, HttpServletResponse.SC_UNAUTHORIZED, "unauthorized");
             return;
         }
@@ -47,15 +70,51 @@ public class StreamAccessFilter extends OncePerRequestFilter {
 
         Set<String> allowed = user.allowedStreams();
         if (isAllowedStreamRequest(path, streamId, allowed)) {
-            filterChain.doFilter(request, response);
+            serveAllowed(request, response, filterChain, user, accountingStreamId(path, streamId), isSegmentRequest(path));
             return;
         }
 
-        log.warn("Denied HLS access. user={}, path={}, streamId={}, allowed={}",
-                user.username(), path, streamId, allowed);
+        auditLog.denied(user.username(), streamId, path, "stream-not-allowed", request.getRemoteAddr());
         writeJsonError(response, HttpServletResponse.SC_FORBIDDEN, "stream access denied");
     }
 
+    /**
+     * Manifests are tiny and refusing them stalls players, so only segment downloads go through
+     * the bandwidth shaper; both are accounted.
+     */
+    private void serveAllowed(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain,
+            AuthenticatedUser user,
+            String streamId,
+            boolean segment
+    ) throws ServletException, IOException {
+        presenceTracker.touch(streamId, user.username(), clientId(request));
+        auditLog.allowed(user.username(), streamId, request.getRequestURI(), segment, request.getRemoteAddr());
+        if (!segment) {
+            filterChain.doFilter(request, response);
+            trafficAccounting.record(streamId, user.username(), responseBytes(request, response));
+            return;
+        }
+
+        BandwidthShaper.Admission admission = bandwidthShaper.admit(user.username(), streamId);
+        if (!admission.admitted()) {
+            auditLog.denied(user.username(), streamId, request.getRequestURI(), "rate-limited", request.getRemoteAddr());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(admission.retryAfterSeconds()));
+            writeJsonError(response, HttpStatus.TOO_MANY_REQUESTS.value(), admission.reason());
+            return;
+        }
+        long bytes = 0;
+        try {
+            filterChain.doFilter(request, response);
+            bytes = responseBytes(request, response);
+        } finally {
+            bandwidthShaper.complete(admission, bytes);
+        }
+        trafficAccounting.record(streamId, user.username(), bytes);
+    }
+
     static String extractStreamId(String requestPath) {
         if (requestPath == null || !requestPath.startsWith("/hls/")) {
             return null;
@@ -76,18 +135,58 @@ public class StreamAccessFilter extends OncePerRequestFilter {
         return fileName;
     }
 
+    /**
+     * Segment files ({@code cam_12.ts}) are accounted to their stream ({@code cam}), and so are
+     * the rewind playlist and segments ({@code cam_rewind.m3u8}, {@code cam_rewind_7.ts}).
+     */
+    static String accountingStreamId(String path, String streamId) {
+        if (!isSegmentRequest(path)) {
+            return RewindBuffer.liveStreamId(streamId);
+        }
+        return RewindBuffer.liveStreamId(SEGMENT_SUFFIX.matcher(streamId).replaceFirst(""));
+    }
+
+    /**
+     * Players send a per-tab {@code X-Client-Id}; other clients fall back to address + user agent.
+     */
+    static String clientId(HttpServletRequest request) {
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        if (clientId == null || clientId.isBlank()) {
+            clientId = request.getParameter("cid");
+        }
+        if (clientId != null && !clientId.isBlank()) {
+            String trimmed = clientId.trim();
+            return trimmed.length() > MAX_CLIENT_ID_LENGTH ? trimmed.substring(0, MAX_CLIENT_ID_LENGTH) : trimmed;
+        }
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        return request.getRemoteAddr() + "/" + Integer.toHexString(userAgent == null ? 0 : userAgent.hashCode());
+    }
+
+    private static long responseBytes(HttpServletRequest request, HttpServletResponse response) {
+        int status = response.getStatus();
+        if ("HEAD".equals(request.getMethod()) || (status != HttpServletResponse.SC_OK && status != HttpServletResponse.SC_PARTIAL_CONTENT)) {
+            return 0;
+        }
+        String contentLength = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     private static boolean isAllowedStreamRequest(String path, String streamId, Set<String> allowed) {
         if (allowed.contains("*") || allowed.contains(streamId)) {
             return true;
         }
-        if (!isSegmentRequest(path)) {
-            return false;
-        }
-        String normalized = SEGMENT_SUFFIX.matcher(streamId).replaceFirst("");
+        String normalized = accountingStreamId(path, streamId);
         return !normalized.equals(streamId) && allowed.contains(normalized);
     }
 
-    private static boolean isSegmentRequest(String path) {
+    public static boolean isSegmentRequest(String path) {
         if (path == null) {
             return false;
         }
@@ -1,12 +1,15 @@
 package com.yoojuno.cctv.auth;
 
+import com.yoojuno.cctv.config.WatchedFile;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -14,7 +17,15 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * User directory. Entries come from {@code auth.users} or, when set, from {@code auth.users-file},
+ * which is polled and re-parsed off the request path. Each reload builds a complete immutable map
+ * and publishes it with one volatile write, so logins never see a half-applied file. Reloads are
+ * strict: a file that is empty or has any malformed entry (e.g. truncated mid-write) leaves the
+ * previous directory in place.
+ */
 @Service
 public class UserAccountService {
     private static final Logger log = LoggerFactory.getLogger(UserAccountService.class);
@@ -22,28 +33,86 @@ public class UserAccountService {
     @Value("${auth.users:}")
     private String usersRaw;
 
+    @Value("${auth.users-file:}")
+    private String usersFile;
+
     private final PasswordEncoder passwordEncoder;
-    private final Map<String, UserRecord> users = new LinkedHashMap<>();
+    private final PasswordVerifier passwordVerifier;
+    private volatile Map<String, UserRecord> users = Map.of();
+    private WatchedFile watchedFile;
 
-    public UserAccountService(PasswordEncoder passwordEncoder) {
+    public UserAccountService(PasswordEncoder passwordEncoder, PasswordVerifier passwordVerifier) {
         this.passwordEncoder = passwordEncoder;
+        this.passwordVerifier = passwordVerifier;
     }
 
     @PostConstruct
     public void load() {
-        users.clear();
+        watchedFile = WatchedFile.of(usersFile).orElse(null);
+        String fileContent = null;
+        if (watchedFile != null) {
+            try {
+                fileContent = watchedFile.readIfChanged().orElse(null);
+            } catch (IOException e) {
+                log.warn("Cannot read auth.users-file {}: {}", watchedFile.path(), e.toString());
+            }
+        }
+        if (fileContent != null) {
+            users = parseUsers(fileContent);
+            return;
+        }
         if (usersRaw == null || usersRaw.isBlank()) {
             throw new IllegalStateException("auth.users is empty. Configure AUTH_USERS with hashed credentials.");
         }
+        users = parseUsers(usersRaw);
+    }
 
-        String[] entries = usersRaw.split(";");
-        for (String entry : entries) {
+    @Scheduled(fixedDelayString = "${config.reload-interval-ms:2000}", initialDelayString = "${config.reload-interval-ms:2000}")
+    public void reloadIfChanged() {
+        if (watchedFile == null) {
+            return;
+        }
+        try {
+            watchedFile.readIfChanged().ifPresent(content -> {
+                Map<String, UserRecord> next = parseUsers(content, true);
+                users = next;
+                log.info("User directory reloaded from {} ({} users).", watchedFile.path(), next.size());
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Keeping current user directory; reload from {} failed: {}", watchedFile.path(), e.toString());
+        }
+    }
+
+    public int userCount() {
+        return users.size();
+    }
+
+    static Map<String, UserRecord> parseUsers(String raw) {
+        return parseUsers(raw, false);
+    }
+
+    /**
+     * @param strict reject the whole input when any entry is malformed instead of skipping it
+     */
+    static Map<String, UserRecord> parseUsers(String raw, boolean strict) {
+        Map<String, UserRecord> parsed = new LinkedHashMap<>();
+        String[] entries = raw == null ? new String[0] : raw.split(";");
+        for (int i = 0; i < entries.length; i++) {
+            String entry = entries[i];
             if (entry == null || entry.isBlank()) {
                 continue;
             }
 
             String[] parts = entry.split(":", 3);
-            if (parts.length < 3) {
+            boolean valid = parts.length == 3
+                    && !parts[0].isBlank()
+                    && !parts[1].isBlank()
+                    && !parts[2].isBlank();
+            if (!valid) {
+                // Never echo the entry: it holds a password hash.
+                if (strict) {
+                    throw new IllegalStateException("Invalid user entry #" + (i + 1));
+                }
                 continue;
             }
 
@@ -51,34 +120,44 @@ public class UserAccountService {
             String passwordSpec = parts[1].trim();
             String streamsRaw = parts[2].trim();
 
-            if (username.isBlank() || passwordSpec.isBlank() || streamsRaw.isBlank()) {
-                continue;
-            }
-
             Set<String> streams = parseStreams(streamsRaw);
             if (isLegacyPlaintext(passwordSpec)) {
                 log.warn("User '{}' is configured with plain password. Use {bcrypt}<hash> format.", username);
             }
-            users.put(username, new UserRecord(username, username, passwordSpec, streams));
+            parsed.put(username, new UserRecord(username, username, passwordSpec, Set.copyOf(streams)));
         }
 
-        if (users.isEmpty()) {
+        if (parsed.isEmpty()) {
             throw new IllegalStateException("No valid users parsed from auth.users.");
         }
+        return Collections.unmodifiableMap(parsed);
     }
 
-    public Optional<AuthenticatedUser> authenticate(String username, String password) {
+    /**
+     * Completes once the password check has run on the verifier pool; completes exceptionally
+     * with {@link LoginRejectedException} when the pool turns the check away.
+     */
+    public CompletableFuture<Optional<AuthenticatedUser>> authenticate(String username, String password) {
         if (username == null || password == null) {
-            return Optional.empty();
+            return CompletableFuture.completedFuture(Optional.empty());
         }
         UserRecord user = users.get(username.trim());
         if (user == null) {
-            return Optional.empty();
+            return CompletableFuture.completedFuture(Optional.empty());
         }
-        if (!user.matches(password, passwordEncoder)) {
+        return user.matches(password, passwordEncoder, passwordVerifier)
+                .thenApply(matches -> matches ? Optional.of(user.toAuthenticatedUser()) : Optional.empty());
+    }
+
+    /**
+     * Current directory entry for an already authenticated user (no password check), so renewed
+     * sessions pick up permission changes from a reloaded user file.
+     */
+    public Optional<AuthenticatedUser> findUser(String username) {
+        if (username == null) {
             return Optional.empty();
         }
-        return Optional.of(user.toAuthenticatedUser());
+        return Optional.ofNullable(users.get(username.trim())).map(UserRecord::toAuthenticatedUser);
     }
 
     private static boolean isLegacyPlaintext(String passwordSpec) {
@@ -101,22 +180,24 @@ public class UserAccountService {
         return values;
     }
 
-    private record UserRecord(String username, String displayName, String passwordSpec, Set<String> streams) {
-        private boolean matches(String rawPassword, PasswordEncoder passwordEncoder) {
+    record UserRecord(String username, String displayName, String passwordSpec, Set<String> streams) {
+        private CompletableFuture<Boolean> matches(String rawPassword, PasswordEncoder passwordEncoder, PasswordVerifier passwordVerifier) {
             if (passwordSpec.startsWith("{plain}")) {
-                return passwordSpec.substring("{plain}".length()).equals(rawPassword);
+                return CompletableFuture.completedFuture(passwordSpec.substring("{plain}".length()).equals(rawPassword));
             }
+            // BCrypt is deliberately slow; the bounded verifier pool caps how many cores logins can take.
             if (passwordSpec.startsWith("{bcrypt}")) {
-                return passwordEncoder.matches(rawPassword, passwordSpec.substring("{bcrypt}".length()));
+                String hash = passwordSpec.substring("{bcrypt}".length());
+                return passwordVerifier.verify(() -> passwordEncoder.matches(rawPassword, hash));
             }
             if (passwordSpec.startsWith("$2a$") || passwordSpec.startsWith("$2b$") || passwordSpec.startsWith("$2y$")) {
-                return passwordEncoder.matches(rawPassword, passwordSpec);
+                return passwordVerifier.verify(() -> passwordEncoder.matches(rawPassword, passwordSpec));
             }
-            return passwordSpec.equals(rawPassword);
+            return CompletableFuture.completedFuture(passwordSpec.equals(rawPassword));
         }
 
         private AuthenticatedUser toAuthenticatedUser() {
-            return new AuthenticatedUser(username, displayName, Set.copyOf(streams));
+            return new AuthenticatedUser(username, displayName, streams);
         }
     }
 }
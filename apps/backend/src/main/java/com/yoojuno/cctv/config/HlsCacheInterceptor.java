@@ -0,0 +1,54 @@
+package com.yoojuno.cctv.config;
+
+import com.yoojuno.cctv.stream.HlsCachePolicy;
+import com.yoojuno.cctv.stream.HlsStorageLayout;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link HlsCachePolicy} to {@code /hls/} files served from disk. Only requests no filter
+ * answered reach the resource handler, so this sees exactly the file-backed objects. The ETag
+ * uses the file's size and microsecond mtime; a matching {@code If-None-Match} gets a 304 after
+ * a stat, without opening the file.
+ */
+class HlsCacheInterceptor implements HandlerInterceptor {
+    private final HlsStorageLayout storageLayout;
+    private final HlsCachePolicy cachePolicy;
+
+    HlsCacheInterceptor(HlsStorageLayout storageLayout, HlsCachePolicy cachePolicy) {
+        this.storageLayout = storageLayout;
+        this.cachePolicy = cachePolicy;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        if (!("GET".equals(method) || "HEAD".equals(method)) || path == null || !path.startsWith("/hls/")) {
+            return true;
+        }
+        String fileName = path.substring("/hls/".length());
+        Path file = storageLayout.resolveFile(fileName);
+        if (file == null) {
+            return true;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return true;
+        }
+        if (!attributes.isRegularFile()) {
+            return true;
+        }
+        long modified = attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS);
+        return !cachePolicy.notModified(request, response, fileName, attributes.size(), modified);
+    }
+}
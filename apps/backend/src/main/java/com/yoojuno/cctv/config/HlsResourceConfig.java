@@ -1,29 +1,48 @@
 package com.yoojuno.cctv.config;
 
+import com.yoojuno.cctv.stream.HlsCachePolicy;
+import com.yoojuno.cctv.stream.HlsStorageLayout;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.nio.file.Path;
-
 @Configuration
 public class HlsResourceConfig implements WebMvcConfigurer {
-    @Value("${hls.path:./hls}")
-    private String hlsPath;
+    private final HlsStorageLayout storageLayout;
+    private final HlsCachePolicy cachePolicy;
     @Value("${hls.allowed-origins:http://localhost:5174,http://127.0.0.1:5174,https://localhost:5174,https://127.0.0.1:5174}")
     private String[] hlsAllowedOrigins;
     @Value("${hls.allowed-methods:GET,HEAD,OPTIONS}")
     private String[] hlsAllowedMethods;
 
+    public HlsResourceConfig(HlsStorageLayout storageLayout, HlsCachePolicy cachePolicy) {
+        this.storageLayout = storageLayout;
+        this.cachePolicy = cachePolicy;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        String location = Path.of(hlsPath).toAbsolutePath().normalize().toUri().toString();
+        String[] locations = storageLayout.volumes().stream()
+                .map(volume -> volume.root().toUri().toString())
+                .map(location -> location.endsWith("/") ? location : location + "/")
+                .toArray(String[]::new);
         registry.addResourceHandler("/hls/**")
-                .addResourceLocations(location)
-                .setCacheControl(CacheControl.noCache());
+                .addResourceLocations(locations)
+                .resourceChain(false)
+                .addResolver(new HlsVolumeResourceResolver(storageLayout));
+    }
+
+    /**
+     * Cache-Control and ETag for files from disk come from {@link HlsCachePolicy} (the resource
+     * handler itself sets no cache headers), matching the in-memory sources.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HlsCacheInterceptor(storageLayout, cachePolicy))
+                .addPathPatterns("/hls/**");
     }
 
     @Override
@@ -0,0 +1,43 @@
+package com.yoojuno.cctv.config;
+
+import com.yoojuno.cctv.stream.HlsStorageLayout;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Maps {@code /hls/{file}} to the volume and directory {@link HlsStorageLayout} assigns the
+ * file's stream, so player URLs stay the same whatever the on-disk layout.
+ */
+class HlsVolumeResourceResolver implements ResourceResolver {
+    private final HlsStorageLayout storageLayout;
+
+    HlsVolumeResourceResolver(HlsStorageLayout storageLayout) {
+        this.storageLayout = storageLayout;
+    }
+
+    @Override
+    public Resource resolveResource(
+            HttpServletRequest request,
+            String requestPath,
+            List<? extends Resource> locations,
+            ResourceResolverChain chain
+    ) {
+        Path file = storageLayout.resolveFile(requestPath);
+        if (file != null && Files.isRegularFile(file)) {
+            return new FileSystemResource(file);
+        }
+        return chain.resolveResource(request, requestPath, locations);
+    }
+
+    @Override
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourcePath, locations);
+    }
+}
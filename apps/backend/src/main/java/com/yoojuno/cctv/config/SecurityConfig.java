@@ -1,25 +1,37 @@
 package com.yoojuno.cctv.config;
 
+import com.yoojuno.cctv.auth.AuthenticatedUser;
 import com.yoojuno.cctv.auth.JwtAuthenticationFilter;
 import com.yoojuno.cctv.auth.StreamAccessFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.function.Supplier;
+
 @Configuration
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final StreamAccessFilter streamAccessFilter;
+    @Value("${metrics.scrape-token:}")
+    private String scrapeToken;
 
     public SecurityConfig(
             JwtAuthenticationFilter jwtAuthenticationFilter,
@@ -37,7 +49,11 @@ public class SecurityConfig {
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.GET, "/health").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/prometheus").access(this::authorizeScrape)
+                        .requestMatchers("/actuator/**").denyAll()
                         .requestMatchers(HttpMethod.POST, "/api/auth/login").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/auth/refresh").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/auth/logout").permitAll()
                         .requestMatchers("/api/**").authenticated()
                         .requestMatchers("/hls/**").authenticated()
@@ -52,8 +68,27 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Metrics name every stream, so a scrape needs the bearer {@code metrics.scrape-token} or an
+     * admin session (all streams, {@code *}).
+     */
+    AuthorizationDecision authorizeScrape(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        if (scrapeToken != null && !scrapeToken.isBlank()) {
+            String header = context.getRequest().getHeader(HttpHeaders.AUTHORIZATION);
+            String presented = header != null && header.startsWith("Bearer ") ? header.substring("Bearer ".length()).trim() : "";
+            if (MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8), scrapeToken.trim().getBytes(StandardCharsets.UTF_8))) {
+                return new AuthorizationDecision(true);
+            }
+        }
+        Authentication current = authentication.get();
+        return new AuthorizationDecision(current != null
+                && current.getPrincipal() instanceof AuthenticatedUser user
+                && user.allowedStreams().contains("*"));
+    }
+
+    // Static: UserAccountService needs the encoder while this class's filters are still being built.
     @Bean
-    public PasswordEncoder passwordEncoder() {
+    public static PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
     }
 }
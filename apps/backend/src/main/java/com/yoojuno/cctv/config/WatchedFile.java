@@ -0,0 +1,64 @@
+package com.yoojuno.cctv.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Polled configuration file. {@link #readIfChanged()} returns the content only when the file's
+ * size or modification time moved since the last successful read, so callers can poll it from
+ * a scheduler without re-parsing unchanged files.
+ */
+public final class WatchedFile {
+    private final Path path;
+    private long lastModifiedMs = Long.MIN_VALUE;
+    private long lastSize = -1;
+
+    private WatchedFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return a watcher, or empty when {@code location} is blank (feature disabled)
+     */
+    public static Optional<WatchedFile> of(String location) {
+        if (location == null || location.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.of(new WatchedFile(Path.of(location.trim()).toAbsolutePath().normalize()));
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public synchronized Optional<String> readIfChanged() throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modifiedMs = attributes.lastModifiedTime().toMillis();
+        if (modifiedMs == lastModifiedMs && attributes.size() == lastSize) {
+            return Optional.empty();
+        }
+        String content = entries(Files.readAllLines(path));
+        lastModifiedMs = modifiedMs;
+        lastSize = attributes.size();
+        return Optional.of(content);
+    }
+
+    /**
+     * Joins one-entry-per-line files into the {@code ;}-separated form used by the inline
+     * properties. Blank lines and {@code #} comments are dropped.
+     */
+    static String entries(List<String> lines) {
+        return lines.stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .collect(Collectors.joining(";"));
+    }
+}
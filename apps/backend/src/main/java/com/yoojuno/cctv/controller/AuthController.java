@@ -1,10 +1,16 @@
 package com.yoojuno.cctv.controller;
 
 import com.yoojuno.cctv.auth.AuthenticatedUser;
+import com.yoojuno.cctv.auth.JwtAuthenticationFilter;
 import com.yoojuno.cctv.auth.JwtService;
+import com.yoojuno.cctv.auth.LoginRejectedException;
+import com.yoojuno.cctv.auth.LoginThrottle;
+import com.yoojuno.cctv.auth.RefreshTokenService;
 import com.yoojuno.cctv.auth.UserAccountService;
 import com.yoojuno.cctv.model.StreamInfo;
 import com.yoojuno.cctv.stream.StreamCatalogService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,6 +21,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -22,6 +29,8 @@ import org.springframework.web.bind.annotation.RestController;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -29,8 +38,12 @@ public class AuthController {
     private final UserAccountService userAccountService;
     private final StreamCatalogService streamCatalogService;
     private final JwtService jwtService;
+    private final LoginThrottle loginThrottle;
+    private final RefreshTokenService refreshTokenService;
     @Value("${auth.jwt.cookie-name:CCTV_AUTH}")
     private String authCookieName;
+    @Value("${auth.refresh.cookie-name:CCTV_REFRESH}")
+    private String refreshCookieName;
     @Value("${auth.jwt.cookie-secure:false}")
     private boolean authCookieSecure;
     @Value("${auth.jwt.cookie-same-site:Lax}")
@@ -39,50 +52,117 @@ public class AuthController {
     public AuthController(
             UserAccountService userAccountService,
             StreamCatalogService streamCatalogService,
-            JwtService jwtService
+            JwtService jwtService,
+            LoginThrottle loginThrottle,
+            RefreshTokenService refreshTokenService
     ) {
         this.userAccountService = userAccountService;
         this.streamCatalogService = streamCatalogService;
         this.jwtService = jwtService;
+        this.loginThrottle = loginThrottle;
+        this.refreshTokenService = refreshTokenService;
     }
 
+    /**
+     * The password check runs on the verifier pool and the request thread is released until it
+     * answers. The client address is the one the container resolved through
+     * {@code server.forward-headers-strategy}, so clients behind the trusted proxy are throttled
+     * individually rather than as one address.
+     */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
-        Optional<AuthenticatedUser> user = userAccountService.authenticate(request.username(), request.password());
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        String remoteAddress = httpRequest.getRemoteAddr();
+        try {
+            loginThrottle.check(request.username(), remoteAddress);
+        } catch (LoginRejectedException e) {
+            return CompletableFuture.completedFuture(rejected(e));
+        }
+        return userAccountService.authenticate(request.username(), request.password())
+                .<ResponseEntity<?>>handle((user, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause()
+                                : error;
+                        if (cause instanceof LoginRejectedException rejection) {
+                            return rejected(rejection);
+                        }
+                        throw new CompletionException(cause);
+                    }
+                    if (user.isEmpty()) {
+                        loginThrottle.recordFailure(request.username(), remoteAddress);
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "invalid credentials"));
+                    }
+                    loginThrottle.recordSuccess(request.username());
+                    return sessionResponse(user.get(), refreshTokenService.issue(user.get().username()));
+                });
+    }
+
+    private static ResponseEntity<Map<String, String>> rejected(LoginRejectedException e) {
+        return ResponseEntity.status(e.status())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.retryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Renews the access cookie from the refresh cookie without a password check. The refresh
+     * token is rotated on every call; permissions are re-read from the current user directory.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(HttpServletRequest httpRequest) {
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(readCookie(httpRequest, refreshCookieName));
+        if (rotation.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header(HttpHeaders.SET_COOKIE, buildRefreshTokenCookie("", 0).toString())
+                    .body(Map.of("error", "invalid refresh token"));
+        }
+        Optional<AuthenticatedUser> user = userAccountService.findUser(rotation.get().username());
         if (user.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "invalid credentials"));
+            refreshTokenService.revokeUser(rotation.get().username());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header(HttpHeaders.SET_COOKIE, buildRefreshTokenCookie("", 0).toString())
+                    .body(Map.of("error", "user no longer exists"));
         }
-        AuthenticatedUser authenticatedUser = user.get();
-        String token = jwtService.issueToken(authenticatedUser);
-        List<StreamInfo> streams = streamCatalogService.forAllowedStreamIds(authenticatedUser.allowedStreams());
-        ResponseCookie cookie = buildAccessTokenCookie(token, jwtService.expirationSeconds());
-        return ResponseEntity.ok()
-                .header(HttpHeaders.SET_COOKIE, cookie.toString())
-                .body(new AuthResponse(
-                jwtService.expirationSeconds(),
-                authenticatedUser.username(),
-                authenticatedUser.displayName(),
-                streams
-                ));
+        return sessionResponse(user.get(), rotation.get().token());
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> me(Authentication authentication) {
+    public ResponseEntity<?> me(
+            Authentication authentication,
+            @RequestAttribute(value = JwtAuthenticationFilter.TOKEN_EXPIRES_AT_ATTRIBUTE, required = false) Long tokenExpiresAt
+    ) {
         if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
         }
         List<StreamInfo> streams = streamCatalogService.forAllowedStreamIds(user.allowedStreams());
-        return ResponseEntity.ok(new MeResponse(jwtService.expirationSeconds(), user.username(), user.displayName(), streams));
+        // Remaining lifetime of the presented token, not the configured TTL.
+        long expiresIn = tokenExpiresAt == null ? 0 : Math.max(0, (tokenExpiresAt - System.currentTimeMillis()) / 1000);
+        return ResponseEntity.ok(new MeResponse(expiresIn, user.username(), user.displayName(), streams));
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, String>> logout() {
+    public ResponseEntity<Map<String, String>> logout(HttpServletRequest httpRequest) {
+        refreshTokenService.revoke(readCookie(httpRequest, refreshCookieName));
         ResponseCookie clearCookie = buildAccessTokenCookie("", 0);
         return ResponseEntity.ok()
-                .header(HttpHeaders.SET_COOKIE, clearCookie.toString())
+                .header(HttpHeaders.SET_COOKIE, clearCookie.toString(), buildRefreshTokenCookie("", 0).toString())
                 .body(Map.of("status", "logged out"));
     }
 
+    private ResponseEntity<AuthResponse> sessionResponse(AuthenticatedUser user, String refreshToken) {
+        String token = jwtService.issueToken(user);
+        List<StreamInfo> streams = streamCatalogService.forAllowedStreamIds(user.allowedStreams());
+        ResponseCookie cookie = buildAccessTokenCookie(token, jwtService.expirationSeconds());
+        ResponseCookie refreshCookie = buildRefreshTokenCookie(refreshToken, refreshTokenService.expirationSeconds());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, cookie.toString(), refreshCookie.toString())
+                .body(new AuthResponse(
+                jwtService.expirationSeconds(),
+                user.username(),
+                user.displayName(),
+                streams
+                ));
+    }
+
     private ResponseCookie buildAccessTokenCookie(String token, long maxAgeSeconds) {
         return ResponseCookie.from(authCookieName, token)
                 .httpOnly(true)
@@ -93,6 +173,30 @@ public class AuthController {
                 .build();
     }
 
+    // Scoped to /api/auth so the long-lived token is never sent with stream or HLS requests.
+    private ResponseCookie buildRefreshTokenCookie(String token, long maxAgeSeconds) {
+        return ResponseCookie.from(refreshCookieName, token)
+                .httpOnly(true)
+                .secure(authCookieSecure)
+                .sameSite(authCookieSameSite)
+                .path("/api/auth")
+                .maxAge(maxAgeSeconds)
+                .build();
+    }
+
+    private static String readCookie(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (cookie != null && name.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
     public record LoginRequest(
             @NotBlank String username,
             @NotBlank String password
@@ -0,0 +1,149 @@
+package com.yoojuno.cctv.controller;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.yoojuno.cctv.auth.AuthenticatedUser;
+import com.yoojuno.cctv.auth.JwtAuthenticationFilter;
+import com.yoojuno.cctv.model.StreamInfo;
+import com.yoojuno.cctv.stream.HealthPayloadCache;
+import com.yoojuno.cctv.stream.HlsStorageLayout;
+import com.yoojuno.cctv.stream.StreamCatalog;
+import com.yoojuno.cctv.stream.StreamCatalogService;
+import com.yoojuno.cctv.stream.StreamHealthService;
+import com.yoojuno.cctv.stream.SystemHealthService;
+import com.yoojuno.cctv.stream.ViewerPresenceTracker;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Everything the frontend needs on page load in one round trip, built from the same per-version
+ * snapshots as {@code /api/streams/health} and {@code /api/system/health}.
+ */
+@RestController
+@RequestMapping("/api")
+public class DashboardController {
+    private final StreamCatalogService streamCatalogService;
+    private final StreamHealthService streamHealthService;
+    private final SystemHealthService systemHealthService;
+    private final HealthPayloadCache healthPayloadCache;
+    private final ViewerPresenceTracker presenceTracker;
+
+    public DashboardController(
+            StreamCatalogService streamCatalogService,
+            StreamHealthService streamHealthService,
+            SystemHealthService systemHealthService,
+            HealthPayloadCache healthPayloadCache,
+            ViewerPresenceTracker presenceTracker
+    ) {
+        this.streamCatalogService = streamCatalogService;
+        this.streamHealthService = streamHealthService;
+        this.systemHealthService = systemHealthService;
+        this.healthPayloadCache = healthPayloadCache;
+        this.presenceTracker = presenceTracker;
+    }
+
+    @GetMapping("/dashboard")
+    public ResponseEntity<?> dashboard(
+            Authentication authentication,
+            @RequestAttribute(value = JwtAuthenticationFilter.TOKEN_EXPIRES_AT_ATTRIBUTE, required = false) Long tokenExpiresAt,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
+        }
+        StreamCatalog.CatalogView view = streamCatalogService.view(user.allowedStreams());
+        // The version comes with the snapshot, so the cursor always matches the health it is sent with.
+        SystemHealthService.SharedSystemHealth shared = systemHealthService.sharedSystemHealth(view);
+        long version = shared.version();
+        long presenceVersion = presenceTracker.version();
+        long expiresAt = tokenExpiresAt == null ? 0 : tokenExpiresAt;
+        DashboardStorage storage = DashboardStorage.of(shared.hlsStorage());
+        // Storage and recommendations have no version, and the token expiry is per session, so both are hashed in.
+        String etagValue = Long.toString(version, 36) + "-" + Long.toString(presenceVersion, 36)
+                + "-" + Long.toString(expiresAt, 36)
+                + "-" + view.key()
+                + "-" + Integer.toHexString(Objects.hash(user.username(), user.displayName(), storage, shared.recommendations()));
+
+        return PayloadResponses.conditional(ifNoneMatch, acceptEncoding, etagValue, () -> healthPayloadCache.memoize(
+                "dashboard|" + user.username() + "|" + etagValue,
+                version,
+                () -> {
+                    long now = Instant.now().toEpochMilli();
+                    return healthPayloadCache.payload(new DashboardResponse(
+                            now,
+                            Math.max(0, (expiresAt - now) / 1000),
+                            user.username(),
+                            user.displayName(),
+                            view.streams(),
+                            presenceTracker.viewerCounts(view.streams().stream().map(StreamInfo::id).toList()),
+                            shared.streamDetails(),
+                            streamHealthService.liveThresholdSeconds(),
+                            streamHealthService.recommendedPollMs(),
+                            version,
+                            shared.streams(),
+                            storage,
+                            shared.recommendations()
+                    ));
+                }
+        ));
+    }
+
+    /**
+     * {@code version} is the cursor for the next {@code /api/streams/health?since=} poll;
+     * {@code expiresInSeconds} is as of {@code generatedAtEpochMs}.
+     */
+    public record DashboardResponse(
+            long generatedAtEpochMs,
+            long expiresInSeconds,
+            String username,
+            String displayName,
+            List<StreamInfo> streams,
+            Map<String, Integer> viewers,
+            List<RawValue> health,
+            long liveThresholdSeconds,
+            long recommendedPollMs,
+            long version,
+            SystemHealthService.StreamHealthSummary summary,
+            DashboardStorage storage,
+            List<String> recommendations
+    ) {
+    }
+
+    /**
+     * The storage totals from the system health check, without the per-volume detail.
+     */
+    public record DashboardStorage(
+            String layout,
+            boolean exists,
+            boolean readable,
+            boolean writable,
+            long manifestCount,
+            long segmentCount,
+            int volumes
+    ) {
+        static DashboardStorage of(SystemHealthService.HlsStorageStatus status) {
+            List<HlsStorageLayout.VolumeStatus> volumes = status.volumes();
+            return new DashboardStorage(
+                    status.layout(),
+                    status.exists(),
+                    status.readable(),
+                    status.writable(),
+                    status.manifestCount(),
+                    status.segmentCount(),
+                    volumes == null ? 0 : volumes.size()
+            );
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.yoojuno.cctv.controller;
+
+public final class EntityTags {
+    private EntityTags() {
+    }
+
+    public static String strong(String value) {
+        return "\"" + value + "\"";
+    }
+
+    /**
+     * For representations that are equivalent but not byte-identical (e.g. a generation timestamp
+     * in the body).
+     */
+    public static String weak(String value) {
+        return "W/" + strong(value);
+    }
+
+    /**
+     * Evaluates an {@code If-None-Match} header against the current tag using weak comparison,
+     * which is what RFC 9110 prescribes for GET/HEAD.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank() || etag == null) {
+            return false;
+        }
+        String current = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || opaque(trimmed).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
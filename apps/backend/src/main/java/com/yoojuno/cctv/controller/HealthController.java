@@ -1,6 +1,6 @@
 package com.yoojuno.cctv.controller;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.yoojuno.cctv.stream.HlsStorageLayout;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -12,17 +12,28 @@ import java.util.Map;
 
 @RestController
 public class HealthController {
-    @Value("${hls.path:./hls}")
-    private String hlsPath;
+    private final HlsStorageLayout storageLayout;
+
+    public HealthController(HlsStorageLayout storageLayout) {
+        this.storageLayout = storageLayout;
+    }
 
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
-        Path resolved = Path.of(hlsPath).toAbsolutePath().normalize();
+        boolean exists = true;
+        boolean readable = true;
+        boolean writable = true;
+        for (HlsStorageLayout.Volume volume : storageLayout.volumes()) {
+            Path resolved = volume.root();
+            exists &= Files.exists(resolved);
+            readable &= Files.isReadable(resolved);
+            writable &= Files.isWritable(resolved);
+        }
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("status", "UP");
-        body.put("hlsExists", Files.exists(resolved));
-        body.put("hlsReadable", Files.isReadable(resolved));
-        body.put("hlsWritable", Files.isWritable(resolved));
+        body.put("hlsExists", exists);
+        body.put("hlsReadable", readable);
+        body.put("hlsWritable", writable);
         return ResponseEntity.ok(body);
     }
 }
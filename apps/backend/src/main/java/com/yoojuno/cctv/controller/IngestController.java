@@ -0,0 +1,82 @@
+package com.yoojuno.cctv.controller;
+
+import com.yoojuno.cctv.stream.IngestRejectedException;
+import com.yoojuno.cctv.stream.SegmentStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * Receives ffmpeg HLS uploads ({@code -method PUT}) into the in-memory {@link SegmentStore}.
+ * Callers authenticate with {@code Authorization: Bearer <ingest.token>}; the token is mandatory
+ * whenever ingest is enabled and startup fails without it.
+ */
+@RestController
+@RequestMapping("/ingest")
+public class IngestController {
+    private final SegmentStore segmentStore;
+    @Value("${ingest.token:}")
+    private String ingestToken;
+
+    public IngestController(SegmentStore segmentStore) {
+        this.segmentStore = segmentStore;
+    }
+
+    @PostConstruct
+    void requireToken() {
+        if (segmentStore.enabled() && (ingestToken == null || ingestToken.isBlank())) {
+            throw new IllegalStateException("ingest.token is empty. Configure INGEST_TOKEN when ingest.enabled=true.");
+        }
+    }
+
+    @PutMapping("/{file:.+}")
+    public ResponseEntity<?> put(@PathVariable("file") String file, HttpServletRequest request) throws IOException {
+        ResponseEntity<?> refused = checkCaller(request);
+        if (refused != null) {
+            return refused;
+        }
+        try {
+            segmentStore.write(file, request.getInputStream(), request.getContentLengthLong());
+        } catch (IngestRejectedException e) {
+            return ResponseEntity.status(e.status()).body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    @DeleteMapping("/{file:.+}")
+    public ResponseEntity<?> delete(@PathVariable("file") String file, HttpServletRequest request) {
+        ResponseEntity<?> refused = checkCaller(request);
+        if (refused != null) {
+            return refused;
+        }
+        if (!segmentStore.delete(file)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "not found"));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<?> checkCaller(HttpServletRequest request) {
+        if (!segmentStore.enabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "ingest disabled"));
+        }
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        String presented = header != null && header.startsWith("Bearer ") ? header.substring("Bearer ".length()).trim() : "";
+        if (!MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8), ingestToken.trim().getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "invalid ingest token"));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.yoojuno.cctv.controller;
+
+import com.yoojuno.cctv.stream.HealthPayloadCache;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Writes pre-serialized JSON payloads, picking the cached gzip variant when the client accepts it.
+ * The ETag is suffixed per encoding so a cached identity body is never matched against gzip. It is
+ * weak because bodies for the same tag differ in their generation timestamp.
+ */
+final class PayloadResponses {
+    private PayloadResponses() {
+    }
+
+    static ResponseEntity<byte[]> conditional(
+            String ifNoneMatch,
+            String acceptEncoding,
+            String etagValue,
+            Supplier<HealthPayloadCache.Payload> payload
+    ) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = EntityTags.weak(gzip ? etagValue + "-gz" : etagValue);
+        if (EntityTags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        HealthPayloadCache.Payload resolved = payload.get();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(resolved.gzip());
+        }
+        return builder.body(resolved.json());
+    }
+
+    static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!"gzip".equals(parts[0].trim())) {
+                continue;
+            }
+            return parts.length < 2 || !parts[1].replace(" ", "").equals("q=0");
+        }
+        return false;
+    }
+}
@@ -1,63 +1,222 @@
 package com.yoojuno.cctv.controller;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.yoojuno.cctv.auth.AuthenticatedUser;
 import com.yoojuno.cctv.model.StreamInfo;
+import com.yoojuno.cctv.stream.HealthPayloadCache;
+import com.yoojuno.cctv.stream.StreamCatalog;
 import com.yoojuno.cctv.stream.StreamCatalogService;
+import com.yoojuno.cctv.stream.StreamHealthHistory;
+import com.yoojuno.cctv.stream.StreamHealthMonitor;
 import com.yoojuno.cctv.stream.StreamHealthService;
+import com.yoojuno.cctv.stream.ViewerPresenceTracker;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api")
 public class StreamController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final StreamCatalogService streamCatalogService;
     private final StreamHealthService streamHealthService;
+    private final StreamHealthMonitor streamHealthMonitor;
+    private final StreamHealthHistory streamHealthHistory;
+    private final HealthPayloadCache healthPayloadCache;
+    private final ViewerPresenceTracker presenceTracker;
 
-    public StreamController(StreamCatalogService streamCatalogService, StreamHealthService streamHealthService) {
+    public StreamController(
+            StreamCatalogService streamCatalogService,
+            StreamHealthService streamHealthService,
+            StreamHealthMonitor streamHealthMonitor,
+            StreamHealthHistory streamHealthHistory,
+            HealthPayloadCache healthPayloadCache,
+            ViewerPresenceTracker presenceTracker
+    ) {
         this.streamCatalogService = streamCatalogService;
         this.streamHealthService = streamHealthService;
+        this.streamHealthMonitor = streamHealthMonitor;
+        this.streamHealthHistory = streamHealthHistory;
+        this.healthPayloadCache = healthPayloadCache;
+        this.presenceTracker = presenceTracker;
     }
 
     @GetMapping("/streams")
-    public ResponseEntity<?> streams(Authentication authentication) {
+    public ResponseEntity<?> streams(
+            Authentication authentication,
+            @RequestParam(required = false) String site,
+            @RequestParam(required = false) String group,
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "0") int limit
+    ) {
         if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
         }
-        List<StreamInfo> streams = streamCatalogService.forAllowedStreamIds(user.allowedStreams());
-        return ResponseEntity.ok(new StreamsResponse(streams));
+        if (offset < 0 || limit < 0 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "invalid offset or limit"));
+        }
+        StreamCatalogService.Page page = streamCatalogService.query(
+                user.allowedStreams(),
+                new StreamCatalogService.Filter(site, group, tag, q, offset, limit)
+        );
+        return ResponseEntity.ok(new StreamsResponse(
+                page.streams(),
+                page.total(),
+                page.offset(),
+                page.limit(),
+                presenceTracker.viewerCounts(page.streams().stream().map(StreamInfo::id).toList())
+        ));
     }
 
+    /**
+     * Health for the caller's streams. {@code since} limits the body to streams whose version is
+     * newer than the given cursor and lists the accessible streams removed since then; the ETag
+     * covers the caller's stream set and newest version, so an unchanged poll costs a 304. Bodies
+     * are assembled from shared pre-serialized fragments.
+     */
     @GetMapping("/streams/health")
-    public ResponseEntity<?> streamHealth(Authentication authentication) {
+    public ResponseEntity<?> streamHealth(
+            Authentication authentication,
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
         if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
         }
-        List<StreamInfo> streams = streamCatalogService.forAllowedStreamIds(user.allowedStreams());
-        List<StreamHealthService.StreamHealth> health = streamHealthService.healthForStreams(streams);
-        return ResponseEntity.ok(new StreamsHealthResponse(
-                health,
-                streamHealthService.liveThresholdSeconds(),
-                streamHealthService.recommendedPollMs(),
-                Instant.now().toEpochMilli()
+        StreamCatalog.CatalogView view = streamCatalogService.view(user.allowedStreams());
+        long published = streamHealthMonitor.currentVersion();
+        List<StreamHealthMonitor.VersionedHealth> snapshots = streamHealthMonitor.latestVersioned(view.streams());
+        long version = 0;
+        for (StreamHealthMonitor.VersionedHealth snapshot : snapshots) {
+            version = Math.max(version, snapshot.version());
+        }
+        // Removals are only reported for streams the caller was entitled to see.
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Long> removal : streamHealthMonitor.removedSince(0).entrySet()) {
+            if (user.canAccess(removal.getKey())) {
+                version = Math.max(version, removal.getValue());
+                if (since != null && removal.getValue() > since) {
+                    removed.add(removal.getKey());
+                }
+            }
+        }
+        removed.sort(null);
+        // A newer version seen while reading may still have older ones in flight; cap the cursor
+        // so the next poll asks again from there.
+        version = Math.min(version, published);
+        long responseVersion = version;
+        String streamSetKey = view.key();
+        long presenceVersion = presenceTracker.version();
+        boolean delta = since != null && streamHealthMonitor.deltaAvailable(since);
+        String etagValue = Long.toString(version, 36) + "-" + Long.toString(presenceVersion, 36)
+                + "-" + streamSetKey;
+
+        return PayloadResponses.conditional(ifNoneMatch, acceptEncoding, etagValue, () -> healthPayloadCache.memoize(
+                "streams-health|" + (delta ? since + "|" + String.join(",", removed) : "full")
+                        + "|" + presenceVersion + "|" + streamSetKey,
+                responseVersion,
+                () -> {
+                    List<StreamHealthService.StreamHealth> health = new ArrayList<>(snapshots.size());
+                    for (StreamHealthMonitor.VersionedHealth snapshot : snapshots) {
+                        if (!delta || snapshot.version() > since) {
+                            health.add(snapshot.health());
+                        }
+                    }
+                    return healthPayloadCache.payload(new StreamsHealthResponse(
+                            healthPayloadCache.fragments(health),
+                            streamHealthService.liveThresholdSeconds(),
+                            streamHealthService.recommendedPollMs(),
+                            Instant.now().toEpochMilli(),
+                            responseVersion,
+                            delta,
+                            delta ? List.copyOf(removed) : List.of(),
+                            presenceTracker.viewerCounts(view.streams().stream().map(StreamInfo::id).toList())
+                    ));
+                }
         ));
     }
 
-    public record StreamsResponse(List<StreamInfo> streams) {
+    @GetMapping("/streams/{streamId}/health/history")
+    public ResponseEntity<?> streamHealthHistory(
+            Authentication authentication,
+            @PathVariable String streamId,
+            @RequestParam(required = false) String window,
+            @RequestParam(required = false) Integer points
+    ) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
+        }
+        if (!user.canAccess(streamId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "stream access denied"));
+        }
+        Optional<StreamInfo> stream = streamCatalogService.find(streamId);
+        if (stream.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "unknown stream"));
+        }
+
+        Duration windowDuration;
+        try {
+            windowDuration = StreamHealthHistory.parseWindow(window);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+        int maxPoints = points == null ? StreamHealthHistory.defaultPoints() : points;
+        return ResponseEntity.ok(streamHealthHistory.query(stream.get(), windowDuration, maxPoints));
+    }
+
+    @GetMapping("/streams/{streamId}/viewers")
+    public ResponseEntity<?> streamViewers(Authentication authentication, @PathVariable String streamId) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
+        }
+        // Viewer identities are other users' activity: only full-access accounts may list them.
+        if (!user.allowedStreams().contains("*")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "admin access required"));
+        }
+        List<ViewerPresenceTracker.ViewerSession> sessions = presenceTracker.sessions(streamId);
+        return ResponseEntity.ok(new StreamViewersResponse(streamId, sessions.size(), sessions));
+    }
+
+    /**
+     * {@code viewers} maps each returned stream id to its active viewer session count.
+     */
+    public record StreamsResponse(List<StreamInfo> streams, int total, int offset, int limit, Map<String, Integer> viewers) {
+    }
+
+    public record StreamViewersResponse(String id, int viewers, List<ViewerPresenceTracker.ViewerSession> sessions) {
     }
 
+    /**
+     * {@code streams} holds pre-serialized {@link StreamHealthService.StreamHealth} objects;
+     * {@code removed} lists stream ids a delta client should drop.
+     */
     public record StreamsHealthResponse(
-            List<StreamHealthService.StreamHealth> streams,
+            List<RawValue> streams,
             long liveThresholdSeconds,
             long recommendedPollMs,
-            long generatedAtEpochMs
+            long generatedAtEpochMs,
+            long version,
+            boolean delta,
+            List<String> removed,
+            Map<String, Integer> viewers
     ) {
     }
 }
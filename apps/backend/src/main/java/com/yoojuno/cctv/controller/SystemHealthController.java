@@ -1,41 +1,53 @@
 package com.yoojuno.cctv.controller;
 
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.yoojuno.cctv.auth.AccessAuditLog;
 import com.yoojuno.cctv.auth.AuthenticatedUser;
-import com.yoojuno.cctv.model.StreamInfo;
+import com.yoojuno.cctv.stream.EdgeSegmentCache;
+import com.yoojuno.cctv.stream.HlsTrafficAccounting;
+import com.yoojuno.cctv.stream.RewindBuffer;
 import com.yoojuno.cctv.stream.StreamCatalogService;
-import com.yoojuno.cctv.stream.StreamHealthService;
-import org.springframework.beans.factory.annotation.Value;
+import com.yoojuno.cctv.stream.StreamHealthMonitor;
+import com.yoojuno.cctv.stream.SystemHealthService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/system")
 public class SystemHealthController {
-    @Value("${hls.path:./hls}")
-    private String hlsPath;
-
     private final StreamCatalogService streamCatalogService;
-    private final StreamHealthService streamHealthService;
-
-    public SystemHealthController(StreamCatalogService streamCatalogService, StreamHealthService streamHealthService) {
+    private final StreamHealthMonitor streamHealthMonitor;
+    private final SystemHealthService systemHealthService;
+    private final HlsTrafficAccounting trafficAccounting;
+    private final AccessAuditLog accessAuditLog;
+    private final EdgeSegmentCache edgeCache;
+    private final RewindBuffer rewindBuffer;
+
+    public SystemHealthController(
+            StreamCatalogService streamCatalogService,
+            StreamHealthMonitor streamHealthMonitor,
+            SystemHealthService systemHealthService,
+            HlsTrafficAccounting trafficAccounting,
+            AccessAuditLog accessAuditLog,
+            EdgeSegmentCache edgeCache,
+            RewindBuffer rewindBuffer
+    ) {
         this.streamCatalogService = streamCatalogService;
-        this.streamHealthService = streamHealthService;
+        this.streamHealthMonitor = streamHealthMonitor;
+        this.systemHealthService = systemHealthService;
+        this.trafficAccounting = trafficAccounting;
+        this.accessAuditLog = accessAuditLog;
+        this.edgeCache = edgeCache;
+        this.rewindBuffer = rewindBuffer;
     }
 
     @GetMapping("/health")
@@ -44,159 +56,103 @@ public class SystemHealthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
         }
 
-        List<StreamInfo> streams = streamCatalogService.forAllowedStreamIds(user.allowedStreams());
-        List<StreamHealthService.StreamHealth> streamDetails = streamHealthService.healthForStreams(streams);
-        HlsStorageStatus hlsStorage = resolveHlsStorageStatus();
-        StreamHealthSummary streamSummary = summarize(streamDetails);
-        List<String> recommendations = buildRecommendations(streams, streamSummary, hlsStorage);
+        SystemHealthService.SharedSystemHealth shared =
+                systemHealthService.sharedSystemHealth(streamCatalogService.view(user.allowedStreams()));
+        // Volume paths say where recordings live on the host; only admins get them.
+        SystemHealthService.HlsStorageStatus hlsStorage = user.allowedStreams().contains("*")
+                ? shared.hlsStorage()
+                : shared.hlsStorage().withoutLocations();
 
         return ResponseEntity.ok(new SystemHealthResponse(
                 Instant.now().toEpochMilli(),
                 user.username(),
                 hlsStorage,
-                streamSummary,
-                streamDetails,
-                recommendations
+                shared.streams(),
+                shared.streamDetails(),
+                shared.recommendations(),
+                streamHealthMonitor.stats()
         ));
     }
 
-    private HlsStorageStatus resolveHlsStorageStatus() {
-        Path resolved = Path.of(hlsPath).toAbsolutePath().normalize();
-        boolean exists = Files.exists(resolved);
-        boolean readable = Files.isReadable(resolved);
-        boolean writable = Files.isWritable(resolved);
-        long manifestCount = 0;
-        long segmentCount = 0;
-
-        if (exists && Files.isDirectory(resolved) && readable) {
-            try (Stream<Path> files = Files.list(resolved)) {
-                for (Path path : files.toList()) {
-                    String fileName = path.getFileName() == null ? "" : path.getFileName().toString().toLowerCase();
-                    if (fileName.endsWith(".m3u8")) {
-                        manifestCount++;
-                    } else if (fileName.endsWith(".ts") || fileName.endsWith(".m4s")) {
-                        segmentCount++;
-                    }
-                }
-            } catch (IOException ignored) {
-                // keep counts as-is
-            }
+    /**
+     * HLS bytes/requests per stream and per user. Restricted to accounts with access to every
+     * stream, since it reveals other users' activity.
+     */
+    @GetMapping("/traffic")
+    public ResponseEntity<?> traffic(
+            Authentication authentication,
+            @RequestParam(name = "top", defaultValue = "50") int top
+    ) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
         }
-
-        return new HlsStorageStatus(
-                resolved.toString(),
-                exists,
-                readable,
-                writable,
-                manifestCount,
-                segmentCount
-        );
-    }
-
-    private static StreamHealthSummary summarize(List<StreamHealthService.StreamHealth> streamDetails) {
-        int live = 0;
-        int starting = 0;
-        int stale = 0;
-        int offline = 0;
-        int error = 0;
-        Map<String, Long> reasons = new LinkedHashMap<>();
-
-        for (StreamHealthService.StreamHealth health : streamDetails) {
-            switch (health.state()) {
-                case LIVE -> live++;
-                case STARTING -> starting++;
-                case STALE -> stale++;
-                case OFFLINE -> offline++;
-                case ERROR -> error++;
-            }
-            reasons.put(health.reason(), reasons.getOrDefault(health.reason(), 0L) + 1);
+        if (!user.allowedStreams().contains("*")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "admin access required"));
         }
-
-        return new StreamHealthSummary(
-                streamDetails.size(),
-                live,
-                starting,
-                stale,
-                offline,
-                error,
-                Map.copyOf(reasons)
-        );
+        return ResponseEntity.ok(trafficAccounting.snapshot(Math.min(1000, top)));
     }
 
-    private static List<String> buildRecommendations(
-            List<StreamInfo> streams,
-            StreamHealthSummary summary,
-            HlsStorageStatus hlsStorage
+    /**
+     * Recent HLS denials, aggregated per (user, stream, reason) window. Admin only.
+     */
+    @GetMapping("/audit/denials")
+    public ResponseEntity<?> recentDenials(
+            Authentication authentication,
+            @RequestParam(name = "limit", defaultValue = "100") int limit
     ) {
-        Set<String> output = new LinkedHashSet<>();
-
-        if (!hlsStorage.exists()) {
-            output.add("HLS directory is missing. Create it and verify hls.path configuration.");
-        }
-        if (!hlsStorage.readable()) {
-            output.add("HLS directory is not readable. Check filesystem permissions.");
-        }
-        if (!hlsStorage.writable()) {
-            output.add("HLS directory is not writable. Converter cannot publish segments.");
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
         }
-        if (streams.isEmpty()) {
-            output.add("No authorized streams for this account. Verify AUTH_USERS stream assignments.");
-        }
-
-        if (summary.total() > 0 && summary.live() == summary.total()) {
-            output.add("All authorized streams are healthy.");
-            return new ArrayList<>(output);
+        if (!user.allowedStreams().contains("*")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "admin access required"));
         }
+        return ResponseEntity.ok(new DenialsResponse(
+                accessAuditLog.stats(),
+                accessAuditLog.recentDenials(Math.max(1, Math.min(1000, limit)))
+        ));
+    }
 
-        Map<String, Long> reasons = summary.reasons();
-        if (reasons.containsKey("MANIFEST_MISSING")) {
-            String streamId = streams.isEmpty() ? "mystream" : streams.get(0).id();
-            output.add("Manifest missing. Start converter: MJPEG_URL=http://<device-ip>:81/stream STREAM_ID=" + streamId + " ./scripts/mjpeg_to_hls.sh");
+    /**
+     * Edge cache effectiveness: hits per tier, coalesced waits and the share of served bytes and
+     * requests that did not cross the WAN. Admin only.
+     */
+    @GetMapping("/edge")
+    public ResponseEntity<?> edge(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
         }
-        if (reasons.containsKey("MANIFEST_STALE")) {
-            output.add("Manifest is stale. Check camera connectivity and restart converter if needed.");
+        if (!user.allowedStreams().contains("*")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "admin access required"));
         }
-        if (reasons.containsKey("SEGMENT_MISSING") || reasons.containsKey("SEGMENT_EMPTY")) {
-            output.add("Segment files are broken or missing. Restart converter and inspect ffmpeg logs.");
+        return ResponseEntity.ok(edgeCache.stats());
+    }
+
+    /**
+     * Rewind buffer usage: the shared memory budget and, per stream, buffered segments, bytes and
+     * seconds. Admin only.
+     */
+    @GetMapping("/rewind")
+    public ResponseEntity<?> rewind(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "unauthorized"));
         }
-        if (reasons.containsKey("MANIFEST_UNREADABLE")) {
-            output.add("Backend cannot read manifests. Check hls.path and directory ownership.");
+        if (!user.allowedStreams().contains("*")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "admin access required"));
         }
+        return ResponseEntity.ok(rewindBuffer.stats());
+    }
 
-        if (output.isEmpty()) {
-            output.add("Stream check in progress. Wait a few seconds and refresh health.");
-        }
-        return new ArrayList<>(output);
+    public record DenialsResponse(AccessAuditLog.AuditStats audit, List<AccessAuditLog.DenialSummary> denials) {
     }
 
     public record SystemHealthResponse(
             long generatedAtEpochMs,
             String username,
-            HlsStorageStatus hlsStorage,
-            StreamHealthSummary streams,
-            List<StreamHealthService.StreamHealth> streamDetails,
-            List<String> recommendations
-    ) {
-    }
-
-    public record HlsStorageStatus(
-            String path,
-            boolean exists,
-            boolean readable,
-            boolean writable,
-            long manifestCount,
-            long segmentCount
-    ) {
-    }
-
-    public record StreamHealthSummary(
-            int total,
-            int live,
-            int starting,
-            int stale,
-            int offline,
-            int error,
-            Map<String, Long> reasons
+            SystemHealthService.HlsStorageStatus hlsStorage,
+            SystemHealthService.StreamHealthSummary streams,
+            List<RawValue> streamDetails,
+            List<String> recommendations,
+            StreamHealthMonitor.SchedulerStats scheduler
     ) {
     }
 }
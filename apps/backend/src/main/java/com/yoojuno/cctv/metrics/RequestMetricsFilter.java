@@ -0,0 +1,80 @@
+package com.yoojuno.cctv.metrics;
+
+import com.yoojuno.cctv.auth.StreamAccessFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every request by endpoint class (manifest, segment, api, other) and status family,
+ * including authentication and stream authorization. Runs ahead of the security chain.
+ *
+ * <p>Tags are deliberately coarse: all timers are created up front, so the request path only
+ * classifies the URI and records into a pre-resolved {@link Timer} without a registry lookup.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    static final String[] ENDPOINT_CLASSES = {"manifest", "segment", "api", "other"};
+    static final String[] STATUS_FAMILIES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final Timer[][] timers = new Timer[ENDPOINT_CLASSES.length][STATUS_FAMILIES.length];
+
+    public RequestMetricsFilter(MeterRegistry registry) {
+        for (int endpoint = 0; endpoint < ENDPOINT_CLASSES.length; endpoint++) {
+            for (int family = 0; family < STATUS_FAMILIES.length; family++) {
+                timers[endpoint][family] = Timer.builder("cctv.http.requests")
+                        .description("Request latency by endpoint class")
+                        .tag("class", ENDPOINT_CLASSES[endpoint])
+                        .tag("status", STATUS_FAMILIES[family])
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry);
+            }
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        long startedAt = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            timers[endpointClass(request.getRequestURI())][statusFamily(response.getStatus())]
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static int endpointClass(String path) {
+        if (path == null) {
+            return 3;
+        }
+        if (path.startsWith("/hls/")) {
+            if (path.endsWith(".m3u8")) {
+                return 0;
+            }
+            return StreamAccessFilter.isSegmentRequest(path) ? 1 : 3;
+        }
+        return path.startsWith("/api/") ? 2 : 3;
+    }
+
+    static int statusFamily(int status) {
+        return Math.max(0, Math.min(STATUS_FAMILIES.length - 1, status / 100 - 1));
+    }
+}
@@ -0,0 +1,304 @@
+package com.yoojuno.cctv.metrics;
+
+import com.yoojuno.cctv.auth.AccessAuditLog;
+import com.yoojuno.cctv.auth.PasswordVerifier;
+import com.yoojuno.cctv.model.StreamInfo;
+import com.yoojuno.cctv.stream.BandwidthShaper;
+import com.yoojuno.cctv.stream.EdgeSegmentCache;
+import com.yoojuno.cctv.stream.FastStartPlaylist;
+import com.yoojuno.cctv.stream.HealthPayloadCache;
+import com.yoojuno.cctv.stream.HealthWebhookNotifier;
+import com.yoojuno.cctv.stream.HlsTrafficAccounting;
+import com.yoojuno.cctv.stream.RewindBuffer;
+import com.yoojuno.cctv.stream.SegmentStore;
+import com.yoojuno.cctv.stream.StreamCatalogService;
+import com.yoojuno.cctv.stream.StreamHealthMonitor;
+import com.yoojuno.cctv.stream.StreamHealthService;
+import com.yoojuno.cctv.stream.ViewerPresenceTracker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the counters the streaming components already keep (traffic, health scheduler,
+ * payload cache, shaper, audit ring, login verifier, presence, ingest store, edge cache,
+ * fast-start playlists, rewind buffer, webhook notifier) as function meters, so scraping reads them and the request path pays
+ * nothing extra.
+ *
+ * <p>Per-stream gauges (state, manifest age, viewers) are rebuilt from the latest health results
+ * every {@code metrics.stream-gauges-interval-ms}; streams that leave the catalog are dropped.
+ */
+@Component
+public class StreamingMetrics implements MeterBinder {
+    private final StreamCatalogService streamCatalogService;
+    private final StreamHealthMonitor streamHealthMonitor;
+    private final HealthPayloadCache healthPayloadCache;
+    private final HlsTrafficAccounting trafficAccounting;
+    private final BandwidthShaper bandwidthShaper;
+    private final ViewerPresenceTracker presenceTracker;
+    private final AccessAuditLog auditLog;
+    private final PasswordVerifier passwordVerifier;
+    private final SegmentStore segmentStore;
+    private final EdgeSegmentCache edgeCache;
+    private final FastStartPlaylist fastStartPlaylist;
+    private final RewindBuffer rewindBuffer;
+    private final HealthWebhookNotifier webhookNotifier;
+
+    private volatile int[] stateCounts = new int[StreamHealthService.StreamState.values().length];
+    private volatile MultiGauge streamState;
+    private volatile MultiGauge manifestAge;
+    private volatile MultiGauge streamViewers;
+    private volatile MultiGauge rewindBytes;
+
+    @Value("${metrics.max-stream-gauges:1000}")
+    private int maxStreamGauges;
+
+    public StreamingMetrics(
+            StreamCatalogService streamCatalogService,
+            StreamHealthMonitor streamHealthMonitor,
+            HealthPayloadCache healthPayloadCache,
+            HlsTrafficAccounting trafficAccounting,
+            BandwidthShaper bandwidthShaper,
+            ViewerPresenceTracker presenceTracker,
+            AccessAuditLog auditLog,
+            PasswordVerifier passwordVerifier,
+            SegmentStore segmentStore,
+            EdgeSegmentCache edgeCache,
+            FastStartPlaylist fastStartPlaylist,
+            RewindBuffer rewindBuffer,
+            HealthWebhookNotifier webhookNotifier
+    ) {
+        this.streamCatalogService = streamCatalogService;
+        this.streamHealthMonitor = streamHealthMonitor;
+        this.healthPayloadCache = healthPayloadCache;
+        this.trafficAccounting = trafficAccounting;
+        this.bandwidthShaper = bandwidthShaper;
+        this.presenceTracker = presenceTracker;
+        this.auditLog = auditLog;
+        this.passwordVerifier = passwordVerifier;
+        this.segmentStore = segmentStore;
+        this.edgeCache = edgeCache;
+        this.fastStartPlaylist = fastStartPlaylist;
+        this.rewindBuffer = rewindBuffer;
+        this.webhookNotifier = webhookNotifier;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cctv.hls.bytes", trafficAccounting, HlsTrafficAccounting::totalBytes)
+                .description("Bytes served from /hls")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("cctv.hls.requests", trafficAccounting, HlsTrafficAccounting::totalRequests)
+                .description("Allowed /hls requests")
+                .register(registry);
+
+        FunctionTimer.builder("cctv.health.evaluations", streamHealthMonitor,
+                        StreamHealthMonitor::evaluationCount, StreamHealthMonitor::evaluationNanos, TimeUnit.NANOSECONDS)
+                .description("Per-stream health evaluation (manifest read and parse)")
+                .register(registry);
+        FunctionCounter.builder("cctv.health.evaluations.on-demand", streamHealthMonitor,
+                        StreamHealthMonitor::onDemandEvaluationCount)
+                .description("Evaluations done on a request thread because no scheduled result existed")
+                .register(registry);
+        Gauge.builder("cctv.health.scheduler.lag", streamHealthMonitor, StreamHealthMonitor::lastTickMaxLagMs)
+                .description("Largest delay past due time in the last scheduler tick")
+                .baseUnit("milliseconds")
+                .register(registry);
+
+        FunctionCounter.builder("cctv.payload.cache", healthPayloadCache, cache -> cache.stats().hits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cctv.payload.cache", healthPayloadCache, cache -> cache.stats().misses())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cctv.payload.fragments.serialized", healthPayloadCache,
+                        cache -> cache.stats().fragmentSerializations())
+                .register(registry);
+
+        FunctionCounter.builder("cctv.hls.shaping.rejected", bandwidthShaper, shaper -> shaper.stats().rejectedBandwidth())
+                .tag("reason", "bandwidth")
+                .register(registry);
+        FunctionCounter.builder("cctv.hls.shaping.rejected", bandwidthShaper, shaper -> shaper.stats().rejectedConcurrency())
+                .tag("reason", "concurrency")
+                .register(registry);
+
+        Gauge.builder("cctv.audit.queued", auditLog, log -> log.stats().queued()).register(registry);
+        FunctionCounter.builder("cctv.audit.written", auditLog, log -> log.stats().written()).register(registry);
+        FunctionCounter.builder("cctv.audit.dropped", auditLog, log -> log.stats().dropped()).register(registry);
+        FunctionCounter.builder("cctv.audit.suppressed", auditLog, log -> log.stats().suppressed()).register(registry);
+
+        Gauge.builder("cctv.auth.verifier.active", passwordVerifier, verifier -> verifier.stats().active()).register(registry);
+        Gauge.builder("cctv.auth.verifier.queued", passwordVerifier, verifier -> verifier.stats().queued()).register(registry);
+        FunctionCounter.builder("cctv.auth.verifier.completed", passwordVerifier, verifier -> verifier.stats().verified())
+                .register(registry);
+        FunctionCounter.builder("cctv.auth.verifier.rejected", passwordVerifier, verifier -> verifier.stats().rejected())
+                .tag("reason", "queue-full")
+                .register(registry);
+        FunctionCounter.builder("cctv.auth.verifier.rejected", passwordVerifier, verifier -> verifier.stats().timedOut())
+                .tag("reason", "timeout")
+                .register(registry);
+
+        Gauge.builder("cctv.viewers.sessions", presenceTracker, ViewerPresenceTracker::activeSessions)
+                .description("Active viewer sessions across all streams")
+                .register(registry);
+
+        if (segmentStore.enabled()) {
+            Gauge.builder("cctv.ingest.slabs", segmentStore, store -> store.stats().usedSlabs())
+                    .tag("state", "used")
+                    .register(registry);
+            Gauge.builder("cctv.ingest.slabs", segmentStore, store -> store.stats().freeSlabs())
+                    .tag("state", "free")
+                    .register(registry);
+            Gauge.builder("cctv.ingest.objects", segmentStore, store -> store.stats().objects()).register(registry);
+            FunctionCounter.builder("cctv.ingest.uploads", segmentStore, store -> store.stats().uploads()).register(registry);
+            FunctionCounter.builder("cctv.ingest.rejected", segmentStore, store -> store.stats().rejectedTooLarge())
+                    .tag("reason", "too-large")
+                    .register(registry);
+            FunctionCounter.builder("cctv.ingest.rejected", segmentStore, store -> store.stats().rejectedNoSpace())
+                    .tag("reason", "store-full")
+                    .register(registry);
+        }
+
+        if (edgeCache.enabled()) {
+            FunctionCounter.builder("cctv.edge.hits", edgeCache, cache -> cache.stats().memoryHits())
+                    .tag("tier", "memory")
+                    .register(registry);
+            FunctionCounter.builder("cctv.edge.hits", edgeCache, cache -> cache.stats().diskHits())
+                    .tag("tier", "disk")
+                    .register(registry);
+            FunctionCounter.builder("cctv.edge.hits", edgeCache, cache -> cache.stats().manifestHits())
+                    .tag("tier", "manifest")
+                    .register(registry);
+            FunctionCounter.builder("cctv.edge.coalesced", edgeCache, cache -> cache.stats().coalescedWaits()).register(registry);
+            FunctionCounter.builder("cctv.edge.origin.fetches", edgeCache, cache -> cache.stats().originFetches()).register(registry);
+            FunctionCounter.builder("cctv.edge.origin.bytes", edgeCache, cache -> cache.stats().originBytes())
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("cctv.edge.offload.ratio", edgeCache, cache -> cache.stats().byteOffloadRatio())
+                    .description("Share of served bytes not fetched from the origin")
+                    .register(registry);
+        }
+
+        if (fastStartPlaylist.enabled()) {
+            FunctionCounter.builder("cctv.hls.fast-start.playlists", fastStartPlaylist, playlist -> playlist.stats().hits())
+                    .tag("result", "cached")
+                    .register(registry);
+            FunctionCounter.builder("cctv.hls.fast-start.playlists", fastStartPlaylist, playlist -> playlist.stats().renders())
+                    .tag("result", "rendered")
+                    .register(registry);
+        }
+
+        if (rewindBuffer.enabled()) {
+            Gauge.builder("cctv.rewind.memory", rewindBuffer, buffer -> buffer.stats().usedBytes())
+                    .tag("state", "used")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("cctv.rewind.memory", rewindBuffer, buffer -> buffer.stats().memoryBytes())
+                    .tag("state", "budget")
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("cctv.rewind.evicted", rewindBuffer, buffer -> buffer.stats().evictedByWindow())
+                    .tag("reason", "window")
+                    .register(registry);
+            FunctionCounter.builder("cctv.rewind.evicted", rewindBuffer, buffer -> buffer.stats().evictedByBudget())
+                    .tag("reason", "budget")
+                    .register(registry);
+            rewindBytes = MultiGauge.builder("cctv.stream.rewind.bytes")
+                    .description("Memory held by the stream's rewind buffer")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+
+        if (webhookNotifier.stats().enabled()) {
+            Gauge.builder("cctv.notify.pending", webhookNotifier, notifier -> notifier.stats().pendingDeliveries())
+                    .description("Webhook deliveries queued or waiting for a retry")
+                    .register(registry);
+            FunctionCounter.builder("cctv.notify.events", webhookNotifier, notifier -> notifier.stats().notifiedEvents())
+                    .register(registry);
+            FunctionCounter.builder("cctv.notify.suppressed", webhookNotifier, notifier -> notifier.stats().suppressedFlaps())
+                    .description("State changes reverted within the debounce window")
+                    .register(registry);
+            FunctionCounter.builder("cctv.notify.deliveries", webhookNotifier, notifier -> notifier.stats().delivered())
+                    .tag("result", "delivered")
+                    .register(registry);
+            FunctionCounter.builder("cctv.notify.deliveries", webhookNotifier, notifier -> notifier.stats().retried())
+                    .tag("result", "retried")
+                    .register(registry);
+            FunctionCounter.builder("cctv.notify.deliveries", webhookNotifier, notifier -> notifier.stats().failed())
+                    .tag("result", "failed")
+                    .register(registry);
+            FunctionCounter.builder("cctv.notify.deliveries", webhookNotifier, notifier -> notifier.stats().dropped())
+                    .tag("result", "dropped")
+                    .register(registry);
+        }
+
+        for (StreamHealthService.StreamState state : StreamHealthService.StreamState.values()) {
+            int index = state.ordinal();
+            Gauge.builder("cctv.streams", this, metrics -> metrics.stateCounts[index])
+                    .description("Catalog streams per health state")
+                    .tag("state", state.name())
+                    .register(registry);
+        }
+        streamState = MultiGauge.builder("cctv.stream.state")
+                .description("1 for the stream's current health state")
+                .register(registry);
+        manifestAge = MultiGauge.builder("cctv.stream.manifest.age")
+                .description("Seconds since the stream's manifest was last written")
+                .baseUnit("seconds")
+                .register(registry);
+        streamViewers = MultiGauge.builder("cctv.stream.viewers")
+                .description("Active viewer sessions per stream")
+                .register(registry);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${metrics.stream-gauges-interval-ms:5000}",
+            initialDelayString = "${metrics.stream-gauges-interval-ms:5000}"
+    )
+    public void refreshStreamGauges() {
+        if (streamState == null) {
+            return;
+        }
+        List<StreamInfo> streams = streamCatalogService.all();
+        if (streams.size() > Math.max(0, maxStreamGauges)) {
+            streams = streams.subList(0, Math.max(0, maxStreamGauges));
+        }
+        int[] counts = new int[StreamHealthService.StreamState.values().length];
+        List<MultiGauge.Row<?>> stateRows = new ArrayList<>(streams.size());
+        List<MultiGauge.Row<?>> ageRows = new ArrayList<>(streams.size());
+        List<MultiGauge.Row<?>> viewerRows = new ArrayList<>(streams.size());
+        Map<String, Integer> viewers = presenceTracker.viewerCounts(streams.stream().map(StreamInfo::id).toList());
+        for (StreamInfo stream : streams) {
+            StreamHealthService.StreamHealth health = streamHealthMonitor.latest(stream.id());
+            counts[health.state().ordinal()]++;
+            Tags tags = Tags.of("stream", stream.id());
+            stateRows.add(MultiGauge.Row.of(Tags.of("stream", stream.id(), "state", health.state().name()), 1));
+            if (health.manifestExists()) {
+                ageRows.add(MultiGauge.Row.of(tags, health.manifestAgeSeconds()));
+            }
+            viewerRows.add(MultiGauge.Row.of(tags, viewers.getOrDefault(stream.id(), 0)));
+        }
+        stateCounts = counts;
+        streamState.register(stateRows, true);
+        manifestAge.register(ageRows, true);
+        streamViewers.register(viewerRows, true);
+        if (rewindBytes != null) {
+            rewindBytes.register(rewindBuffer.stats().streams().stream()
+                    .<MultiGauge.Row<?>>map(usage -> MultiGauge.Row.of(Tags.of("stream", usage.streamId()), usage.bytes()))
+                    .toList(), true);
+        }
+    }
+}
@@ -1,4 +1,13 @@
 package com.yoojuno.cctv.model;
 
-public record StreamInfo(String id, String name) {
+import java.util.List;
+
+public record StreamInfo(String id, String name, String site, String group, List<String> tags) {
+    public StreamInfo {
+        tags = tags == null ? List.of() : List.copyOf(tags);
+    }
+
+    public StreamInfo(String id, String name) {
+        this(id, name, null, null, List.of());
+    }
 }
@@ -0,0 +1,292 @@
+package com.yoojuno.cctv.stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for HLS segment downloads: global, per-user and per-stream byte budgets
+ * (lock-free GCRA buckets, {@code 0} disables one) and a per-user concurrency cap.
+ */
+@Component
+public class BandwidthShaper {
+    private static final Admission UNLIMITED = new Admission(true, null, 0, null, null, null, null, null, null, 0);
+    private static final int MAX_SEGMENT_ESTIMATES = 10_000;
+
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> streamBuckets = new ConcurrentHashMap<>();
+    // Each user's use of the global budget, drained at the global rate; ranks users when it runs short.
+    private final Map<String, TokenBucket> globalShares = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> segmentEstimates = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlightByUser = new ConcurrentHashMap<>();
+    private final LongAdder rejectedBandwidth = new LongAdder();
+    private final LongAdder rejectedConcurrency = new LongAdder();
+    private volatile TokenBucket globalBucket;
+
+    @Value("${hls.shaping.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hls.shaping.global-bytes-per-second:0}")
+    private long globalBytesPerSecond;
+
+    @Value("${hls.shaping.user-bytes-per-second:0}")
+    private long userBytesPerSecond;
+
+    @Value("${hls.shaping.stream-bytes-per-second:0}")
+    private long streamBytesPerSecond;
+
+    @Value("${hls.shaping.burst-seconds:4}")
+    private double burstSeconds;
+
+    @Value("${hls.shaping.user-max-concurrent-segments:4}")
+    private int userMaxConcurrentSegments;
+
+    /**
+     * Must be paired with {@link #complete(Admission, long)} when admitted.
+     */
+    public Admission admit(String username, String streamId) {
+        if (!enabled) {
+            return UNLIMITED;
+        }
+        long now = System.nanoTime();
+        TokenBucket global = globalBucket();
+        TokenBucket share = global == null ? null : bucket(globalShares, username, globalBytesPerSecond);
+        TokenBucket user = bucket(userBuckets, username, userBytesPerSecond);
+        TokenBucket stream = bucket(streamBuckets, streamId, streamBytesPerSecond);
+        long globalWait = waitNanos(global, now);
+        if (globalWait > 0 && globalWait <= global.burstNanos && !largestShare(share, now)) {
+            globalWait = 0;
+        }
+        long waitNanos = Math.max(globalWait, Math.max(waitNanos(user, now), waitNanos(stream, now)));
+        if (waitNanos > 0) {
+            rejectedBandwidth.increment();
+            return rejected("bandwidth limit exceeded", waitNanos);
+        }
+
+        AtomicInteger inFlight = null;
+        if (userMaxConcurrentSegments > 0) {
+            inFlight = inFlightByUser.computeIfAbsent(username == null ? "" : username, ignored -> new AtomicInteger());
+            if (inFlight.incrementAndGet() > userMaxConcurrentSegments) {
+                inFlight.decrementAndGet();
+                rejectedConcurrency.increment();
+                return rejected("too many concurrent segment downloads", TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+        AtomicLong estimate = segmentEstimates.get(streamId == null ? "" : streamId);
+        long reserved = estimate == null ? 0 : estimate.get();
+        Admission admission = new Admission(true, null, 0, streamId, inFlight, global, share, user, stream, reserved);
+        admission.charge(reserved, now);
+        return admission;
+    }
+
+    /**
+     * Settles the admission's reservation against the bytes actually sent.
+     */
+    public void complete(Admission admission, long bytes) {
+        if (admission == null || !admission.admitted || admission == UNLIMITED) {
+            return;
+        }
+        if (admission.inFlight != null) {
+            admission.inFlight.decrementAndGet();
+        }
+        long sent = Math.max(0, bytes);
+        admission.charge(sent - admission.reservedBytes, System.nanoTime());
+        if (sent > 0 && admission.streamId != null) {
+            segmentEstimates.computeIfAbsent(admission.streamId, ignored -> new AtomicLong())
+                    .accumulateAndGet(sent, (previous, latest) -> previous == 0 ? latest : previous + (latest - previous) / 4);
+        }
+    }
+
+    /**
+     * Drops fully refilled buckets and idle in-flight counters. A request racing the purge may
+     * land on a dropped counter; that only makes its own admission more lenient, never stricter.
+     */
+    @Scheduled(fixedDelayString = "${hls.shaping.purge-ms:60000}")
+    public void purgeIdle() {
+        long now = System.nanoTime();
+        userBuckets.values().removeIf(bucket -> bucket.idle(now));
+        streamBuckets.values().removeIf(bucket -> bucket.idle(now));
+        globalShares.values().removeIf(bucket -> bucket.idle(now));
+        if (segmentEstimates.size() > MAX_SEGMENT_ESTIMATES) {
+            segmentEstimates.clear();
+        }
+        inFlightByUser.values().removeIf(counter -> counter.get() == 0);
+    }
+
+    public ShapingStats stats() {
+        return new ShapingStats(enabled, rejectedBandwidth.sum(), rejectedConcurrency.sum(), userBuckets.size(), streamBuckets.size());
+    }
+
+    private TokenBucket globalBucket() {
+        if (globalBytesPerSecond <= 0) {
+            return null;
+        }
+        TokenBucket bucket = globalBucket;
+        if (bucket == null) {
+            synchronized (this) {
+                bucket = globalBucket;
+                if (bucket == null) {
+                    bucket = new TokenBucket(globalBytesPerSecond, burstSeconds);
+                    globalBucket = bucket;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private TokenBucket bucket(Map<String, TokenBucket> buckets, String key, long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            return null;
+        }
+        String safeKey = key == null ? "" : key;
+        TokenBucket bucket = buckets.get(safeKey);
+        return bucket != null ? bucket : buckets.computeIfAbsent(safeKey, ignored -> new TokenBucket(bytesPerSecond, burstSeconds));
+    }
+
+    private boolean largestShare(TokenBucket share, long now) {
+        long own = share == null ? 0 : share.debtNanos(now);
+        for (TokenBucket other : globalShares.values()) {
+            if (other.debtNanos(now) > own) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long waitNanos(TokenBucket bucket, long now) {
+        return bucket == null ? 0 : bucket.waitNanos(now);
+    }
+
+    private static Admission rejected(String reason, long waitNanos) {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return new Admission(false, reason, retryAfterSeconds, null, null, null, null, null, null, 0);
+    }
+
+    /**
+     * Generic cell rate algorithm over bytes: {@code tat} is the time at which the bucket would be
+     * full again. A request is admissible while {@code tat - now <= burst}.
+     */
+    static final class TokenBucket {
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+        private final double nanosPerByte;
+        private final long burstNanos;
+
+        TokenBucket(long bytesPerSecond, double burstSeconds) {
+            this.nanosPerByte = 1_000_000_000.0 / bytesPerSecond;
+            this.burstNanos = (long) (Math.max(0.1, burstSeconds) * 1_000_000_000L);
+        }
+
+        long waitNanos(long now) {
+            long current = tat.get();
+            if (current == Long.MIN_VALUE) {
+                return 0;
+            }
+            return Math.max(0, current - now - burstNanos);
+        }
+
+        long debtNanos(long now) {
+            long current = tat.get();
+            return current == Long.MIN_VALUE ? 0 : Math.max(0, current - now);
+        }
+
+        /**
+         * Negative {@code bytes} refund an over-reservation, never past a full bucket.
+         */
+        void charge(long bytes, long now) {
+            if (bytes == 0) {
+                return;
+            }
+            long cost = (long) Math.max(-Long.MAX_VALUE / 4, Math.min(Long.MAX_VALUE / 4, bytes * nanosPerByte));
+            while (true) {
+                long current = tat.get();
+                long base = current == Long.MIN_VALUE || current < now ? now : current;
+                if (tat.compareAndSet(current, Math.max(now, base + cost))) {
+                    return;
+                }
+            }
+        }
+
+        boolean idle(long now) {
+            long current = tat.get();
+            return current == Long.MIN_VALUE || current < now;
+        }
+    }
+
+    public static final class Admission {
+        private final boolean admitted;
+        private final String reason;
+        private final long retryAfterSeconds;
+        private final String streamId;
+        private final AtomicInteger inFlight;
+        private final TokenBucket globalBucket;
+        private final TokenBucket globalShare;
+        private final TokenBucket userBucket;
+        private final TokenBucket streamBucket;
+        private final long reservedBytes;
+
+        private Admission(
+                boolean admitted,
+                String reason,
+                long retryAfterSeconds,
+                String streamId,
+                AtomicInteger inFlight,
+                TokenBucket globalBucket,
+                TokenBucket globalShare,
+                TokenBucket userBucket,
+                TokenBucket streamBucket,
+                long reservedBytes
+        ) {
+            this.admitted = admitted;
+            this.reason = reason;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.streamId = streamId;
+            this.inFlight = inFlight;
+            this.globalBucket = globalBucket;
+            this.globalShare = globalShare;
+            this.userBucket = userBucket;
+            this.streamBucket = streamBucket;
+            this.reservedBytes = reservedBytes;
+        }
+
+        private void charge(long bytes, long now) {
+            charge(globalBucket, bytes, now);
+            charge(globalShare, bytes, now);
+            charge(userBucket, bytes, now);
+            charge(streamBucket, bytes, now);
+        }
+
+        private static void charge(TokenBucket bucket, long bytes, long now) {
+            if (bucket != null) {
+                bucket.charge(bytes, now);
+            }
+        }
+
+        public boolean admitted() {
+            return admitted;
+        }
+
+        public String reason() {
+            return reason;
+        }
+
+        public long retryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    public record ShapingStats(
+            boolean enabled,
+            long rejectedBandwidth,
+            long rejectedConcurrency,
+            int userBuckets,
+            int streamBuckets
+    ) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.yoojuno.cctv.stream;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * In edge mode, answers {@code /hls/**} GET/HEAD from {@link EdgeSegmentCache} instead of the
+ * local HLS directory. Runs after the security chain, so viewers are authorized (and shaped and
+ * accounted) by this node before anything is fetched from the origin.
+ */
+@Component
+public class EdgeProxyFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(EdgeProxyFilter.class);
+
+    private final EdgeSegmentCache edgeCache;
+    private final HlsCachePolicy cachePolicy;
+
+    public EdgeProxyFilter(EdgeSegmentCache edgeCache, HlsCachePolicy cachePolicy) {
+        this.edgeCache = edgeCache;
+        this.cachePolicy = cachePolicy;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        return !edgeCache.enabled()
+                || path == null
+                || !path.startsWith("/hls/")
+                || !("GET".equals(method) || "HEAD".equals(method));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        String fileName = request.getRequestURI().substring("/hls/".length());
+        EdgeSegmentCache.EdgeObject object;
+        try {
+            object = edgeCache.get(fileName);
+        } catch (IOException e) {
+            log.warn("Edge fetch failed for {}: {}", fileName, e.getMessage());
+            writeJsonError(response, HttpServletResponse.SC_BAD_GATEWAY, "origin unavailable");
+            return;
+        }
+        if (object == null) {
+            writeJsonError(response, HttpServletResponse.SC_NOT_FOUND, "not found");
+            return;
+        }
+        // Without an origin Last-Modified there is no cheap validator, so no ETag either.
+        if (cachePolicy.notModified(request, response, fileName, object.body().length, object.lastModifiedEpochMs())) {
+            return;
+        }
+        boolean manifest = fileName.endsWith(".m3u8");
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(manifest ? "application/vnd.apple.mpegurl" : "video/mp2t");
+        response.setContentLengthLong(object.body().length);
+        if (object.lastModifiedEpochMs() > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, object.lastModifiedEpochMs());
+        }
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(object.body());
+        }
+    }
+
+    private static void writeJsonError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
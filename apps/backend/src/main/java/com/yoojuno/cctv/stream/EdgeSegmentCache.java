@@ -0,0 +1,568 @@
+package com.yoojuno.cctv.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Edge mode: proxies {@code /hls/**} from an origin backend, so each segment crosses the WAN once.
+ * Concurrent misses share one origin request, and health reads only the cached playlist.
+ */
+@Component
+public class EdgeSegmentCache {
+    private static final Logger log = LoggerFactory.getLogger(EdgeSegmentCache.class);
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9._-]{1,160}\\.(m3u8|ts|m4s)");
+    private static final int MAX_NEGATIVE_ENTRIES = 10_000;
+
+    private final ObjectMapper objectMapper;
+    private final Object lruLock = new Object();
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CachedManifest> manifests = new ConcurrentHashMap<>();
+    private final Map<String, Long> notFoundUntilNanos = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<EdgeObject>> inflight = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Object loginLock = new Object();
+    private long memoryUsed;
+    private long diskUsed;
+    private volatile String originCookie;
+    private HttpClient httpClient;
+    private Path diskRoot;
+    private ExecutorService healthRefresher;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder manifestHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder originFetches = new LongAdder();
+    private final LongAdder originErrors = new LongAdder();
+    private final LongAdder originBytes = new LongAdder();
+    private final LongAdder servedBytes = new LongAdder();
+
+    @Value("${edge.enabled:false}")
+    private boolean enabled;
+
+    @Value("${edge.origin-url:}")
+    private String originUrl;
+
+    @Value("${edge.origin-username:}")
+    private String originUsername;
+
+    @Value("${edge.origin-password:}")
+    private String originPassword;
+
+    @Value("${auth.jwt.cookie-name:CCTV_AUTH}")
+    private String authCookieName;
+
+    @Value("${edge.memory-bytes:134217728}")
+    private long memoryBytes;
+
+    @Value("${edge.disk-dir:}")
+    private String diskDir;
+
+    @Value("${edge.disk-bytes:2147483648}")
+    private long diskBytes;
+
+    @Value("${edge.manifest-ttl-ms:500}")
+    private long manifestTtlMs;
+
+    @Value("${edge.negative-ttl-ms:1000}")
+    private long negativeTtlMs;
+
+    @Value("${edge.origin-timeout-ms:10000}")
+    private long originTimeoutMs;
+
+    @Value("${edge.health-refresh-threads:2}")
+    private int healthRefreshThreads;
+
+    public EdgeSegmentCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (originUrl == null || originUrl.isBlank()) {
+            throw new IllegalStateException("edge.enabled requires edge.origin-url");
+        }
+        originUrl = originUrl.trim().replaceAll("/+$", "");
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(Math.max(100, originTimeoutMs)))
+                .build();
+        if (diskDir != null && !diskDir.isBlank()) {
+            diskRoot = Path.of(diskDir).toAbsolutePath().normalize();
+            Files.createDirectories(diskRoot);
+            // The disk tier is a cache of the current session only.
+            try (Stream<Path> files = Files.list(diskRoot)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        healthRefresher = Executors.newFixedThreadPool(Math.max(1, healthRefreshThreads), runnable -> {
+            Thread thread = new Thread(runnable, "edge-health-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Edge mode: proxying /hls from {}", originUrl);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (healthRefresher == null) {
+            return;
+        }
+        healthRefresher.shutdownNow();
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the file for a viewer request, or null when the origin does not have it.
+     */
+    public EdgeObject get(String fileName) throws IOException {
+        requests.increment();
+        EdgeObject object = lookup(fileName);
+        if (object != null) {
+            servedBytes.add(object.body().length);
+        }
+        return object;
+    }
+
+    /**
+     * Current playlist, fetched from the origin if the cached copy has expired; shares the cached
+     * copy and TTL with viewers.
+     */
+    public EdgeObject manifest(String streamId) throws IOException {
+        return lookup(streamId + ".m3u8");
+    }
+
+    /**
+     * Current playlist for health evaluation without waiting on the origin: the cached copy, even
+     * past its TTL, while an expired or missing one is fetched in the background. Null until the
+     * first fetch has completed or while the origin answers 404 (see {@link #originMissing}).
+     */
+    public EdgeObject cachedManifest(String streamId) {
+        String fileName = streamId + ".m3u8";
+        if (!enabled || !FILE_NAME.matcher(fileName).matches() || fileName.startsWith(".")) {
+            return null;
+        }
+        CachedManifest cached = manifests.get(fileName);
+        if (cached == null || System.nanoTime() - cached.fetchedAtNanos() >= TimeUnit.MILLISECONDS.toNanos(manifestTtlMs)) {
+            refreshInBackground(fileName);
+        }
+        return cached == null ? null : cached.object();
+    }
+
+    /**
+     * Whether the origin's last answer for the stream's playlist was 404.
+     */
+    public boolean originMissing(String streamId) {
+        return notFoundUntilNanos.containsKey(streamId + ".m3u8");
+    }
+
+    /**
+     * Size of a cached segment, or {@link StreamHealthService.SegmentSizer#UNKNOWN} when this
+     * edge has not fetched it yet.
+     */
+    public long cachedSize(String segmentRef) {
+        String name = segmentRef.substring(segmentRef.lastIndexOf('/') + 1);
+        synchronized (lruLock) {
+            byte[] body = memory.get(name);
+            if (body != null) {
+                return body.length;
+            }
+            Long size = disk.get(name);
+            return size == null ? StreamHealthService.SegmentSizer.UNKNOWN : size;
+        }
+    }
+
+    public EdgeStats stats() {
+        int memoryObjects;
+        long memoryUsedNow;
+        int diskObjects;
+        long diskUsedNow;
+        synchronized (lruLock) {
+            memoryObjects = memory.size();
+            memoryUsedNow = memoryUsed;
+            diskObjects = disk.size();
+            diskUsedNow = diskUsed;
+        }
+        long served = servedBytes.sum();
+        long fetched = originBytes.sum();
+        long requestCount = requests.sum();
+        long fetches = originFetches.sum();
+        return new EdgeStats(
+                enabled,
+                originUrl,
+                requestCount,
+                memoryHits.sum(),
+                diskHits.sum(),
+                manifestHits.sum(),
+                coalesced.sum(),
+                fetches,
+                originErrors.sum(),
+                fetched,
+                served,
+                served == 0 ? 0 : Math.max(0, 1.0 - (double) fetched / served),
+                requestCount == 0 ? 0 : Math.max(0, 1.0 - (double) fetches / requestCount),
+                memoryObjects,
+                memoryUsedNow,
+                diskObjects,
+                diskUsedNow
+        );
+    }
+
+    private EdgeObject lookup(String fileName) throws IOException {
+        if (!enabled || fileName == null || !FILE_NAME.matcher(fileName).matches() || fileName.startsWith(".")) {
+            return null;
+        }
+        Long notFoundUntil = notFoundUntilNanos.get(fileName);
+        if (notFoundUntil != null) {
+            if (System.nanoTime() < notFoundUntil) {
+                return null;
+            }
+            notFoundUntilNanos.remove(fileName, notFoundUntil);
+        }
+
+        if (fileName.endsWith(".m3u8")) {
+            CachedManifest cached = manifests.get(fileName);
+            if (cached != null && System.nanoTime() - cached.fetchedAtNanos() < TimeUnit.MILLISECONDS.toNanos(manifestTtlMs)) {
+                manifestHits.increment();
+                return cached.object();
+            }
+            return singleFlight(fileName);
+        }
+
+        byte[] body;
+        synchronized (lruLock) {
+            body = memory.get(fileName);
+        }
+        if (body != null) {
+            memoryHits.increment();
+            return new EdgeObject(body, 0);
+        }
+        body = readDisk(fileName);
+        if (body != null) {
+            diskHits.increment();
+            putMemory(fileName, body);
+            return new EdgeObject(body, 0);
+        }
+        return singleFlight(fileName);
+    }
+
+    private void refreshInBackground(String fileName) {
+        if (healthRefresher == null || !refreshing.add(fileName)) {
+            return;
+        }
+        try {
+            healthRefresher.execute(() -> {
+                try {
+                    lookup(fileName);
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Edge playlist refresh for {} failed: {}", fileName, e.toString());
+                } finally {
+                    refreshing.remove(fileName);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(fileName);
+        }
+    }
+
+    /**
+     * The first caller fetches from the origin and fills the cache before completing; callers
+     * arriving meanwhile wait on the same future instead of issuing their own request.
+     */
+    private EdgeObject singleFlight(String fileName) throws IOException {
+        CompletableFuture<EdgeObject> mine = new CompletableFuture<>();
+        CompletableFuture<EdgeObject> existing = inflight.putIfAbsent(fileName, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        EdgeObject fetched;
+        try {
+            fetched = fetchOrigin(fileName);
+            if (fetched == null) {
+                long now = System.nanoTime();
+                if (notFoundUntilNanos.size() > MAX_NEGATIVE_ENTRIES) {
+                    notFoundUntilNanos.values().removeIf(until -> until < now);
+                }
+                notFoundUntilNanos.put(fileName, now + TimeUnit.MILLISECONDS.toNanos(negativeTtlMs));
+            } else if (fileName.endsWith(".m3u8")) {
+                fetched = withObservedChange(fileName, fetched);
+                manifests.put(fileName, new CachedManifest(fetched, System.nanoTime()));
+            } else {
+                putMemory(fileName, fetched.body());
+            }
+            mine.complete(fetched);
+        } catch (IOException | RuntimeException e) {
+            originErrors.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(fileName, mine);
+        }
+        if (fetched != null && !fileName.endsWith(".m3u8")) {
+            writeDisk(fileName, fetched.body());
+        }
+        return fetched;
+    }
+
+    /**
+     * Without a Last-Modified from the origin, a playlist's modification time is when this edge
+     * first saw its current content. Until the content has been seen to change once that time is
+     * unknown and stays 0, rather than pretending the playlist was just written.
+     */
+    private EdgeObject withObservedChange(String fileName, EdgeObject fetched) {
+        if (fetched.lastModifiedEpochMs() > 0) {
+            return fetched;
+        }
+        CachedManifest previous = manifests.get(fileName);
+        if (previous == null) {
+            return fetched;
+        }
+        if (Arrays.equals(previous.object().body(), fetched.body())) {
+            return new EdgeObject(fetched.body(), previous.object().lastModifiedEpochMs());
+        }
+        return new EdgeObject(fetched.body(), System.currentTimeMillis());
+    }
+
+    private EdgeObject await(CompletableFuture<EdgeObject> future) throws IOException {
+        try {
+            return future.get(originTimeoutMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted waiting for origin", e);
+        } catch (TimeoutException e) {
+            throw new IOException("timed out waiting for origin", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("origin fetch failed", cause);
+        }
+    }
+
+    private EdgeObject fetchOrigin(String fileName) throws IOException {
+        HttpResponse<byte[]> response = sendOrigin(fileName);
+        if (response.statusCode() == 401 && hasOriginCredentials()) {
+            login(originCookie);
+            response = sendOrigin(fileName);
+        }
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("origin returned " + response.statusCode() + " for " + fileName);
+        }
+        byte[] body = response.body();
+        originBytes.add(body.length);
+        return new EdgeObject(body, lastModified(response));
+    }
+
+    private HttpResponse<byte[]> sendOrigin(String fileName) throws IOException {
+        originFetches.increment();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(originUrl + "/hls/" + fileName))
+                .timeout(Duration.ofMillis(Math.max(100, originTimeoutMs)))
+                .GET();
+        String cookie = originCookie;
+        if (cookie == null && hasOriginCredentials()) {
+            cookie = login(null);
+        }
+        if (cookie != null) {
+            request.header("Cookie", authCookieName + "=" + cookie);
+        }
+        try {
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted fetching " + fileName, e);
+        }
+    }
+
+    /**
+     * Signs in once for all threads; a caller whose cookie was rejected only triggers a new login
+     * if nobody has replaced that cookie yet.
+     */
+    private String login(String rejectedCookie) throws IOException {
+        synchronized (loginLock) {
+            String current = originCookie;
+            if (current != null && !current.equals(rejectedCookie)) {
+                return current;
+            }
+            String body = objectMapper.writeValueAsString(Map.of("username", originUsername, "password", originPassword));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(originUrl + "/api/auth/login"))
+                    .timeout(Duration.ofMillis(Math.max(100, originTimeoutMs)))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            HttpResponse<Void> response;
+            try {
+                response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted signing in to origin", e);
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("origin login failed with " + response.statusCode());
+            }
+            String prefix = authCookieName + "=";
+            for (String setCookie : response.headers().allValues("Set-Cookie")) {
+                if (setCookie.startsWith(prefix)) {
+                    int end = setCookie.indexOf(';');
+                    originCookie = setCookie.substring(prefix.length(), end < 0 ? setCookie.length() : end);
+                    return originCookie;
+                }
+            }
+            throw new IOException("origin login returned no " + authCookieName + " cookie");
+        }
+    }
+
+    private boolean hasOriginCredentials() {
+        return originUsername != null && !originUsername.isBlank();
+    }
+
+    private static long lastModified(HttpResponse<?> response) {
+        return response.headers().firstValue("Last-Modified")
+                .map(value -> {
+                    try {
+                        return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                    } catch (RuntimeException e) {
+                        return 0L;
+                    }
+                })
+                .orElse(0L);
+    }
+
+    private void putMemory(String fileName, byte[] body) {
+        if (body.length > memoryBytes) {
+            return;
+        }
+        synchronized (lruLock) {
+            byte[] previous = memory.put(fileName, body);
+            memoryUsed += body.length - (previous == null ? 0 : previous.length);
+            Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+            while (memoryUsed > memoryBytes && eldest.hasNext()) {
+                memoryUsed -= eldest.next().getValue().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private byte[] readDisk(String fileName) {
+        if (diskRoot == null) {
+            return null;
+        }
+        synchronized (lruLock) {
+            if (disk.get(fileName) == null) {
+                return null;
+            }
+        }
+        try {
+            return Files.readAllBytes(diskRoot.resolve(fileName));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeDisk(String fileName, byte[] body) {
+        if (diskRoot == null || body.length > diskBytes) {
+            return;
+        }
+        List<String> evicted = new ArrayList<>();
+        try {
+            Path temp = Files.createTempFile(diskRoot, ".edge", ".tmp");
+            Files.write(temp, body);
+            Files.move(temp, diskRoot.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.debug("Edge disk cache write failed for {}: {}", fileName, e.getMessage());
+            return;
+        }
+        synchronized (lruLock) {
+            Long previous = disk.put(fileName, (long) body.length);
+            diskUsed += body.length - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+            while (diskUsed > diskBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                diskUsed -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String name : evicted) {
+            try {
+                Files.deleteIfExists(diskRoot.resolve(name));
+            } catch (IOException ignored) {
+                // best effort
+            }
+        }
+    }
+
+    private record CachedManifest(EdgeObject object, long fetchedAtNanos) {
+    }
+
+    public record EdgeObject(byte[] body, long lastModifiedEpochMs) {
+    }
+
+    public record EdgeStats(
+            boolean enabled,
+            String originUrl,
+            long requests,
+            long memoryHits,
+            long diskHits,
+            long manifestHits,
+            long coalescedWaits,
+            long originFetches,
+            long originErrors,
+            long originBytes,
+            long servedBytes,
+            double byteOffloadRatio,
+            double requestOffloadRatio,
+            int memoryObjects,
+            long memoryBytesUsed,
+            int diskObjects,
+            long diskBytesUsed
+    ) {
+    }
+}
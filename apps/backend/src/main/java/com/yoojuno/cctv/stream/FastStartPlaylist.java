@@ -0,0 +1,271 @@
+package com.yoojuno.cctv.stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * "Fast start" variant of a live playlist ({@code /hls/<id>.m3u8?start=live}) that starts players
+ * at the newest segment. Only applied to playlists with independent segments; cached until the
+ * source changes.
+ */
+@Component
+public class FastStartPlaylist {
+    private static final int MAX_CACHED_VARIANTS = 4096;
+    private static final Set<String> SEGMENT_TAGS = Set.of(
+            "#EXTINF", "#EXT-X-BYTERANGE", "#EXT-X-DISCONTINUITY", "#EXT-X-KEY", "#EXT-X-MAP",
+            "#EXT-X-PROGRAM-DATE-TIME", "#EXT-X-GAP", "#EXT-X-BITRATE", "#EXT-X-DATERANGE");
+
+    private final SegmentStore segmentStore;
+    private final HlsStorageLayout storageLayout;
+    private final EdgeSegmentCache edgeCache;
+    private final Map<String, Variant> variants = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+
+    @Value("${hls.fast-start.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hls.fast-start.max-window:10}")
+    private int maxWindow;
+
+    public FastStartPlaylist(SegmentStore segmentStore, HlsStorageLayout storageLayout, EdgeSegmentCache edgeCache) {
+        this.segmentStore = segmentStore;
+        this.storageLayout = storageLayout;
+        this.edgeCache = edgeCache;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Variant for the stream, or null when it has no playlist. {@code window} is the number of
+     * newest segments to keep; 0 keeps the whole playlist.
+     */
+    public Variant render(String streamId, int window) throws IOException {
+        int boundedWindow = Math.max(0, Math.min(window, Math.max(1, maxWindow)));
+        String key = streamId + "|" + boundedWindow;
+        if (edgeCache != null && edgeCache.enabled()) {
+            EdgeSegmentCache.EdgeObject manifest = edgeCache.manifest(streamId);
+            if (manifest == null) {
+                return null;
+            }
+            return cached(key, manifest, manifest.lastModifiedEpochMs(), boundedWindow, () -> manifest.body());
+        }
+        SegmentStore.StoredObject ingested = segmentStore == null ? null : segmentStore.open(streamId + ".m3u8");
+        if (ingested != null) {
+            try {
+                // Compared by identity: the stored object is replaced on every playlist upload.
+                return cached(key, ingested, ingested.uploadedAtEpochMs(), boundedWindow, ingested::toByteArray);
+            } finally {
+                ingested.release();
+            }
+        }
+        Path manifestPath = storageLayout.manifestPath(streamId);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(manifestPath, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        return cached(key, new FileVersion(lastModified, attributes.size()), lastModified, boundedWindow,
+                () -> Files.readAllBytes(manifestPath));
+    }
+
+    public FastStartStats stats() {
+        return new FastStartStats(enabled, variants.size(), hits.sum(), renders.sum());
+    }
+
+    private Variant cached(String key, Object sourceVersion, long lastModifiedEpochMs, int window, Source source) throws IOException {
+        Variant current = variants.get(key);
+        if (current != null && Objects.equals(current.sourceVersion, sourceVersion)) {
+            hits.increment();
+            return current;
+        }
+        String playlist = new String(source.read(), StandardCharsets.UTF_8);
+        Variant rendered = new Variant(sourceVersion, rewrite(playlist, window).getBytes(StandardCharsets.UTF_8), lastModifiedEpochMs);
+        renders.increment();
+        if (variants.size() >= MAX_CACHED_VARIANTS && !variants.containsKey(key)) {
+            variants.clear();
+        }
+        variants.put(key, rendered);
+        return rendered;
+    }
+
+    /**
+     * Adds {@code EXT-X-START} at the newest segment and keeps the last {@code window} segments
+     * (all when 0), carrying the media and discontinuity sequence numbers and the last key/map of
+     * dropped segments forward. Playlists without independent segments, finished playlists and
+     * empty ones are returned unchanged.
+     */
+    static String rewrite(String playlist, int window) {
+        List<String> header = new ArrayList<>();
+        List<List<String>> segments = new ArrayList<>();
+        List<String> trailer = new ArrayList<>();
+        List<String> pending = new ArrayList<>();
+        boolean independent = false;
+        boolean endList = false;
+        long mediaSequence = 0;
+        long discontinuitySequence = 0;
+        for (String rawLine : playlist.split("\r?\n")) {
+            String line = rawLine.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (!line.startsWith("#")) {
+                pending.add(line);
+                segments.add(pending);
+                pending = new ArrayList<>();
+                continue;
+            }
+            String tag = tagName(line);
+            switch (tag) {
+                case "#EXT-X-INDEPENDENT-SEGMENTS" -> independent = true;
+                case "#EXT-X-ENDLIST" -> endList = true;
+                case "#EXT-X-MEDIA-SEQUENCE" -> mediaSequence = parseLong(line);
+                case "#EXT-X-DISCONTINUITY-SEQUENCE" -> discontinuitySequence = parseLong(line);
+                default -> {
+                }
+            }
+            if (SEGMENT_TAGS.contains(tag) || !pending.isEmpty()) {
+                pending.add(line);
+            } else if (segments.isEmpty()) {
+                header.add(line);
+            } else {
+                trailer.add(line);
+            }
+        }
+        if (!independent || endList || segments.isEmpty()) {
+            return playlist;
+        }
+
+        int drop = window > 0 ? Math.max(0, segments.size() - window) : 0;
+        String carriedKey = null;
+        String carriedMap = null;
+        long droppedDiscontinuities = 0;
+        for (List<String> segment : segments.subList(0, drop)) {
+            for (String line : segment) {
+                switch (tagName(line)) {
+                    case "#EXT-X-KEY" -> carriedKey = line;
+                    case "#EXT-X-MAP" -> carriedMap = line;
+                    case "#EXT-X-DISCONTINUITY" -> droppedDiscontinuities++;
+                    default -> {
+                    }
+                }
+            }
+        }
+        List<List<String>> kept = segments.subList(drop, segments.size());
+
+        StringBuilder out = new StringBuilder(playlist.length() + 64);
+        boolean wroteDiscontinuitySequence = false;
+        for (String line : header) {
+            switch (tagName(line)) {
+                case "#EXT-X-START" -> {
+                }
+                case "#EXT-X-MEDIA-SEQUENCE" -> out.append("#EXT-X-MEDIA-SEQUENCE:").append(mediaSequence + drop).append('\n');
+                case "#EXT-X-DISCONTINUITY-SEQUENCE" -> {
+                    out.append("#EXT-X-DISCONTINUITY-SEQUENCE:").append(discontinuitySequence + droppedDiscontinuities).append('\n');
+                    wroteDiscontinuitySequence = true;
+                }
+                default -> out.append(line).append('\n');
+            }
+        }
+        if (drop > 0 && header.stream().noneMatch(line -> tagName(line).equals("#EXT-X-MEDIA-SEQUENCE"))) {
+            out.append("#EXT-X-MEDIA-SEQUENCE:").append(drop).append('\n');
+        }
+        if (droppedDiscontinuities > 0 && !wroteDiscontinuitySequence) {
+            out.append("#EXT-X-DISCONTINUITY-SEQUENCE:").append(discontinuitySequence + droppedDiscontinuities).append('\n');
+        }
+        out.append(String.format(Locale.ROOT, "#EXT-X-START:TIME-OFFSET=-%.3f,PRECISE=YES", duration(kept.get(kept.size() - 1)))).append('\n');
+        List<String> first = kept.get(0);
+        if (carriedMap != null && first.stream().noneMatch(line -> tagName(line).equals("#EXT-X-MAP"))) {
+            out.append(carriedMap).append('\n');
+        }
+        if (carriedKey != null && first.stream().noneMatch(line -> tagName(line).equals("#EXT-X-KEY"))) {
+            out.append(carriedKey).append('\n');
+        }
+        for (List<String> segment : kept) {
+            for (String line : segment) {
+                out.append(line).append('\n');
+            }
+        }
+        for (String line : trailer) {
+            out.append(line).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String tagName(String line) {
+        int colon = line.indexOf(':');
+        return colon < 0 ? line : line.substring(0, colon);
+    }
+
+    private static double duration(List<String> segment) {
+        for (String line : segment) {
+            if (line.startsWith("#EXTINF:")) {
+                String value = line.substring("#EXTINF:".length());
+                int comma = value.indexOf(',');
+                try {
+                    return Double.parseDouble((comma >= 0 ? value.substring(0, comma) : value).trim());
+                } catch (NumberFormatException ignored) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static long parseLong(String line) {
+        try {
+            return Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+        } catch (NumberFormatException ignored) {
+            return 0;
+        }
+    }
+
+    private interface Source {
+        byte[] read() throws IOException;
+    }
+
+    private record FileVersion(long lastModifiedEpochMs, long size) {
+    }
+
+    public static final class Variant {
+        private final Object sourceVersion;
+        private final byte[] body;
+        private final long lastModifiedEpochMs;
+
+        private Variant(Object sourceVersion, byte[] body, long lastModifiedEpochMs) {
+            this.sourceVersion = sourceVersion;
+            this.body = body;
+            this.lastModifiedEpochMs = lastModifiedEpochMs;
+        }
+
+        public byte[] body() {
+            return body;
+        }
+
+        public long lastModifiedEpochMs() {
+            return lastModifiedEpochMs;
+        }
+    }
+
+    public record FastStartStats(boolean enabled, int cachedVariants, long hits, long renders) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.yoojuno.cctv.stream;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Answers {@code /hls/<id>.m3u8?start=live[&window=N]} with the {@link FastStartPlaylist}
+ * variant. Ordered ahead of the store and edge filters (which would otherwise answer with the
+ * plain playlist) but still after the security chain, so access checks and accounting apply.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+public class FastStartPlaylistFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(FastStartPlaylistFilter.class);
+
+    private final FastStartPlaylist fastStartPlaylist;
+    private final HlsCachePolicy cachePolicy;
+
+    @Value("${hls.fast-start.default-window:0}")
+    private int defaultWindow;
+
+    public FastStartPlaylistFilter(FastStartPlaylist fastStartPlaylist, HlsCachePolicy cachePolicy) {
+        this.fastStartPlaylist = fastStartPlaylist;
+        this.cachePolicy = cachePolicy;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        return !fastStartPlaylist.enabled()
+                || path == null
+                || !path.startsWith("/hls/")
+                || !path.endsWith(".m3u8")
+                || !"live".equals(request.getParameter("start"))
+                || !("GET".equals(method) || "HEAD".equals(method));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        String fileName = request.getRequestURI().substring("/hls/".length());
+        if (!SegmentStore.isValidName(fileName)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String streamId = fileName.substring(0, fileName.length() - ".m3u8".length());
+        FastStartPlaylist.Variant variant;
+        try {
+            variant = fastStartPlaylist.render(streamId, window(request.getParameter("window")));
+        } catch (IOException e) {
+            log.warn("Fast-start playlist for {} failed: {}", streamId, e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (variant == null) {
+            writeJsonError(response, HttpServletResponse.SC_NOT_FOUND, "not found");
+            return;
+        }
+        if (cachePolicy.notModified(request, response, fileName, variant.body().length, variant.lastModifiedEpochMs())) {
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/vnd.apple.mpegurl");
+        response.setContentLengthLong(variant.body().length);
+        if (variant.lastModifiedEpochMs() > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, variant.lastModifiedEpochMs());
+        }
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(variant.body());
+        }
+    }
+
+    private int window(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return defaultWindow;
+        }
+        try {
+            return Integer.parseInt(raw.trim());
+        } catch (NumberFormatException e) {
+            return defaultWindow;
+        }
+    }
+
+    private static void writeJsonError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
@@ -0,0 +1,179 @@
+package com.yoojuno.cctv.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Shares serialized health JSON between pollers: each health result is serialized once, and
+ * values built from those fragments are memoized per key and health snapshot version.
+ */
+@Service
+public class HealthPayloadCache {
+    private final ObjectMapper objectMapper;
+    private final StreamCatalogService streamCatalogService;
+    private final Map<String, Fragment> fragments = new ConcurrentHashMap<>();
+    private final Map<String, Memo> memo = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Memo> eldest) {
+            return size() > Math.max(1, maxEntries);
+        }
+    };
+    private volatile StreamCatalog prunedFor;
+
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder memoMisses = new LongAdder();
+    private final LongAdder fragmentSerializations = new LongAdder();
+
+    @Value("${streams.payload-cache.max-entries:512}")
+    private int maxEntries;
+
+    @Value("${streams.payload-cache.max-age-ms:10000}")
+    private long maxAgeMs;
+
+    public HealthPayloadCache(ObjectMapper objectMapper, StreamCatalogService streamCatalogService) {
+        this.objectMapper = objectMapper;
+        this.streamCatalogService = streamCatalogService;
+    }
+
+    public RawValue fragment(StreamHealthService.StreamHealth health) {
+        Fragment cached = fragments.get(health.id());
+        if (cached != null && cached.source() == health) {
+            return cached.json();
+        }
+        fragmentSerializations.increment();
+        RawValue json;
+        try {
+            json = new RawValue(objectMapper.writeValueAsString(health));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize health for " + health.id(), e);
+        }
+        fragments.put(health.id(), new Fragment(health, json));
+        return json;
+    }
+
+    public List<RawValue> fragments(List<StreamHealthService.StreamHealth> health) {
+        prune(streamCatalogService.snapshot());
+        List<RawValue> result = new ArrayList<>(health.size());
+        for (StreamHealthService.StreamHealth item : health) {
+            result.add(fragment(item));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value memoized under {@code key} for {@code version}, the health snapshot version
+     * the value is built from, building it at most once per version (modulo a benign race between
+     * concurrent first callers). {@code streams.payload-cache.max-age-ms} bounds how long parts
+     * that carry no version (storage status) may lag behind.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T memoize(String key, long version, Supplier<T> builder) {
+        long now = System.currentTimeMillis();
+        Memo cached;
+        synchronized (memo) {
+            cached = memo.get(key);
+        }
+        if (cached != null && cached.version() == version && now - cached.builtAtMs() < maxAgeMs) {
+            memoHits.increment();
+            return (T) cached.value();
+        }
+        memoMisses.increment();
+        T built = builder.get();
+        synchronized (memo) {
+            memo.put(key, new Memo(version, now, built));
+        }
+        return built;
+    }
+
+    /**
+     * Drops fragments of streams a catalog reload removed; a no-op while the snapshot is unchanged.
+     */
+    void prune(StreamCatalog catalog) {
+        if (catalog == prunedFor) {
+            return;
+        }
+        fragments.keySet().removeIf(id -> catalog.find(id) == null);
+        prunedFor = catalog;
+    }
+
+    public Payload payload(Object value) {
+        try {
+            return new Payload(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    public CacheStats stats() {
+        int memoSize;
+        synchronized (memo) {
+            memoSize = memo.size();
+        }
+        return new CacheStats(memoHits.sum(), memoMisses.sum(), fragmentSerializations.sum(), memoSize, fragments.size());
+    }
+
+    private record Fragment(StreamHealthService.StreamHealth source, RawValue json) {
+    }
+
+    private record Memo(long version, long builtAtMs, Object value) {
+    }
+
+    /**
+     * Serialized response body with a lazily built gzip variant.
+     */
+    public static final class Payload {
+        private final byte[] json;
+        private volatile byte[] gzip;
+
+        Payload(byte[] json) {
+            this.json = json;
+        }
+
+        public byte[] json() {
+            return json;
+        }
+
+        public byte[] gzip() {
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                compressed = compress(json);
+                gzip = compressed;
+            }
+            return compressed;
+        }
+
+        private static byte[] compress(byte[] raw) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                gzipOut.write(raw);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    public record CacheStats(
+            long hits,
+            long misses,
+            long fragmentSerializations,
+            int cachedEntries,
+            int cachedFragments
+    ) {
+    }
+}
@@ -0,0 +1,355 @@
+package com.yoojuno.cctv.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yoojuno.cctv.model.StreamInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Posts debounced stream state changes to the webhooks in {@code notify.webhook-urls}, in order
+ * per endpoint and with retries, from a bounded queue.
+ */
+@Component
+public class HealthWebhookNotifier implements StreamHealthMonitor.StateChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(HealthWebhookNotifier.class);
+
+    private final ObjectMapper objectMapper;
+    private final StreamHealthMonitor streamHealthMonitor;
+    private final StreamCatalogService streamCatalogService;
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingDeliveries = new AtomicInteger();
+
+    private final LongAdder transitions = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder notified = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private List<URI> endpoints = List.of();
+    private Map<URI, EndpointQueue> queues = Map.of();
+    private HttpClient httpClient;
+    private ScheduledExecutorService dispatcher;
+
+    @Value("${notify.enabled:false}")
+    private boolean enabled;
+
+    @Value("${notify.webhook-urls:}")
+    private String webhookUrls;
+
+    @Value("${notify.webhook-token:}")
+    private String webhookToken;
+
+    @Value("${notify.debounce-ms:30000}")
+    private long debounceMs;
+
+    @Value("${notify.recovery-debounce-ms:10000}")
+    private long recoveryDebounceMs;
+
+    @Value("${notify.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${notify.max-batch:100}")
+    private int maxBatch;
+
+    @Value("${notify.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${notify.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notify.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${notify.retry-max-ms:60000}")
+    private long retryMaxMs;
+
+    @Value("${notify.timeout-ms:5000}")
+    private long timeoutMs;
+
+    public HealthWebhookNotifier(
+            ObjectMapper objectMapper,
+            StreamHealthMonitor streamHealthMonitor,
+            StreamCatalogService streamCatalogService
+    ) {
+        this.objectMapper = objectMapper;
+        this.streamHealthMonitor = streamHealthMonitor;
+        this.streamCatalogService = streamCatalogService;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        endpoints = Arrays.stream(webhookUrls == null ? new String[0] : webhookUrls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(URI::create)
+                .distinct()
+                .toList();
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("notify.enabled requires notify.webhook-urls");
+        }
+        queues = endpoints.stream().collect(Collectors.toMap(Function.identity(), endpoint -> new EndpointQueue()));
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(Math.max(100, timeoutMs)))
+                .build();
+        // One thread: it only confirms candidates and times retries; posts complete on the client's threads.
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-notify");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::tickSafely, tickMs, Math.max(100, tickMs), TimeUnit.MILLISECONDS);
+        streamHealthMonitor.addStateChangeListener(this);
+        log.info("Health notifications: {} webhook endpoint(s), debounce {} ms", endpoints.size(), debounceMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher == null) {
+            return;
+        }
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void stateChanged(StreamHealthService.StreamHealth previous, StreamHealthService.StreamHealth current, long epochMs) {
+        transitions.increment();
+        Tracked stream = tracked.computeIfAbsent(current.id(), id -> new Tracked());
+        synchronized (stream) {
+            if (stream.candidate != stream.confirmed && current.state() == stream.confirmed) {
+                // Back to the reported state before the candidate was confirmed: a flap.
+                suppressed.increment();
+            }
+            stream.candidate = current.state();
+            stream.reason = current.reason();
+            stream.sinceEpochMs = epochMs;
+        }
+    }
+
+    public NotifierStats stats() {
+        return new NotifierStats(
+                enabled,
+                endpoints.size(),
+                pendingDeliveries.get(),
+                transitions.sum(),
+                suppressed.sum(),
+                notified.sum(),
+                delivered.sum(),
+                retried.sum(),
+                failed.sum(),
+                dropped.sum()
+        );
+    }
+
+    private void tickSafely() {
+        try {
+            tick(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            log.warn("Health notification pass failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * Confirms candidates that held long enough and queues them as batches.
+     */
+    void tick(long nowMs) {
+        Set<String> known = streamCatalogService.all().stream().map(StreamInfo::id).collect(Collectors.toSet());
+        tracked.keySet().retainAll(known);
+        List<StateChangeEvent> events = new ArrayList<>();
+        for (Map.Entry<String, Tracked> entry : tracked.entrySet()) {
+            Tracked stream = entry.getValue();
+            synchronized (stream) {
+                if (stream.candidate == null || stream.candidate == stream.confirmed) {
+                    continue;
+                }
+                boolean live = stream.candidate == StreamHealthService.StreamState.LIVE;
+                if (nowMs - stream.sinceEpochMs < (live ? recoveryDebounceMs : debounceMs)) {
+                    continue;
+                }
+                if (stream.confirmed != null || !live) {
+                    events.add(new StateChangeEvent(
+                            entry.getKey(),
+                            stream.confirmed == null ? null : stream.confirmed.name(),
+                            stream.candidate.name(),
+                            stream.reason,
+                            stream.sinceEpochMs,
+                            nowMs
+                    ));
+                }
+                stream.confirmed = stream.candidate;
+            }
+        }
+        int batchSize = Math.max(1, maxBatch);
+        for (int from = 0; from < events.size(); from += batchSize) {
+            List<StateChangeEvent> batch = events.subList(from, Math.min(events.size(), from + batchSize));
+            notified.add(batch.size());
+            byte[] body;
+            try {
+                body = objectMapper.writeValueAsBytes(new WebhookPayload(nowMs, List.copyOf(batch)));
+            } catch (JsonProcessingException e) {
+                log.warn("Could not serialize health notification: {}", e.getMessage());
+                continue;
+            }
+            for (URI endpoint : endpoints) {
+                if (pendingDeliveries.incrementAndGet() > Math.max(1, queueCapacity)) {
+                    pendingDeliveries.decrementAndGet();
+                    dropped.increment();
+                    continue;
+                }
+                enqueue(new Delivery(endpoint, body, batch.size()));
+            }
+        }
+    }
+
+    private void enqueue(Delivery delivery) {
+        EndpointQueue queue = queues.get(delivery.endpoint());
+        synchronized (queue) {
+            queue.waiting.addLast(delivery);
+            if (queue.sending) {
+                return;
+            }
+            queue.sending = true;
+        }
+        sendNext(queue);
+    }
+
+    /**
+     * Starts the endpoint's oldest waiting delivery, or marks the endpoint idle when none is left.
+     */
+    private void sendNext(EndpointQueue queue) {
+        Delivery next;
+        synchronized (queue) {
+            next = queue.waiting.pollFirst();
+            if (next == null) {
+                queue.sending = false;
+                return;
+            }
+        }
+        attempt(queue, next, 1);
+    }
+
+    private void attempt(EndpointQueue queue, Delivery delivery, int attempt) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(delivery.endpoint())
+                .timeout(Duration.ofMillis(Math.max(100, timeoutMs)))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(delivery.body()));
+        if (webhookToken != null && !webhookToken.isBlank()) {
+            request.header("Authorization", "Bearer " + webhookToken.trim());
+        }
+        httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error == null && response.statusCode() >= 200 && response.statusCode() < 300) {
+                delivered.increment();
+                pendingDeliveries.decrementAndGet();
+                sendNext(queue);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            retryOrFail(queue, delivery, attempt, error == null ? "HTTP " + response.statusCode() : cause.toString());
+        });
+    }
+
+    /**
+     * The endpoint stays busy while a delivery waits for its retry, so later batches are not sent
+     * ahead of it.
+     */
+    private void retryOrFail(EndpointQueue queue, Delivery delivery, int attempt, String failure) {
+        if (attempt < Math.max(1, maxAttempts)) {
+            retried.increment();
+            long backoff = Math.min(Math.max(1, retryMaxMs), Math.max(1, retryBaseMs) << Math.min(20, attempt - 1));
+            try {
+                dispatcher.schedule(() -> attempt(queue, delivery, attempt + 1), backoff, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                dropped.increment();
+            }
+        } else {
+            failed.increment();
+            log.warn("Dropping health notification ({} events) for {} after {} attempts: {}",
+                    delivery.events(), delivery.endpoint(), attempt, failure);
+        }
+        pendingDeliveries.decrementAndGet();
+        sendNext(queue);
+    }
+
+    private static final class Tracked {
+        private StreamHealthService.StreamState confirmed;
+        private StreamHealthService.StreamState candidate;
+        private String reason;
+        private long sinceEpochMs;
+    }
+
+    private record Delivery(URI endpoint, byte[] body, int events) {
+    }
+
+    /**
+     * Deliveries waiting for an endpoint; {@code sending} while one of them is in flight or
+     * waiting for a retry. Guarded by the queue's monitor.
+     */
+    private static final class EndpointQueue {
+        private final ArrayDeque<Delivery> waiting = new ArrayDeque<>();
+        private boolean sending;
+    }
+
+    public record StateChangeEvent(
+            String streamId,
+            String from,
+            String to,
+            String reason,
+            long sinceEpochMs,
+            long confirmedAtEpochMs
+    ) {
+    }
+
+    public record WebhookPayload(long sentAtEpochMs, List<StateChangeEvent> events) {
+    }
+
+    public record NotifierStats(
+            boolean enabled,
+            int endpoints,
+            int pendingDeliveries,
+            long transitions,
+            long suppressedFlaps,
+            long notifiedEvents,
+            long delivered,
+            long retried,
+            long failed,
+            long dropped
+    ) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.controller.EntityTags;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache headers for everything served under {@code /hls/}: segments are immutable, live playlists
+ * are reused for at most half a segment, and the ETag comes from size and mtime.
+ */
+@Component
+public class HlsCachePolicy {
+    @Value("${hls.cache.segment-max-age-seconds:86400}")
+    private long segmentMaxAgeSeconds;
+
+    @Value("${hls.cache.segment-seconds:1}")
+    private double segmentSeconds;
+
+    @Value("${hls.cache.playlist-max-age-seconds:-1}")
+    private long playlistMaxAgeSeconds;
+
+    public String cacheControl(String fileName) {
+        if (fileName.endsWith(".m3u8")) {
+            long maxAge = playlistMaxAgeSeconds >= 0 ? playlistMaxAgeSeconds : (long) Math.floor(segmentSeconds / 2);
+            return maxAge > 0 ? "private, max-age=" + maxAge : "private, no-cache";
+        }
+        return segmentMaxAgeSeconds > 0 ? "private, max-age=" + segmentMaxAgeSeconds + ", immutable" : "private, no-cache";
+    }
+
+    public static String etag(long length, long modified) {
+        return EntityTags.strong(Long.toHexString(length) + "-" + Long.toHexString(modified));
+    }
+
+    /**
+     * Sets {@code Cache-Control} and, when {@code modified} is known (positive), the ETag. Returns
+     * true after answering 304 when the request's {@code If-None-Match} matches; the caller must
+     * then not write a body.
+     */
+    public boolean notModified(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            String fileName,
+            long length,
+            long modified
+    ) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(fileName));
+        if (modified <= 0) {
+            return false;
+        }
+        String etag = etag(length, modified);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (!EntityTags.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return false;
+        }
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+}
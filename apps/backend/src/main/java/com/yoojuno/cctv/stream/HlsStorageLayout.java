@@ -0,0 +1,336 @@
+package com.yoojuno.cctv.stream;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Where each stream's manifest and segments live. Streams are spread over {@code hls.volumes} by
+ * rendezvous hashing, which {@code scripts/mjpeg_to_hls.sh} computes the same way.
+ */
+@Component
+public class HlsStorageLayout {
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9._-]{1,160}");
+    private static final int MAX_CACHED_PLACEMENTS = 10_000;
+
+    private final Map<String, Volume> placements = new ConcurrentHashMap<>();
+    private final Map<String, String> misplaced = new ConcurrentHashMap<>();
+    private List<Volume> volumes = List.of();
+    private boolean perStream;
+
+    @Value("${hls.path:./hls}")
+    private String hlsPath;
+
+    @Value("${hls.volumes:}")
+    private String volumesSpec;
+
+    @Value("${hls.layout:flat}")
+    private String layout;
+
+    public HlsStorageLayout() {
+    }
+
+    private HlsStorageLayout(String hlsPath) {
+        this.hlsPath = hlsPath;
+        this.volumesSpec = "";
+        this.layout = "flat";
+        start();
+    }
+
+    /**
+     * Layout over a single flat directory, for callers constructed outside the container.
+     */
+    public static HlsStorageLayout singleVolume(String hlsPath) {
+        return new HlsStorageLayout(hlsPath);
+    }
+
+    @PostConstruct
+    public void start() {
+        List<Volume> parsed = new ArrayList<>();
+        for (String entry : volumesSpec == null ? new String[0] : volumesSpec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf('=');
+            String name = separator > 0 ? trimmed.substring(0, separator).trim() : trimmed;
+            String path = separator > 0 ? trimmed.substring(separator + 1).trim() : trimmed;
+            parsed.add(new Volume(name, Path.of(path).toAbsolutePath().normalize()));
+        }
+        if (parsed.isEmpty()) {
+            parsed.add(new Volume("default", Path.of(hlsPath).toAbsolutePath().normalize()));
+        }
+        volumes = List.copyOf(parsed);
+        perStream = "per-stream".equalsIgnoreCase(layout == null ? "" : layout.trim());
+        placements.clear();
+        misplaced.clear();
+    }
+
+    public List<Volume> volumes() {
+        return volumes;
+    }
+
+    public boolean perStreamDirectories() {
+        return perStream;
+    }
+
+    /**
+     * Volume the stream's converter should write to.
+     */
+    public Volume volumeFor(String streamId) {
+        if (volumes.size() == 1) {
+            return volumes.get(0);
+        }
+        Volume cached = placements.get(streamId);
+        if (cached != null) {
+            return cached;
+        }
+        Volume best = null;
+        long bestScore = -1;
+        for (Volume volume : volumes) {
+            long score = rendezvousScore(volume.name(), streamId);
+            if (score > bestScore) {
+                best = volume;
+                bestScore = score;
+            }
+        }
+        // Request paths reach here too, so only a bounded number of placements is remembered.
+        if (placements.size() < MAX_CACHED_PLACEMENTS) {
+            placements.put(streamId, best);
+        }
+        return best;
+    }
+
+    /**
+     * Directory holding the stream's files on its assigned volume.
+     */
+    public Path streamDirectory(String streamId) {
+        return streamDirectory(volumeFor(streamId), streamId);
+    }
+
+    /**
+     * Manifest path on the assigned volume, or on another volume when only a converter that has
+     * not picked up a volume change has written it.
+     */
+    public Path manifestPath(String streamId) {
+        return locate(streamId, streamId + ".m3u8");
+    }
+
+    /**
+     * Resolves a file name served under {@code /hls/} ({@code cam.m3u8}, {@code cam_00012.ts})
+     * to its path, or null for names that cannot be HLS files of a stream.
+     */
+    public Path resolveFile(String fileName) {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches() || fileName.startsWith(".")) {
+            return null;
+        }
+        return locate(SegmentStore.streamIdOf(fileName), fileName);
+    }
+
+    /**
+     * Health evaluation reports how long each manifest read took, which gives per-volume latency
+     * without extra probes.
+     */
+    public void recordRead(Path file, long nanos) {
+        Volume volume = volumeOf(file);
+        if (volume != null) {
+            volume.reads.increment();
+            volume.readNanos.add(nanos);
+            volume.maxReadNanos.accumulate(nanos);
+        }
+    }
+
+    /**
+     * Per-volume status; {@code streamIds} are counted against the volume they are assigned to.
+     */
+    public List<VolumeStatus> status(List<String> streamIds) {
+        Map<String, Integer> assigned = new HashMap<>();
+        for (String streamId : streamIds) {
+            assigned.merge(volumeFor(streamId).name(), 1, Integer::sum);
+        }
+        Map<String, Integer> misplacedOn = new HashMap<>();
+        misplaced.values().forEach(volume -> misplacedOn.merge(volume, 1, Integer::sum));
+        List<VolumeStatus> result = new ArrayList<>(volumes.size());
+        for (Volume volume : volumes) {
+            result.add(volume.status(perStream, assigned.getOrDefault(volume.name(), 0), misplacedOn.getOrDefault(volume.name(), 0)));
+        }
+        return result;
+    }
+
+    public Map<String, String> misplacedStreams() {
+        return Map.copyOf(misplaced);
+    }
+
+    private Path locate(String streamId, String fileName) {
+        Volume preferred = volumeFor(streamId);
+        Path path = streamDirectory(preferred, streamId).resolve(fileName);
+        if (volumes.size() == 1 || Files.exists(path)) {
+            if (fileName.endsWith(".m3u8")) {
+                misplaced.remove(streamId);
+            }
+            return path;
+        }
+        for (Volume volume : volumes) {
+            if (volume == preferred) {
+                continue;
+            }
+            Path candidate = streamDirectory(volume, streamId).resolve(fileName);
+            if (Files.exists(candidate)) {
+                misplaced.put(streamId, volume.name());
+                return candidate;
+            }
+        }
+        if (fileName.endsWith(".m3u8")) {
+            misplaced.remove(streamId);
+        }
+        return path;
+    }
+
+    private Path streamDirectory(Volume volume, String streamId) {
+        return perStream ? volume.root().resolve(streamId) : volume.root();
+    }
+
+    private Volume volumeOf(Path file) {
+        for (Volume volume : volumes) {
+            if (file.startsWith(volume.root())) {
+                return volume;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * First 60 bits of SHA-256({@code volume:stream}); the converter script computes the same
+     * value with {@code sha256sum}.
+     */
+    static long rendezvousScore(String volumeName, String streamId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((volumeName + ":" + streamId).getBytes(StandardCharsets.UTF_8));
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (digest[i] & 0xff);
+            }
+            return value >>> 4;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    public static final class Volume {
+        private final String name;
+        private final Path root;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder readNanos = new LongAdder();
+        private final LongAccumulator maxReadNanos = new LongAccumulator(Math::max, 0);
+
+        Volume(String name, Path root) {
+            this.name = name;
+            this.root = root;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public Path root() {
+            return root;
+        }
+
+        private VolumeStatus status(boolean perStream, int assignedStreams, int misplacedStreams) {
+            boolean exists = Files.isDirectory(root);
+            boolean readable = Files.isReadable(root);
+            boolean writable = Files.isWritable(root);
+            long manifestCount = 0;
+            long segmentCount = 0;
+            long listStarted = System.nanoTime();
+            if (exists && readable) {
+                try (Stream<Path> files = Files.walk(root, perStream ? 2 : 1)) {
+                    for (Path path : files.toList()) {
+                        String fileName = path.getFileName() == null ? "" : path.getFileName().toString().toLowerCase(Locale.ROOT);
+                        if (fileName.endsWith(".m3u8")) {
+                            manifestCount++;
+                        } else if (fileName.endsWith(".ts") || fileName.endsWith(".m4s")) {
+                            segmentCount++;
+                        }
+                    }
+                } catch (IOException | UncheckedIOException ignored) {
+                    // keep counts as-is
+                }
+            }
+            double listMs = (System.nanoTime() - listStarted) / 1_000_000.0;
+
+            long totalBytes = -1;
+            long usableBytes = -1;
+            if (exists) {
+                try {
+                    FileStore store = Files.getFileStore(root);
+                    totalBytes = store.getTotalSpace();
+                    usableBytes = store.getUsableSpace();
+                } catch (IOException ignored) {
+                    // leave unknown
+                }
+            }
+            double utilization = totalBytes > 0 ? 1.0 - (double) usableBytes / totalBytes : -1;
+            long readCount = reads.sum();
+            double avgReadMs = readCount == 0 ? 0 : readNanos.sum() / (double) readCount / 1_000_000.0;
+            return new VolumeStatus(
+                    name,
+                    root.toString(),
+                    exists,
+                    readable,
+                    writable,
+                    manifestCount,
+                    segmentCount,
+                    assignedStreams,
+                    misplacedStreams,
+                    totalBytes,
+                    usableBytes,
+                    utilization,
+                    readCount,
+                    avgReadMs,
+                    maxReadNanos.get() / 1_000_000.0,
+                    listMs
+            );
+        }
+    }
+
+    public record VolumeStatus(
+            String name,
+            String path,
+            boolean exists,
+            boolean readable,
+            boolean writable,
+            long manifestCount,
+            long segmentCount,
+            int assignedStreams,
+            int misplacedStreams,
+            long totalBytes,
+            long usableBytes,
+            double utilization,
+            long manifestReads,
+            double avgManifestReadMs,
+            double maxManifestReadMs,
+            double listMs
+    ) {
+    }
+}
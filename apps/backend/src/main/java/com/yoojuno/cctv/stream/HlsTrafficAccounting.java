@@ -0,0 +1,147 @@
+package com.yoojuno.cctv.stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte and request counters for {@code /hls/**} responses, keyed by stream id and by username.
+ *
+ * <p>The request path only does a map lookup and two {@link LongAdder} increments per key, so
+ * concurrent segment downloads never contend on a shared counter. Rates are derived off the
+ * request path by {@link #sample()}, which diffs the totals once per interval.
+ */
+@Component
+public class HlsTrafficAccounting {
+    static final String OVERFLOW_KEY = "_other";
+
+    private final Map<String, Counters> byStream = new ConcurrentHashMap<>();
+    private final Map<String, Counters> byUser = new ConcurrentHashMap<>();
+    private final Counters total = new Counters();
+    private volatile long lastSampleMs = System.currentTimeMillis();
+
+    @Value("${traffic.max-keys:10000}")
+    private int maxKeys;
+
+    @Value("${traffic.sample-interval-ms:5000}")
+    private long sampleIntervalMs;
+
+    public void record(String streamId, String username, long bytes) {
+        long counted = Math.max(0, bytes);
+        counters(byStream, streamId).add(counted);
+        counters(byUser, username).add(counted);
+        total.add(counted);
+    }
+
+    @Scheduled(fixedRateString = "${traffic.sample-interval-ms:5000}")
+    public void sample() {
+        long now = System.currentTimeMillis();
+        long elapsedMs = Math.max(1, now - lastSampleMs);
+        lastSampleMs = now;
+        total.sample(elapsedMs);
+        byStream.values().forEach(counters -> counters.sample(elapsedMs));
+        byUser.values().forEach(counters -> counters.sample(elapsedMs));
+    }
+
+    public TrafficSnapshot snapshot(int top) {
+        int limit = Math.max(1, top);
+        return new TrafficSnapshot(
+                Instant.now().toEpochMilli(),
+                sampleIntervalMs,
+                total.bytes.sum(),
+                total.requests.sum(),
+                total.bytesPerSecond,
+                total.requestsPerSecond,
+                entries(byStream, limit),
+                entries(byUser, limit)
+        );
+    }
+
+    public long totalBytes() {
+        return total.bytes.sum();
+    }
+
+    public long totalRequests() {
+        return total.requests.sum();
+    }
+
+    private Counters counters(Map<String, Counters> counters, String key) {
+        String safeKey = key == null || key.isBlank() ? OVERFLOW_KEY : key;
+        Counters existing = counters.get(safeKey);
+        if (existing != null) {
+            return existing;
+        }
+        // Bound the key space: ids come from request paths and must not grow the maps forever.
+        if (counters.size() >= Math.max(1, maxKeys)) {
+            return counters.computeIfAbsent(OVERFLOW_KEY, ignored -> new Counters());
+        }
+        return counters.computeIfAbsent(safeKey, ignored -> new Counters());
+    }
+
+    private static List<TrafficEntry> entries(Map<String, Counters> counters, int limit) {
+        List<TrafficEntry> entries = new ArrayList<>(counters.size());
+        counters.forEach((key, value) -> entries.add(new TrafficEntry(
+                key,
+                value.bytes.sum(),
+                value.requests.sum(),
+                value.bytesPerSecond,
+                value.requestsPerSecond
+        )));
+        entries.sort(Comparator.comparingDouble(TrafficEntry::bytesPerSecond).reversed()
+                .thenComparing(Comparator.comparingLong(TrafficEntry::bytes).reversed()));
+        return entries.size() > limit ? List.copyOf(entries.subList(0, limit)) : List.copyOf(entries);
+    }
+
+    private static final class Counters {
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+        // Written only by the sampler thread.
+        private long sampledBytes;
+        private long sampledRequests;
+        private volatile double bytesPerSecond;
+        private volatile double requestsPerSecond;
+
+        private void add(long count) {
+            bytes.add(count);
+            requests.increment();
+        }
+
+        private void sample(long elapsedMs) {
+            long currentBytes = bytes.sum();
+            long currentRequests = requests.sum();
+            bytesPerSecond = (currentBytes - sampledBytes) * 1000.0 / elapsedMs;
+            requestsPerSecond = (currentRequests - sampledRequests) * 1000.0 / elapsedMs;
+            sampledBytes = currentBytes;
+            sampledRequests = currentRequests;
+        }
+    }
+
+    public record TrafficEntry(
+            String key,
+            long bytes,
+            long requests,
+            double bytesPerSecond,
+            double requestsPerSecond
+    ) {
+    }
+
+    public record TrafficSnapshot(
+            long generatedAtEpochMs,
+            long sampleIntervalMs,
+            long totalBytes,
+            long totalRequests,
+            double bytesPerSecond,
+            double requestsPerSecond,
+            List<TrafficEntry> streams,
+            List<TrafficEntry> users
+    ) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.yoojuno.cctv.stream;
+
+/**
+ * An ingest upload was refused; {@code status} is the HTTP status to answer with (400 bad name,
+ * 404 ingest disabled, 413 too large, 507 store full).
+ */
+public class IngestRejectedException extends RuntimeException {
+    private final int status;
+
+    public IngestRejectedException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int status() {
+        return status;
+    }
+}
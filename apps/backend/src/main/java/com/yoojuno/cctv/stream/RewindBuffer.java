@@ -0,0 +1,554 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.model.StreamInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Time-shift buffer for the streams in {@code rewind.streams}: keeps their last
+ * {@code rewind.window-seconds} of segments in memory and serves them as
+ * {@code /hls/<id>_rewind.m3u8}. MPEG-TS playlists only.
+ */
+@Component
+public class RewindBuffer {
+    private static final Logger log = LoggerFactory.getLogger(RewindBuffer.class);
+    private static final String SUFFIX = "_rewind";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(.+)_rewind_(\\d+)\\.ts");
+
+    private final StreamCatalogService streamCatalogService;
+    private final SegmentStore segmentStore;
+    private final HlsStorageLayout storageLayout;
+    private final EdgeSegmentCache edgeCache;
+    private final Map<String, StreamBuffer> buffers = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private long usedBytes;
+    private long captureOrder;
+    private ScheduledExecutorService capturer;
+
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder capturedBytes = new LongAdder();
+    private final LongAdder evictedWindow = new LongAdder();
+    private final LongAdder evictedBudget = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+
+    @Value("${rewind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rewind.memory-bytes:268435456}")
+    private long memoryBytes;
+
+    @Value("${rewind.window-seconds:300}")
+    private long windowSeconds;
+
+    @Value("${rewind.capture-interval-ms:1000}")
+    private long captureIntervalMs;
+
+    @Value("${rewind.streams:}")
+    private String streamsRaw;
+
+    public RewindBuffer(
+            StreamCatalogService streamCatalogService,
+            SegmentStore segmentStore,
+            HlsStorageLayout storageLayout,
+            EdgeSegmentCache edgeCache
+    ) {
+        this.streamCatalogService = streamCatalogService;
+        this.segmentStore = segmentStore;
+        this.storageLayout = storageLayout;
+        this.edgeCache = edgeCache;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled()) {
+            return;
+        }
+        if (capturedStreams().isEmpty()) {
+            log.warn("Rewind is enabled but rewind.streams is empty; no stream will be buffered");
+        }
+        capturer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rewind-capture");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(100, captureIntervalMs);
+        capturer.scheduleWithFixedDelay(this::captureSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (capturer == null) {
+            return;
+        }
+        capturer.shutdown();
+        try {
+            capturer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean enabled() {
+        return enabled && (edgeCache == null || !edgeCache.enabled());
+    }
+
+    /**
+     * Live stream a rewind file name belongs to: {@code cam_rewind} is accounted and authorized
+     * as {@code cam}. Other names are returned unchanged.
+     */
+    public static String liveStreamId(String streamId) {
+        if (streamId != null && streamId.endsWith(SUFFIX) && streamId.length() > SUFFIX.length()) {
+            return streamId.substring(0, streamId.length() - SUFFIX.length());
+        }
+        return streamId;
+    }
+
+    /**
+     * Rewind playlist or buffered segment for a file name under {@code /hls/}, or null when the
+     * name is not a rewind file or the segment has already been evicted.
+     */
+    public RewindObject get(String fileName) {
+        if (!enabled() || fileName == null) {
+            return null;
+        }
+        if (fileName.endsWith(SUFFIX + ".m3u8")) {
+            StreamBuffer buffer = buffers.get(fileName.substring(0, fileName.length() - (SUFFIX + ".m3u8").length()));
+            View view = buffer == null ? null : buffer.view;
+            return view == null || view.segments().isEmpty() ? null : new RewindObject(view.playlist(), view.lastModifiedEpochMs());
+        }
+        Matcher matcher = SEGMENT_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        StreamBuffer buffer = buffers.get(matcher.group(1));
+        View view = buffer == null ? null : buffer.view;
+        if (view == null || view.segments().isEmpty()) {
+            return null;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(matcher.group(2));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        // Sequence numbers within a buffer are contiguous.
+        long index = sequence - view.segments().get(0).sequence();
+        if (index < 0 || index >= view.segments().size()) {
+            return null;
+        }
+        Segment segment = view.segments().get((int) index);
+        return new RewindObject(segment.body(), segment.capturedAtEpochMs());
+    }
+
+    private void captureSafely() {
+        try {
+            capture();
+        } catch (RuntimeException e) {
+            log.warn("Rewind capture failed: {}", e.toString());
+        }
+    }
+
+    public void capture() {
+        if (!enabled()) {
+            return;
+        }
+        Set<String> streamIds = capturedStreams();
+        for (String streamId : streamIds) {
+            try {
+                captureStream(streamId);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Rewind capture for {} failed: {}", streamId, e.toString());
+            }
+        }
+        synchronized (lock) {
+            long staleBefore = System.currentTimeMillis() - 2 * Math.max(1, windowSeconds) * 1000;
+            for (StreamBuffer buffer : buffers.values()) {
+                boolean changed = false;
+                while (!buffer.segments.isEmpty() && buffer.segments.peekFirst().capturedAtEpochMs() < staleBefore) {
+                    evictHead(buffer);
+                    evictedWindow.increment();
+                    changed = true;
+                }
+                if (changed) {
+                    buffer.publish();
+                }
+            }
+            buffers.values().removeIf(buffer -> buffer.segments.isEmpty() && !streamIds.contains(buffer.streamId));
+        }
+    }
+
+    public RewindStats stats() {
+        List<StreamUsage> streams = buffers.values().stream()
+                .map(buffer -> buffer.view)
+                .filter(Objects::nonNull)
+                .map(View::usage)
+                .sorted(Comparator.comparingLong(StreamUsage::bytes).reversed())
+                .toList();
+        long used;
+        synchronized (lock) {
+            used = usedBytes;
+        }
+        return new RewindStats(
+                enabled(),
+                memoryBytes,
+                used,
+                windowSeconds,
+                captured.sum(),
+                capturedBytes.sum(),
+                evictedWindow.sum(),
+                evictedBudget.sum(),
+                missed.sum(),
+                streams
+        );
+    }
+
+    /**
+     * Streams to buffer: opt-in, since every buffered stream holds up to a full window of
+     * segments. {@code *} selects the whole catalog; empty selects none.
+     */
+    private Set<String> capturedStreams() {
+        if (streamsRaw == null || streamsRaw.isBlank()) {
+            return Set.of();
+        }
+        Set<String> streamIds = Arrays.stream(streamsRaw.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .collect(Collectors.toSet());
+        if (streamIds.contains("*")) {
+            return streamCatalogService.all().stream().map(StreamInfo::id).collect(Collectors.toSet());
+        }
+        return streamIds;
+    }
+
+    private void captureStream(String streamId) throws IOException {
+        StreamBuffer buffer = buffers.computeIfAbsent(streamId, StreamBuffer::new);
+        Object version;
+        String playlist;
+        Path directory = null;
+        SegmentStore.StoredObject ingested = segmentStore == null ? null : segmentStore.open(streamId + ".m3u8");
+        if (ingested != null) {
+            try {
+                // Compared by identity: the stored object is replaced on every playlist upload.
+                if (ingested == buffer.sourceVersion) {
+                    return;
+                }
+                version = ingested;
+                playlist = new String(ingested.toByteArray(), StandardCharsets.UTF_8);
+            } finally {
+                ingested.release();
+            }
+        } else {
+            Path manifest = storageLayout.manifestPath(streamId);
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(manifest, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return;
+            }
+            version = new FileVersion(attributes.lastModifiedTime().toMillis(), attributes.size());
+            if (version.equals(buffer.sourceVersion)) {
+                return;
+            }
+            playlist = Files.readString(manifest);
+            directory = manifest.getParent();
+        }
+        buffer.sourceVersion = version;
+
+        SourcePlaylist source = SourcePlaylist.parse(playlist);
+        if (source == null || source.entries().isEmpty()) {
+            return;
+        }
+        long newest = source.mediaSequence() + source.entries().size() - 1;
+        if (buffer.lastSourceSequence >= 0 && newest < buffer.lastSourceSequence) {
+            // The converter restarted and numbers segments from the beginning again.
+            buffer.lastSourceSequence = source.mediaSequence() - 1;
+            buffer.pendingDiscontinuity = true;
+        }
+        List<Segment> added = new ArrayList<>();
+        for (int i = 0; i < source.entries().size(); i++) {
+            long sourceSequence = source.mediaSequence() + i;
+            if (sourceSequence <= buffer.lastSourceSequence) {
+                continue;
+            }
+            SourceEntry entry = source.entries().get(i);
+            boolean discontinuity = entry.discontinuity() || buffer.pendingDiscontinuity
+                    || (buffer.lastSourceSequence >= 0 && sourceSequence > buffer.lastSourceSequence + 1);
+            buffer.lastSourceSequence = sourceSequence;
+            byte[] body = read(directory, entry.uri());
+            if (body == null || body.length == 0 || body.length > memoryBytes) {
+                missed.increment();
+                buffer.pendingDiscontinuity = true;
+                continue;
+            }
+            buffer.pendingDiscontinuity = false;
+            added.add(new Segment(0, body, entry.durationSeconds(), discontinuity && buffer.hasCaptured,
+                    entry.programDateTime(), System.currentTimeMillis(), 0));
+            buffer.hasCaptured = true;
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            buffer.independentSegments = source.independentSegments();
+            for (Segment segment : added) {
+                Segment numbered = new Segment(buffer.nextSequence++, segment.body(), segment.durationSeconds(),
+                        segment.discontinuity(), segment.programDateTime(), segment.capturedAtEpochMs(), captureOrder++);
+                buffer.segments.addLast(numbered);
+                buffer.bytes += numbered.body().length;
+                buffer.seconds += numbered.durationSeconds();
+                usedBytes += numbered.body().length;
+                captured.increment();
+                capturedBytes.add(numbered.body().length);
+            }
+            while (buffer.segments.size() > 1 && buffer.seconds - buffer.segments.peekFirst().durationSeconds() >= windowSeconds) {
+                evictHead(buffer);
+                evictedWindow.increment();
+            }
+            buffer.publish();
+            enforceBudget();
+        }
+    }
+
+    private byte[] read(Path directory, String uri) throws IOException {
+        String name = uri.substring(uri.lastIndexOf('/') + 1);
+        if (!SegmentStore.isValidName(name) || !name.endsWith(".ts")) {
+            return null;
+        }
+        if (directory == null) {
+            SegmentStore.StoredObject object = segmentStore.open(name);
+            if (object == null) {
+                return null;
+            }
+            try {
+                return object.toByteArray();
+            } finally {
+                object.release();
+            }
+        }
+        try {
+            return Files.readAllBytes(directory.resolve(name));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Evicts the globally oldest segments until the pool fits the budget. Within a stream capture
+     * order is playlist order, so the oldest segment overall is always the head of some buffer.
+     */
+    private void enforceBudget() {
+        while (usedBytes > memoryBytes) {
+            StreamBuffer oldest = null;
+            for (StreamBuffer buffer : buffers.values()) {
+                Segment head = buffer.segments.peekFirst();
+                if (head != null && (oldest == null || head.captureOrder() < oldest.segments.peekFirst().captureOrder())) {
+                    oldest = buffer;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            evictHead(oldest);
+            evictedBudget.increment();
+            oldest.publish();
+        }
+    }
+
+    private void evictHead(StreamBuffer buffer) {
+        Segment head = buffer.segments.pollFirst();
+        buffer.bytes -= head.body().length;
+        buffer.seconds -= head.durationSeconds();
+        usedBytes -= head.body().length;
+        if (head.discontinuity()) {
+            buffer.discontinuitySequence++;
+        }
+    }
+
+    private record FileVersion(long lastModifiedEpochMs, long size) {
+    }
+
+    private record Segment(
+            long sequence,
+            byte[] body,
+            double durationSeconds,
+            boolean discontinuity,
+            String programDateTime,
+            long capturedAtEpochMs,
+            long captureOrder
+    ) {
+    }
+
+    private record View(String streamId, List<Segment> segments, byte[] playlist, long bytes, double seconds,
+                        long lastModifiedEpochMs) {
+        StreamUsage usage() {
+            return new StreamUsage(
+                    streamId,
+                    segments.size(),
+                    bytes,
+                    Math.round(seconds * 1000) / 1000.0,
+                    segments.isEmpty() ? 0 : segments.get(0).capturedAtEpochMs()
+            );
+        }
+    }
+
+    /**
+     * Mutable per-stream state, guarded by the buffer lock (source tracking fields only by the
+     * capture thread). Readers only see the published {@link View}.
+     */
+    private static final class StreamBuffer {
+        private final String streamId;
+        private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+        // Starting at the creation time keeps segment names unique across restarts of the backend.
+        private long nextSequence = System.currentTimeMillis();
+        private long discontinuitySequence;
+        private long bytes;
+        private double seconds;
+        private boolean independentSegments;
+        private Object sourceVersion;
+        private long lastSourceSequence = -1;
+        private boolean pendingDiscontinuity;
+        private boolean hasCaptured;
+        private volatile View view;
+
+        private StreamBuffer(String streamId) {
+            this.streamId = streamId;
+        }
+
+        private void publish() {
+            List<Segment> snapshot = List.copyOf(segments);
+            long targetDuration = 1;
+            for (Segment segment : snapshot) {
+                targetDuration = Math.max(targetDuration, (long) Math.ceil(segment.durationSeconds()));
+            }
+            StringBuilder out = new StringBuilder(128 + snapshot.size() * 64);
+            out.append("#EXTM3U\n#EXT-X-VERSION:3\n");
+            out.append("#EXT-X-TARGETDURATION:").append(targetDuration).append('\n');
+            out.append("#EXT-X-MEDIA-SEQUENCE:").append(snapshot.isEmpty() ? nextSequence : snapshot.get(0).sequence()).append('\n');
+            if (discontinuitySequence > 0) {
+                out.append("#EXT-X-DISCONTINUITY-SEQUENCE:").append(discontinuitySequence).append('\n');
+            }
+            if (independentSegments) {
+                out.append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+            }
+            for (Segment segment : snapshot) {
+                if (segment.discontinuity()) {
+                    out.append("#EXT-X-DISCONTINUITY\n");
+                }
+                if (segment.programDateTime() != null) {
+                    out.append(segment.programDateTime()).append('\n');
+                }
+                out.append(String.format(Locale.ROOT, "#EXTINF:%.3f,", segment.durationSeconds())).append('\n');
+                out.append(streamId).append(SUFFIX).append('_').append(segment.sequence()).append(".ts\n");
+            }
+            long lastModified = snapshot.isEmpty() ? System.currentTimeMillis() : snapshot.get(snapshot.size() - 1).capturedAtEpochMs();
+            view = new View(streamId, snapshot, out.toString().getBytes(StandardCharsets.UTF_8), bytes, seconds, lastModified);
+        }
+    }
+
+    private record SourceEntry(String uri, double durationSeconds, boolean discontinuity, String programDateTime) {
+    }
+
+    private record SourcePlaylist(long mediaSequence, boolean independentSegments, List<SourceEntry> entries) {
+        /**
+         * Media sequence and segments of a live playlist, or null for playlists this buffer does
+         * not handle (fMP4 or encrypted).
+         */
+        static SourcePlaylist parse(String playlist) {
+            long mediaSequence = 0;
+            boolean independent = false;
+            List<SourceEntry> entries = new ArrayList<>();
+            double duration = 0;
+            boolean discontinuity = false;
+            String programDateTime = null;
+            for (String rawLine : playlist.split("\r?\n")) {
+                String line = rawLine.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (!line.startsWith("#")) {
+                    entries.add(new SourceEntry(line, duration, discontinuity, programDateTime));
+                    duration = 0;
+                    discontinuity = false;
+                    programDateTime = null;
+                } else if (line.startsWith("#EXT-X-MAP") || line.startsWith("#EXT-X-KEY")) {
+                    return null;
+                } else if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                    try {
+                        mediaSequence = Long.parseLong(line.substring("#EXT-X-MEDIA-SEQUENCE:".length()).trim());
+                    } catch (NumberFormatException ignored) {
+                        mediaSequence = 0;
+                    }
+                } else if (line.startsWith("#EXTINF:")) {
+                    String value = line.substring("#EXTINF:".length());
+                    int comma = value.indexOf(',');
+                    try {
+                        duration = Double.parseDouble((comma >= 0 ? value.substring(0, comma) : value).trim());
+                    } catch (NumberFormatException ignored) {
+                        duration = 0;
+                    }
+                } else if (line.equals("#EXT-X-DISCONTINUITY")) {
+                    discontinuity = true;
+                } else if (line.startsWith("#EXT-X-PROGRAM-DATE-TIME:")) {
+                    programDateTime = line;
+                } else if (line.equals("#EXT-X-INDEPENDENT-SEGMENTS")) {
+                    independent = true;
+                }
+            }
+            return new SourcePlaylist(mediaSequence, independent, entries);
+        }
+    }
+
+    public record RewindObject(byte[] body, long lastModifiedEpochMs) {
+    }
+
+    public record StreamUsage(
+            String streamId,
+            int segments,
+            long bytes,
+            double bufferedSeconds,
+            long oldestCapturedAtEpochMs
+    ) {
+    }
+
+    public record RewindStats(
+            boolean enabled,
+            long memoryBytes,
+            long usedBytes,
+            long windowSeconds,
+            long capturedSegments,
+            long capturedBytes,
+            long evictedByWindow,
+            long evictedByBudget,
+            long missedSegments,
+            List<StreamUsage> streams
+    ) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.yoojuno.cctv.stream;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Serves {@code /hls/<id>_rewind.m3u8} and its segments from the {@link RewindBuffer}; other
+ * files fall through. Runs after the security chain, which authorizes and accounts rewind files
+ * as the live stream they belong to.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+public class RewindFilter extends OncePerRequestFilter {
+    private final RewindBuffer rewindBuffer;
+    private final HlsCachePolicy cachePolicy;
+
+    public RewindFilter(RewindBuffer rewindBuffer, HlsCachePolicy cachePolicy) {
+        this.rewindBuffer = rewindBuffer;
+        this.cachePolicy = cachePolicy;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        return !rewindBuffer.enabled()
+                || path == null
+                || !path.startsWith("/hls/")
+                || !path.contains("_rewind")
+                || !("GET".equals(method) || "HEAD".equals(method));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        String fileName = request.getRequestURI().substring("/hls/".length());
+        RewindBuffer.RewindObject object = rewindBuffer.get(fileName);
+        if (object == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (cachePolicy.notModified(request, response, fileName, object.body().length, object.lastModifiedEpochMs())) {
+            return;
+        }
+        boolean manifest = fileName.endsWith(".m3u8");
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(manifest ? "application/vnd.apple.mpegurl" : "video/mp2t");
+        response.setContentLengthLong(object.body().length);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, object.lastModifiedEpochMs());
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(object.body());
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.yoojuno.cctv.stream;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory HLS store for ffmpeg {@code -method PUT} ingest, backed by slabs of a few direct
+ * buffers. Objects are reference counted, so a segment dropped from the window stays readable
+ * until its last response finishes.
+ */
+@Component
+public class SegmentStore {
+    private static final Logger log = LoggerFactory.getLogger(SegmentStore.class);
+    private static final Pattern OBJECT_NAME = Pattern.compile("[A-Za-z0-9._-]{1,128}\\.(m3u8|ts)");
+    private static final Pattern SEGMENT_SUFFIX = Pattern.compile("_(\\d+)$");
+    private static final int MAX_ARENA_BYTES = 1 << 30;
+    private static final int COPY_BUFFER_BYTES = 16 * 1024;
+
+    private final Map<String, StreamEntry> streams = new ConcurrentHashMap<>();
+    private final AtomicLong uploadSequence = new AtomicLong();
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder rejectedTooLarge = new LongAdder();
+    private final LongAdder rejectedNoSpace = new LongAdder();
+    private final Object freeLock = new Object();
+
+    private ByteBuffer[] arenas = new ByteBuffer[0];
+    private int slabSize;
+    private int slabsPerArena;
+    private int totalSlabs;
+    private int[] freeSlabs = new int[0];
+    private int freeCount;
+
+    @Value("${ingest.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ingest.memory-bytes:67108864}")
+    private long memoryBytes;
+
+    @Value("${ingest.slab-bytes:65536}")
+    private int slabBytes;
+
+    @Value("${ingest.max-object-bytes:16777216}")
+    private long maxObjectBytes;
+
+    @Value("${ingest.idle-stream-ms:600000}")
+    private long idleStreamMs;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        slabSize = Math.max(4096, Math.min(slabBytes, MAX_ARENA_BYTES));
+        long slabCount = Math.max(1, memoryBytes / slabSize);
+        totalSlabs = (int) Math.min(Integer.MAX_VALUE - 8, slabCount);
+        slabsPerArena = Math.max(1, MAX_ARENA_BYTES / slabSize);
+        int arenaCount = (totalSlabs + slabsPerArena - 1) / slabsPerArena;
+        arenas = new ByteBuffer[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            int slabsInArena = Math.min(slabsPerArena, totalSlabs - i * slabsPerArena);
+            arenas[i] = ByteBuffer.allocateDirect(slabsInArena * slabSize);
+        }
+        freeSlabs = new int[totalSlabs];
+        // Lowest slab ids on top so a lightly used store keeps touching the same pages.
+        for (int i = 0; i < totalSlabs; i++) {
+            freeSlabs[i] = totalSlabs - 1 - i;
+        }
+        freeCount = totalSlabs;
+        log.info("HLS ingest store: {} slabs of {} bytes ({} bytes off-heap)", totalSlabs, slabSize, (long) totalSlabs * slabSize);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public static boolean isValidName(String name) {
+        return name != null && OBJECT_NAME.matcher(name).matches() && !name.startsWith(".");
+    }
+
+    /**
+     * Streams an upload into slabs and publishes it. Throws {@link IngestRejectedException} with
+     * 413 when the object exceeds {@code ingest.max-object-bytes} and 507 when no slabs are free.
+     */
+    public void write(String name, InputStream body, long declaredLength) throws IOException {
+        if (!enabled) {
+            throw new IngestRejectedException(404, "ingest disabled");
+        }
+        if (!isValidName(name)) {
+            throw new IngestRejectedException(400, "invalid object name");
+        }
+        if (declaredLength > maxObjectBytes) {
+            rejectedTooLarge.increment();
+            throw new IngestRejectedException(413, "object too large");
+        }
+
+        List<Integer> slabs = new ArrayList<>();
+        long length = 0;
+        boolean stored = false;
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        try {
+            int slabOffset = slabSize;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                if (length + read > maxObjectBytes) {
+                    rejectedTooLarge.increment();
+                    throw new IngestRejectedException(413, "object too large");
+                }
+                int consumed = 0;
+                while (consumed < read) {
+                    if (slabOffset == slabSize) {
+                        int slab = allocateSlab();
+                        if (slab < 0) {
+                            rejectedNoSpace.increment();
+                            throw new IngestRejectedException(507, "ingest store full");
+                        }
+                        slabs.add(slab);
+                        slabOffset = 0;
+                    }
+                    int chunk = Math.min(read - consumed, slabSize - slabOffset);
+                    int slab = slabs.get(slabs.size() - 1);
+                    arena(slab).put(arenaOffset(slab) + slabOffset, buffer, consumed, chunk);
+                    slabOffset += chunk;
+                    consumed += chunk;
+                }
+                length += read;
+            }
+            StoredObject object = new StoredObject(
+                    slabs.stream().mapToInt(Integer::intValue).toArray(),
+                    length,
+                    System.currentTimeMillis(),
+                    uploadSequence.incrementAndGet()
+            );
+            publish(name, object);
+            stored = true;
+            uploads.increment();
+        } finally {
+            if (!stored) {
+                freeSlabs(slabs.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+    }
+
+    public boolean delete(String name) {
+        if (!enabled || !isValidName(name)) {
+            return false;
+        }
+        StreamEntry entry = streams.get(streamIdOf(name));
+        if (entry == null) {
+            return false;
+        }
+        StoredObject removed;
+        synchronized (entry) {
+            if (isManifest(name)) {
+                removed = entry.manifest;
+                entry.manifest = null;
+            } else {
+                removed = entry.segments.remove(name);
+            }
+        }
+        if (removed == null) {
+            return false;
+        }
+        removed.release();
+        return true;
+    }
+
+    /**
+     * Returns the object with an extra reference held for the caller, or null when it is not in
+     * the store. Callers must {@link StoredObject#release()} it when done.
+     */
+    public StoredObject open(String name) {
+        if (!enabled || !isValidName(name)) {
+            return null;
+        }
+        StreamEntry entry = streams.get(streamIdOf(name));
+        if (entry == null) {
+            return null;
+        }
+        // A concurrent replacement can drop the last store reference between lookup and retain;
+        // the next lookup then sees the replacement.
+        for (int attempt = 0; attempt < 3; attempt++) {
+            StoredObject object = isManifest(name) ? entry.manifest : entry.segments.get(name);
+            if (object == null) {
+                return null;
+            }
+            if (object.tryRetain()) {
+                return object;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Current playlist of a stream as text plus its upload time, or null when the stream is not
+     * ingested through the store.
+     */
+    public ManifestView manifest(String streamId) {
+        StoredObject object = open(streamId + ".m3u8");
+        if (object == null) {
+            return null;
+        }
+        try {
+            return new ManifestView(new String(object.toByteArray(), StandardCharsets.UTF_8), object.uploadedAtEpochMs());
+        } finally {
+            object.release();
+        }
+    }
+
+    /**
+     * Size of a stored segment (playlist references are resolved by file name), or -1 when it is
+     * not in the store.
+     */
+    public long segmentSize(String segmentRef) {
+        String name = segmentRef.substring(segmentRef.lastIndexOf('/') + 1);
+        StreamEntry entry = enabled && isValidName(name) ? streams.get(streamIdOf(name)) : null;
+        StoredObject object = entry == null ? null : entry.segments.get(name);
+        return object == null ? -1 : object.length();
+    }
+
+    @Scheduled(fixedDelayString = "${ingest.purge-interval-ms:60000}", initialDelayString = "${ingest.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - Math.max(1000, idleStreamMs);
+        streams.entrySet().removeIf(entry -> {
+            StreamEntry stream = entry.getValue();
+            synchronized (stream) {
+                if (stream.lastUploadEpochMs >= cutoff) {
+                    return false;
+                }
+                stream.releaseAll();
+                return true;
+            }
+        });
+    }
+
+    public StoreStats stats() {
+        int free;
+        synchronized (freeLock) {
+            free = freeCount;
+        }
+        int objects = 0;
+        for (StreamEntry entry : streams.values()) {
+            objects += entry.segments.size() + (entry.manifest == null ? 0 : 1);
+        }
+        return new StoreStats(enabled, slabSize, totalSlabs, totalSlabs - free, free, streams.size(), objects,
+                uploads.sum(), rejectedTooLarge.sum(), rejectedNoSpace.sum());
+    }
+
+    private void publish(String name, StoredObject object) {
+        String streamId = streamIdOf(name);
+        List<StoredObject> released = new ArrayList<>();
+        while (true) {
+            StreamEntry entry = streams.computeIfAbsent(streamId, ignored -> new StreamEntry());
+            synchronized (entry) {
+                if (entry.removed) {
+                    // Purged concurrently; retry on a fresh entry.
+                    continue;
+                }
+                entry.lastUploadEpochMs = object.uploadedAtEpochMs();
+                if (isManifest(name)) {
+                    if (entry.manifest != null) {
+                        released.add(entry.manifest);
+                    }
+                    entry.manifest = object;
+                    evictOutsideWindow(entry, new String(object.toByteArray(), StandardCharsets.UTF_8), released);
+                } else {
+                    StoredObject previous = entry.segments.put(name, object);
+                    if (previous != null) {
+                        released.add(previous);
+                    }
+                }
+            }
+            break;
+        }
+        for (StoredObject old : released) {
+            old.release();
+        }
+    }
+
+    /**
+     * Segments the playlist no longer lists and that were uploaded before the oldest one it does
+     * list have left the window. Newer unlisted segments are kept: ffmpeg uploads a segment
+     * before the playlist that references it.
+     */
+    private static void evictOutsideWindow(StreamEntry entry, String playlist, List<StoredObject> released) {
+        Set<String> referenced = new HashSet<>();
+        for (String rawLine : playlist.split("\n")) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int slash = line.lastIndexOf('/');
+            referenced.add(slash >= 0 ? line.substring(slash + 1) : line);
+        }
+        long oldestListed = Long.MAX_VALUE;
+        for (String name : referenced) {
+            StoredObject segment = entry.segments.get(name);
+            if (segment != null) {
+                oldestListed = Math.min(oldestListed, segment.sequence());
+            }
+        }
+        if (oldestListed == Long.MAX_VALUE) {
+            return;
+        }
+        long window = oldestListed;
+        entry.segments.entrySet().removeIf(segment -> {
+            if (referenced.contains(segment.getKey()) || segment.getValue().sequence() >= window) {
+                return false;
+            }
+            released.add(segment.getValue());
+            return true;
+        });
+    }
+
+    static boolean isManifest(String name) {
+        return name.endsWith(".m3u8");
+    }
+
+    /**
+     * {@code cam.m3u8} and {@code cam_00012.ts} both belong to stream {@code cam}.
+     */
+    static String streamIdOf(String name) {
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return isManifest(name) ? base : SEGMENT_SUFFIX.matcher(base).replaceFirst("");
+    }
+
+    private int allocateSlab() {
+        synchronized (freeLock) {
+            return freeCount == 0 ? -1 : freeSlabs[--freeCount];
+        }
+    }
+
+    private void freeSlabs(int[] slabs) {
+        synchronized (freeLock) {
+            for (int slab : slabs) {
+                freeSlabs[freeCount++] = slab;
+            }
+        }
+    }
+
+    private ByteBuffer arena(int slab) {
+        return arenas[slab / slabsPerArena];
+    }
+
+    private int arenaOffset(int slab) {
+        return (slab % slabsPerArena) * slabSize;
+    }
+
+    private static final class StreamEntry {
+        private final Map<String, StoredObject> segments = new ConcurrentHashMap<>();
+        private volatile StoredObject manifest;
+        private volatile long lastUploadEpochMs;
+        private boolean removed;
+
+        private void releaseAll() {
+            removed = true;
+            if (manifest != null) {
+                manifest.release();
+                manifest = null;
+            }
+            segments.values().forEach(StoredObject::release);
+            segments.clear();
+        }
+    }
+
+    public final class StoredObject {
+        private final int[] slabs;
+        private final long length;
+        private final long uploadedAtEpochMs;
+        private final long sequence;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private StoredObject(int[] slabs, long length, long uploadedAtEpochMs, long sequence) {
+            this.slabs = slabs;
+            this.length = length;
+            this.uploadedAtEpochMs = uploadedAtEpochMs;
+            this.sequence = sequence;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        public long uploadedAtEpochMs() {
+            return uploadedAtEpochMs;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+
+        /**
+         * Succeeds only while the object is still alive; once the count reached zero its slabs may
+         * already hold another upload.
+         */
+        boolean tryRetain() {
+            while (true) {
+                int current = references.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (references.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        public void release() {
+            if (references.decrementAndGet() == 0) {
+                freeSlabs(slabs);
+            }
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(COPY_BUFFER_BYTES, Math.max(1, length))];
+            long remaining = length;
+            for (int slab : slabs) {
+                ByteBuffer arena = arena(slab);
+                int base = arenaOffset(slab);
+                int inSlab = (int) Math.min(slabSize, remaining);
+                for (int offset = 0; offset < inSlab; ) {
+                    int chunk = Math.min(buffer.length, inSlab - offset);
+                    arena.get(base + offset, buffer, 0, chunk);
+                    out.write(buffer, 0, chunk);
+                    offset += chunk;
+                }
+                remaining -= inSlab;
+            }
+        }
+
+        byte[] toByteArray() {
+            return toByteArray(Integer.MAX_VALUE);
+        }
+
+        /**
+         * Copies at most the first {@code maxBytes} of the object.
+         */
+        byte[] toByteArray(int maxBytes) {
+            int total = (int) Math.min(length, maxBytes);
+            byte[] bytes = new byte[total];
+            int position = 0;
+            for (int slab : slabs) {
+                if (position >= total) {
+                    break;
+                }
+                int chunk = (int) Math.min(slabSize, total - position);
+                arena(slab).get(arenaOffset(slab), bytes, position, chunk);
+                position += chunk;
+            }
+            return bytes;
+        }
+    }
+
+    public record ManifestView(String text, long uploadedAtEpochMs) {
+    }
+
+    public record StoreStats(
+            boolean enabled,
+            int slabBytes,
+            int totalSlabs,
+            int usedSlabs,
+            int freeSlabs,
+            int streams,
+            int objects,
+            long uploads,
+            long rejectedTooLarge,
+            long rejectedNoSpace
+    ) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.yoojuno.cctv.stream;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Serves {@code /hls/**} GET/HEAD requests from the {@link SegmentStore} when the object was
+ * ingested over HTTP; anything else falls through to the file-based resource handler. Runs after
+ * the security chain, so authorization, shaping and accounting still apply. The upload time is the
+ * object's {@code Last-Modified}, like the file mtime is for files on disk.
+ */
+@Component
+public class SegmentStoreFilter extends OncePerRequestFilter {
+    private final SegmentStore segmentStore;
+    private final HlsCachePolicy cachePolicy;
+
+    public SegmentStoreFilter(SegmentStore segmentStore, HlsCachePolicy cachePolicy) {
+        this.segmentStore = segmentStore;
+        this.cachePolicy = cachePolicy;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        return !segmentStore.enabled()
+                || path == null
+                || !path.startsWith("/hls/")
+                || !("GET".equals(method) || "HEAD".equals(method));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        String fileName = request.getRequestURI().substring("/hls/".length());
+        SegmentStore.StoredObject object = segmentStore.open(fileName);
+        if (object == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            long lastModified = object.uploadedAtEpochMs();
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+            if (cachePolicy.notModified(request, response, fileName, object.length(), lastModified)
+                    || notModifiedSince(request, response, lastModified)) {
+                return;
+            }
+            boolean manifest = fileName.endsWith(".m3u8");
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(manifest ? "application/vnd.apple.mpegurl" : "video/mp2t");
+            response.setContentLengthLong(object.length());
+            if (!"HEAD".equals(request.getMethod())) {
+                object.writeTo(response.getOutputStream());
+            }
+        } finally {
+            object.release();
+        }
+    }
+
+    /**
+     * If-Modified-Since only counts when the request carries no If-None-Match (RFC 9110 13.2.2).
+     */
+    private static boolean notModifiedSince(HttpServletRequest request, HttpServletResponse response, long lastModified) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            return false;
+        }
+        long since;
+        try {
+            since = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have whole-second precision.
+        if (since < 0 || lastModified / 1000 > since / 1000) {
+            return false;
+        }
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+}
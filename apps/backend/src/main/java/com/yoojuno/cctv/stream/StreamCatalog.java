@@ -0,0 +1,212 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.model.StreamInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable catalog snapshot with id/site/group/tag indexes.
+ *
+ * <p>Per-user views are cached by allowed-stream set, so every user with the same permissions
+ * shares one immutable stream list (and its precomputed key) for the lifetime of the snapshot.
+ */
+public final class StreamCatalog {
+    private static final int MAX_CACHED_VIEWS = 1024;
+
+    private final List<StreamInfo> streams;
+    private final Map<String, StreamInfo> byId;
+    private final Map<String, Integer> ordinals;
+    private final Map<String, List<StreamInfo>> bySite;
+    private final Map<String, List<StreamInfo>> byGroup;
+    private final Map<String, List<StreamInfo>> byTag;
+    private final CatalogView allView;
+    private final Map<Set<String>, CatalogView> views = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Set<String>, CatalogView> eldest) {
+            return size() > MAX_CACHED_VIEWS;
+        }
+    };
+
+    public StreamCatalog(List<StreamInfo> entries) {
+        Map<String, StreamInfo> ids = new LinkedHashMap<>();
+        for (StreamInfo entry : entries) {
+            ids.put(entry.id(), entry);
+        }
+        this.streams = List.copyOf(ids.values());
+        this.byId = Map.copyOf(ids);
+
+        Map<String, Integer> ordinalIndex = new HashMap<>();
+        Map<String, List<StreamInfo>> sites = new HashMap<>();
+        Map<String, List<StreamInfo>> groups = new HashMap<>();
+        Map<String, List<StreamInfo>> tags = new HashMap<>();
+        for (int i = 0; i < streams.size(); i++) {
+            StreamInfo stream = streams.get(i);
+            ordinalIndex.put(stream.id(), i);
+            index(sites, stream.site(), stream);
+            index(groups, stream.group(), stream);
+            for (String tag : stream.tags()) {
+                index(tags, tag, stream);
+            }
+        }
+        this.ordinals = Map.copyOf(ordinalIndex);
+        this.bySite = freeze(sites);
+        this.byGroup = freeze(groups);
+        this.byTag = freeze(tags);
+        this.allView = new CatalogView(streams);
+    }
+
+    public List<StreamInfo> all() {
+        return streams;
+    }
+
+    public StreamInfo find(String streamId) {
+        return streamId == null ? null : byId.get(streamId);
+    }
+
+    public int size() {
+        return streams.size();
+    }
+
+    public CatalogView view(Set<String> allowedStreamIds) {
+        if (allowedStreamIds == null || allowedStreamIds.isEmpty()) {
+            return CatalogView.EMPTY;
+        }
+        if (allowedStreamIds.contains("*")) {
+            return allView;
+        }
+        CatalogView cached;
+        synchronized (views) {
+            cached = views.get(allowedStreamIds);
+        }
+        if (cached != null) {
+            return cached;
+        }
+        List<StreamInfo> visible = new ArrayList<>(Math.min(allowedStreamIds.size(), streams.size()));
+        for (String streamId : allowedStreamIds) {
+            StreamInfo info = byId.get(streamId);
+            if (info != null) {
+                visible.add(info);
+            }
+        }
+        visible.sort((a, b) -> Integer.compare(ordinals.get(a.id()), ordinals.get(b.id())));
+        CatalogView view = new CatalogView(visible);
+        synchronized (views) {
+            CatalogView raced = views.putIfAbsent(Set.copyOf(allowedStreamIds), view);
+            return raced == null ? view : raced;
+        }
+    }
+
+    /**
+     * Filters a view by site, group, tag and a case-insensitive id/name substring. Index lists
+     * seed the scan so a selective filter touches only the matching streams.
+     */
+    public List<StreamInfo> filter(CatalogView view, String site, String group, String tag, String query) {
+        List<StreamInfo> candidates = view.streams();
+        candidates = narrower(candidates, site, bySite);
+        candidates = narrower(candidates, group, byGroup);
+        candidates = narrower(candidates, tag, byTag);
+        String needle = query == null || query.isBlank() ? null : query.trim().toLowerCase(Locale.ROOT);
+        if (candidates == view.streams() && isBlank(site) && isBlank(group) && isBlank(tag) && needle == null) {
+            return candidates;
+        }
+
+        List<StreamInfo> result = new ArrayList<>();
+        for (StreamInfo stream : candidates) {
+            if (!view.contains(stream.id())
+                    || !matches(site, stream.site())
+                    || !matches(group, stream.group())
+                    || !(isBlank(tag) || stream.tags().contains(tag))) {
+                continue;
+            }
+            if (needle != null
+                    && !stream.id().toLowerCase(Locale.ROOT).contains(needle)
+                    && !stream.name().toLowerCase(Locale.ROOT).contains(needle)) {
+                continue;
+            }
+            result.add(stream);
+        }
+        return result;
+    }
+
+    private static List<StreamInfo> narrower(List<StreamInfo> current, String value, Map<String, List<StreamInfo>> index) {
+        if (isBlank(value)) {
+            return current;
+        }
+        List<StreamInfo> indexed = index.getOrDefault(value, List.of());
+        return indexed.size() < current.size() ? indexed : current;
+    }
+
+    private static boolean matches(String expected, String actual) {
+        return isBlank(expected) || expected.equals(actual);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static void index(Map<String, List<StreamInfo>> index, String key, StreamInfo stream) {
+        if (key == null || key.isBlank()) {
+            return;
+        }
+        index.computeIfAbsent(key, ignored -> new ArrayList<>()).add(stream);
+    }
+
+    private static Map<String, List<StreamInfo>> freeze(Map<String, List<StreamInfo>> index) {
+        Map<String, List<StreamInfo>> frozen = new HashMap<>();
+        index.forEach((key, value) -> frozen.put(key, List.copyOf(value)));
+        return Collections.unmodifiableMap(frozen);
+    }
+
+    /**
+     * Immutable list of the streams one permission set can see, in catalog order. {@link #key()}
+     * is a SHA-256 of the id list, computed once, for use in cache keys and ETags.
+     */
+    public static final class CatalogView {
+        static final CatalogView EMPTY = new CatalogView(List.of());
+
+        private final List<StreamInfo> streams;
+        private final Set<String> ids;
+        private final String key;
+
+        CatalogView(List<StreamInfo> streams) {
+            this.streams = List.copyOf(streams);
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 unavailable", e);
+            }
+            String[] idArray = new String[streams.size()];
+            for (int i = 0; i < streams.size(); i++) {
+                idArray[i] = streams.get(i).id();
+                digest.update(idArray[i].getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            this.ids = Set.of(idArray);
+            this.key = Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        }
+
+        public List<StreamInfo> streams() {
+            return streams;
+        }
+
+        public boolean contains(String streamId) {
+            return ids.contains(streamId);
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+}
@@ -1,69 +1,187 @@
 package com.yoojuno.cctv.stream;
 
+import com.yoojuno.cctv.config.WatchedFile;
 import com.yoojuno.cctv.model.StreamInfo;
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Set;
+import java.util.regex.Pattern;
 
+/**
+ * Serves the current {@link StreamCatalog} snapshot. When {@code streams.catalog-file} is set the
+ * file is polled and, on change, parsed on the scheduler thread and published with a single
+ * volatile write; readers never lock and in-flight requests keep the snapshot they started with.
+ * File content is parsed strictly: an empty, truncated or otherwise malformed file (e.g. caught
+ * mid-write) is rejected and the current snapshot stays in place.
+ */
 @Service
 public class StreamCatalogService {
+    private static final Logger log = LoggerFactory.getLogger(StreamCatalogService.class);
+    private static final Pattern STREAM_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+
     @Value("${streams.catalog:mystream:Main Entrance}")
     private String streamCatalogRaw;
 
-    private final Map<String, StreamInfo> catalog = new LinkedHashMap<>();
+    @Value("${streams.catalog-file:}")
+    private String streamCatalogFile;
+
+    private volatile StreamCatalog catalog = new StreamCatalog(List.of());
+    private WatchedFile watchedFile;
 
     @PostConstruct
     public void load() {
-        catalog.clear();
-        if (streamCatalogRaw == null || streamCatalogRaw.isBlank()) {
-            catalog.put("mystream", new StreamInfo("mystream", "Main Entrance"));
+        watchedFile = WatchedFile.of(streamCatalogFile).orElse(null);
+        catalog = new StreamCatalog(parse(streamCatalogRaw));
+        reloadIfChanged();
+    }
+
+    @Scheduled(fixedDelayString = "${config.reload-interval-ms:2000}", initialDelayString = "${config.reload-interval-ms:2000}")
+    public void reloadIfChanged() {
+        if (watchedFile == null) {
             return;
         }
-        String[] entries = streamCatalogRaw.split(";");
-        for (String entry : entries) {
-            if (entry == null || entry.isBlank()) {
-                continue;
+        try {
+            watchedFile.readIfChanged().ifPresent(content -> {
+                StreamCatalog next = new StreamCatalog(parseFile(content));
+                catalog = next;
+                log.info("Stream catalog reloaded from {} ({} streams).", watchedFile.path(), next.size());
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Keeping current stream catalog; reload from {} failed: {}", watchedFile.path(), e.toString());
+        }
+    }
+
+    public StreamCatalog snapshot() {
+        return catalog;
+    }
+
+    /**
+     * Parses {@code id:name[|site=..][|group=..][|tags=a,b]} entries separated by {@code ;}.
+     */
+    static List<StreamInfo> parse(String raw) {
+        List<StreamInfo> entries = new ArrayList<>();
+        if (raw != null && !raw.isBlank()) {
+            for (String entry : raw.split(";")) {
+                StreamInfo info = parseEntry(entry);
+                if (info != null) {
+                    entries.add(info);
+                }
             }
-            String[] pair = entry.split(":", 2);
-            String id = pair[0].trim();
-            if (id.isBlank()) {
+        }
+        if (entries.isEmpty()) {
+            entries.add(new StreamInfo("mystream", "Main Entrance"));
+        }
+        return entries;
+    }
+
+    /**
+     * Like {@link #parse(String)}, but every entry must be valid and at least one must exist;
+     * there is no default stream to fall back to.
+     */
+    static List<StreamInfo> parseFile(String raw) {
+        List<StreamInfo> entries = new ArrayList<>();
+        String[] lines = raw == null ? new String[0] : raw.split(";");
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].isBlank()) {
                 continue;
             }
-            String name = pair.length > 1 ? pair[1].trim() : id;
-            if (name.isBlank()) {
-                name = id;
+            StreamInfo info = parseEntry(lines[i]);
+            if (info == null || !STREAM_ID.matcher(info.id()).matches()) {
+                throw new IllegalArgumentException("invalid catalog entry #" + (i + 1));
             }
-            catalog.put(id, new StreamInfo(id, name));
+            entries.add(info);
         }
-        if (catalog.isEmpty()) {
-            catalog.put("mystream", new StreamInfo("mystream", "Main Entrance"));
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("catalog file has no entries");
         }
+        return entries;
     }
 
-    public List<StreamInfo> all() {
-        return List.copyOf(catalog.values());
-    }
-
-    public List<StreamInfo> forAllowedStreamIds(Set<String> allowedStreamIds) {
-        if (allowedStreamIds == null || allowedStreamIds.isEmpty()) {
-            return List.of();
+    private static StreamInfo parseEntry(String entry) {
+        if (entry == null || entry.isBlank()) {
+            return null;
+        }
+        String[] attributes = entry.split("\\|");
+        String[] pair = attributes[0].split(":", 2);
+        String id = pair[0].trim();
+        if (id.isBlank()) {
+            return null;
         }
-        if (allowedStreamIds.contains("*")) {
-            return all();
+        String name = pair.length > 1 ? pair[1].trim() : id;
+        if (name.isBlank()) {
+            name = id;
         }
-        List<StreamInfo> result = new ArrayList<>();
-        for (String streamId : allowedStreamIds) {
-            StreamInfo info = catalog.get(streamId);
-            if (info != null) {
-                result.add(info);
+
+        String site = null;
+        String group = null;
+        List<String> tags = List.of();
+        for (int i = 1; i < attributes.length; i++) {
+            String[] attribute = attributes[i].split("=", 2);
+            if (attribute.length < 2) {
+                continue;
+            }
+            String value = attribute[1].trim();
+            switch (attribute[0].trim().toLowerCase(Locale.ROOT)) {
+                case "site" -> site = value.isBlank() ? null : value;
+                case "group" -> group = value.isBlank() ? null : value;
+                case "tags" -> tags = Arrays.stream(value.split(","))
+                        .map(String::trim)
+                        .filter(tag -> !tag.isBlank())
+                        .distinct()
+                        .toList();
+                default -> {
+                    // ignore unknown attributes so newer catalogs still load
+                }
             }
         }
-        return result;
+        return new StreamInfo(id, name, site, group, tags);
+    }
+
+    public List<StreamInfo> all() {
+        return catalog.all();
+    }
+
+    public Optional<StreamInfo> find(String streamId) {
+        return Optional.ofNullable(catalog.find(streamId));
+    }
+
+    public List<StreamInfo> forAllowedStreamIds(Set<String> allowedStreamIds) {
+        return catalog.view(allowedStreamIds).streams();
+    }
+
+    public StreamCatalog.CatalogView view(Set<String> allowedStreamIds) {
+        return catalog.view(allowedStreamIds);
+    }
+
+    public Page query(Set<String> allowedStreamIds, Filter filter) {
+        StreamCatalog current = catalog;
+        List<StreamInfo> matched = current.filter(
+                current.view(allowedStreamIds),
+                filter.site(),
+                filter.group(),
+                filter.tag(),
+                filter.query()
+        );
+        int total = matched.size();
+        int offset = Math.max(0, Math.min(filter.offset(), total));
+        int limit = filter.limit() <= 0 ? total - offset : Math.min(filter.limit(), total - offset);
+        return new Page(matched.subList(offset, offset + limit), total, offset, limit);
+    }
+
+    public record Filter(String site, String group, String tag, String query, int offset, int limit) {
+    }
+
+    public record Page(List<StreamInfo> streams, int total, int offset, int limit) {
     }
 }
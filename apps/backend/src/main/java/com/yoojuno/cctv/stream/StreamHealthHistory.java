@@ -0,0 +1,289 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.model.StreamInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded per-stream history of health samples, one fixed-size ring per stream.
+ */
+@Service
+public class StreamHealthHistory {
+    static final int BYTES_PER_SAMPLE = Long.BYTES + Byte.BYTES + Short.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final Duration DEFAULT_WINDOW = Duration.ofHours(1);
+    private static final int DEFAULT_POINTS = 360;
+    private static final int MAX_POINTS = 2000;
+
+    private final StreamCatalogService streamCatalogService;
+    private final StreamHealthMonitor streamHealthMonitor;
+    private final Map<String, HistoryRing> rings = new ConcurrentHashMap<>();
+    private StreamCatalog prunedFor;
+
+    @Value("${streams.history.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streams.history.resolution-ms:5000}")
+    private long resolutionMs;
+
+    @Value("${streams.history.retention-minutes:1440}")
+    private long retentionMinutes;
+
+    public StreamHealthHistory(StreamCatalogService streamCatalogService, StreamHealthMonitor streamHealthMonitor) {
+        this.streamCatalogService = streamCatalogService;
+        this.streamHealthMonitor = streamHealthMonitor;
+    }
+
+    @Scheduled(fixedRateString = "${streams.history.resolution-ms:5000}", initialDelayString = "${streams.history.resolution-ms:5000}")
+    public void sample() {
+        if (!enabled) {
+            return;
+        }
+        StreamCatalog catalog = streamCatalogService.snapshot();
+        prune(catalog);
+        List<StreamHealthService.StreamHealth> health = streamHealthMonitor.latest(catalog.all());
+        long nowMs = Instant.now().toEpochMilli();
+        for (StreamHealthService.StreamHealth item : health) {
+            record(item, nowMs);
+        }
+    }
+
+    /**
+     * Drops the rings of streams a catalog reload removed; a no-op while the snapshot is unchanged.
+     */
+    void prune(StreamCatalog catalog) {
+        if (catalog == prunedFor) {
+            return;
+        }
+        rings.keySet().removeIf(id -> catalog.find(id) == null);
+        prunedFor = catalog;
+    }
+
+    void record(StreamHealthService.StreamHealth health, long epochMs) {
+        HistoryRing ring = rings.computeIfAbsent(health.id(), id -> new HistoryRing(capacity()));
+        ring.write(slotOf(epochMs), health);
+    }
+
+    public HistoryResult query(StreamInfo stream, Duration window, int maxPoints) {
+        long nowMs = Instant.now().toEpochMilli();
+        Duration effectiveWindow = clampWindow(window);
+        int points = Math.max(1, Math.min(MAX_POINTS, maxPoints));
+        long step = step();
+        long windowSlots = Math.max(1, effectiveWindow.toMillis() / step);
+        long slotsPerBucket = Math.max(1, (windowSlots + points - 1) / points);
+
+        HistoryRing ring = rings.get(stream.id());
+        List<HistoryPoint> result = new ArrayList<>();
+        if (ring != null) {
+            long lastSlot = slotOf(nowMs);
+            long firstSlot = lastSlot - windowSlots + 1;
+            for (long bucketStart = firstSlot; bucketStart <= lastSlot; bucketStart += slotsPerBucket) {
+                long bucketEnd = Math.min(lastSlot, bucketStart + slotsPerBucket - 1);
+                HistoryPoint point = ring.aggregate(bucketStart, bucketEnd, step);
+                if (point != null) {
+                    result.add(point);
+                }
+            }
+        }
+        return new HistoryResult(
+                stream.id(),
+                effectiveWindow.toSeconds(),
+                step,
+                slotsPerBucket * step,
+                List.copyOf(result)
+        );
+    }
+
+    public long memoryBytes() {
+        return (long) rings.size() * capacity() * BYTES_PER_SAMPLE;
+    }
+
+    public static Duration parseWindow(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return DEFAULT_WINDOW;
+        }
+        String value = raw.trim().toLowerCase(Locale.ROOT);
+        if (value.startsWith("p")) {
+            try {
+                return Duration.parse(value.toUpperCase(Locale.ROOT));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("invalid window: " + raw);
+            }
+        }
+        char unit = value.charAt(value.length() - 1);
+        String digits = Character.isDigit(unit) ? value : value.substring(0, value.length() - 1);
+        long amount;
+        try {
+            amount = Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid window: " + raw);
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("invalid window: " + raw);
+        }
+        return switch (unit) {
+            case 'h' -> Duration.ofHours(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 's' -> Duration.ofSeconds(amount);
+            default -> {
+                if (Character.isDigit(unit)) {
+                    yield Duration.ofSeconds(amount);
+                }
+                throw new IllegalArgumentException("invalid window: " + raw);
+            }
+        };
+    }
+
+    public static int defaultPoints() {
+        return DEFAULT_POINTS;
+    }
+
+    private Duration clampWindow(Duration window) {
+        Duration retention = Duration.ofMillis(capacity() * step());
+        if (window == null || window.isNegative() || window.isZero()) {
+            return DEFAULT_WINDOW.compareTo(retention) > 0 ? retention : DEFAULT_WINDOW;
+        }
+        return window.compareTo(retention) > 0 ? retention : window;
+    }
+
+    private long step() {
+        return Math.max(1000, resolutionMs);
+    }
+
+    private int capacity() {
+        long slots = Duration.ofMinutes(Math.max(1, retentionMinutes)).toMillis() / step();
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, slots));
+    }
+
+    private long slotOf(long epochMs) {
+        return epochMs / step();
+    }
+
+    /**
+     * One array per metric; the slot column tells readers whether an entry is from a previous lap.
+     */
+    static final class HistoryRing {
+        private final int capacity;
+        private final long[] slots;
+        private final byte[] states;
+        private final short[] segmentCounts;
+        private final int[] manifestAgeSeconds;
+        private final int[] latestSegmentSizeBytes;
+        private final int[] bitrateBps;
+
+        HistoryRing(int capacity) {
+            this.capacity = capacity;
+            this.slots = new long[capacity];
+            this.states = new byte[capacity];
+            this.segmentCounts = new short[capacity];
+            this.manifestAgeSeconds = new int[capacity];
+            this.latestSegmentSizeBytes = new int[capacity];
+            this.bitrateBps = new int[capacity];
+        }
+
+        void write(long slot, StreamHealthService.StreamHealth health) {
+            int index = indexOf(slot);
+            long size = Math.max(0, health.latestSegmentSizeBytes());
+            double duration = health.targetDurationSeconds();
+            long bitrate = duration > 0 ? (long) (size * 8 / duration) : 0;
+
+            states[index] = (byte) (health.state().ordinal() + 1);
+            segmentCounts[index] = (short) Math.min(Short.MAX_VALUE, Math.max(0, health.segmentCount()));
+            manifestAgeSeconds[index] = (int) Math.min(Integer.MAX_VALUE, Math.max(-1, health.manifestAgeSeconds()));
+            latestSegmentSizeBytes[index] = (int) Math.min(Integer.MAX_VALUE, size);
+            bitrateBps[index] = (int) Math.min(Integer.MAX_VALUE, bitrate);
+            slots[index] = slot;
+        }
+
+        HistoryPoint aggregate(long fromSlot, long toSlot, long stepMs) {
+            int samples = 0;
+            int live = 0;
+            int worstSeverity = -1;
+            StreamHealthService.StreamState worst = null;
+            int minSegments = Integer.MAX_VALUE;
+            int maxAge = -1;
+            long sizeSum = 0;
+            long bitrateSum = 0;
+
+            for (long slot = Math.max(0, fromSlot); slot <= toSlot; slot++) {
+                int index = indexOf(slot);
+                byte encoded = states[index];
+                if (encoded == 0 || slots[index] != slot) {
+                    continue;
+                }
+                StreamHealthService.StreamState state = StreamHealthService.StreamState.values()[encoded - 1];
+                samples++;
+                if (state == StreamHealthService.StreamState.LIVE) {
+                    live++;
+                }
+                int severity = severity(state);
+                if (severity > worstSeverity) {
+                    worstSeverity = severity;
+                    worst = state;
+                }
+                minSegments = Math.min(minSegments, segmentCounts[index]);
+                maxAge = Math.max(maxAge, manifestAgeSeconds[index]);
+                sizeSum += latestSegmentSizeBytes[index];
+                bitrateSum += bitrateBps[index];
+            }
+
+            if (samples == 0) {
+                return null;
+            }
+            return new HistoryPoint(
+                    fromSlot * stepMs,
+                    samples,
+                    worst,
+                    (double) live / samples,
+                    minSegments,
+                    maxAge,
+                    sizeSum / samples,
+                    bitrateSum / samples
+            );
+        }
+
+        private int indexOf(long slot) {
+            return (int) Math.floorMod(slot, (long) capacity);
+        }
+
+        private static int severity(StreamHealthService.StreamState state) {
+            return switch (state) {
+                case LIVE -> 0;
+                case STARTING -> 1;
+                case STALE -> 2;
+                case OFFLINE -> 3;
+                case ERROR -> 4;
+            };
+        }
+    }
+
+    public record HistoryResult(
+            String id,
+            long windowSeconds,
+            long resolutionMs,
+            long bucketMs,
+            List<HistoryPoint> points
+    ) {
+    }
+
+    public record HistoryPoint(
+            long startEpochMs,
+            int samples,
+            StreamHealthService.StreamState worstState,
+            double liveRatio,
+            int minSegmentCount,
+            int maxManifestAgeSeconds,
+            long avgLatestSegmentSizeBytes,
+            long avgBitrateBps
+    ) {
+    }
+}
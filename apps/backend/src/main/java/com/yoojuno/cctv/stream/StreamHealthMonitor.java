@@ -0,0 +1,411 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.model.StreamInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates stream health in the background, each stream on its own cadence, and serves the
+ * latest results. Versions only move when a result's meaning changes (see {@link #changed}).
+ */
+@Service
+public class StreamHealthMonitor {
+    private static final Logger log = LoggerFactory.getLogger(StreamHealthMonitor.class);
+    private static final int MAX_TOMBSTONES = 4096;
+    private static final Set<String> SEGMENT_VALIDATION_REASONS = Set.of("SEGMENT_CORRUPT", "NO_KEYFRAME");
+
+    private final StreamCatalogService streamCatalogService;
+    private final StreamHealthService streamHealthService;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> removedVersions = new ConcurrentHashMap<>();
+    private final List<StateChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Seeded from the clock so versions keep increasing across restarts.
+    private final long seedVersion = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong(seedVersion);
+    // Versions are assigned and published under this lock, so every version up to
+    // publishedVersion is visible once publishedVersion is.
+    private final Object publishLock = new Object();
+    private volatile long publishedVersion = seedVersion;
+    // Cursors older than this (including any from before this process) must take a full snapshot.
+    private volatile long tombstoneFloor = seedVersion;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder onDemandEvaluations = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final AtomicLong lastTickDurationMs = new AtomicLong();
+    private final AtomicLong lastTickMaxLagMs = new AtomicLong();
+    private final AtomicLong lastTickDeferred = new AtomicLong();
+    private ScheduledExecutorService ticker;
+
+    @Value("${streams.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streams.scheduler.tick-ms:250}")
+    private long tickMs;
+
+    @Value("${streams.scheduler.fast-interval-ms:1000}")
+    private long fastIntervalMs;
+
+    @Value("${streams.scheduler.recent-change-ms:10000}")
+    private long recentChangeMs;
+
+    @Value("${streams.scheduler.offline-base-ms:2000}")
+    private long offlineBaseMs;
+
+    @Value("${streams.scheduler.max-interval-ms:60000}")
+    private long maxIntervalMs;
+
+    @Value("${streams.scheduler.jitter-ratio:0.2}")
+    private double jitterRatio;
+
+    @Value("${streams.scheduler.max-evaluations-per-tick:200}")
+    private int maxEvaluationsPerTick;
+
+    public StreamHealthMonitor(StreamCatalogService streamCatalogService, StreamHealthService streamHealthService) {
+        this.streamCatalogService = streamCatalogService;
+        this.streamHealthService = streamHealthService;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(10, tickMs);
+        ticker.scheduleWithFixedDelay(this::tickSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker == null) {
+            return;
+        }
+        ticker.shutdown();
+        try {
+            ticker.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.warn("Health evaluation pass failed: {}", e.toString());
+        }
+    }
+
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        List<StreamInfo> streams = streamCatalogService.all();
+        Set<String> known = new HashSet<>();
+        int evaluated = 0;
+        int deferred = 0;
+        long maxLag = 0;
+
+        for (StreamInfo stream : streams) {
+            known.add(stream.id());
+            Entry entry = entries.get(stream.id());
+            long now = System.currentTimeMillis();
+            if (entry != null && entry.nextDueMs > now) {
+                continue;
+            }
+            if (evaluated >= Math.max(1, maxEvaluationsPerTick)) {
+                deferred++;
+                continue;
+            }
+            if (entry != null) {
+                maxLag = Math.max(maxLag, now - entry.nextDueMs);
+            }
+            evaluate(stream.id(), now);
+            evaluated++;
+        }
+        for (String streamId : entries.keySet()) {
+            if (!known.contains(streamId) && entries.remove(streamId) != null) {
+                tombstone(streamId);
+            }
+        }
+
+        lastTickDurationMs.set(System.currentTimeMillis() - startedAt);
+        lastTickMaxLagMs.set(maxLag);
+        lastTickDeferred.set(deferred);
+    }
+
+    /**
+     * Latest known health for the given streams. Streams the scheduler has not reached yet
+     * (or every stream when the scheduler is disabled) are evaluated on the calling thread.
+     */
+    public List<StreamHealthService.StreamHealth> latest(List<StreamInfo> streams) {
+        List<StreamHealthService.StreamHealth> result = new ArrayList<>(streams.size());
+        for (StreamInfo stream : streams) {
+            result.add(latest(stream.id()));
+        }
+        return result;
+    }
+
+    public StreamHealthService.StreamHealth latest(String streamId) {
+        Entry entry = enabled ? entries.get(streamId) : null;
+        StreamHealthService.StreamHealth health = entry == null ? null : entry.current;
+        if (health == null) {
+            onDemandEvaluations.increment();
+            health = evaluate(streamId, System.currentTimeMillis()).current;
+        }
+        return health;
+    }
+
+    /**
+     * Published results, which keep their version (and body) while only freshness fields move;
+     * {@link #latest} has the newest evaluation.
+     */
+    public List<VersionedHealth> latestVersioned(List<StreamInfo> streams) {
+        List<VersionedHealth> result = new ArrayList<>(streams.size());
+        for (StreamInfo stream : streams) {
+            result.add(latestVersioned(stream.id()));
+        }
+        return result;
+    }
+
+    public VersionedHealth latestVersioned(String streamId) {
+        Entry entry = enabled ? entries.get(streamId) : null;
+        VersionedHealth snapshot = entry == null ? null : entry.snapshot;
+        if (snapshot == null) {
+            onDemandEvaluations.increment();
+            snapshot = evaluate(streamId, System.currentTimeMillis()).snapshot;
+        }
+        return snapshot;
+    }
+
+    public void addStateChangeListener(StateChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Newest version whose result, and every older one, is visible. A response cursor must not
+     * exceed this value read before the response's results were collected.
+     */
+    public long currentVersion() {
+        return publishedVersion;
+    }
+
+    /**
+     * Whether a delta from {@code since} is complete. Cursors from before this process or from
+     * the future (e.g. issued before a clock step back) are rejected.
+     */
+    public boolean deltaAvailable(long since) {
+        return since >= tombstoneFloor && since <= publishedVersion;
+    }
+
+    /**
+     * Streams removed from the catalog after {@code since}, with the version of the removal.
+     */
+    public Map<String, Long> removedSince(long since) {
+        Map<String, Long> result = new HashMap<>();
+        removedVersions.forEach((streamId, removedAt) -> {
+            if (removedAt > since) {
+                result.put(streamId, removedAt);
+            }
+        });
+        return result;
+    }
+
+    public long evaluationCount() {
+        return evaluations.sum();
+    }
+
+    public long evaluationNanos() {
+        return evaluationNanos.sum();
+    }
+
+    public long onDemandEvaluationCount() {
+        return onDemandEvaluations.sum();
+    }
+
+    public long lastTickMaxLagMs() {
+        return lastTickMaxLagMs.get();
+    }
+
+    public SchedulerStats stats() {
+        long count = evaluations.sum();
+        long dueNow = 0;
+        long now = System.currentTimeMillis();
+        for (Entry entry : entries.values()) {
+            if (entry.nextDueMs <= now) {
+                dueNow++;
+            }
+        }
+        return new SchedulerStats(
+                enabled,
+                entries.size(),
+                count,
+                onDemandEvaluations.sum(),
+                count == 0 ? 0 : evaluationNanos.sum() / count / 1000,
+                lastTickDurationMs.get(),
+                lastTickMaxLagMs.get(),
+                lastTickDeferred.get(),
+                dueNow
+        );
+    }
+
+    private Entry evaluate(String streamId, long now) {
+        long startedAt = System.nanoTime();
+        StreamHealthService.StreamHealth health = streamHealthService.healthForStream(streamId);
+        evaluationNanos.add(System.nanoTime() - startedAt);
+        evaluations.increment();
+
+        removedVersions.remove(streamId);
+        Entry entry = entries.computeIfAbsent(streamId, id -> new Entry());
+        VersionedHealth previous;
+        synchronized (entry) {
+            previous = entry.snapshot;
+            if (previous == null || previous.health().state() != health.state()) {
+                entry.lastChangeMs = now;
+            }
+            if (backsOff(health)) {
+                entry.failureStreak = Math.min(30, entry.failureStreak + 1);
+            } else {
+                entry.failureStreak = 0;
+            }
+            entry.current = health;
+            if (previous == null || changed(previous.health(), health)) {
+                synchronized (publishLock) {
+                    long entryVersion = version.incrementAndGet();
+                    entry.snapshot = new VersionedHealth(health, entryVersion);
+                    publishedVersion = entryVersion;
+                }
+            }
+            entry.nextDueMs = now + jitter(nextIntervalMs(health, now - entry.lastChangeMs, entry.failureStreak));
+        }
+        if (previous == null || previous.health().state() != health.state()) {
+            for (StateChangeListener listener : listeners) {
+                listener.stateChanged(previous == null ? null : previous.health(), health, now);
+            }
+        }
+        return entry;
+    }
+
+    private void tombstone(String streamId) {
+        synchronized (publishLock) {
+            if (removedVersions.size() >= MAX_TOMBSTONES) {
+                tombstoneFloor = publishedVersion;
+                removedVersions.clear();
+            }
+            long removedAt = version.incrementAndGet();
+            removedVersions.put(streamId, removedAt);
+            publishedVersion = removedAt;
+        }
+    }
+
+    /**
+     * True when the stream's meaning changed. Freshness (manifest time and age, segment count
+     * and size) moves on every segment and is left out; clients age {@code lastModifiedEpochMs}
+     * themselves.
+     */
+    static boolean changed(StreamHealthService.StreamHealth before, StreamHealthService.StreamHealth after) {
+        return before.state() != after.state()
+                || before.live() != after.live()
+                || before.manifestExists() != after.manifestExists()
+                || !before.reason().equals(after.reason())
+                || before.targetDurationSeconds() != after.targetDurationSeconds()
+                || before.endList() != after.endList()
+                || before.latestSegmentExists() != after.latestSegmentExists();
+    }
+
+    /**
+     * Offline and unreadable streams back off. A stream whose newest segment failed validation is
+     * still publishing, so it keeps the segment cadence and its next good segment is seen promptly.
+     */
+    static boolean backsOff(StreamHealthService.StreamHealth health) {
+        return switch (health.state()) {
+            case OFFLINE -> true;
+            case ERROR -> !SEGMENT_VALIDATION_REASONS.contains(health.reason());
+            default -> false;
+        };
+    }
+
+    long nextIntervalMs(StreamHealthService.StreamHealth health, long sinceChangeMs, int failureStreak) {
+        long fast = Math.max(100, fastIntervalMs);
+        long max = Math.max(fast, maxIntervalMs);
+        if (sinceChangeMs < recentChangeMs) {
+            return fast;
+        }
+        if (health.state() == StreamHealthService.StreamState.STARTING) {
+            return fast;
+        }
+        if (backsOff(health)) {
+            long base = Math.max(fast, offlineBaseMs);
+            int shift = Math.max(0, Math.min(20, failureStreak - 1));
+            return Math.min(max, base << shift);
+        }
+        long segmentMs = (long) (health.targetDurationSeconds() * 1000);
+        return Math.min(max, Math.max(fast, segmentMs));
+    }
+
+    private long jitter(long intervalMs) {
+        double ratio = Math.max(0, Math.min(0.5, jitterRatio));
+        if (ratio == 0) {
+            return intervalMs;
+        }
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-ratio, ratio);
+        return Math.max(1, (long) (intervalMs * factor));
+    }
+
+    private static final class Entry {
+        private volatile StreamHealthService.StreamHealth current;
+        private volatile VersionedHealth snapshot;
+        private volatile long nextDueMs;
+        private long lastChangeMs;
+        private int failureStreak;
+    }
+
+    /**
+     * Called with the previous result (null for a stream's first evaluation) whenever the state
+     * changes.
+     */
+    public interface StateChangeListener {
+        void stateChanged(StreamHealthService.StreamHealth previous, StreamHealthService.StreamHealth current, long epochMs);
+    }
+
+    public record VersionedHealth(StreamHealthService.StreamHealth health, long version) {
+    }
+
+    public record SchedulerStats(
+            boolean enabled,
+            int trackedStreams,
+            long evaluations,
+            long onDemandEvaluations,
+            long avgEvaluationMicros,
+            long lastTickDurationMs,
+            long lastTickMaxLagMs,
+            long lastTickDeferred,
+            long dueNow
+    ) {
+    }
+}
@@ -1,10 +1,12 @@
 package com.yoojuno.cctv.stream;
 
 import com.yoojuno.cctv.model.StreamInfo;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
@@ -27,6 +29,30 @@ public class StreamHealthService {
     @Value("${streams.health-poll-ms:4000}")
     private long recommendedPollMs;
 
+    private final SegmentStore segmentStore;
+    private final EdgeSegmentCache edgeCache;
+    private final TsSegmentValidator segmentValidator;
+    private volatile HlsStorageLayout storageLayout;
+
+    public StreamHealthService() {
+        this(null, null, null, null);
+    }
+
+    /**
+     * Streams ingested over HTTP are evaluated from the in-memory playlist, an edge node reads
+     * the origin's playlist through its cache, and the rest come from disk at the location
+     * {@link HlsStorageLayout} assigns them. A stream that would be LIVE additionally needs its
+     * newest local segment to pass {@link TsSegmentValidator}.
+     */
+    @Autowired
+    public StreamHealthService(SegmentStore segmentStore, HlsStorageLayout storageLayout, EdgeSegmentCache edgeCache,
+                               TsSegmentValidator segmentValidator) {
+        this.segmentStore = segmentStore;
+        this.storageLayout = storageLayout;
+        this.edgeCache = edgeCache;
+        this.segmentValidator = segmentValidator;
+    }
+
     public List<StreamHealth> healthForStreams(List<StreamInfo> streams) {
         List<StreamHealth> result = new ArrayList<>();
         for (StreamInfo stream : streams) {
@@ -43,53 +69,165 @@ public class StreamHealthService {
         return Math.max(1000, recommendedPollMs);
     }
 
-    private StreamHealth healthForStream(String streamId) {
-        Path manifestPath = Path.of(hlsPath).resolve(streamId + ".m3u8").toAbsolutePath().normalize();
-        boolean exists = Files.isRegularFile(manifestPath);
+    public StreamHealth healthForStream(String streamId) {
+        if (edgeCache != null && edgeCache.enabled()) {
+            return edgeHealthForStream(streamId);
+        }
+        SegmentStore.ManifestView ingested = segmentStore == null ? null : segmentStore.manifest(streamId);
+        HlsStorageLayout layout = storageLayout();
+        Path manifestPath = ingested == null ? layout.manifestPath(streamId) : null;
+        boolean exists = ingested != null || Files.isRegularFile(manifestPath);
         if (!exists) {
             return new StreamHealth(streamId, false, false, 0, -1, StreamState.OFFLINE, "MANIFEST_MISSING", 0, 0, false, false, -1);
         }
 
         try {
+            if (ingested != null) {
+                ManifestSnapshot snapshot = parseManifest(ingested.text().lines().toList(), segmentStore::segmentSize);
+                return validateIngestedSegment(classify(streamId, ingested.uploadedAtEpochMs(), snapshot), snapshot);
+            }
+            long readStarted = System.nanoTime();
             FileTime fileTime = Files.getLastModifiedTime(manifestPath);
-            long lastModifiedEpochMs = fileTime.toMillis();
-            long ageSeconds = Math.max(0, (Instant.now().toEpochMilli() - lastModifiedEpochMs) / 1000);
             ManifestSnapshot snapshot = readManifestSnapshot(manifestPath);
+            layout.recordRead(manifestPath, System.nanoTime() - readStarted);
+            return validateSegmentFile(classify(streamId, fileTime.toMillis(), snapshot), snapshot, manifestPath);
+        } catch (IOException e) {
+            return new StreamHealth(streamId, false, true, 0, -1, StreamState.ERROR, "MANIFEST_UNREADABLE", 0, 0, false, false, -1);
+        }
+    }
 
-            if (snapshot.segmentCount() == 0) {
-                return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STARTING, "MANIFEST_NO_SEGMENTS",
-                        snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
-            }
-            if (snapshot.endList()) {
-                return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.OFFLINE, "ENDLIST_PRESENT",
-                        snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
-            }
-            if (snapshot.segmentCount() < liveMinSegments) {
-                return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STARTING, "INSUFFICIENT_SEGMENTS",
-                        snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
-            }
-            if (ageSeconds > liveThresholdSeconds) {
-                return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STALE, "MANIFEST_STALE",
-                        snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
-            }
-            if (snapshot.latestSegmentLocal() && !snapshot.latestSegmentExists()) {
-                return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STALE, "SEGMENT_MISSING",
-                        snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
-            }
-            if (snapshot.latestSegmentLocal() && snapshot.latestSegmentSizeBytes() == 0) {
-                return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STALE, "SEGMENT_EMPTY",
-                        snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+    /**
+     * Reads the edge's cached playlist without waiting on the origin. A playlist whose age the
+     * edge cannot tell yet (no Last-Modified from the origin and no change observed) is reported
+     * as STARTING rather than fresh.
+     */
+    private StreamHealth edgeHealthForStream(String streamId) {
+        EdgeSegmentCache.EdgeObject manifest = edgeCache.cachedManifest(streamId);
+        if (manifest == null) {
+            return edgeCache.originMissing(streamId)
+                    ? new StreamHealth(streamId, false, false, 0, -1, StreamState.OFFLINE, "MANIFEST_MISSING", 0, 0, false, false, -1)
+                    : new StreamHealth(streamId, false, false, 0, -1, StreamState.STARTING, "MANIFEST_PENDING", 0, 0, false, false, -1);
+        }
+        try {
+            List<String> lines = new String(manifest.body(), StandardCharsets.UTF_8).lines().toList();
+            ManifestSnapshot snapshot = parseManifest(lines, edgeCache::cachedSize);
+            if (manifest.lastModifiedEpochMs() <= 0) {
+                return new StreamHealth(streamId, false, true, 0, -1, StreamState.STARTING, "MANIFEST_AGE_UNKNOWN",
+                        snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(),
+                        snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
             }
-
-            return new StreamHealth(streamId, true, true, lastModifiedEpochMs, ageSeconds, StreamState.LIVE, "OK",
-                    snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+            return classify(streamId, manifest.lastModifiedEpochMs(), snapshot);
         } catch (IOException e) {
             return new StreamHealth(streamId, false, true, 0, -1, StreamState.ERROR, "MANIFEST_UNREADABLE", 0, 0, false, false, -1);
         }
     }
 
-    private ManifestSnapshot readManifestSnapshot(Path manifestPath) throws IOException {
-        List<String> lines = Files.readAllLines(manifestPath);
+    /**
+     * Instances created outside the container (tests, benchmarks) use a single flat volume at
+     * {@code hls.path}.
+     */
+    private HlsStorageLayout storageLayout() {
+        HlsStorageLayout layout = storageLayout;
+        if (layout == null) {
+            layout = HlsStorageLayout.singleVolume(hlsPath);
+            storageLayout = layout;
+        }
+        return layout;
+    }
+
+    private boolean shouldValidate(StreamHealth health, ManifestSnapshot snapshot) {
+        return segmentValidator != null
+                && segmentValidator.enabled()
+                && health.state() == StreamState.LIVE
+                && snapshot.latestSegmentLocal()
+                && snapshot.latestSegmentRef() != null;
+    }
+
+    private StreamHealth validateSegmentFile(StreamHealth health, ManifestSnapshot snapshot, Path manifestPath) {
+        if (!shouldValidate(health, snapshot)) {
+            return health;
+        }
+        Path manifestDir = manifestPath.getParent() == null ? Path.of(".") : manifestPath.getParent();
+        try {
+            return withSegmentResult(health, segmentValidator.validate(manifestDir.resolve(snapshot.latestSegmentRef()).normalize()));
+        } catch (IOException e) {
+            // Rotated away since the manifest was read; the next evaluation checks its successor.
+            return health;
+        }
+    }
+
+    private StreamHealth validateIngestedSegment(StreamHealth health, ManifestSnapshot snapshot) {
+        if (!shouldValidate(health, snapshot)) {
+            return health;
+        }
+        String ref = snapshot.latestSegmentRef();
+        String name = ref.substring(ref.lastIndexOf('/') + 1);
+        SegmentStore.StoredObject segment = segmentStore.open(name);
+        if (segment == null) {
+            return health;
+        }
+        try {
+            String key = "ingest:" + name + "|" + segment.sequence();
+            boolean complete = segment.length() <= segmentValidator.maxBytes();
+            return withSegmentResult(health, segmentValidator.validate(key, segment.toByteArray(segmentValidator.maxBytes()), complete));
+        } finally {
+            segment.release();
+        }
+    }
+
+    private static StreamHealth withSegmentResult(StreamHealth health, TsSegmentValidator.Result result) {
+        if (result.ok()) {
+            return health;
+        }
+        return new StreamHealth(health.id(), false, true, health.lastModifiedEpochMs(), health.manifestAgeSeconds(), StreamState.ERROR,
+                result.reason(), health.segmentCount(), health.targetDurationSeconds(), health.endList(), health.latestSegmentExists(),
+                health.latestSegmentSizeBytes());
+    }
+
+    private StreamHealth classify(String streamId, long lastModifiedEpochMs, ManifestSnapshot snapshot) {
+        long ageSeconds = Math.max(0, (Instant.now().toEpochMilli() - lastModifiedEpochMs) / 1000);
+        if (snapshot.segmentCount() == 0) {
+            return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STARTING, "MANIFEST_NO_SEGMENTS",
+                    snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+        }
+        if (snapshot.endList()) {
+            return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.OFFLINE, "ENDLIST_PRESENT",
+                    snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+        }
+        if (snapshot.segmentCount() < liveMinSegments) {
+            return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STARTING, "INSUFFICIENT_SEGMENTS",
+                    snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+        }
+        if (ageSeconds > liveThresholdSeconds) {
+            return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STALE, "MANIFEST_STALE",
+                    snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+        }
+        if (snapshot.latestSegmentLocal() && !snapshot.latestSegmentExists()) {
+            return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STALE, "SEGMENT_MISSING",
+                    snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+        }
+        if (snapshot.latestSegmentLocal() && snapshot.latestSegmentSizeBytes() == 0) {
+            return new StreamHealth(streamId, false, true, lastModifiedEpochMs, ageSeconds, StreamState.STALE, "SEGMENT_EMPTY",
+                    snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+        }
+
+        return new StreamHealth(streamId, true, true, lastModifiedEpochMs, ageSeconds, StreamState.LIVE, "OK",
+                snapshot.segmentCount(), snapshot.targetDurationSeconds(), snapshot.endList(), snapshot.latestSegmentExists(), snapshot.latestSegmentSizeBytes());
+    }
+
+    ManifestSnapshot readManifestSnapshot(Path manifestPath) throws IOException {
+        Path manifestDir = manifestPath.getParent() == null ? Path.of(".") : manifestPath.getParent();
+        return parseManifest(Files.readAllLines(manifestPath), segmentRef -> {
+            Path segmentPath = manifestDir.resolve(segmentRef).normalize();
+            return Files.isRegularFile(segmentPath) ? Files.size(segmentPath) : -1;
+        });
+    }
+
+    /**
+     * {@code segmentSizer} returns the latest segment's size, -1 when it does not exist, or
+     * {@link SegmentSizer#UNKNOWN} when it cannot be checked locally (treated like a remote URI).
+     */
+    static ManifestSnapshot parseManifest(List<String> lines, SegmentSizer segmentSizer) throws IOException {
         boolean endList = false;
         int segmentCount = 0;
         double targetDurationSeconds = 0;
@@ -115,18 +253,18 @@ public class StreamHealthService {
         }
 
         if (latestSegmentRef == null) {
-            return new ManifestSnapshot(endList, segmentCount, targetDurationSeconds, false, false, -1);
+            return new ManifestSnapshot(endList, segmentCount, targetDurationSeconds, false, false, -1, null);
         }
 
         if (looksLikeExternalUri(latestSegmentRef)) {
-            return new ManifestSnapshot(endList, segmentCount, targetDurationSeconds, false, true, -1);
+            return new ManifestSnapshot(endList, segmentCount, targetDurationSeconds, false, true, -1, latestSegmentRef);
         }
 
-        Path manifestDir = manifestPath.getParent() == null ? Path.of(".") : manifestPath.getParent();
-        Path segmentPath = manifestDir.resolve(latestSegmentRef).normalize();
-        boolean exists = Files.isRegularFile(segmentPath);
-        long size = exists ? Files.size(segmentPath) : -1;
-        return new ManifestSnapshot(endList, segmentCount, targetDurationSeconds, true, exists, size);
+        long size = segmentSizer.size(latestSegmentRef);
+        if (size == SegmentSizer.UNKNOWN) {
+            return new ManifestSnapshot(endList, segmentCount, targetDurationSeconds, false, true, -1, latestSegmentRef);
+        }
+        return new ManifestSnapshot(endList, segmentCount, targetDurationSeconds, true, size >= 0, size, latestSegmentRef);
     }
 
     private static boolean looksLikeExternalUri(String value) {
@@ -145,13 +283,20 @@ public class StreamHealthService {
         }
     }
 
-    private record ManifestSnapshot(
+    interface SegmentSizer {
+        long UNKNOWN = -2;
+
+        long size(String segmentRef) throws IOException;
+    }
+
+    record ManifestSnapshot(
             boolean endList,
             int segmentCount,
             double targetDurationSeconds,
             boolean latestSegmentLocal,
             boolean latestSegmentExists,
-            long latestSegmentSizeBytes
+            long latestSegmentSizeBytes,
+            String latestSegmentRef
     ) {
     }
 
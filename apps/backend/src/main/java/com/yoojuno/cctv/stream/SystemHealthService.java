@@ -0,0 +1,255 @@
+package com.yoojuno.cctv.stream;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.yoojuno.cctv.model.StreamInfo;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage status, state counts and recommendations for a stream set, built from the monitor's
+ * latest results and shared by {@code /api/system/health} and {@code /api/dashboard}.
+ */
+@Service
+public class SystemHealthService {
+    private final StreamHealthMonitor streamHealthMonitor;
+    private final HealthPayloadCache healthPayloadCache;
+    private final HlsStorageLayout storageLayout;
+
+    public SystemHealthService(
+            StreamHealthMonitor streamHealthMonitor,
+            HealthPayloadCache healthPayloadCache,
+            HlsStorageLayout storageLayout
+    ) {
+        this.streamHealthMonitor = streamHealthMonitor;
+        this.healthPayloadCache = healthPayloadCache;
+        this.storageLayout = storageLayout;
+    }
+
+    /**
+     * Everything in the system health response that depends only on the stream set, so users
+     * sharing a set share one summary per health version of that set.
+     */
+    public SharedSystemHealth sharedSystemHealth(StreamCatalog.CatalogView view) {
+        long published = streamHealthMonitor.currentVersion();
+        List<StreamHealthMonitor.VersionedHealth> snapshots = streamHealthMonitor.latestVersioned(view.streams());
+        long version = 0;
+        for (StreamHealthMonitor.VersionedHealth snapshot : snapshots) {
+            version = Math.max(version, snapshot.version());
+        }
+        // Same cursor rule as /api/streams/health: never past what was published before reading.
+        long snapshotVersion = Math.min(version, published);
+        return healthPayloadCache.memoize("system-health|" + view.key(), snapshotVersion,
+                () -> buildSharedSystemHealth(snapshotVersion, view.streams(), snapshots));
+    }
+
+    private SharedSystemHealth buildSharedSystemHealth(
+            long version,
+            List<StreamInfo> streams,
+            List<StreamHealthMonitor.VersionedHealth> snapshots
+    ) {
+        List<StreamHealthService.StreamHealth> streamDetails = new ArrayList<>(snapshots.size());
+        for (StreamHealthMonitor.VersionedHealth snapshot : snapshots) {
+            streamDetails.add(snapshot.health());
+        }
+        HlsStorageStatus hlsStorage = resolveHlsStorageStatus(streams);
+        StreamHealthSummary streamSummary = summarize(streamDetails);
+        List<String> recommendations = buildRecommendations(streams, streamSummary, hlsStorage);
+        return new SharedSystemHealth(
+                version,
+                hlsStorage,
+                streamSummary,
+                healthPayloadCache.fragments(streamDetails),
+                List.copyOf(recommendations)
+        );
+    }
+
+    /**
+     * Totals across all volumes (a volume that is missing or read-only fails the whole check),
+     * plus per-volume utilization and manifest read latency. Misplaced streams are limited to the
+     * ones in the view.
+     */
+    private HlsStorageStatus resolveHlsStorageStatus(List<StreamInfo> streams) {
+        List<String> streamIds = streams.stream().map(StreamInfo::id).toList();
+        List<HlsStorageLayout.VolumeStatus> volumes = storageLayout.status(streamIds);
+        boolean exists = true;
+        boolean readable = true;
+        boolean writable = true;
+        long manifestCount = 0;
+        long segmentCount = 0;
+        List<String> paths = new ArrayList<>(volumes.size());
+        for (HlsStorageLayout.VolumeStatus volume : volumes) {
+            exists &= volume.exists();
+            readable &= volume.readable();
+            writable &= volume.writable();
+            manifestCount += volume.manifestCount();
+            segmentCount += volume.segmentCount();
+            paths.add(volume.path());
+        }
+
+        return new HlsStorageStatus(
+                String.join(",", paths),
+                exists,
+                readable,
+                writable,
+                manifestCount,
+                segmentCount,
+                storageLayout.perStreamDirectories() ? "per-stream" : "flat",
+                volumes,
+                visibleMisplacedStreams(streamIds)
+        );
+    }
+
+    private Map<String, String> visibleMisplacedStreams(List<String> streamIds) {
+        Map<String, String> misplaced = storageLayout.misplacedStreams();
+        if (misplaced.isEmpty()) {
+            return misplaced;
+        }
+        Map<String, String> visible = new LinkedHashMap<>();
+        for (String streamId : streamIds) {
+            String volume = misplaced.get(streamId);
+            if (volume != null) {
+                visible.put(streamId, volume);
+            }
+        }
+        return Map.copyOf(visible);
+    }
+
+    static StreamHealthSummary summarize(List<StreamHealthService.StreamHealth> streamDetails) {
+        int live = 0;
+        int starting = 0;
+        int stale = 0;
+        int offline = 0;
+        int error = 0;
+        Map<String, Long> reasons = new LinkedHashMap<>();
+
+        for (StreamHealthService.StreamHealth health : streamDetails) {
+            switch (health.state()) {
+                case LIVE -> live++;
+                case STARTING -> starting++;
+                case STALE -> stale++;
+                case OFFLINE -> offline++;
+                case ERROR -> error++;
+            }
+            reasons.put(health.reason(), reasons.getOrDefault(health.reason(), 0L) + 1);
+        }
+
+        return new StreamHealthSummary(
+                streamDetails.size(),
+                live,
+                starting,
+                stale,
+                offline,
+                error,
+                Map.copyOf(reasons)
+        );
+    }
+
+    private static List<String> buildRecommendations(
+            List<StreamInfo> streams,
+            StreamHealthSummary summary,
+            HlsStorageStatus hlsStorage
+    ) {
+        Set<String> output = new LinkedHashSet<>();
+
+        if (!hlsStorage.exists()) {
+            output.add("HLS directory is missing. Create it and verify hls.path configuration.");
+        }
+        if (!hlsStorage.readable()) {
+            output.add("HLS directory is not readable. Check filesystem permissions.");
+        }
+        if (!hlsStorage.writable()) {
+            output.add("HLS directory is not writable. Converter cannot publish segments.");
+        }
+        for (HlsStorageLayout.VolumeStatus volume : hlsStorage.volumes()) {
+            if (volume.utilization() >= 0.9) {
+                output.add("HLS volume " + volume.name() + " is " + Math.round(volume.utilization() * 100) + "% full.");
+            }
+        }
+        if (!hlsStorage.misplacedStreams().isEmpty()) {
+            output.add("Some streams are still written to their previous HLS volume. Restart their converters with the current HLS_VOLUMES.");
+        }
+        if (streams.isEmpty()) {
+            output.add("No authorized streams for this account. Verify AUTH_USERS stream assignments.");
+        }
+
+        if (summary.total() > 0 && summary.live() == summary.total()) {
+            output.add("All authorized streams are healthy.");
+            return new ArrayList<>(output);
+        }
+
+        Map<String, Long> reasons = summary.reasons();
+        if (reasons.containsKey("MANIFEST_MISSING")) {
+            String streamId = streams.isEmpty() ? "mystream" : streams.get(0).id();
+            output.add("Manifest missing. Start converter: MJPEG_URL=http://<device-ip>:81/stream STREAM_ID=" + streamId + " ./scripts/mjpeg_to_hls.sh");
+        }
+        if (reasons.containsKey("MANIFEST_STALE")) {
+            output.add("Manifest is stale. Check camera connectivity and restart converter if needed.");
+        }
+        if (reasons.containsKey("SEGMENT_MISSING") || reasons.containsKey("SEGMENT_EMPTY")) {
+            output.add("Segment files are broken or missing. Restart converter and inspect ffmpeg logs.");
+        }
+        if (reasons.containsKey("SEGMENT_CORRUPT")) {
+            output.add("Newest segment is not a valid transport stream. Check camera signal and ffmpeg errors; a partially written segment means the converter lost temp_file.");
+        }
+        if (reasons.containsKey("NO_KEYFRAME")) {
+            output.add("Newest segment has no keyframe. Set the camera/encoder GOP to at most the HLS segment duration.");
+        }
+        if (reasons.containsKey("MANIFEST_UNREADABLE")) {
+            output.add("Backend cannot read manifests. Check hls.path and directory ownership.");
+        }
+
+        if (output.isEmpty()) {
+            output.add("Stream check in progress. Wait a few seconds and refresh health.");
+        }
+        return new ArrayList<>(output);
+    }
+
+    /**
+     * {@code version} is the cursor for the streams the summary was built from.
+     */
+    public record SharedSystemHealth(
+            long version,
+            HlsStorageStatus hlsStorage,
+            StreamHealthSummary streams,
+            List<RawValue> streamDetails,
+            List<String> recommendations
+    ) {
+    }
+
+    public record HlsStorageStatus(
+            String path,
+            boolean exists,
+            boolean readable,
+            boolean writable,
+            long manifestCount,
+            long segmentCount,
+            String layout,
+            List<HlsStorageLayout.VolumeStatus> volumes,
+            Map<String, String> misplacedStreams
+    ) {
+        /**
+         * The same totals without the storage path and per-volume detail.
+         */
+        public HlsStorageStatus withoutLocations() {
+            return new HlsStorageStatus(null, exists, readable, writable, manifestCount, segmentCount, layout,
+                    List.of(), misplacedStreams);
+        }
+    }
+
+    public record StreamHealthSummary(
+            int total,
+            int live,
+            int starting,
+            int stale,
+            int offline,
+            int error,
+            Map<String, Long> reasons
+    ) {
+    }
+}
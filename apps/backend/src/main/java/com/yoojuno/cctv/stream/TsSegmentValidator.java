@@ -0,0 +1,296 @@
+package com.yoojuno.cctv.stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Structural check of the newest MPEG-TS segment (sync bytes, continuity, PAT/PMT, a video
+ * keyframe). Results are cached by file, size and mtime, so each segment is read once.
+ */
+@Component
+public class TsSegmentValidator {
+    static final int PACKET_BYTES = 188;
+    private static final int SYNC_BYTE = 0x47;
+    private static final int NULL_PID = 0x1FFF;
+    private static final int CACHE_ENTRIES = 4096;
+
+    private final Map<String, Result> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+            return size() > CACHE_ENTRIES;
+        }
+    };
+    private final LongAdder inspected = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Value("${streams.segment-validation.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${streams.segment-validation.max-bytes:1048576}")
+    private int maxBytes = 1_048_576;
+
+    @Value("${streams.segment-validation.max-continuity-errors:0}")
+    private int maxContinuityErrors;
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public Result validate(Path segment) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(segment, BasicFileAttributes.class);
+        String key = segment + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+        Result cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+        int length = (int) Math.min(attributes.size(), Math.max(PACKET_BYTES, maxBytes));
+        Result result;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            result = inspect(mapped, length == attributes.size());
+        }
+        return remember(key, result);
+    }
+
+    /**
+     * For segments that are not files (ingest store); {@code key} must change when the content does.
+     */
+    public Result validate(String key, byte[] bytes, boolean complete) {
+        Result cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+        return remember(key, inspect(ByteBuffer.wrap(bytes), complete));
+    }
+
+    public int maxBytes() {
+        return Math.max(PACKET_BYTES, maxBytes);
+    }
+
+    public ValidatorStats stats() {
+        return new ValidatorStats(inspected.sum(), cacheHits.sum(), failures.sum());
+    }
+
+    private Result cached(String key) {
+        synchronized (cache) {
+            Result result = cache.get(key);
+            if (result != null) {
+                cacheHits.increment();
+            }
+            return result;
+        }
+    }
+
+    private Result remember(String key, Result result) {
+        inspected.increment();
+        if (!result.ok()) {
+            failures.increment();
+        }
+        synchronized (cache) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * {@code complete} is false when only a prefix of the file is in {@code data}, in which case
+     * a trailing partial packet is expected rather than a sign of truncation.
+     */
+    Result inspect(ByteBuffer data, boolean complete) {
+        int length = data.limit();
+        if (length < PACKET_BYTES) {
+            return Result.corrupt("shorter than one packet", 0, 0);
+        }
+        if (complete && length % PACKET_BYTES != 0) {
+            return Result.corrupt("truncated packet (" + (length % PACKET_BYTES) + " trailing bytes)", length / PACKET_BYTES, 0);
+        }
+
+        int[] lastContinuity = new int[NULL_PID + 1];
+        Arrays.fill(lastContinuity, -1);
+        int[] pmtPids = new int[0];
+        int videoPid = -1;
+        int videoStreamType = 0;
+        boolean pat = false;
+        boolean pmt = false;
+        boolean keyframe = false;
+        int continuityErrors = 0;
+        int nalWindow = 0xFFFFFF;
+        int packets = length / PACKET_BYTES;
+
+        for (int packet = 0; packet < packets; packet++) {
+            int offset = packet * PACKET_BYTES;
+            if ((data.get(offset) & 0xff) != SYNC_BYTE) {
+                return Result.corrupt("sync byte missing at offset " + offset, packet, continuityErrors);
+            }
+            int header1 = data.get(offset + 1) & 0xff;
+            if ((header1 & 0x80) != 0) {
+                return Result.corrupt("transport error indicator at offset " + offset, packet, continuityErrors);
+            }
+            boolean unitStart = (header1 & 0x40) != 0;
+            int pid = ((header1 & 0x1f) << 8) | (data.get(offset + 2) & 0xff);
+            int header3 = data.get(offset + 3) & 0xff;
+            int adaptationControl = (header3 >> 4) & 0x3;
+            int continuity = header3 & 0x0f;
+            if (adaptationControl == 0) {
+                return Result.corrupt("reserved adaptation field control at offset " + offset, packet, continuityErrors);
+            }
+
+            int payloadStart = offset + 4;
+            boolean discontinuity = false;
+            if ((adaptationControl & 0x2) != 0) {
+                int adaptationLength = data.get(offset + 4) & 0xff;
+                if (adaptationLength > PACKET_BYTES - 5) {
+                    return Result.corrupt("adaptation field overruns packet at offset " + offset, packet, continuityErrors);
+                }
+                if (adaptationLength > 0) {
+                    int flags = data.get(offset + 5) & 0xff;
+                    discontinuity = (flags & 0x80) != 0;
+                    if (pid == videoPid && (flags & 0x40) != 0) {
+                        keyframe = true;
+                    }
+                }
+                payloadStart = offset + 5 + adaptationLength;
+            }
+            boolean hasPayload = (adaptationControl & 0x1) != 0 && payloadStart < offset + PACKET_BYTES;
+
+            if (pid != NULL_PID && (adaptationControl & 0x1) != 0) {
+                int last = lastContinuity[pid];
+                // A single repeated packet (same counter) is allowed by the spec.
+                if (last >= 0 && !discontinuity && continuity != last && continuity != ((last + 1) & 0x0f)) {
+                    continuityErrors++;
+                }
+                lastContinuity[pid] = continuity;
+            }
+            if (!hasPayload) {
+                continue;
+            }
+
+            int payloadEnd = offset + PACKET_BYTES;
+            if (pid == 0 && unitStart && !pat) {
+                pmtPids = parsePat(data, payloadStart, payloadEnd);
+                pat = pmtPids.length > 0;
+            } else if (unitStart && !pmt && contains(pmtPids, pid)) {
+                int[] video = parsePmtVideo(data, payloadStart, payloadEnd);
+                if (video != null) {
+                    pmt = true;
+                    videoPid = video[0];
+                    videoStreamType = video[1];
+                }
+            } else if (pid == videoPid && !keyframe) {
+                for (int i = payloadStart; i < payloadEnd && !keyframe; i++) {
+                    int value = data.get(i) & 0xff;
+                    if (nalWindow == 0x000001) {
+                        keyframe = isKeyframeStartCode(videoStreamType, value);
+                    }
+                    nalWindow = ((nalWindow << 8) | value) & 0xFFFFFF;
+                }
+            }
+        }
+
+        if (!pat) {
+            return Result.corrupt("no PAT", packets, continuityErrors);
+        }
+        if (!pmt) {
+            return Result.corrupt("no PMT with a video stream", packets, continuityErrors);
+        }
+        if (continuityErrors > maxContinuityErrors) {
+            return Result.corrupt(continuityErrors + " continuity counter errors", packets, continuityErrors);
+        }
+        if (!keyframe) {
+            return new Result(false, "NO_KEYFRAME", "no keyframe on PID " + videoPid, packets, continuityErrors);
+        }
+        return new Result(true, "OK", "", packets, continuityErrors);
+    }
+
+    /**
+     * PMT PIDs of all programs in the first PAT section.
+     */
+    private static int[] parsePat(ByteBuffer data, int start, int end) {
+        int section = start + 1 + (data.get(start) & 0xff);
+        if (section + 8 > end || (data.get(section) & 0xff) != 0x00) {
+            return new int[0];
+        }
+        int sectionEnd = Math.min(end, section + 3 + (((data.get(section + 1) & 0x0f) << 8) | (data.get(section + 2) & 0xff)) - 4);
+        int[] pids = new int[0];
+        for (int entry = section + 8; entry + 4 <= sectionEnd; entry += 4) {
+            int program = ((data.get(entry) & 0xff) << 8) | (data.get(entry + 1) & 0xff);
+            if (program != 0) {
+                pids = Arrays.copyOf(pids, pids.length + 1);
+                pids[pids.length - 1] = ((data.get(entry + 2) & 0x1f) << 8) | (data.get(entry + 3) & 0xff);
+            }
+        }
+        return pids;
+    }
+
+    /**
+     * {@code [pid, streamType]} of the first video elementary stream, or null.
+     */
+    private static int[] parsePmtVideo(ByteBuffer data, int start, int end) {
+        int section = start + 1 + (data.get(start) & 0xff);
+        if (section + 12 > end || (data.get(section) & 0xff) != 0x02) {
+            return null;
+        }
+        int sectionEnd = Math.min(end, section + 3 + (((data.get(section + 1) & 0x0f) << 8) | (data.get(section + 2) & 0xff)) - 4);
+        int programInfoLength = ((data.get(section + 10) & 0x0f) << 8) | (data.get(section + 11) & 0xff);
+        for (int entry = section + 12 + programInfoLength; entry + 5 <= sectionEnd; ) {
+            int streamType = data.get(entry) & 0xff;
+            int pid = ((data.get(entry + 1) & 0x1f) << 8) | (data.get(entry + 2) & 0xff);
+            int infoLength = ((data.get(entry + 3) & 0x0f) << 8) | (data.get(entry + 4) & 0xff);
+            if (isVideo(streamType)) {
+                return new int[]{pid, streamType};
+            }
+            entry += 5 + infoLength;
+        }
+        return null;
+    }
+
+    private static boolean isVideo(int streamType) {
+        return streamType == 0x01 || streamType == 0x02 || streamType == 0x10 || streamType == 0x1B || streamType == 0x24;
+    }
+
+    /**
+     * H.264 IDR (type 5), HEVC IRAP (types 16-21), MPEG-1/2 sequence header.
+     */
+    private static boolean isKeyframeStartCode(int streamType, int value) {
+        return switch (streamType) {
+            case 0x1B -> (value & 0x1f) == 5;
+            case 0x24 -> {
+                int type = (value >> 1) & 0x3f;
+                yield type >= 16 && type <= 21;
+            }
+            default -> value == 0xB3;
+        };
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public record Result(boolean ok, String reason, String detail, int packets, int continuityErrors) {
+        static Result corrupt(String detail, int packets, int continuityErrors) {
+            return new Result(false, "SEGMENT_CORRUPT", detail, packets, continuityErrors);
+        }
+    }
+
+    public record ValidatorStats(long inspected, long cacheHits, long failures) {
+    }
+}
@@ -0,0 +1,195 @@
+package com.yoojuno.cctv.stream;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Derives "who is watching" from HLS fetches. A viewer session is (stream, user, client id) and
+ * stays active while it keeps fetching manifests or segments within {@code presence.ttl-ms}.
+ *
+ * <p>Expiry uses a hashed timing wheel with lazy rescheduling: a new session is queued once in
+ * the slot of its expiry tick, and later fetches only bump {@code lastSeenMs}. When the wheel
+ * reaches the slot, sessions that were seen again are re-queued at their new expiry and the rest
+ * are dropped, so the request path is a map lookup plus a volatile write and nothing is scanned.
+ */
+@Component
+public class ViewerPresenceTracker {
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> viewersByStream = new ConcurrentHashMap<>();
+    // Bumped whenever a session appears or expires, so cached responses can key on it.
+    private final AtomicLong version = new AtomicLong();
+
+    @Value("${presence.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${presence.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${presence.max-sessions:100000}")
+    private int maxSessions;
+
+    private ConcurrentLinkedQueue<Session>[] wheel;
+    private volatile long processedTick;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void init() {
+        int slots = (int) (ttl() / tick()) + 2;
+        wheel = new ConcurrentLinkedQueue[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        processedTick = System.currentTimeMillis() / tick();
+    }
+
+    public void touch(String streamId, String username, String clientId) {
+        touch(streamId, username, clientId, System.currentTimeMillis());
+    }
+
+    void touch(String streamId, String username, String clientId, long nowMs) {
+        String key = streamId + '\n' + username + '\n' + clientId;
+        Session existing = sessions.get(key);
+        if (existing != null && !existing.expired) {
+            existing.lastSeenMs = nowMs;
+            return;
+        }
+        if (sessions.size() >= maxSessions) {
+            return;
+        }
+        Session created = new Session(key, streamId, username, clientId, nowMs);
+        Session raced = sessions.putIfAbsent(key, created);
+        if (raced != null) {
+            if (!raced.expired) {
+                raced.lastSeenMs = nowMs;
+                return;
+            }
+            if (!sessions.replace(key, raced, created)) {
+                return;
+            }
+        }
+        viewersByStream.computeIfAbsent(streamId, ignored -> new AtomicInteger()).incrementAndGet();
+        version.incrementAndGet();
+        schedule(created, nowMs + ttl());
+    }
+
+    @Scheduled(fixedRateString = "${presence.tick-ms:1000}")
+    public void advance() {
+        advance(System.currentTimeMillis());
+    }
+
+    void advance(long nowMs) {
+        long nowTick = nowMs / tick();
+        long from = Math.max(processedTick + 1, nowTick - wheel.length + 1);
+        for (long tick = from; tick <= nowTick; tick++) {
+            ConcurrentLinkedQueue<Session> slot = wheel[(int) (tick % wheel.length)];
+            Session session;
+            List<Session> later = new ArrayList<>();
+            while ((session = slot.poll()) != null) {
+                long expiresAtMs = session.lastSeenMs + ttl();
+                if (expiresAtMs > nowMs) {
+                    later.add(session);
+                } else {
+                    expire(session);
+                }
+            }
+            processedTick = tick;
+            for (Session pending : later) {
+                schedule(pending, pending.lastSeenMs + ttl());
+            }
+        }
+        processedTick = nowTick;
+    }
+
+    public int viewers(String streamId) {
+        AtomicInteger count = viewersByStream.get(streamId);
+        return count == null ? 0 : Math.max(0, count.get());
+    }
+
+    public Map<String, Integer> viewerCounts(Collection<String> streamIds) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String streamId : streamIds) {
+            counts.put(streamId, viewers(streamId));
+        }
+        return counts;
+    }
+
+    public List<ViewerSession> sessions(String streamId) {
+        List<ViewerSession> result = new ArrayList<>();
+        for (Session session : sessions.values()) {
+            if (session.streamId.equals(streamId) && !session.expired) {
+                result.add(new ViewerSession(session.username, session.clientId, session.firstSeenMs, session.lastSeenMs));
+            }
+        }
+        result.sort(Comparator.comparingLong(ViewerSession::firstSeenEpochMs));
+        return result;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public int activeSessions() {
+        return sessions.size();
+    }
+
+    private void schedule(Session session, long expiresAtMs) {
+        // Never schedule into a slot the wheel has already passed, nor more than one lap ahead.
+        long tick = Math.max(processedTick + 1, (expiresAtMs + tick() - 1) / tick());
+        tick = Math.min(tick, processedTick + wheel.length - 1);
+        wheel[(int) (tick % wheel.length)].add(session);
+    }
+
+    private void expire(Session session) {
+        session.expired = true;
+        if (sessions.remove(session.key, session)) {
+            AtomicInteger count = viewersByStream.get(session.streamId);
+            if (count != null) {
+                count.decrementAndGet();
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    private long ttl() {
+        return Math.max(tick(), ttlMs);
+    }
+
+    private long tick() {
+        return Math.max(10, tickMs);
+    }
+
+    private static final class Session {
+        private final String key;
+        private final String streamId;
+        private final String username;
+        private final String clientId;
+        private final long firstSeenMs;
+        private volatile long lastSeenMs;
+        private volatile boolean expired;
+
+        private Session(String key, String streamId, String username, String clientId, long nowMs) {
+            this.key = key;
+            this.streamId = streamId;
+            this.username = username;
+            this.clientId = clientId;
+            this.firstSeenMs = nowMs;
+            this.lastSeenMs = nowMs;
+        }
+    }
+
+    public record ViewerSession(String username, String clientId, long firstSeenEpochMs, long lastSeenEpochMs) {
+    }
+}
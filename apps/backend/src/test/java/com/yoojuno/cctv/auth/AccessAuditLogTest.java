@@ -0,0 +1,106 @@
+package com.yoojuno.cctv.auth;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessAuditLogTest {
+
+    @Test
+    void aggregatesRepeatedDenialsAndWritesJsonLines(@TempDir Path dir) throws Exception {
+        AccessAuditLog audit = newAuditLog(dir.toString(), 1024);
+
+        for (int i = 0; i < 500; i++) {
+            audit.denied("viewer", "vault", "/hls/vault.m3u8", "stream-not-allowed", "10.0.0.5");
+        }
+        audit.allowed("viewer", "lobby", "/hls/lobby.m3u8", false, "10.0.0.5");
+        audit.allowed("viewer", "lobby", "/hls/lobby_00001.ts", true, "10.0.0.5");
+        audit.drain();
+
+        List<AccessAuditLog.DenialSummary> denials = audit.recentDenials(10);
+        assertThat(denials).hasSize(1);
+        assertThat(denials.get(0).count()).isEqualTo(500);
+        assertThat(denials.get(0).streamId()).isEqualTo("vault");
+
+        List<String> lines;
+        try (Stream<Path> files = Files.list(dir)) {
+            Path file = files.findFirst().orElseThrow();
+            lines = Files.readAllLines(file);
+        }
+        // One line for the first denial and one for the allowed manifest; segments are not audited by default.
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"DENY\"").contains("vault");
+        assertThat(lines.get(1)).contains("\"ALLOW\"").contains("lobby.m3u8");
+        assertThat(audit.stats().suppressed()).isEqualTo(499);
+        audit.stop();
+    }
+
+    @Test
+    void dropsInsteadOfBlockingWhenRingIsFull() {
+        AccessAuditLog audit = newAuditLog("", 16);
+
+        for (int i = 0; i < 40; i++) {
+            audit.denied("user" + i, "vault", "/hls/vault.m3u8", "stream-not-allowed", "10.0.0.5");
+        }
+
+        assertThat(audit.stats().dropped()).isEqualTo(24);
+        audit.drain();
+        assertThat(audit.recentDenials(100)).hasSize(16);
+        assertThat(audit.stats().queued()).isZero();
+    }
+
+    @Test
+    void groupsUnauthenticatedDenialsPerAddressAndBoundsOpenWindows() {
+        AccessAuditLog audit = newAuditLog("", 1024);
+        ReflectionTestUtils.setField(audit, "maxOpenDenials", 3);
+
+        for (int i = 0; i < 200; i++) {
+            audit.denied(null, "probe" + i, "/hls/probe" + i + ".m3u8", "unauthenticated", "203.0.113.7");
+        }
+        for (int i = 0; i < 10; i++) {
+            audit.denied("user" + i, "vault", "/hls/vault.m3u8", "stream-not-allowed", "10.0.0.5");
+        }
+        audit.drain();
+
+        // Three open windows (newest first), then the ones closed early to make room for them.
+        List<AccessAuditLog.DenialSummary> denials = audit.recentDenials(100);
+        assertThat(denials).extracting(AccessAuditLog.DenialSummary::username).containsExactly(
+                "user9", "user8", "user7", "user6", "user5", "user4", "user3", "user2", "user1", "user0", null);
+        AccessAuditLog.DenialSummary anonymous = denials.get(denials.size() - 1);
+        assertThat(anonymous.count()).isEqualTo(200);
+        assertThat(anonymous.streamId()).isEqualTo("*");
+        assertThat(audit.stats().suppressed()).isEqualTo(199);
+    }
+
+    @Test
+    void countsFileBytesInUtf8() {
+        assertThat(AccessAuditLog.utf8Length("cam")).isEqualTo(3);
+        assertThat(AccessAuditLog.utf8Length("\uC815\uBB38")).isEqualTo(6);
+        assertThat(AccessAuditLog.utf8Length("\uD83D\uDCF7")).isEqualTo(4);
+    }
+
+    private static AccessAuditLog newAuditLog(String dir, int capacity) {
+        AccessAuditLog audit = new AccessAuditLog(new ObjectMapper());
+        ReflectionTestUtils.setField(audit, "enabled", true);
+        ReflectionTestUtils.setField(audit, "auditDir", dir);
+        ReflectionTestUtils.setField(audit, "allowedPolicy", "manifests");
+        ReflectionTestUtils.setField(audit, "ringCapacity", capacity);
+        // Drain manually in tests.
+        ReflectionTestUtils.setField(audit, "drainIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(audit, "denialWindowMs", 60_000L);
+        ReflectionTestUtils.setField(audit, "recentDenials", 500);
+        ReflectionTestUtils.setField(audit, "maxOpenDenials", 10_000);
+        ReflectionTestUtils.setField(audit, "maxFileBytes", 1_048_576L);
+        ReflectionTestUtils.setField(audit, "maxFiles", 5);
+        audit.start();
+        return audit;
+    }
+}
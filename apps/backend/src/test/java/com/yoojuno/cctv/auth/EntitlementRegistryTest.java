@@ -0,0 +1,77 @@
+package com.yoojuno.cctv.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntitlementRegistryTest {
+
+    @Test
+    void sharesOneSetPerPermissionSetWhateverItsSize() {
+        Set<String> many = new LinkedHashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            many.add("cam" + i);
+        }
+        String cameras = String.join(",", many);
+        EntitlementRegistry registry = new EntitlementRegistry(users(
+                "viewer:{plain}viewer123:" + cameras + ";guard:{plain}guard123:" + cameras));
+
+        List<String> reversed = new ArrayList<>(many);
+        Collections.reverse(reversed);
+
+        String id = registry.intern(many);
+        String reordered = registry.intern(new LinkedHashSet<>(reversed));
+
+        assertThat(id).hasSize(16).isEqualTo(reordered);
+        assertThat(registry.intern(Set.of("cam1"))).isNotEqualTo(id);
+        Set<String> resolved = registry.resolve("viewer", id).orElseThrow();
+        assertThat(resolved).hasSize(1000).contains("cam999");
+        assertThat(registry.resolve("guard", id).orElseThrow()).isSameAs(resolved);
+    }
+
+    @Test
+    void knownIdsStillResolveOnlyForUsersWhoCurrentlyHoldThatSet() {
+        UserAccountService users = users("viewer:{plain}viewer123:lobby;guard:{plain}guard123:lobby,vault");
+        EntitlementRegistry registry = new EntitlementRegistry(users);
+        String guardSet = registry.intern(Set.of("lobby", "vault"));
+
+        assertThat(registry.resolve("guard", guardSet)).isPresent();
+        assertThat(registry.resolve("viewer", guardSet)).isEmpty();
+        assertThat(registry.resolve("nobody", guardSet)).isEmpty();
+
+        ReflectionTestUtils.setField(users, "usersRaw", "viewer:{plain}viewer123:lobby;guard:{plain}guard123:lobby");
+        users.load();
+        assertThat(registry.resolve("guard", guardSet)).isEmpty();
+    }
+
+    @Test
+    void recoversUnknownIdsFromTheUserDirectoryOnlyWhilePermissionsMatch() {
+        UserAccountService users = users("viewer:{plain}viewer123:lobby,garage");
+        String issued = new EntitlementRegistry(users).intern(Set.of("garage", "lobby"));
+
+        // A fresh registry (restart, another node) has never seen the id.
+        EntitlementRegistry restarted = new EntitlementRegistry(users);
+        assertThat(restarted.resolve("viewer", issued)).hasValueSatisfying(
+                streams -> assertThat(streams).containsExactlyInAnyOrder("lobby", "garage"));
+        assertThat(restarted.resolve("nobody", new EntitlementRegistry(users).intern(Set.of("vault")))).isEmpty();
+
+        EntitlementRegistry changed = new EntitlementRegistry(users("viewer:{plain}viewer123:lobby"));
+        assertThat(changed.resolve("viewer", issued)).isEmpty();
+    }
+
+    private static UserAccountService users(String directory) {
+        UserAccountService service = new UserAccountService(new BCryptPasswordEncoder(), new PasswordVerifier());
+        ReflectionTestUtils.setField(service, "usersRaw", directory);
+        ReflectionTestUtils.setField(service, "usersFile", "");
+        service.load();
+        return service;
+    }
+}
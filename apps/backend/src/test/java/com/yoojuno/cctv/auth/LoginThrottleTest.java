@@ -0,0 +1,49 @@
+package com.yoojuno.cctv.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginThrottleTest {
+
+    @Test
+    void blocksAccountAfterRepeatedFailuresUntilSuccessResetsIt() {
+        LoginThrottle throttle = newThrottle(3, 100);
+
+        for (int i = 0; i < 3; i++) {
+            throttle.check("viewer", "10.0.0." + i);
+            throttle.recordFailure("viewer", "10.0.0." + i);
+        }
+
+        assertThatThrownBy(() -> throttle.check("Viewer", "10.0.0.9"))
+                .isInstanceOfSatisfying(LoginRejectedException.class, e -> {
+                    assertThat(e.status()).isEqualTo(429);
+                    assertThat(e.retryAfterSeconds()).isBetween(1L, 60L);
+                });
+        assertThatCode(() -> throttle.check("admin", "10.0.0.9")).doesNotThrowAnyException();
+
+        throttle.recordSuccess("viewer");
+        assertThatCode(() -> throttle.check("viewer", "10.0.0.9")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void blocksAddressAcrossAccounts() {
+        LoginThrottle throttle = newThrottle(100, 2);
+        throttle.recordFailure("a", "192.168.1.5");
+        throttle.recordFailure("b", "192.168.1.5");
+
+        assertThatThrownBy(() -> throttle.check("c", "192.168.1.5")).isInstanceOf(LoginRejectedException.class);
+        assertThatCode(() -> throttle.check("c", "192.168.1.6")).doesNotThrowAnyException();
+    }
+
+    private static LoginThrottle newThrottle(int perAccount, int perIp) {
+        LoginThrottle throttle = new LoginThrottle();
+        ReflectionTestUtils.setField(throttle, "windowSeconds", 60L);
+        ReflectionTestUtils.setField(throttle, "maxFailuresPerAccount", perAccount);
+        ReflectionTestUtils.setField(throttle, "maxFailuresPerIp", perIp);
+        return throttle;
+    }
+}
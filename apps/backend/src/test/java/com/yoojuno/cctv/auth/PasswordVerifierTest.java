@@ -0,0 +1,76 @@
+package com.yoojuno.cctv.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordVerifierTest {
+
+    @Test
+    void completesWithTheCheckResultOffTheCallingThread() throws Exception {
+        PasswordVerifier verifier = newVerifier(1, 1, 5000);
+        try {
+            String caller = Thread.currentThread().getName();
+            CompletableFuture<Boolean> result = verifier.verify(() -> !Thread.currentThread().getName().equals(caller));
+
+            assertThat(result.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(verifier.stats().verified()).isEqualTo(1);
+        } finally {
+            verifier.stop();
+        }
+    }
+
+    @Test
+    void rejectsImmediatelyWhenQueueIsFull() throws Exception {
+        PasswordVerifier verifier = newVerifier(1, 1, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            verifier.verify(() -> release.await(5, TimeUnit.SECONDS));
+            while (verifier.stats().active() < 1) {
+                Thread.sleep(5);
+            }
+            verifier.verify(() -> true);
+
+            CompletableFuture<Boolean> rejected = verifier.verify(() -> true);
+
+            assertThat(rejected).isCompletedExceptionally();
+            assertThatThrownBy(rejected::join).cause()
+                    .isInstanceOfSatisfying(LoginRejectedException.class, e -> assertThat(e.status()).isEqualTo(503));
+            assertThat(verifier.stats().rejected()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            verifier.stop();
+        }
+    }
+
+    @Test
+    void rejectsChecksThatOutliveTheTimeout() {
+        PasswordVerifier verifier = newVerifier(1, 1, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> result = verifier.verify(() -> release.await(5, TimeUnit.SECONDS));
+
+            assertThatThrownBy(result::join).cause()
+                    .isInstanceOfSatisfying(LoginRejectedException.class, e -> assertThat(e.status()).isEqualTo(503));
+            assertThat(verifier.stats().timedOut()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            verifier.stop();
+        }
+    }
+
+    private static PasswordVerifier newVerifier(int threads, int queue, long timeoutMs) {
+        PasswordVerifier verifier = new PasswordVerifier();
+        ReflectionTestUtils.setField(verifier, "verifyThreads", threads);
+        ReflectionTestUtils.setField(verifier, "verifyQueue", queue);
+        ReflectionTestUtils.setField(verifier, "verifyTimeoutMs", timeoutMs);
+        verifier.start();
+        return verifier;
+    }
+}
@@ -0,0 +1,57 @@
+package com.yoojuno.cctv.auth;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshTokenServiceTest {
+
+    @Test
+    void reuseOfRotatedTokenOutsideGraceRevokesFamily() {
+        RefreshTokenService service = newService(null, 0);
+        String first = service.issue("viewer");
+
+        RefreshTokenService.Rotation second = service.rotate(first).orElseThrow();
+        assertThat(second.username()).isEqualTo("viewer");
+
+        assertThat(service.rotate(first)).isEmpty();
+        assertThat(service.rotate(second.token())).isEmpty();
+    }
+
+    @Test
+    void concurrentRefreshWithinGraceIsAccepted() {
+        RefreshTokenService service = newService(null, 30);
+        String token = service.issue("wall-display");
+
+        assertThat(service.rotate(token)).isPresent();
+        assertThat(service.rotate(token)).isPresent();
+    }
+
+    @Test
+    void persistsOnlyHashesAndReloadsSessions(@TempDir Path dir) throws Exception {
+        Path store = dir.resolve("refresh.tsv");
+        RefreshTokenService service = newService(store, 10);
+        String token = service.issue("admin");
+        service.maintain();
+
+        assertThat(Files.readString(store)).contains("admin").doesNotContain(token);
+
+        RefreshTokenService restarted = newService(store, 10);
+        restarted.load();
+        assertThat(restarted.rotate(token)).map(RefreshTokenService.Rotation::username).contains("admin");
+    }
+
+    private static RefreshTokenService newService(Path store, long graceSeconds) {
+        RefreshTokenService service = new RefreshTokenService();
+        ReflectionTestUtils.setField(service, "expirationSeconds", 3600L);
+        ReflectionTestUtils.setField(service, "reuseGraceSeconds", graceSeconds);
+        ReflectionTestUtils.setField(service, "reuseDetectionSeconds", 86400L);
+        ReflectionTestUtils.setField(service, "storeFile", store == null ? "" : store.toString());
+        return service;
+    }
+}
@@ -13,4 +13,13 @@ class StreamPathParsingTest {
         assertThat(StreamAccessFilter.extractStreamId("/hls/sub/path/camera-a_00123.m4s")).isEqualTo("camera-a_00123");
         assertThat(StreamAccessFilter.extractStreamId("/hls/cam_01.m3u8")).isEqualTo("cam_01");
     }
+
+    @Test
+    void accountsSegmentsToTheirStream() {
+        assertThat(StreamAccessFilter.accountingStreamId("/hls/cam_01_00012.ts", "cam_01_00012")).isEqualTo("cam_01");
+        assertThat(StreamAccessFilter.accountingStreamId("/hls/cam_01.m3u8", "cam_01")).isEqualTo("cam_01");
+        assertThat(StreamAccessFilter.accountingStreamId("/hls/cam_01_rewind.m3u8", "cam_01_rewind")).isEqualTo("cam_01");
+        assertThat(StreamAccessFilter.accountingStreamId("/hls/cam_01_rewind_1760870400000.ts", "cam_01_rewind_1760870400000"))
+                .isEqualTo("cam_01");
+    }
 }
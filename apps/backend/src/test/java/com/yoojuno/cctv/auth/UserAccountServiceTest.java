@@ -0,0 +1,55 @@
+package com.yoojuno.cctv.auth;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserAccountServiceTest {
+
+    @Test
+    void reloadsUsersFileAndKeepsDirectoryWhenFileIsInvalid(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("users.conf");
+        Files.writeString(file, "# operators\nadmin:{plain}admin123:*\n");
+        UserAccountService service = new UserAccountService(new BCryptPasswordEncoder(), new PasswordVerifier());
+        ReflectionTestUtils.setField(service, "usersRaw", "");
+        ReflectionTestUtils.setField(service, "usersFile", file.toString());
+        service.load();
+
+        assertThat(service.authenticate("admin", "admin123").join()).isPresent();
+        assertThat(service.authenticate("viewer", "viewer123").join()).isEmpty();
+
+        Files.writeString(file, "admin:{plain}admin123:*\nviewer:{plain}viewer123:mystream\n");
+        touch(file, 5_000);
+        service.reloadIfChanged();
+        assertThat(service.authenticate("viewer", "viewer123").join())
+                .hasValueSatisfying(user -> assertThat(user.allowedStreams()).containsExactly("mystream"));
+
+        Files.writeString(file, "not-a-user-entry\n");
+        touch(file, 10_000);
+        service.reloadIfChanged();
+        assertThat(service.userCount()).isEqualTo(2);
+        assertThat(service.authenticate("viewer", "viewer123").join()).isPresent();
+
+        Files.writeString(file, "admin:{plain}admin123:*\nviewer:{plain}vie");
+        touch(file, 15_000);
+        service.reloadIfChanged();
+        assertThat(service.userCount()).isEqualTo(2);
+
+        Files.writeString(file, "");
+        touch(file, 20_000);
+        service.reloadIfChanged();
+        assertThat(service.userCount()).isEqualTo(2);
+        assertThat(service.authenticate("viewer", "viewer123").join()).isPresent();
+    }
+
+    private static void touch(Path file, long offsetMs) throws Exception {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + offsetMs));
+    }
+}
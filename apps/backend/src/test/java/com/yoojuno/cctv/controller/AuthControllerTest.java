@@ -4,10 +4,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import static com.yoojuno.cctv.controller.LoginRequests.login;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -33,9 +33,7 @@ class AuthControllerTest {
                 }
                 """;
 
-        mockMvc.perform(post("/api/auth/login")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(body))
+        mockMvc.perform(login(mockMvc, body))
                 .andExpect(status().isOk())
                 .andExpect(header().string("Set-Cookie", org.hamcrest.Matchers.containsString("CCTV_AUTH=")))
                 .andExpect(header().string("Set-Cookie", org.hamcrest.Matchers.containsString("HttpOnly")))
@@ -58,9 +56,7 @@ class AuthControllerTest {
                 }
                 """;
 
-        MvcResult loginResult = mockMvc.perform(post("/api/auth/login")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(body))
+        MvcResult loginResult = mockMvc.perform(login(mockMvc, body))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -82,9 +78,7 @@ class AuthControllerTest {
                 }
                 """;
 
-        MvcResult loginResult = mockMvc.perform(post("/api/auth/login")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(body))
+        MvcResult loginResult = mockMvc.perform(login(mockMvc, body))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -102,6 +96,81 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.generatedAtEpochMs").isNumber());
     }
 
+    @Test
+    void streamHealthSupportsConditionalAndDeltaRequests() throws Exception {
+        String body = """
+                {
+                  "username": "viewer",
+                  "password": "viewer123"
+                }
+                """;
+
+        MvcResult loginResult = mockMvc.perform(login(mockMvc, body))
+                .andExpect(status().isOk())
+                .andReturn();
+        jakarta.servlet.http.Cookie authCookie = loginResult.getResponse().getCookie("CCTV_AUTH");
+
+        MvcResult first = mockMvc.perform(get("/api/streams/health")
+                        .cookie(authCookie))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.version").isNumber())
+                .andExpect(jsonPath("$.delta").value(false))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        long version = com.jayway.jsonpath.JsonPath.parse(first.getResponse().getContentAsString())
+                .read("$.version", Long.class);
+
+        mockMvc.perform(get("/api/streams/health")
+                        .cookie(authCookie)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/api/streams/health")
+                        .param("since", Long.toString(version))
+                        .cookie(authCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.delta").value(true))
+                .andExpect(jsonPath("$.streams").isEmpty());
+    }
+
+    @Test
+    void refreshRotatesTokenAndRejectsReuseAndLoggedOutTokens() throws Exception {
+        String body = """
+                {
+                  "username": "viewer",
+                  "password": "viewer123"
+                }
+                """;
+
+        MvcResult loginResult = mockMvc.perform(login(mockMvc, body))
+                .andExpect(status().isOk())
+                .andReturn();
+        jakarta.servlet.http.Cookie firstRefresh = loginResult.getResponse().getCookie("CCTV_REFRESH");
+        org.assertj.core.api.Assertions.assertThat(firstRefresh).isNotNull();
+        org.assertj.core.api.Assertions.assertThat(firstRefresh.getPath()).isEqualTo("/api/auth");
+
+        MvcResult refreshResult = mockMvc.perform(post("/api/auth/refresh").cookie(firstRefresh))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("viewer"))
+                .andReturn();
+        jakarta.servlet.http.Cookie renewedAccess = refreshResult.getResponse().getCookie("CCTV_AUTH");
+        jakarta.servlet.http.Cookie secondRefresh = refreshResult.getResponse().getCookie("CCTV_REFRESH");
+        org.assertj.core.api.Assertions.assertThat(secondRefresh.getValue()).isNotEqualTo(firstRefresh.getValue());
+
+        mockMvc.perform(get("/api/auth/me").cookie(renewedAccess))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expiresInSeconds", org.hamcrest.Matchers.allOf(
+                        org.hamcrest.Matchers.greaterThan(3500), org.hamcrest.Matchers.lessThanOrEqualTo(3600))));
+
+        mockMvc.perform(post("/api/auth/logout").cookie(secondRefresh))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/auth/refresh").cookie(secondRefresh))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/auth/refresh"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void logoutClearsAuthCookie() throws Exception {
         mockMvc.perform(post("/api/auth/logout"))
@@ -0,0 +1,84 @@
+package com.yoojuno.cctv.controller;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "auth.jwt.secret=test-jwt-secret-should-be-32-bytes-minimum",
+        "auth.users=admin:{plain}admin123:*;viewer:{plain}viewer123:mystream"
+})
+@AutoConfigureMockMvc
+class DashboardControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void requiresAuthentication() throws Exception {
+        mockMvc.perform(get("/api/dashboard"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void returnsIdentityStreamsHealthAndStorageInOneResponse() throws Exception {
+        mockMvc.perform(get("/api/dashboard")
+                        .cookie(login("viewer", "viewer123")))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.username").value("viewer"))
+                .andExpect(jsonPath("$.expiresInSeconds").isNumber())
+                .andExpect(jsonPath("$.streams[0].id").value("mystream"))
+                .andExpect(jsonPath("$.viewers").isMap())
+                .andExpect(jsonPath("$.health").isArray())
+                .andExpect(jsonPath("$.recommendedPollMs").isNumber())
+                .andExpect(jsonPath("$.version").isNumber())
+                .andExpect(jsonPath("$.summary.total").value(1))
+                .andExpect(jsonPath("$.storage.exists").isBoolean())
+                .andExpect(jsonPath("$.storage.volumes").isNumber())
+                .andExpect(jsonPath("$.recommendations").isArray());
+    }
+
+    @Test
+    void unchangedReloadIsNotModified() throws Exception {
+        Cookie authCookie = login("admin", "admin123");
+        String etag = mockMvc.perform(get("/api/dashboard").cookie(authCookie))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/dashboard")
+                        .cookie(authCookie)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    private Cookie login(String username, String password) throws Exception {
+        String body = """
+                {
+                  "username": "%s",
+                  "password": "%s"
+                }
+                """.formatted(username, password);
+
+        MvcResult loginResult = mockMvc.perform(LoginRequests.login(mockMvc, body))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Cookie authCookie = loginResult.getResponse().getCookie("CCTV_AUTH");
+        assertThat(authCookie).isNotNull();
+        return authCookie;
+    }
+}
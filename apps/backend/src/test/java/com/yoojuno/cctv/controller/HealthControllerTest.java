@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -12,7 +13,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @SpringBootTest(properties = {
         "auth.jwt.secret=test-jwt-secret-should-be-32-bytes-minimum",
-        "auth.users=admin:{plain}admin123:*;viewer:{plain}viewer123:mystream"
+        "auth.users=admin:{plain}admin123:*;viewer:{plain}viewer123:mystream",
+        "metrics.scrape-token=test-scrape-token"
 })
 @AutoConfigureMockMvc
 class HealthControllerTest {
@@ -29,4 +31,14 @@ class HealthControllerTest {
                 .andExpect(jsonPath("$.hlsReadable").isBoolean())
                 .andExpect(jsonPath("$.hlsWritable").isBoolean());
     }
+
+    @Test
+    void prometheusRequiresScrapeToken() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer wrong-token"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer test-scrape-token"))
+                .andExpect(status().isOk());
+    }
 }
@@ -0,0 +1,27 @@
+package com.yoojuno.cctv.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Login completes asynchronously once the password check has run, so tests dispatch the
+ * async result before asserting on it.
+ */
+public final class LoginRequests {
+
+    private LoginRequests() {
+    }
+
+    public static RequestBuilder login(MockMvc mockMvc, String body) throws Exception {
+        return asyncDispatch(mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn());
+    }
+}
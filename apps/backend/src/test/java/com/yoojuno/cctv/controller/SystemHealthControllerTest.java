@@ -5,13 +5,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
-import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -41,6 +39,7 @@ class SystemHealthControllerTest {
                 .andExpect(jsonPath("$.generatedAtEpochMs").isNumber())
                 .andExpect(jsonPath("$.username").value("admin"))
                 .andExpect(jsonPath("$.hlsStorage.path").isString())
+                .andExpect(jsonPath("$.hlsStorage.volumes").isNotEmpty())
                 .andExpect(jsonPath("$.hlsStorage.exists").isBoolean())
                 .andExpect(jsonPath("$.streams.total").isNumber())
                 .andExpect(jsonPath("$.streams.reasons").isMap())
@@ -48,6 +47,31 @@ class SystemHealthControllerTest {
                 .andExpect(jsonPath("$.recommendations").isArray());
     }
 
+    @Test
+    void hidesStorageLocationsFromNonAdmins() throws Exception {
+        mockMvc.perform(get("/api/system/health")
+                        .cookie(login("viewer", "viewer123")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hlsStorage.path").doesNotExist())
+                .andExpect(jsonPath("$.hlsStorage.volumes").isEmpty())
+                .andExpect(jsonPath("$.hlsStorage.exists").isBoolean());
+    }
+
+    @Test
+    void trafficIsRestrictedToAdmins() throws Exception {
+        mockMvc.perform(get("/api/system/traffic")
+                        .cookie(login("viewer", "viewer123")))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/api/system/traffic")
+                        .param("top", "10")
+                        .cookie(login("admin", "admin123")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalBytes").isNumber())
+                .andExpect(jsonPath("$.streams").isArray())
+                .andExpect(jsonPath("$.users").isArray());
+    }
+
     private Cookie login(String username, String password) throws Exception {
         String body = """
                 {
@@ -56,9 +80,7 @@ class SystemHealthControllerTest {
                 }
                 """.formatted(username, password);
 
-        MvcResult loginResult = mockMvc.perform(post("/api/auth/login")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(body))
+        MvcResult loginResult = mockMvc.perform(LoginRequests.login(mockMvc, body))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -0,0 +1,38 @@
+package com.yoojuno.cctv.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestMetricsFilterTest {
+
+    @Test
+    void classifiesEndpointsAndStatusFamilies() {
+        assertThat(RequestMetricsFilter.endpointClass("/hls/lobby.m3u8")).isZero();
+        assertThat(RequestMetricsFilter.endpointClass("/hls/lobby_12.ts")).isEqualTo(1);
+        assertThat(RequestMetricsFilter.endpointClass("/api/streams")).isEqualTo(2);
+        assertThat(RequestMetricsFilter.endpointClass("/actuator/prometheus")).isEqualTo(3);
+        assertThat(RequestMetricsFilter.statusFamily(206)).isEqualTo(1);
+        assertThat(RequestMetricsFilter.statusFamily(429)).isEqualTo(3);
+        assertThat(RequestMetricsFilter.statusFamily(0)).isZero();
+    }
+
+    @Test
+    void recordsIntoTheMatchingTimer() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RequestMetricsFilter filter = new RequestMetricsFilter(registry);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(404);
+        filter.doFilter(new MockHttpServletRequest("GET", "/hls/lobby_3.ts"), response, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/streams"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(registry.get("cctv.http.requests").tags("class", "segment", "status", "4xx").timer().count()).isEqualTo(1);
+        assertThat(registry.get("cctv.http.requests").tags("class", "api", "status", "2xx").timer().count()).isEqualTo(1);
+        assertThat(registry.get("cctv.http.requests").tags("class", "manifest", "status", "2xx").timer().count()).isZero();
+    }
+}
@@ -0,0 +1,87 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BandwidthShaperTest {
+
+    @Test
+    void throttlesHeavyUserWithoutAffectingOthers() {
+        BandwidthShaper shaper = newShaper(0, 1_000_000, 1.0, 0);
+
+        BandwidthShaper.Admission first = shaper.admit("wall", "lobby");
+        assertThat(first.admitted()).isTrue();
+        shaper.complete(first, 5_000_000);
+
+        BandwidthShaper.Admission refused = shaper.admit("wall", "yard");
+        assertThat(refused.admitted()).isFalse();
+        assertThat(refused.retryAfterSeconds()).isBetween(3L, 5L);
+
+        assertThat(shaper.admit("operator", "lobby").admitted()).isTrue();
+        assertThat(shaper.stats().rejectedBandwidth()).isEqualTo(1);
+    }
+
+    @Test
+    void globalBudgetAppliesAcrossUsers() {
+        BandwidthShaper shaper = newShaper(1_000_000, 0, 1.0, 0);
+        shaper.complete(shaper.admit("a", "lobby"), 3_000_000);
+
+        assertThat(shaper.admit("b", "yard").admitted()).isFalse();
+    }
+
+    @Test
+    void refusesOnlyTheLargestGlobalShareWhileTheBudgetIsSlightlyOverdrawn() {
+        BandwidthShaper shaper = newShaper(1_000_000, 0, 1.0, 0);
+        shaper.complete(shaper.admit("heavy", "lobby"), 1_200_000);
+        shaper.complete(shaper.admit("light", "yard"), 300_000);
+
+        assertThat(shaper.admit("heavy", "lobby").admitted()).isFalse();
+        assertThat(shaper.admit("light", "yard").admitted()).isTrue();
+    }
+
+    @Test
+    void reservesTheExpectedSegmentSizeWhileDownloadsAreInFlight() {
+        BandwidthShaper shaper = newShaper(0, 1_000_000, 1.0, 0);
+        shaper.complete(shaper.admit("viewer", "lobby"), 600_000);
+
+        BandwidthShaper.Admission inFlight = shaper.admit("viewer", "lobby");
+        assertThat(inFlight.admitted()).isTrue();
+        assertThat(shaper.admit("viewer", "lobby").admitted()).isFalse();
+
+        BandwidthShaper refunded = newShaper(0, 1_000_000, 1.0, 0);
+        refunded.complete(refunded.admit("viewer", "lobby"), 600_000);
+        refunded.complete(refunded.admit("viewer", "lobby"), 0);
+        assertThat(refunded.admit("viewer", "lobby").admitted()).isTrue();
+    }
+
+    @Test
+    void limitsConcurrentSegmentDownloadsPerUser() {
+        BandwidthShaper shaper = newShaper(0, 0, 1.0, 2);
+
+        BandwidthShaper.Admission first = shaper.admit("viewer", "lobby");
+        BandwidthShaper.Admission second = shaper.admit("viewer", "lobby");
+        BandwidthShaper.Admission third = shaper.admit("viewer", "lobby");
+
+        assertThat(first.admitted()).isTrue();
+        assertThat(second.admitted()).isTrue();
+        assertThat(third.admitted()).isFalse();
+        assertThat(third.retryAfterSeconds()).isEqualTo(1);
+        assertThat(shaper.admit("admin", "lobby").admitted()).isTrue();
+
+        shaper.complete(first, 1_000);
+        assertThat(shaper.admit("viewer", "lobby").admitted()).isTrue();
+    }
+
+    private static BandwidthShaper newShaper(long global, long perUser, double burstSeconds, int maxConcurrent) {
+        BandwidthShaper shaper = new BandwidthShaper();
+        ReflectionTestUtils.setField(shaper, "enabled", true);
+        ReflectionTestUtils.setField(shaper, "globalBytesPerSecond", global);
+        ReflectionTestUtils.setField(shaper, "userBytesPerSecond", perUser);
+        ReflectionTestUtils.setField(shaper, "streamBytesPerSecond", 0L);
+        ReflectionTestUtils.setField(shaper, "burstSeconds", burstSeconds);
+        ReflectionTestUtils.setField(shaper, "userMaxConcurrentSegments", maxConcurrent);
+        return shaper;
+    }
+}
@@ -0,0 +1,137 @@
+package com.yoojuno.cctv.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EdgeSegmentCacheTest {
+    private final AtomicInteger originRequests = new AtomicInteger();
+    private volatile String playlist = "#EXTM3U\n#EXT-X-MEDIA-SEQUENCE:1\n";
+    private HttpServer origin;
+
+    @BeforeEach
+    void startOrigin() throws Exception {
+        origin = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        origin.createContext("/hls/", exchange -> {
+            originRequests.incrementAndGet();
+            String name = exchange.getRequestURI().getPath().substring("/hls/".length());
+            if (!name.startsWith("lobby")) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = name.endsWith(".m3u8") ? playlist.getBytes(StandardCharsets.UTF_8) : new byte[50_000];
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        origin.setExecutor(Executors.newCachedThreadPool());
+        origin.start();
+    }
+
+    @AfterEach
+    void stopOrigin() {
+        origin.stop(0);
+    }
+
+    @Test
+    void coalescesConcurrentMissesIntoOneOriginFetch() throws Exception {
+        EdgeSegmentCache cache = newCache();
+        ExecutorService viewers = Executors.newFixedThreadPool(20);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EdgeSegmentCache.EdgeObject>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(viewers.submit(() -> {
+                start.await();
+                return cache.get("lobby_00001.ts");
+            }));
+        }
+        start.countDown();
+        for (Future<EdgeSegmentCache.EdgeObject> result : results) {
+            assertThat(result.get().body()).hasSize(50_000);
+        }
+        viewers.shutdown();
+
+        assertThat(cache.get("lobby_00001.ts").body()).hasSize(50_000);
+        assertThat(originRequests.get()).isEqualTo(1);
+        EdgeSegmentCache.EdgeStats stats = cache.stats();
+        assertThat(stats.coalescedWaits() + stats.memoryHits()).isEqualTo(20);
+        assertThat(stats.byteOffloadRatio()).isGreaterThan(0.9);
+    }
+
+    @Test
+    void remembersOriginMissesBriefly() throws Exception {
+        EdgeSegmentCache cache = newCache();
+
+        assertThat(cache.get("vault_00001.ts")).isNull();
+        assertThat(cache.get("vault_00001.ts")).isNull();
+        assertThat(originRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void servesHealthFromTheCacheAndDatesPlaylistsByObservedChanges() throws Exception {
+        EdgeSegmentCache cache = newCache();
+        ReflectionTestUtils.setField(cache, "manifestTtlMs", 50L);
+
+        assertThat(cache.cachedManifest("lobby")).isNull();
+        EdgeSegmentCache.EdgeObject first = awaitManifest(cache, 0);
+        assertThat(first.lastModifiedEpochMs()).isZero();
+
+        long before = System.currentTimeMillis();
+        playlist = "#EXTM3U\n#EXT-X-MEDIA-SEQUENCE:2\n";
+        EdgeSegmentCache.EdgeObject changed = awaitManifest(cache, 1);
+        assertThat(changed.lastModifiedEpochMs()).isGreaterThanOrEqualTo(before);
+
+        assertThat(cache.cachedManifest("vault")).isNull();
+        Thread.sleep(400);
+        assertThat(cache.originMissing("vault")).isTrue();
+        cache.stop();
+    }
+
+    private EdgeSegmentCache.EdgeObject awaitManifest(EdgeSegmentCache cache, long minLastModified) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            EdgeSegmentCache.EdgeObject manifest = cache.cachedManifest("lobby");
+            if (manifest != null && manifest.lastModifiedEpochMs() >= minLastModified) {
+                return manifest;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("playlist not refreshed");
+    }
+
+    private EdgeSegmentCache newCache() throws Exception {
+        EdgeSegmentCache cache = new EdgeSegmentCache(new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "originUrl", "http://127.0.0.1:" + origin.getAddress().getPort());
+        ReflectionTestUtils.setField(cache, "originUsername", "");
+        ReflectionTestUtils.setField(cache, "authCookieName", "CCTV_AUTH");
+        ReflectionTestUtils.setField(cache, "memoryBytes", 1_048_576L);
+        ReflectionTestUtils.setField(cache, "diskDir", "");
+        ReflectionTestUtils.setField(cache, "manifestTtlMs", 500L);
+        ReflectionTestUtils.setField(cache, "negativeTtlMs", 10_000L);
+        ReflectionTestUtils.setField(cache, "originTimeoutMs", 5_000L);
+        cache.start();
+        return cache;
+    }
+}
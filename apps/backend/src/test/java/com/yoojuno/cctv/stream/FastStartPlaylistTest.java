@@ -0,0 +1,75 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastStartPlaylistTest {
+    private static final String PLAYLIST = """
+            #EXTM3U
+            #EXT-X-VERSION:3
+            #EXT-X-TARGETDURATION:2
+            #EXT-X-MEDIA-SEQUENCE:40
+            #EXT-X-INDEPENDENT-SEGMENTS
+            #EXT-X-PROGRAM-DATE-TIME:2026-10-19T10:00:00.000+0000
+            #EXTINF:2.000000,
+            lobby_00040.ts
+            #EXT-X-DISCONTINUITY
+            #EXTINF:2.000000,
+            lobby_00041.ts
+            #EXTINF:2.000000,
+            lobby_00042.ts
+            #EXTINF:1.500000,
+            lobby_00043.ts
+            """;
+
+    @Test
+    void startsAtTheNewestSegmentAndTrimsTheWindow() {
+        String full = FastStartPlaylist.rewrite(PLAYLIST, 0);
+        String trimmed = FastStartPlaylist.rewrite(PLAYLIST, 2);
+
+        assertThat(full).contains("#EXT-X-START:TIME-OFFSET=-1.500,PRECISE=YES", "#EXT-X-MEDIA-SEQUENCE:40", "lobby_00040.ts");
+        assertThat(trimmed).contains("#EXT-X-MEDIA-SEQUENCE:42", "#EXT-X-DISCONTINUITY-SEQUENCE:1", "lobby_00042.ts", "lobby_00043.ts");
+        assertThat(trimmed).doesNotContain("lobby_00041.ts", "#EXT-X-DISCONTINUITY\n");
+        assertThat(trimmed.indexOf("#EXT-X-START")).isLessThan(trimmed.indexOf("#EXTINF"));
+    }
+
+    @Test
+    void leavesPlaylistsWithoutIndependentSegmentsUnchanged() {
+        String dependent = PLAYLIST.replace("#EXT-X-INDEPENDENT-SEGMENTS\n", "");
+        String finished = PLAYLIST + "#EXT-X-ENDLIST\n";
+
+        assertThat(FastStartPlaylist.rewrite(dependent, 2)).isEqualTo(dependent);
+        assertThat(FastStartPlaylist.rewrite(finished, 2)).isEqualTo(finished);
+    }
+
+    @Test
+    void rendersOncePerManifestVersion(@TempDir Path hlsDir) throws Exception {
+        Path manifest = hlsDir.resolve("lobby.m3u8");
+        Files.writeString(manifest, PLAYLIST);
+        FastStartPlaylist playlists = new FastStartPlaylist(null, HlsStorageLayout.singleVolume(hlsDir.toString()), null);
+        ReflectionTestUtils.setField(playlists, "enabled", true);
+        ReflectionTestUtils.setField(playlists, "maxWindow", 10);
+
+        FastStartPlaylist.Variant first = playlists.render("lobby", 2);
+        for (int i = 0; i < 50; i++) {
+            assertThat(playlists.render("lobby", 2)).isSameAs(first);
+        }
+        Files.writeString(manifest, PLAYLIST.replace("lobby_00043.ts", "lobby_00043.ts\n#EXTINF:2.000000,\nlobby_00044.ts"));
+        Files.setLastModifiedTime(manifest, FileTime.from(Instant.now().plusSeconds(2)));
+        FastStartPlaylist.Variant next = playlists.render("lobby", 2);
+
+        assertThat(new String(next.body(), StandardCharsets.UTF_8)).contains("#EXT-X-MEDIA-SEQUENCE:43", "lobby_00044.ts");
+        assertThat(playlists.stats().renders()).isEqualTo(2);
+        assertThat(playlists.stats().hits()).isEqualTo(50);
+        assertThat(playlists.render("missing", 2)).isNull();
+    }
+}
@@ -0,0 +1,122 @@
+package com.yoojuno.cctv.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HealthPayloadCacheTest {
+
+    @Test
+    void serializesEachHealthResultOnce() {
+        HealthPayloadCache cache = newCache();
+        StreamHealthService.StreamHealth health = new StreamHealthService.StreamHealth("mystream", true, true,
+                0, 1, StreamHealthService.StreamState.LIVE, "OK", 4, 1.0, false, true, 1000);
+
+        assertThat(cache.fragment(health)).isSameAs(cache.fragment(health));
+        assertThat(cache.fragment(health).rawValue().toString()).contains("\"state\":\"LIVE\"");
+        assertThat(cache.stats().fragmentSerializations()).isEqualTo(1);
+    }
+
+    @Test
+    void memoizesPerSnapshotVersion() {
+        HealthPayloadCache cache = newCache();
+        AtomicInteger builds = new AtomicInteger();
+
+        cache.memoize("key", 7, builds::incrementAndGet);
+        cache.memoize("key", 7, builds::incrementAndGet);
+        cache.memoize("other", 7, builds::incrementAndGet);
+        assertThat(builds).hasValue(2);
+
+        cache.memoize("key", 8, builds::incrementAndGet);
+        cache.memoize("key", 8, builds::incrementAndGet);
+        assertThat(builds).hasValue(3);
+        assertThat(cache.stats().hits()).isEqualTo(2);
+    }
+
+    @Test
+    void rebuildsUnchangedVersionsAfterMaxAge() {
+        HealthPayloadCache cache = newCache();
+        ReflectionTestUtils.setField(cache, "maxAgeMs", 0L);
+        AtomicInteger builds = new AtomicInteger();
+
+        cache.memoize("key", 7, builds::incrementAndGet);
+        cache.memoize("key", 7, builds::incrementAndGet);
+        assertThat(builds).hasValue(2);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedKeyWhenFull() {
+        HealthPayloadCache cache = newCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        AtomicInteger builds = new AtomicInteger();
+
+        cache.memoize("a", 1, builds::incrementAndGet);
+        cache.memoize("b", 1, builds::incrementAndGet);
+        cache.memoize("a", 1, builds::incrementAndGet);
+        cache.memoize("c", 1, builds::incrementAndGet);
+        cache.memoize("a", 1, builds::incrementAndGet);
+        assertThat(builds).hasValue(3);
+
+        cache.memoize("b", 1, builds::incrementAndGet);
+        assertThat(builds).hasValue(4);
+        assertThat(cache.stats().cachedEntries()).isEqualTo(2);
+    }
+
+    @Test
+    void dropsFragmentsOfStreamsRemovedFromTheCatalog() {
+        StreamCatalogService catalog = newCatalog("mystream:Main;garage:Garage");
+        HealthPayloadCache cache = newCache(catalog);
+        cache.fragments(List.of(health("mystream"), health("garage")));
+        assertThat(cache.stats().cachedFragments()).isEqualTo(2);
+
+        ReflectionTestUtils.setField(catalog, "streamCatalogRaw", "mystream:Main");
+        catalog.load();
+        cache.fragments(List.of(health("mystream")));
+
+        assertThat(cache.stats().cachedFragments()).isEqualTo(1);
+    }
+
+    @Test
+    void gzipVariantRoundTrips() throws Exception {
+        HealthPayloadCache cache = newCache();
+        HealthPayloadCache.Payload payload = cache.payload(List.of("a", "b", "c"));
+
+        byte[] decompressed;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(payload.gzip()))) {
+            decompressed = in.readAllBytes();
+        }
+        assertThat(decompressed).isEqualTo(payload.json());
+        assertThat(payload.gzip()).isSameAs(payload.gzip());
+    }
+
+    private static HealthPayloadCache newCache() {
+        return newCache(newCatalog("mystream:Main"));
+    }
+
+    private static HealthPayloadCache newCache(StreamCatalogService catalog) {
+        HealthPayloadCache cache = new HealthPayloadCache(new ObjectMapper(), catalog);
+        ReflectionTestUtils.setField(cache, "maxEntries", 16);
+        ReflectionTestUtils.setField(cache, "maxAgeMs", 60_000L);
+        return cache;
+    }
+
+    private static StreamCatalogService newCatalog(String raw) {
+        StreamCatalogService catalog = new StreamCatalogService();
+        ReflectionTestUtils.setField(catalog, "streamCatalogRaw", raw);
+        ReflectionTestUtils.setField(catalog, "streamCatalogFile", "");
+        catalog.load();
+        return catalog;
+    }
+
+    private static StreamHealthService.StreamHealth health(String id) {
+        return new StreamHealthService.StreamHealth(id, true, true,
+                0, 1, StreamHealthService.StreamState.LIVE, "OK", 4, 1.0, false, true, 1000);
+    }
+}
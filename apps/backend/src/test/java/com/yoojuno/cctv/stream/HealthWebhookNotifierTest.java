@@ -0,0 +1,179 @@
+package com.yoojuno.cctv.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HealthWebhookNotifierTest {
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Integer> statuses = new LinkedBlockingQueue<>();
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private HttpServer receiver;
+    private HealthWebhookNotifier notifier;
+
+    @BeforeEach
+    void startReceiver() throws Exception {
+        receiver = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        receiver.createContext("/hook", exchange -> {
+            received.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            Integer status = statuses.poll();
+            exchange.sendResponseHeaders(status == null ? 204 : status, -1);
+            exchange.close();
+        });
+        receiver.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        receiver.setExecutor(handlers);
+        receiver.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (notifier != null) {
+            notifier.stop();
+        }
+        receiver.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void reportsOnlyStatesThatOutlastTheDebounce() throws Exception {
+        notifier = notifier(8, 1000);
+
+        notifier.stateChanged(null, health("lobby", StreamHealthService.StreamState.LIVE, "OK"), 0);
+        notifier.tick(20_000);
+        notifier.stateChanged(null, health("lobby", StreamHealthService.StreamState.STALE, "MANIFEST_STALE"), 21_000);
+        notifier.stateChanged(null, health("lobby", StreamHealthService.StreamState.LIVE, "OK"), 23_000);
+        notifier.tick(40_000);
+        assertThat(received.poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+        notifier.stateChanged(null, health("lobby", StreamHealthService.StreamState.STALE, "MANIFEST_STALE"), 50_000);
+        notifier.stateChanged(null, health("garage", StreamHealthService.StreamState.OFFLINE, "MANIFEST_MISSING"), 50_000);
+        notifier.tick(55_000);
+        notifier.tick(80_000);
+
+        String body = received.poll(5, TimeUnit.SECONDS);
+        assertThat(body).contains("\"streamId\":\"lobby\"", "\"from\":\"LIVE\"", "\"to\":\"STALE\"", "\"reason\":\"MANIFEST_STALE\"");
+        assertThat(body).contains("\"streamId\":\"garage\"", "\"from\":null", "\"to\":\"OFFLINE\"");
+        assertThat(received.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(notifier.stats().suppressedFlaps()).isEqualTo(1);
+        assertThat(notifier.stats().notifiedEvents()).isEqualTo(2);
+    }
+
+    @Test
+    void retriesFailedDeliveriesWithBackoff() throws Exception {
+        notifier = notifier(8, 10);
+        statuses.add(503);
+        statuses.add(500);
+
+        notifier.stateChanged(null, health("lobby", StreamHealthService.StreamState.ERROR, "SEGMENT_CORRUPT"), 0);
+        notifier.tick(60_000);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(received.poll(5, TimeUnit.SECONDS)).contains("SEGMENT_CORRUPT");
+        }
+        awaitPending(0);
+        assertThat(notifier.stats().retried()).isEqualTo(2);
+        assertThat(notifier.stats().delivered()).isEqualTo(1);
+        assertThat(notifier.stats().failed()).isZero();
+    }
+
+    @Test
+    void dropsBatchesWhenTheQueueIsFull() throws Exception {
+        notifier = notifier(1, 60_000);
+        statuses.add(500);
+
+        notifier.stateChanged(null, health("lobby", StreamHealthService.StreamState.OFFLINE, "MANIFEST_MISSING"), 0);
+        notifier.tick(60_000);
+        assertThat(received.poll(5, TimeUnit.SECONDS)).isNotNull();
+        notifier.stateChanged(null, health("garage", StreamHealthService.StreamState.OFFLINE, "MANIFEST_MISSING"), 0);
+        notifier.tick(60_000);
+
+        assertThat(notifier.stats().pendingDeliveries()).isEqualTo(1);
+        assertThat(notifier.stats().dropped()).isEqualTo(1);
+    }
+
+    @Test
+    void slowEndpointsDoNotHoldUpOtherEndpoints() throws Exception {
+        String base = "http://127.0.0.1:" + receiver.getAddress().getPort();
+        notifier = notifier(8, 1000, base + "/slow," + base + "/hook");
+
+        notifier.stateChanged(null, health("lobby", StreamHealthService.StreamState.OFFLINE, "MANIFEST_MISSING"), 0);
+        long startedAt = System.nanoTime();
+        notifier.tick(60_000);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(1000);
+        assertThat(received.poll(1, TimeUnit.SECONDS)).contains("MANIFEST_MISSING");
+        awaitPending(1);
+        assertThat(notifier.stats().delivered()).isEqualTo(1);
+    }
+
+    @Test
+    void postsOnceToAnEndpointListedTwice() throws Exception {
+        String hook = "http://127.0.0.1:" + receiver.getAddress().getPort() + "/hook";
+        notifier = notifier(8, 1000, hook + ", " + hook);
+
+        notifier.stateChanged(null, health("lobby", StreamHealthService.StreamState.OFFLINE, "MANIFEST_MISSING"), 0);
+        notifier.tick(60_000);
+
+        assertThat(received.poll(5, TimeUnit.SECONDS)).contains("MANIFEST_MISSING");
+        assertThat(received.poll(300, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(notifier.stats().endpoints()).isEqualTo(1);
+    }
+
+    private HealthWebhookNotifier notifier(int queueCapacity, long retryBaseMs) {
+        return notifier(queueCapacity, retryBaseMs, "http://127.0.0.1:" + receiver.getAddress().getPort() + "/hook");
+    }
+
+    private HealthWebhookNotifier notifier(int queueCapacity, long retryBaseMs, String webhookUrls) {
+        StreamCatalogService catalog = new StreamCatalogService();
+        ReflectionTestUtils.setField(catalog, "streamCatalogRaw", "lobby:Lobby;garage:Garage");
+        catalog.load();
+        HealthWebhookNotifier created = new HealthWebhookNotifier(new ObjectMapper(),
+                new StreamHealthMonitor(catalog, new StreamHealthService()), catalog);
+        ReflectionTestUtils.setField(created, "enabled", true);
+        ReflectionTestUtils.setField(created, "webhookUrls", webhookUrls);
+        ReflectionTestUtils.setField(created, "debounceMs", 5000L);
+        ReflectionTestUtils.setField(created, "recoveryDebounceMs", 5000L);
+        ReflectionTestUtils.setField(created, "tickMs", 3_600_000L);
+        ReflectionTestUtils.setField(created, "maxBatch", 100);
+        ReflectionTestUtils.setField(created, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(created, "maxAttempts", 5);
+        ReflectionTestUtils.setField(created, "retryBaseMs", retryBaseMs);
+        ReflectionTestUtils.setField(created, "retryMaxMs", 60_000L);
+        ReflectionTestUtils.setField(created, "timeoutMs", 2000L);
+        created.start();
+        return created;
+    }
+
+    private void awaitPending(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (notifier.stats().pendingDeliveries() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static StreamHealthService.StreamHealth health(String streamId, StreamHealthService.StreamState state, String reason) {
+        return new StreamHealthService.StreamHealth(streamId, state == StreamHealthService.StreamState.LIVE, true,
+                0, 1, state, reason, 4, 2, false, true, 1000);
+    }
+}
@@ -0,0 +1,192 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.controller.LoginRequests;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * A player session against files on disk, with a browser-like cache in front: counts what
+ * actually reaches the backend and how many body bytes come back.
+ */
+@SpringBootTest(properties = {
+        "auth.jwt.secret=test-jwt-secret-should-be-32-bytes-minimum",
+        "auth.users=admin:{plain}admin123:*",
+        "hls.cache.segment-seconds=1"
+})
+@AutoConfigureMockMvc
+class HlsCachingIntegrationTest {
+    private static final Path HLS_DIR;
+    private static final int SEGMENT_BYTES = 4096;
+
+    static {
+        try {
+            HLS_DIR = Files.createTempDirectory("hls-caching");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void hlsPath(DynamicPropertyRegistry registry) {
+        registry.add("hls.path", HLS_DIR::toString);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final Map<String, CachedResponse> browserCache = new HashMap<>();
+    private int requests;
+    private int notModified;
+    private long bodyBytes;
+    private int playlistVersion;
+
+    @Test
+    void playerDownloadsEachSegmentOnceAndRevalidatesUnchangedPlaylists() throws Exception {
+        Cookie authCookie = login();
+        writeLive(0, 1, 2);
+
+        // Ten playlist reloads; the converter publishes a new segment on every other one.
+        int segmentsWritten = 3;
+        for (int reload = 0; reload < 10; reload++) {
+            if (reload > 0 && reload % 2 == 0) {
+                writeLive(segmentsWritten - 2, segmentsWritten - 1, segmentsWritten);
+                segmentsWritten++;
+            }
+            String playlist = fetch(authCookie, "/hls/mystream.m3u8");
+            for (String line : playlist.lines().toList()) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    fetch(authCookie, "/hls/" + line);
+                }
+            }
+        }
+
+        int playlistChanges = 1 + 4;
+        assertThat(requests).isEqualTo(10 + segmentsWritten);
+        assertThat(notModified).isEqualTo(10 - playlistChanges);
+        assertThat(bodyBytes).isEqualTo((long) segmentsWritten * SEGMENT_BYTES + playlistBytes(playlistChanges));
+    }
+
+    @Test
+    void segmentsAreImmutableAndPlaylistsRevalidated() throws Exception {
+        Cookie authCookie = login();
+        writeLive(0, 1, 2);
+
+        MockHttpServletResponse segment = mockMvc.perform(get("/hls/mystream_00001.ts").cookie(authCookie))
+                .andReturn().getResponse();
+        assertThat(segment.getStatus()).isEqualTo(200);
+        assertThat(segment.getHeader(HttpHeaders.CACHE_CONTROL)).contains("private", "immutable", "max-age=86400");
+        assertThat(segment.getHeader(HttpHeaders.ETAG)).startsWith("\"");
+
+        MockHttpServletResponse revalidated = mockMvc.perform(get("/hls/mystream_00001.ts")
+                        .cookie(authCookie)
+                        .header(HttpHeaders.IF_NONE_MATCH, segment.getHeader(HttpHeaders.ETAG)))
+                .andReturn().getResponse();
+        assertThat(revalidated.getStatus()).isEqualTo(304);
+        assertThat(revalidated.getContentAsByteArray()).isEmpty();
+
+        MockHttpServletResponse playlist = mockMvc.perform(get("/hls/mystream.m3u8").cookie(authCookie))
+                .andReturn().getResponse();
+        assertThat(playlist.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("private, no-cache");
+    }
+
+    /**
+     * GET through the simulated browser cache: fresh immutable entries are used without a
+     * request, anything else is revalidated with its ETag.
+     */
+    private String fetch(Cookie authCookie, String path) throws Exception {
+        CachedResponse cached = browserCache.get(path);
+        if (cached != null && cached.cacheControl().contains("immutable")) {
+            return cached.body();
+        }
+        MockHttpServletRequestBuilder request = get(path).cookie(authCookie);
+        if (cached != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, cached.etag());
+        }
+        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        requests++;
+        bodyBytes += response.getContentAsByteArray().length;
+        if (response.getStatus() == 304) {
+            notModified++;
+            return cached.body();
+        }
+        assertThat(response.getStatus()).isEqualTo(200);
+        CachedResponse fresh = new CachedResponse(
+                response.getHeader(HttpHeaders.ETAG),
+                response.getHeader(HttpHeaders.CACHE_CONTROL),
+                response.getContentAsString()
+        );
+        browserCache.put(path, fresh);
+        return fresh.body();
+    }
+
+    private Cookie login() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(LoginRequests.login(mockMvc, "{\"username\":\"admin\",\"password\":\"admin123\"}"))
+                .andReturn().getResponse();
+        Cookie authCookie = response.getCookie("CCTV_AUTH");
+        assertThat(authCookie).isNotNull();
+        return authCookie;
+    }
+
+    private void writeLive(int... sequences) throws IOException {
+        StringBuilder playlist = new StringBuilder(playlistHeader(sequences[0]));
+        for (int sequence : sequences) {
+            String name = segmentName(sequence);
+            Path segment = HLS_DIR.resolve(name);
+            if (!Files.exists(segment)) {
+                Files.write(segment, new byte[SEGMENT_BYTES]);
+            }
+            playlist.append("#EXTINF:1.000000,\n").append(name).append('\n');
+        }
+        Path manifest = HLS_DIR.resolve("mystream.m3u8");
+        Files.writeString(manifest, playlist);
+        Files.setLastModifiedTime(manifest, FileTime.from(Instant.now().plusSeconds(++playlistVersion)));
+    }
+
+    /**
+     * Body bytes of the first {@code versions} playlists written by the test (three segments
+     * each, media sequence 0, 1, ...).
+     */
+    private static long playlistBytes(int versions) {
+        long total = 0;
+        for (int version = 0; version < versions; version++) {
+            total += playlistHeader(version).length();
+            for (int sequence = version; sequence < version + 3; sequence++) {
+                total += "#EXTINF:1.000000,\n".length() + segmentName(sequence).length() + 1;
+            }
+        }
+        return total;
+    }
+
+    private static String playlistHeader(int mediaSequence) {
+        return "#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-TARGETDURATION:1\n#EXT-X-MEDIA-SEQUENCE:" + mediaSequence + "\n";
+    }
+
+    private static String segmentName(int sequence) {
+        return String.format("mystream_%05d.ts", sequence);
+    }
+
+    private record CachedResponse(String etag, String cacheControl, String body) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HlsStorageLayoutTest {
+
+    @Test
+    void addingAVolumeOnlyMovesStreamsOntoTheNewVolume(@TempDir Path root) {
+        HlsStorageLayout three = newLayout("a=" + root.resolve("a") + ",b=" + root.resolve("b") + ",c=" + root.resolve("c"), "flat");
+        HlsStorageLayout four = newLayout("a=" + root.resolve("a") + ",b=" + root.resolve("b") + ",c=" + root.resolve("c")
+                + ",d=" + root.resolve("d"), "flat");
+
+        int moved = 0;
+        for (int i = 0; i < 2000; i++) {
+            String streamId = "cam" + i;
+            String before = three.volumeFor(streamId).name();
+            String after = four.volumeFor(streamId).name();
+            if (!before.equals(after)) {
+                assertThat(after).isEqualTo("d");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(350, 650);
+    }
+
+    @Test
+    void resolvesPerStreamDirectoriesAndFallsBackToThePreviousVolume(@TempDir Path root) throws Exception {
+        HlsStorageLayout layout = newLayout("a=" + root.resolve("a") + ",b=" + root.resolve("b"), "per-stream");
+        String assigned = layout.volumeFor("lobby").name();
+        Path previous = root.resolve(assigned.equals("a") ? "b" : "a").resolve("lobby");
+        Files.createDirectories(previous);
+        Files.writeString(previous.resolve("lobby.m3u8"), "#EXTM3U\n");
+
+        assertThat(layout.streamDirectory("lobby")).isEqualTo(root.resolve(assigned).resolve("lobby"));
+        assertThat(layout.manifestPath("lobby")).isEqualTo(previous.resolve("lobby.m3u8"));
+        assertThat(layout.misplacedStreams()).containsKey("lobby");
+        assertThat(layout.resolveFile("lobby_00001.ts").getParent().getFileName().toString()).isEqualTo("lobby");
+        assertThat(layout.resolveFile("../lobby.m3u8")).isNull();
+    }
+
+    private static HlsStorageLayout newLayout(String volumes, String layoutName) {
+        HlsStorageLayout layout = new HlsStorageLayout();
+        ReflectionTestUtils.setField(layout, "hlsPath", "./hls");
+        ReflectionTestUtils.setField(layout, "volumesSpec", volumes);
+        ReflectionTestUtils.setField(layout, "layout", layoutName);
+        layout.start();
+        return layout;
+    }
+}
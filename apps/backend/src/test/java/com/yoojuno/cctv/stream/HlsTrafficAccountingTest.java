@@ -0,0 +1,60 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HlsTrafficAccountingTest {
+
+    @Test
+    void countsBytesAndRequestsPerStreamAndUserUnderConcurrency() throws Exception {
+        HlsTrafficAccounting accounting = newAccounting(100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            pool.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    accounting.record("lobby", "viewer", 1_000);
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        accounting.record("yard", "admin", 500);
+        accounting.sample();
+
+        HlsTrafficAccounting.TrafficSnapshot snapshot = accounting.snapshot(10);
+        assertThat(snapshot.totalBytes()).isEqualTo(8_000_500);
+        assertThat(snapshot.totalRequests()).isEqualTo(8_001);
+        assertThat(snapshot.streams()).first().satisfies(entry -> {
+            assertThat(entry.key()).isEqualTo("lobby");
+            assertThat(entry.bytes()).isEqualTo(8_000_000);
+            assertThat(entry.bytesPerSecond()).isPositive();
+        });
+        assertThat(snapshot.users()).extracting(HlsTrafficAccounting.TrafficEntry::key).containsExactly("viewer", "admin");
+    }
+
+    @Test
+    void foldsKeysBeyondLimitIntoOverflowBucket() {
+        HlsTrafficAccounting accounting = newAccounting(2);
+        accounting.record("a", "u", 1);
+        accounting.record("b", "u", 1);
+        accounting.record("c", "u", 1);
+        accounting.record("d", "u", 1);
+
+        assertThat(accounting.snapshot(10).streams())
+                .extracting(HlsTrafficAccounting.TrafficEntry::key)
+                .containsExactlyInAnyOrder("a", "b", HlsTrafficAccounting.OVERFLOW_KEY);
+    }
+
+    private static HlsTrafficAccounting newAccounting(int maxKeys) {
+        HlsTrafficAccounting accounting = new HlsTrafficAccounting();
+        ReflectionTestUtils.setField(accounting, "maxKeys", maxKeys);
+        ReflectionTestUtils.setField(accounting, "sampleIntervalMs", 5000L);
+        return accounting;
+    }
+}
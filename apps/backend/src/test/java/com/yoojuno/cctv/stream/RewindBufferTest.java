@@ -0,0 +1,142 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RewindBufferTest {
+    @TempDir
+    Path hlsDir;
+
+    private int version;
+
+    @Test
+    void keepsSegmentsAfterTheyLeaveTheLivePlaylistUpToTheWindow() throws Exception {
+        RewindBuffer buffer = buffer("lobby", 1 << 20, 6);
+
+        writeLive("lobby", 0, 1, 2);
+        buffer.capture();
+        writeLive("lobby", 2, 3, 4);
+        buffer.capture();
+        buffer.capture();
+
+        String playlist = playlist(buffer, "lobby");
+        List<String> names = segmentNames(playlist);
+        assertThat(names).hasSize(3);
+        assertThat(new String(buffer.get(names.get(0)).body(), StandardCharsets.US_ASCII)).isEqualTo("lobby-2");
+        assertThat(new String(buffer.get(names.get(2)).body(), StandardCharsets.US_ASCII)).isEqualTo("lobby-4");
+        assertThat(playlist).contains("#EXT-X-INDEPENDENT-SEGMENTS", "#EXTINF:2.000,").doesNotContain("#EXT-X-ENDLIST");
+        assertThat(buffer.get("lobby_rewind_1.ts")).isNull();
+        assertThat(buffer.get("lobby.m3u8")).isNull();
+
+        RewindBuffer.StreamUsage usage = buffer.stats().streams().get(0);
+        assertThat(usage.streamId()).isEqualTo("lobby");
+        assertThat(usage.segments()).isEqualTo(3);
+        assertThat(usage.bytes()).isEqualTo(21);
+        assertThat(usage.bufferedSeconds()).isEqualTo(6.0);
+        assertThat(buffer.stats().evictedByWindow()).isEqualTo(2);
+    }
+
+    @Test
+    void marksConverterRestartAsDiscontinuityAndCountsItWhenEvicted() throws Exception {
+        RewindBuffer buffer = buffer("lobby", 1 << 20, 6);
+
+        writeLive("lobby", 10, 11);
+        buffer.capture();
+        writeLive("lobby", 0, 1);
+        buffer.capture();
+
+        String restarted = playlist(buffer, "lobby");
+        assertThat(restarted).contains("#EXT-X-DISCONTINUITY\n").doesNotContain("#EXT-X-DISCONTINUITY-SEQUENCE");
+        assertThat(segmentNames(restarted)).hasSize(3).doesNotHaveDuplicates();
+
+        writeLive("lobby", 1, 2, 3);
+        buffer.capture();
+
+        String slid = playlist(buffer, "lobby");
+        assertThat(slid).contains("#EXT-X-DISCONTINUITY-SEQUENCE:1").doesNotContain("#EXT-X-DISCONTINUITY\n");
+    }
+
+    @Test
+    void evictsOldestSegmentsAcrossStreamsUnderTheSharedBudget() throws Exception {
+        RewindBuffer buffer = buffer("lobby,garage", 36, 300);
+
+        writeLive("lobby", 0, 1, 2);
+        buffer.capture();
+        writeLive("garage", 0, 1, 2);
+        buffer.capture();
+
+        RewindBuffer.RewindStats stats = buffer.stats();
+        assertThat(stats.usedBytes()).isEqualTo(31);
+        assertThat(stats.evictedByBudget()).isEqualTo(2);
+        assertThat(segmentNames(playlist(buffer, "garage"))).hasSize(3);
+        assertThat(segmentNames(playlist(buffer, "lobby"))).hasSize(1);
+    }
+
+    @Test
+    void buffersOnlyOptedInStreams() throws Exception {
+        StreamCatalogService catalog = new StreamCatalogService();
+        ReflectionTestUtils.setField(catalog, "streamCatalogRaw", "lobby:Lobby;garage:Garage");
+        ReflectionTestUtils.setField(catalog, "streamCatalogFile", "");
+        catalog.load();
+        writeLive("lobby", 0, 1);
+        writeLive("garage", 0, 1);
+
+        RewindBuffer none = buffer(catalog, "", 1 << 20, 300);
+        none.capture();
+        assertThat(none.stats().streams()).isEmpty();
+
+        RewindBuffer all = buffer(catalog, "*", 1 << 20, 300);
+        all.capture();
+        assertThat(all.stats().streams()).extracting(RewindBuffer.StreamUsage::streamId)
+                .containsExactlyInAnyOrder("lobby", "garage");
+    }
+
+    private RewindBuffer buffer(String streams, long memoryBytes, long windowSeconds) {
+        return buffer(null, streams, memoryBytes, windowSeconds);
+    }
+
+    private RewindBuffer buffer(StreamCatalogService catalog, String streams, long memoryBytes, long windowSeconds) {
+        RewindBuffer buffer = new RewindBuffer(catalog, null, HlsStorageLayout.singleVolume(hlsDir.toString()), null);
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "memoryBytes", memoryBytes);
+        ReflectionTestUtils.setField(buffer, "windowSeconds", windowSeconds);
+        ReflectionTestUtils.setField(buffer, "streamsRaw", streams);
+        return buffer;
+    }
+
+    /**
+     * Live playlist listing the given source sequence numbers; each segment's body is
+     * {@code <stream>-<n>} (7 bytes for single digits).
+     */
+    private void writeLive(String streamId, int... sequences) throws Exception {
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-TARGETDURATION:2\n")
+                .append("#EXT-X-MEDIA-SEQUENCE:").append(sequences[0]).append('\n')
+                .append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+        for (int sequence : sequences) {
+            String name = String.format("%s_%05d.ts", streamId, sequence);
+            Files.writeString(hlsDir.resolve(name), streamId + "-" + sequence);
+            playlist.append("#EXTINF:2.000000,\n").append(name).append('\n');
+        }
+        Path manifest = hlsDir.resolve(streamId + ".m3u8");
+        Files.writeString(manifest, playlist);
+        Files.setLastModifiedTime(manifest, FileTime.from(Instant.now().plusSeconds(++version)));
+    }
+
+    private static String playlist(RewindBuffer buffer, String streamId) {
+        return new String(buffer.get(streamId + "_rewind.m3u8").body(), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> segmentNames(String playlist) {
+        return playlist.lines().filter(line -> !line.isBlank() && !line.startsWith("#")).toList();
+    }
+}
@@ -0,0 +1,108 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentStoreTest {
+
+    @Test
+    void servesUploadedSegmentAndEvictsItWhenItLeavesThePlaylist() throws Exception {
+        SegmentStore store = newStore(64 * 4096, 1 << 20);
+        byte[] segment = new byte[10_000];
+        for (int i = 0; i < segment.length; i++) {
+            segment[i] = (byte) i;
+        }
+        put(store, "cam_00001.ts", segment);
+        put(store, "cam_00002.ts", segment);
+        put(store, "cam.m3u8", playlist("cam_00001.ts", "cam_00002.ts"));
+
+        SegmentStore.StoredObject reading = store.open("cam_00001.ts");
+        assertThat(reading).isNotNull();
+        assertThat(store.stats().usedSlabs()).isEqualTo(7);
+
+        put(store, "cam_00003.ts", segment);
+        put(store, "cam.m3u8", playlist("cam_00002.ts", "cam_00003.ts"));
+
+        // Out of the window but still being served: slabs stay allocated until the response ends.
+        assertThat(store.open("cam_00001.ts")).isNull();
+        assertThat(store.stats().usedSlabs()).isEqualTo(10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reading.writeTo(out);
+        assertThat(out.toByteArray()).isEqualTo(segment);
+        reading.release();
+        assertThat(store.stats().usedSlabs()).isEqualTo(7);
+        assertThat(store.manifest("cam").text()).contains("cam_00003.ts");
+    }
+
+    @Test
+    void rejectsUploadsBeyondBudgetAndReturnsTheirSlabs() throws Exception {
+        SegmentStore store = newStore(4 * 4096, 10_000);
+
+        assertThatThrownBy(() -> put(store, "cam_00001.ts", new byte[20_000]))
+                .isInstanceOf(IngestRejectedException.class)
+                .extracting("status").isEqualTo(413);
+        put(store, "cam_00001.ts", new byte[8_000]);
+        assertThatThrownBy(() -> put(store, "other_00001.ts", new byte[9_000]))
+                .isInstanceOf(IngestRejectedException.class)
+                .extracting("status").isEqualTo(507);
+
+        assertThat(store.stats().usedSlabs()).isEqualTo(2);
+        assertThat(store.stats().rejectedNoSpace()).isEqualTo(1);
+    }
+
+    @Test
+    void filterSendsUploadTimeAsLastModifiedAndAnswersIfModifiedSince() throws Exception {
+        SegmentStore store = newStore(64 * 4096, 1 << 20);
+        put(store, "cam_00001.ts", new byte[1_000]);
+        SegmentStore.StoredObject stored = store.open("cam_00001.ts");
+        long uploadedAt = stored.uploadedAtEpochMs();
+        stored.release();
+        SegmentStoreFilter filter = new SegmentStoreFilter(store, new HlsCachePolicy());
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/hls/cam_00001.ts"), first, new MockFilterChain());
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(uploadedAt / 1000 * 1000);
+
+        MockHttpServletRequest revalidation = new MockHttpServletRequest("GET", "/hls/cam_00001.ts");
+        revalidation.addHeader(HttpHeaders.IF_MODIFIED_SINCE, first.getHeader(HttpHeaders.LAST_MODIFIED));
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(revalidation, second, new MockFilterChain());
+        assertThat(second.getStatus()).isEqualTo(304);
+        assertThat(second.getContentLength()).isZero();
+    }
+
+    private static void put(SegmentStore store, String name, byte[] bytes) throws Exception {
+        store.write(name, new ByteArrayInputStream(bytes), -1);
+    }
+
+    private static byte[] playlist(String... segments) {
+        StringBuilder text = new StringBuilder("#EXTM3U\n#EXT-X-TARGETDURATION:1\n");
+        for (String segment : segments) {
+            text.append("#EXTINF:1.0,\n").append(segment).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static SegmentStore newStore(long memoryBytes, long maxObjectBytes) {
+        SegmentStore store = new SegmentStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "memoryBytes", memoryBytes);
+        ReflectionTestUtils.setField(store, "slabBytes", 4096);
+        ReflectionTestUtils.setField(store, "maxObjectBytes", maxObjectBytes);
+        ReflectionTestUtils.setField(store, "idleStreamMs", 600_000L);
+        store.start();
+        return store;
+    }
+}
@@ -0,0 +1,126 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.model.StreamInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamCatalogServiceTest {
+
+    @Test
+    void parsesSiteGroupAndTagAttributes() {
+        StreamCatalogService service = newService("lobby:Lobby|site=hq|group=entrances|tags=indoor,ptz;yard:Yard|site=depot");
+
+        StreamInfo lobby = service.find("lobby").orElseThrow();
+        assertThat(lobby.name()).isEqualTo("Lobby");
+        assertThat(lobby.site()).isEqualTo("hq");
+        assertThat(lobby.group()).isEqualTo("entrances");
+        assertThat(lobby.tags()).containsExactly("indoor", "ptz");
+        assertThat(service.find("yard").orElseThrow().tags()).isEmpty();
+    }
+
+    @Test
+    void sharesOneViewPerAllowedSetInCatalogOrder() {
+        StreamCatalogService service = newService("a:A;b:B;c:C");
+
+        StreamCatalog.CatalogView first = service.view(Set.of("c", "a", "missing"));
+        StreamCatalog.CatalogView second = service.view(Set.of("a", "c", "missing"));
+
+        assertThat(first).isSameAs(second);
+        assertThat(first.streams()).extracting(StreamInfo::id).containsExactly("a", "c");
+        assertThat(service.view(Set.of("*")).streams()).hasSize(3);
+        assertThat(service.view(Set.of()).streams()).isEmpty();
+        assertThat(first.key()).hasSize(43).isEqualTo(service.view(Set.of("a", "c")).key());
+        assertThat(first.key()).isNotEqualTo(service.view(Set.of("a")).key());
+    }
+
+    @Test
+    void filtersAndPaginatesWithinAllowedStreams() {
+        StreamCatalogService service = newService(
+                "a:Alpha|site=hq|tags=ptz;b:Bravo|site=hq;c:Charlie|site=hq|tags=ptz;d:Delta|site=depot|tags=ptz");
+
+        StreamCatalogService.Page hqPtz = service.query(Set.of("a", "c", "d"),
+                new StreamCatalogService.Filter("hq", null, "ptz", null, 0, 0));
+        assertThat(hqPtz.streams()).extracting(StreamInfo::id).containsExactly("a", "c");
+
+        StreamCatalogService.Page paged = service.query(Set.of("*"),
+                new StreamCatalogService.Filter(null, null, null, null, 1, 2));
+        assertThat(paged.total()).isEqualTo(4);
+        assertThat(paged.streams()).extracting(StreamInfo::id).containsExactly("b", "c");
+
+        StreamCatalogService.Page search = service.query(Set.of("*"),
+                new StreamCatalogService.Filter(null, null, null, "ELT", 0, 0));
+        assertThat(search.streams()).extracting(StreamInfo::id).containsExactly("d");
+    }
+
+    @Test
+    void fallsBackToDefaultStreamWhenCatalogIsEmpty() {
+        assertThat(StreamCatalogService.parse(" ; ")).extracting(StreamInfo::id).isEqualTo(List.of("mystream"));
+    }
+
+    @Test
+    void reloadsCatalogFileAndKeepsSnapshotOnBrokenFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("streams.conf");
+        Files.writeString(file, "# cameras\nlobby:Lobby|site=hq\n\nyard:Yard\n");
+        StreamCatalogService service = new StreamCatalogService();
+        ReflectionTestUtils.setField(service, "streamCatalogRaw", "mystream:Main Entrance");
+        ReflectionTestUtils.setField(service, "streamCatalogFile", file.toString());
+        service.load();
+
+        StreamCatalog before = service.snapshot();
+        assertThat(before.all()).extracting(StreamInfo::id).containsExactly("lobby", "yard");
+
+        service.reloadIfChanged();
+        assertThat(service.snapshot()).isSameAs(before);
+
+        Files.writeString(file, "lobby:Lobby|site=hq\ndock:Dock\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        service.reloadIfChanged();
+
+        assertThat(service.all()).extracting(StreamInfo::id).containsExactly("lobby", "dock");
+        assertThat(before.all()).extracting(StreamInfo::id).containsExactly("lobby", "yard");
+    }
+
+    @Test
+    void keepsSnapshotWhenCatalogFileIsGarbageEmptyOrTruncated(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("streams.conf");
+        Files.writeString(file, "lobby:Lobby|site=hq\nyard:Yard\n");
+        StreamCatalogService service = new StreamCatalogService();
+        ReflectionTestUtils.setField(service, "streamCatalogRaw", "mystream:Main Entrance");
+        ReflectionTestUtils.setField(service, "streamCatalogFile", file.toString());
+        service.load();
+        StreamCatalog before = service.snapshot();
+
+        Files.writeString(file, "lobby:Lobby\n%$#@ not a catalog \u0001\u0002 !!\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        service.reloadIfChanged();
+        assertThat(service.snapshot()).isSameAs(before);
+
+        Files.writeString(file, "");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        service.reloadIfChanged();
+        assertThat(service.snapshot()).isSameAs(before);
+
+        Files.writeString(file, "# cameras\n\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 15_000));
+        service.reloadIfChanged();
+
+        assertThat(service.snapshot()).isSameAs(before);
+        assertThat(service.all()).extracting(StreamInfo::id).containsExactly("lobby", "yard");
+    }
+
+    private static StreamCatalogService newService(String raw) {
+        StreamCatalogService service = new StreamCatalogService();
+        ReflectionTestUtils.setField(service, "streamCatalogRaw", raw);
+        service.load();
+        return service;
+    }
+}
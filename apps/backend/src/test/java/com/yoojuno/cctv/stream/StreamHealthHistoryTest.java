@@ -0,0 +1,97 @@
+package com.yoojuno.cctv.stream;
+
+import com.yoojuno.cctv.model.StreamInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamHealthHistoryTest {
+
+    @Test
+    void downsamplesRecordedSamplesIntoBuckets() {
+        StreamHealthHistory history = newHistory(1000, 10);
+        long now = Instant.now().toEpochMilli();
+        history.record(health(StreamHealthService.StreamState.LIVE, 4, 125_000), now - 3000);
+        history.record(health(StreamHealthService.StreamState.STALE, 4, 0), now - 2000);
+        history.record(health(StreamHealthService.StreamState.LIVE, 4, 250_000), now);
+
+        StreamHealthHistory.HistoryResult result = history.query(new StreamInfo("mystream", "Main"), Duration.ofMinutes(1), 1);
+
+        assertThat(result.points()).hasSize(1);
+        StreamHealthHistory.HistoryPoint point = result.points().get(0);
+        assertThat(point.samples()).isEqualTo(3);
+        assertThat(point.worstState()).isEqualTo(StreamHealthService.StreamState.STALE);
+        assertThat(point.liveRatio()).isBetween(0.66, 0.67);
+        assertThat(point.avgBitrateBps()).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void overwritesOldestSamplesOnceRetentionIsExceeded() {
+        StreamHealthHistory history = newHistory(1000, 1);
+        long now = Instant.now().toEpochMilli();
+        for (int i = 120; i >= 0; i--) {
+            history.record(health(StreamHealthService.StreamState.LIVE, 4, 1000), now - i * 1000L);
+        }
+
+        StreamHealthHistory.HistoryResult result = history.query(new StreamInfo("mystream", "Main"), Duration.ofHours(1), 1000);
+
+        assertThat(result.windowSeconds()).isEqualTo(60);
+        assertThat(result.points()).hasSizeLessThanOrEqualTo(60);
+        assertThat(history.memoryBytes()).isEqualTo(60L * StreamHealthHistory.BYTES_PER_SAMPLE);
+    }
+
+    @Test
+    void dropsHistoryOfStreamsRemovedFromTheCatalog() {
+        StreamHealthHistory history = newHistory(1000, 1);
+        long now = Instant.now().toEpochMilli();
+        history.record(health(StreamHealthService.StreamState.LIVE, 4, 1000), now);
+        history.record(new StreamHealthService.StreamHealth("lobby", true, true,
+                0, 1, StreamHealthService.StreamState.LIVE, "TEST", 4, 1.0, false, true, 1000), now);
+        assertThat(history.memoryBytes()).isEqualTo(2 * 60L * StreamHealthHistory.BYTES_PER_SAMPLE);
+
+        history.prune(new StreamCatalog(List.of(new StreamInfo("mystream", "Main"))));
+
+        assertThat(history.memoryBytes()).isEqualTo(60L * StreamHealthHistory.BYTES_PER_SAMPLE);
+        assertThat(history.query(new StreamInfo("lobby", "Lobby"), Duration.ofMinutes(1), 10).points()).isEmpty();
+        assertThat(history.query(new StreamInfo("mystream", "Main"), Duration.ofMinutes(1), 10).points()).hasSize(1);
+    }
+
+    @Test
+    void ringIndexesSlotsBeyondTheIntRange() {
+        StreamHealthHistory.HistoryRing ring = new StreamHealthHistory.HistoryRing(60);
+        long slot = Integer.MAX_VALUE + 7L;
+        ring.write(slot, health(StreamHealthService.StreamState.LIVE, 4, 1000));
+
+        assertThat(ring.aggregate(slot, slot, 1000)).isNotNull();
+        assertThat(ring.aggregate(slot - 60, slot - 60, 1000)).isNull();
+    }
+
+    @Test
+    void parsesWindowExpressions() {
+        assertThat(StreamHealthHistory.parseWindow("15m")).isEqualTo(Duration.ofMinutes(15));
+        assertThat(StreamHealthHistory.parseWindow("2h")).isEqualTo(Duration.ofHours(2));
+        assertThat(StreamHealthHistory.parseWindow("PT30S")).isEqualTo(Duration.ofSeconds(30));
+        assertThat(StreamHealthHistory.parseWindow(null)).isEqualTo(Duration.ofHours(1));
+        assertThatThrownBy(() -> StreamHealthHistory.parseWindow("abc")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static StreamHealthHistory newHistory(long resolutionMs, long retentionMinutes) {
+        StreamCatalogService catalog = new StreamCatalogService();
+        StreamHealthHistory history = new StreamHealthHistory(catalog, new StreamHealthMonitor(catalog, new StreamHealthService()));
+        ReflectionTestUtils.setField(history, "enabled", true);
+        ReflectionTestUtils.setField(history, "resolutionMs", resolutionMs);
+        ReflectionTestUtils.setField(history, "retentionMinutes", retentionMinutes);
+        return history;
+    }
+
+    private static StreamHealthService.StreamHealth health(StreamHealthService.StreamState state, int segments, long sizeBytes) {
+        return new StreamHealthService.StreamHealth("mystream", state == StreamHealthService.StreamState.LIVE, true,
+                0, 1, state, "TEST", segments, 1.0, false, true, sizeBytes);
+    }
+}
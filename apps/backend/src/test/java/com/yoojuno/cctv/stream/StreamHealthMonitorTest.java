@@ -0,0 +1,188 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamHealthMonitorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void usesFastCadenceRightAfterStateChange() {
+        StreamHealthMonitor monitor = newMonitor();
+
+        assertThat(monitor.nextIntervalMs(health(StreamHealthService.StreamState.LIVE, 4), 0, 0)).isEqualTo(1000);
+        assertThat(monitor.nextIntervalMs(health(StreamHealthService.StreamState.STARTING, 4), 60_000, 0)).isEqualTo(1000);
+    }
+
+    @Test
+    void followsSegmentCadenceWhileLive() {
+        StreamHealthMonitor monitor = newMonitor();
+
+        assertThat(monitor.nextIntervalMs(health(StreamHealthService.StreamState.LIVE, 4), 60_000, 0)).isEqualTo(4000);
+    }
+
+    @Test
+    void backsOffExponentiallyWhileOffline() {
+        StreamHealthMonitor monitor = newMonitor();
+        StreamHealthService.StreamHealth offline = health(StreamHealthService.StreamState.OFFLINE, 0);
+
+        assertThat(monitor.nextIntervalMs(offline, 60_000, 1)).isEqualTo(2000);
+        assertThat(monitor.nextIntervalMs(offline, 60_000, 2)).isEqualTo(4000);
+        assertThat(monitor.nextIntervalMs(offline, 60_000, 3)).isEqualTo(8000);
+        assertThat(monitor.nextIntervalMs(offline, 60_000, 10)).isEqualTo(60_000);
+    }
+
+    @Test
+    void keepsSegmentCadenceForStreamsWithInvalidSegments() {
+        StreamHealthMonitor monitor = newMonitor();
+        StreamHealthService.StreamHealth corrupt = new StreamHealthService.StreamHealth("mystream", false, true,
+                0, 1, StreamHealthService.StreamState.ERROR, "SEGMENT_CORRUPT", 4, 4, false, true, 1000);
+        StreamHealthService.StreamHealth noKeyframe = new StreamHealthService.StreamHealth("mystream", false, true,
+                0, 1, StreamHealthService.StreamState.ERROR, "NO_KEYFRAME", 4, 4, false, true, 1000);
+        StreamHealthService.StreamHealth unreadable = new StreamHealthService.StreamHealth("mystream", false, true,
+                0, -1, StreamHealthService.StreamState.ERROR, "MANIFEST_UNREADABLE", 0, 0, false, false, -1);
+
+        assertThat(StreamHealthMonitor.backsOff(corrupt)).isFalse();
+        assertThat(StreamHealthMonitor.backsOff(noKeyframe)).isFalse();
+        assertThat(StreamHealthMonitor.backsOff(unreadable)).isTrue();
+        assertThat(monitor.nextIntervalMs(corrupt, 60_000, 5)).isEqualTo(4000);
+        assertThat(monitor.nextIntervalMs(unreadable, 60_000, 3)).isEqualTo(8000);
+    }
+
+    @Test
+    void servesScheduledResultsAndEvaluatesUnknownStreamsOnDemand() throws Exception {
+        StreamHealthMonitor monitor = newMonitor();
+
+        assertThat(monitor.latest("mystream").reason()).isEqualTo("MANIFEST_MISSING");
+        assertThat(monitor.stats().onDemandEvaluations()).isEqualTo(1);
+
+        Files.writeString(tempDir.resolve("mystream.m3u8"), "#EXTM3U\n#EXT-X-TARGETDURATION:1\n");
+        assertThat(monitor.latest("mystream").reason()).isEqualTo("MANIFEST_MISSING");
+
+        monitor.tick();
+        assertThat(monitor.stats().evaluations()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void tellsListenersAboutStateChangesOnly() throws Exception {
+        StreamHealthMonitor monitor = newMonitor();
+        List<String> changes = new ArrayList<>();
+        monitor.addStateChangeListener((previous, current, epochMs) ->
+                changes.add((previous == null ? "-" : previous.state().name()) + ">" + current.state().name()));
+
+        ReflectionTestUtils.setField(monitor, "fastIntervalMs", 100L);
+        monitor.tick();
+        monitor.tick();
+        Files.writeString(tempDir.resolve("mystream.m3u8"), "#EXTM3U\n#EXT-X-TARGETDURATION:1\n");
+        Thread.sleep(150);
+        monitor.tick();
+
+        assertThat(changes).containsExactly("->OFFLINE", "OFFLINE>STARTING");
+    }
+
+    @Test
+    void versionsMeaningChangesButNotFreshness() {
+        StreamHealthService.StreamHealth live = health(StreamHealthService.StreamState.LIVE, 1);
+        StreamHealthService.StreamHealth nextSegment = new StreamHealthService.StreamHealth("mystream", true, true,
+                1000, 1, StreamHealthService.StreamState.LIVE, "TEST", 5, 1, false, true, 2000);
+        StreamHealthService.StreamHealth older = new StreamHealthService.StreamHealth("mystream", true, true,
+                0, 2, StreamHealthService.StreamState.LIVE, "TEST", 4, 1, false, true, 1000);
+        StreamHealthService.StreamHealth ended = new StreamHealthService.StreamHealth("mystream", true, true,
+                0, 1, StreamHealthService.StreamState.LIVE, "TEST", 4, 1, true, true, 1000);
+
+        assertThat(StreamHealthMonitor.changed(live, health(StreamHealthService.StreamState.LIVE, 1))).isFalse();
+        assertThat(StreamHealthMonitor.changed(live, nextSegment)).isFalse();
+        assertThat(StreamHealthMonitor.changed(live, older)).isFalse();
+        assertThat(StreamHealthMonitor.changed(live, ended)).isTrue();
+        assertThat(StreamHealthMonitor.changed(live, health(StreamHealthService.StreamState.STALE, 1))).isTrue();
+    }
+
+    @Test
+    void keepsThePublishedResultWhileNothingMeaningfulChanges() throws Exception {
+        StreamHealthMonitor monitor = newMonitor();
+        ReflectionTestUtils.setField(monitor, "fastIntervalMs", 100L);
+        Files.writeString(tempDir.resolve("mystream.m3u8"), "#EXTM3U\n#EXT-X-TARGETDURATION:1\n");
+        monitor.tick();
+        StreamHealthMonitor.VersionedHealth first = monitor.latestVersioned("mystream");
+
+        Thread.sleep(1100);
+        monitor.tick();
+
+        assertThat(monitor.stats().evaluations()).isGreaterThanOrEqualTo(2);
+        assertThat(monitor.latestVersioned("mystream")).isSameAs(first);
+        assertThat(monitor.latest("mystream").manifestAgeSeconds()).isGreaterThan(first.health().manifestAgeSeconds());
+        assertThat(monitor.currentVersion()).isEqualTo(first.version());
+    }
+
+    @Test
+    void cursorsFromBeforeARestartTakeAFullSnapshot() throws Exception {
+        StreamHealthMonitor before = newMonitor();
+        before.tick();
+        long cursor = before.currentVersion();
+
+        Thread.sleep(5);
+        StreamHealthMonitor after = newMonitor();
+        after.tick();
+
+        assertThat(after.deltaAvailable(cursor)).isFalse();
+        assertThat(after.deltaAvailable(after.currentVersion())).isTrue();
+    }
+
+    @Test
+    void reportsStreamsRemovedFromTheCatalogToDeltaClients() {
+        StreamCatalogService catalog = new StreamCatalogService();
+        ReflectionTestUtils.setField(catalog, "streamCatalogRaw", "mystream:Main;garage:Garage");
+        ReflectionTestUtils.setField(catalog, "streamCatalogFile", "");
+        catalog.load();
+        StreamHealthMonitor monitor = newMonitor(catalog);
+        monitor.tick();
+        long cursor = monitor.currentVersion();
+
+        ReflectionTestUtils.setField(catalog, "streamCatalogRaw", "mystream:Main");
+        catalog.load();
+        monitor.tick();
+
+        assertThat(monitor.removedSince(cursor)).containsKey("garage").doesNotContainKey("mystream");
+        assertThat(monitor.removedSince(monitor.currentVersion())).isEmpty();
+        assertThat(monitor.deltaAvailable(cursor)).isTrue();
+        assertThat(monitor.deltaAvailable(monitor.currentVersion() + 1)).isFalse();
+    }
+
+    private StreamHealthMonitor newMonitor() {
+        StreamCatalogService catalog = new StreamCatalogService();
+        catalog.load();
+        return newMonitor(catalog);
+    }
+
+    private StreamHealthMonitor newMonitor(StreamCatalogService catalog) {
+        StreamHealthService healthService = new StreamHealthService();
+        ReflectionTestUtils.setField(healthService, "hlsPath", tempDir.toString());
+        ReflectionTestUtils.setField(healthService, "liveThresholdSeconds", 12L);
+        ReflectionTestUtils.setField(healthService, "liveMinSegments", 2);
+
+        StreamHealthMonitor monitor = new StreamHealthMonitor(catalog, healthService);
+        ReflectionTestUtils.setField(monitor, "enabled", true);
+        ReflectionTestUtils.setField(monitor, "fastIntervalMs", 1000L);
+        ReflectionTestUtils.setField(monitor, "recentChangeMs", 10_000L);
+        ReflectionTestUtils.setField(monitor, "offlineBaseMs", 2000L);
+        ReflectionTestUtils.setField(monitor, "maxIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(monitor, "jitterRatio", 0.0);
+        ReflectionTestUtils.setField(monitor, "maxEvaluationsPerTick", 200);
+        return monitor;
+    }
+
+    private static StreamHealthService.StreamHealth health(StreamHealthService.StreamState state, double targetDuration) {
+        return new StreamHealthService.StreamHealth("mystream", state == StreamHealthService.StreamState.LIVE, true,
+                0, 1, state, "TEST", 4, targetDuration, false, true, 1000);
+    }
+}
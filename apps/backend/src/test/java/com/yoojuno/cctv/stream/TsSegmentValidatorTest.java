@@ -0,0 +1,123 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TsSegmentValidatorTest {
+    private static final int PACKET = TsSegmentValidator.PACKET_BYTES;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void acceptsSegmentWithTablesAndKeyframeAndInspectsItOnce() throws Exception {
+        Path segment = tempDir.resolve("lobby_00001.ts");
+        Files.write(segment, segment(40, true));
+        TsSegmentValidator validator = new TsSegmentValidator();
+
+        TsSegmentValidator.Result first = validator.validate(segment);
+        TsSegmentValidator.Result second = validator.validate(segment);
+
+        assertThat(first.ok()).isTrue();
+        assertThat(first.packets()).isEqualTo(40);
+        assertThat(second).isSameAs(first);
+        assertThat(validator.stats().inspected()).isEqualTo(1);
+        assertThat(validator.stats().cacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    void reportsLostSyncAndContinuityGapsAsCorrupt() {
+        TsSegmentValidator validator = new TsSegmentValidator();
+        byte[] lostSync = segment(40, true);
+        lostSync[17 * PACKET] = 0x00;
+        byte[] gap = segment(40, true);
+        gap[20 * PACKET + 3] = (byte) (0x10 | ((gap[20 * PACKET + 3] + 5) & 0x0f));
+        byte[] truncated = Arrays.copyOf(segment(40, true), 40 * PACKET - 100);
+
+        assertThat(validator.validate("sync", lostSync, true).reason()).isEqualTo("SEGMENT_CORRUPT");
+        assertThat(validator.validate("sync", lostSync, true).detail()).contains("offset " + 17 * PACKET);
+        assertThat(validator.validate("gap", gap, true).reason()).isEqualTo("SEGMENT_CORRUPT");
+        assertThat(validator.validate("truncated", truncated, true).reason()).isEqualTo("SEGMENT_CORRUPT");
+        assertThat(validator.validate("prefix", truncated, false).ok()).isTrue();
+    }
+
+    @Test
+    void reportsMissingKeyframe() {
+        TsSegmentValidator validator = new TsSegmentValidator();
+
+        TsSegmentValidator.Result result = validator.validate("delta-only", segment(40, false), true);
+
+        assertThat(result.ok()).isFalse();
+        assertThat(result.reason()).isEqualTo("NO_KEYFRAME");
+    }
+
+    @Test
+    void liveStreamWithCorruptNewestSegmentIsReportedAsError() throws Exception {
+        byte[] corrupt = segment(40, true);
+        corrupt[5 * PACKET] = 0x00;
+        Files.write(tempDir.resolve("lobby_00001.ts"), segment(40, true));
+        Files.write(tempDir.resolve("lobby_00002.ts"), corrupt);
+        Files.writeString(tempDir.resolve("lobby.m3u8"), """
+                #EXTM3U
+                #EXT-X-TARGETDURATION:1
+                #EXTINF:1.0,
+                lobby_00001.ts
+                #EXTINF:1.0,
+                lobby_00002.ts
+                """);
+        StreamHealthService service = new StreamHealthService(null, HlsStorageLayout.singleVolume(tempDir.toString()), null,
+                new TsSegmentValidator());
+        ReflectionTestUtils.setField(service, "liveThresholdSeconds", 12L);
+        ReflectionTestUtils.setField(service, "liveMinSegments", 2);
+
+        StreamHealthService.StreamHealth health = service.healthForStream("lobby");
+
+        assertThat(health.live()).isFalse();
+        assertThat(health.state()).isEqualTo(StreamHealthService.StreamState.ERROR);
+        assertThat(health.reason()).isEqualTo("SEGMENT_CORRUPT");
+    }
+
+    /**
+     * PAT, PMT with H.264 on PID 0x100, then video packets; the first one sets the random access
+     * indicator when {@code keyframe} is true. Video payloads contain no start codes.
+     */
+    private static byte[] segment(int packets, boolean keyframe) {
+        byte[] data = new byte[packets * PACKET];
+        Arrays.fill(data, (byte) 0xFF);
+        section(data, 0, 0x0000, new int[]{0x00, 0xB0, 0x0D, 0x00, 0x01, 0xC1, 0x00, 0x00, 0x00, 0x01, 0xF0, 0x00});
+        section(data, PACKET, 0x1000, new int[]{0x02, 0xB0, 0x12, 0x00, 0x01, 0xC1, 0x00, 0x00, 0xE1, 0x00, 0xF0, 0x00,
+                0x1B, 0xE1, 0x00, 0xF0, 0x00});
+        for (int packet = 2; packet < packets; packet++) {
+            int offset = packet * PACKET;
+            data[offset] = 0x47;
+            data[offset + 1] = (byte) (packet == 2 ? 0x41 : 0x01);
+            data[offset + 2] = 0x00;
+            if (packet == 2) {
+                data[offset + 3] = 0x30;
+                data[offset + 4] = 0x01;
+                data[offset + 5] = (byte) (keyframe ? 0x40 : 0x00);
+            } else {
+                data[offset + 3] = (byte) (0x10 | ((packet - 2) & 0x0f));
+            }
+        }
+        return data;
+    }
+
+    private static void section(byte[] data, int offset, int pid, int[] section) {
+        data[offset] = 0x47;
+        data[offset + 1] = (byte) (0x40 | (pid >> 8));
+        data[offset + 2] = (byte) pid;
+        data[offset + 3] = 0x10;
+        data[offset + 4] = 0x00;
+        for (int i = 0; i < section.length; i++) {
+            data[offset + 5 + i] = (byte) section[i];
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.yoojuno.cctv.stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ViewerPresenceTrackerTest {
+
+    @Test
+    void countsDistinctClientsPerStreamAndExpiresIdleOnes() {
+        long start = System.currentTimeMillis();
+        ViewerPresenceTracker tracker = newTracker(10_000, 1_000);
+
+        tracker.touch("lobby", "viewer", "tab-1", start);
+        tracker.touch("lobby", "viewer", "tab-1", start + 500);
+        tracker.touch("lobby", "viewer", "tab-2", start + 500);
+        tracker.touch("lobby", "admin", "tab-1", start + 500);
+        tracker.touch("yard", "admin", "tab-1", start + 500);
+        assertThat(tracker.viewers("lobby")).isEqualTo(3);
+        assertThat(tracker.viewers("yard")).isEqualTo(1);
+
+        // tab-1 of viewer keeps fetching segments; everyone else goes quiet.
+        for (long t = start + 2_000; t <= start + 14_000; t += 2_000) {
+            tracker.touch("lobby", "viewer", "tab-1", t);
+            tracker.advance(t);
+        }
+
+        assertThat(tracker.viewers("lobby")).isEqualTo(1);
+        assertThat(tracker.viewers("yard")).isZero();
+        assertThat(tracker.sessions("lobby"))
+                .extracting(ViewerPresenceTracker.ViewerSession::clientId)
+                .isEqualTo(List.of("tab-1"));
+
+        tracker.advance(start + 30_000);
+        assertThat(tracker.viewers("lobby")).isZero();
+        assertThat(tracker.activeSessions()).isZero();
+    }
+
+    @Test
+    void returningViewerAfterExpiryStartsNewSession() {
+        long start = System.currentTimeMillis();
+        ViewerPresenceTracker tracker = newTracker(5_000, 1_000);
+        tracker.touch("lobby", "viewer", "tab-1", start);
+        long versionBefore = tracker.version();
+
+        tracker.advance(start + 7_000);
+        assertThat(tracker.viewers("lobby")).isZero();
+
+        tracker.touch("lobby", "viewer", "tab-1", start + 8_000);
+        assertThat(tracker.viewers("lobby")).isEqualTo(1);
+        assertThat(tracker.version()).isGreaterThan(versionBefore);
+    }
+
+    private static ViewerPresenceTracker newTracker(long ttlMs, long tickMs) {
+        ViewerPresenceTracker tracker = new ViewerPresenceTracker();
+        ReflectionTestUtils.setField(tracker, "ttlMs", ttlMs);
+        ReflectionTestUtils.setField(tracker, "tickMs", tickMs);
+        ReflectionTestUtils.setField(tracker, "maxSessions", 1000);
+        tracker.init();
+        return tracker;
+    }
+}
@@ -0,0 +1,1323 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Local end-to-end load test for the backend. No cameras or ffmpeg needed.
+ *
+ * <ul>
+ *   <li>{@code fleet}: N synthetic cameras write rolling playlists and MPEG-TS segments into
+ *       {@code HLS_DIR} at the {@code HLS_TIME} cadence (same naming and window as
+ *       {@code scripts/mjpeg_to_hls.sh}); M viewers log in and play them like hls.js
+ *       (playlist reload at the target duration, new segments fetched in order, buffer model for stalls).</li>
+ *   <li>{@code fairness}: the fleet plus greedy clients that download every segment as fast as
+ *       they can, to check that shaping keeps normal viewers from stalling.</li>
+ *   <li>{@code login-burst}: rounds of simultaneous logins, e.g. a shift change.</li>
+ *   <li>{@code switching}: the fleet plus operators clicking through cameras, alternating between
+ *       the plain playlist and the fast-start variant ({@code ?start=live}), to compare time to
+ *       first frame and how far behind live the first frame is.</li>
+ *   <li>{@code cold-load}: signed-in users reloading the dashboard with an empty browser cache,
+ *       alternating between the old bootstrap requests and the single {@code /api/dashboard}
+ *       call, to compare page load latency.</li>
+ * </ul>
+ *
+ * <p>Reports throughput, p50/p90/p99 latency per request class, stalls, status codes and backend
+ * CPU (read from /proc when the backend runs on the same Linux host). Settings come from
+ * environment variables; see {@code run_load_test.sh}.
+ */
+public class HlsLoadTest {
+    private static final int TS_PACKET_BYTES = 188;
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.fromEnv();
+        Report report = new Report(config);
+        CpuSampler cpu = CpuSampler.forBackend(config.backendPid);
+        log("mode=" + config.mode + " backend=" + config.backendUrl
+                + cpu.pid().map(pid -> " backendPid=" + pid).orElse(" backendPid=unknown (CPU not sampled)"));
+
+        switch (config.mode) {
+            case "login-burst" -> runLoginBurst(config, report, cpu);
+            case "fleet", "fairness", "switching" -> runFleet(config, report, cpu);
+            case "cold-load" -> runColdLoad(config, report, cpu);
+            default -> throw new IllegalArgumentException("Unknown MODE: " + config.mode + " (fleet, fairness, login-burst, switching, cold-load)");
+        }
+
+        report.print(cpu);
+        if (!config.reportFile.isBlank()) {
+            Files.writeString(Path.of(config.reportFile), report.toJson(cpu));
+            log("wrote " + config.reportFile);
+        }
+    }
+
+    // ---------------------------------------------------------------- fleet / fairness
+
+    private static void runFleet(Config config, Report report, CpuSampler cpu) throws Exception {
+        Path hlsDir = Path.of(config.hlsDir);
+        Files.createDirectories(hlsDir);
+        List<Camera> cameras = new ArrayList<>();
+        for (int i = 0; i < config.cameras; i++) {
+            cameras.add(new Camera(hlsDir, String.format(Locale.ROOT, "%s%03d", config.streamPrefix, i), config));
+        }
+        if (!config.catalogFile.isBlank()) {
+            writeCatalog(Path.of(config.catalogFile), cameras);
+        }
+
+        ScheduledExecutorService cameraClock = Executors.newScheduledThreadPool(
+                Math.max(1, Math.min(8, config.cameras / 50 + 1)), daemon("camera"));
+        long periodMicros = (long) (config.hlsTimeSeconds * 1_000_000);
+        for (int i = 0; i < cameras.size(); i++) {
+            Camera camera = cameras.get(i);
+            // Stagger cameras across the segment period like independent encoders.
+            long offset = periodMicros * i / Math.max(1, cameras.size());
+            cameraClock.scheduleAtFixedRate(camera::publishQuietly, offset, periodMicros, TimeUnit.MICROSECONDS);
+        }
+        log("cameras=" + cameras.size() + " segment=" + cameras.get(0).payload.length + "B every " + config.hlsTimeSeconds + "s; warming up "
+                + config.warmupSeconds + "s");
+        Thread.sleep(config.warmupSeconds * 1000L);
+        report.startedAt = System.nanoTime();
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool(daemon("http")))
+                .build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.rampSeconds + config.durationSeconds);
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger active = new AtomicInteger();
+        List<String> cameraIds = cameras.stream().map(camera -> camera.id).toList();
+        for (int i = 0; i < config.viewers; i++) {
+            Viewer viewer = new Viewer(http, config, report, "viewer", config.viewerUsers.get(i % config.viewerUsers.size()),
+                    cameras.get(i % cameras.size()).id, deadline, active);
+            long startDelayMs = config.viewers <= 1 ? 0 : config.rampSeconds * 1000L * i / config.viewers;
+            boolean switching = "switching".equals(config.mode);
+            threads.add(startThread((switching ? "operator-" : "viewer-") + i, () -> {
+                sleepQuietly(startDelayMs);
+                if (switching) {
+                    viewer.switchCameras(cameraIds);
+                } else {
+                    viewer.play();
+                }
+            }));
+        }
+        if ("fairness".equals(config.mode)) {
+            for (int i = 0; i < config.greedyViewers; i++) {
+                Viewer greedy = new Viewer(http, config, report, "greedy", config.greedyUser,
+                        cameras.get(i % cameras.size()).id, deadline, active);
+                for (int p = 0; p < config.greedyParallel; p++) {
+                    threads.add(startThread("greedy-" + i + "-" + p, greedy::hammer));
+                }
+            }
+        }
+
+        ProgressPrinter progress = new ProgressPrinter(report, cpu, active);
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(config.reportIntervalSeconds * 1000L);
+            progress.print();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        report.finishedAt = System.nanoTime();
+        cameraClock.shutdownNow();
+        if (!config.keepFiles) {
+            for (Camera camera : cameras) {
+                camera.removeFiles();
+            }
+        }
+    }
+
+    private static void writeCatalog(Path file, List<Camera> cameras) throws IOException {
+        StringBuilder catalog = new StringBuilder("# generated by HlsLoadTest\n");
+        for (Camera camera : cameras) {
+            catalog.append(camera.id).append(':').append("Load ").append(camera.id).append("|group=loadtest\n");
+        }
+        writeAtomically(file, catalog.toString().getBytes(StandardCharsets.UTF_8));
+        log("catalog written to " + file + " (point STREAMS_CATALOG_FILE at it to include load streams in health)");
+    }
+
+    /**
+     * Rolling live playlist with the converter's layout: {@code <id>_%05d.ts} segments, a window of
+     * {@code HLS_LIST_SIZE} entries, and retired segments deleted one period after leaving the list.
+     */
+    static final class Camera {
+        final String id;
+        final Path dir;
+        final Path manifest;
+        final byte[] payload;
+        final int listSize;
+        final double segmentSeconds;
+        final Deque<Long> window = new ArrayDeque<>();
+        final Deque<Long> retired = new ArrayDeque<>();
+        long nextSequence;
+
+        Camera(Path dir, String id, Config config) {
+            this.id = id;
+            this.dir = dir;
+            this.manifest = dir.resolve(id + ".m3u8");
+            this.listSize = Math.max(1, config.hlsListSize);
+            this.segmentSeconds = config.hlsTimeSeconds;
+            this.payload = tsPayload((int) (config.segmentKbps * 1000 / 8 * config.hlsTimeSeconds));
+        }
+
+        void publishQuietly() {
+            try {
+                publish();
+            } catch (IOException | RuntimeException e) {
+                log("camera " + id + " write failed: " + e.getMessage());
+            }
+        }
+
+        synchronized void publish() throws IOException {
+            long sequence = nextSequence++;
+            writeAtomically(dir.resolve(segmentName(sequence)), payload);
+            window.addLast(sequence);
+            while (window.size() > listSize) {
+                retired.addLast(window.removeFirst());
+            }
+            writeAtomically(manifest, playlist().getBytes(StandardCharsets.US_ASCII));
+            while (retired.size() > 1) {
+                Files.deleteIfExists(dir.resolve(segmentName(retired.removeFirst())));
+            }
+        }
+
+        String playlist() {
+            StringBuilder playlist = new StringBuilder(128 + window.size() * 40);
+            playlist.append("#EXTM3U\n#EXT-X-VERSION:3\n")
+                    .append("#EXT-X-TARGETDURATION:").append((long) Math.ceil(segmentSeconds)).append('\n')
+                    .append("#EXT-X-MEDIA-SEQUENCE:").append(window.isEmpty() ? 0 : window.peekFirst()).append('\n');
+            playlist.append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+            for (long sequence : window) {
+                playlist.append(String.format(Locale.ROOT, "#EXTINF:%.6f,%n", segmentSeconds))
+                        .append(segmentName(sequence)).append('\n');
+            }
+            return playlist.toString();
+        }
+
+        String segmentName(long sequence) {
+            return String.format(Locale.ROOT, "%s_%05d.ts", id, sequence);
+        }
+
+        synchronized void removeFiles() {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.filter(path -> path.getFileName().toString().startsWith(id + "_")).toList()) {
+                    Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(manifest);
+            } catch (IOException e) {
+                log("cleanup of " + id + " failed: " + e.getMessage());
+            }
+        }
+
+        // PAT, PMT (H.264 on PID 0x100) and video packets whose first one carries the random access
+        // indicator, so the backend's segment validator accepts the files as a keyframe-led segment.
+        private static byte[] tsPayload(int bytes) {
+            int packets = Math.max(3, bytes / TS_PACKET_BYTES);
+            byte[] payload = new byte[packets * TS_PACKET_BYTES];
+            ThreadLocalRandom.current().nextBytes(payload);
+            writeSection(payload, 0, 0x0000, new byte[]{
+                    0x00, (byte) 0xB0, 0x0D, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00,
+                    0x00, 0x01, (byte) 0xF0, 0x00});
+            writeSection(payload, TS_PACKET_BYTES, 0x1000, new byte[]{
+                    0x02, (byte) 0xB0, 0x12, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00, (byte) 0xE1, 0x00, (byte) 0xF0, 0x00,
+                    0x1B, (byte) 0xE1, 0x00, (byte) 0xF0, 0x00});
+            for (int packet = 2; packet < packets; packet++) {
+                int offset = packet * TS_PACKET_BYTES;
+                payload[offset] = 0x47;
+                payload[offset + 1] = (byte) (packet == 2 ? 0x41 : 0x01);
+                payload[offset + 2] = 0x00;
+                if (packet == 2) {
+                    payload[offset + 3] = 0x30;
+                    payload[offset + 4] = 0x01;
+                    payload[offset + 5] = 0x40;
+                } else {
+                    payload[offset + 3] = (byte) (0x10 | ((packet - 2) & 0x0f));
+                }
+            }
+            return payload;
+        }
+
+        private static void writeSection(byte[] payload, int offset, int pid, byte[] section) {
+            Arrays.fill(payload, offset, offset + TS_PACKET_BYTES, (byte) 0xFF);
+            payload[offset] = 0x47;
+            payload[offset + 1] = (byte) (0x40 | (pid >> 8));
+            payload[offset + 2] = (byte) pid;
+            payload[offset + 3] = 0x10;
+            payload[offset + 4] = 0x00;
+            System.arraycopy(section, 0, payload, offset + 5, section.length);
+            int crc = 0xFFFFFFFF;
+            for (byte value : section) {
+                crc ^= (value & 0xff) << 24;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = crc < 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+                }
+            }
+            int at = offset + 5 + section.length;
+            payload[at] = (byte) (crc >>> 24);
+            payload[at + 1] = (byte) (crc >>> 16);
+            payload[at + 2] = (byte) (crc >>> 8);
+            payload[at + 3] = (byte) crc;
+        }
+    }
+
+    /**
+     * One simulated player session: its own cookie and X-Client-Id, so the backend sees it as a
+     * separate viewer.
+     */
+    static final class Viewer {
+        private final HttpClient http;
+        private final Config config;
+        private final Report report;
+        private final String role;
+        private final Credentials credentials;
+        private final String streamId;
+        private final long deadline;
+        private final AtomicInteger active;
+        private final String clientId = UUID.randomUUID().toString();
+        private volatile String cookie;
+
+        Viewer(HttpClient http, Config config, Report report, String role, Credentials credentials,
+               String streamId, long deadline, AtomicInteger active) {
+            this.http = http;
+            this.config = config;
+            this.report = report;
+            this.role = role;
+            this.credentials = credentials;
+            this.streamId = streamId;
+            this.deadline = deadline;
+            this.active = active;
+        }
+
+        void play() {
+            if (!login()) {
+                return;
+            }
+            active.incrementAndGet();
+            PlayerModel player = new PlayerModel(System.nanoTime());
+            long lastSequence = -1;
+            try {
+                while (System.nanoTime() < deadline) {
+                    long cycleStart = System.nanoTime();
+                    Optional<Playlist> playlist = fetchPlaylist();
+                    boolean advanced = false;
+                    if (playlist.isPresent()) {
+                        Playlist current = playlist.get();
+                        if (lastSequence < 0) {
+                            // hls.js starts three target durations from the live edge.
+                            lastSequence = current.firstSequence + Math.max(0, current.segments.size() - 3) - 1;
+                        }
+                        for (int i = 0; i < current.segments.size() && System.nanoTime() < deadline; i++) {
+                            long sequence = current.firstSequence + i;
+                            if (sequence <= lastSequence) {
+                                continue;
+                            }
+                            Result result = fetch("segment", "/hls/" + current.segments.get(i), true);
+                            if (result.status == 429) {
+                                sleepQuietly(Math.min(2_000, result.retryAfterSeconds * 1000L));
+                                break;
+                            }
+                            lastSequence = sequence;
+                            if (result.status == 200) {
+                                player.onSegment(current.segmentSeconds, System.nanoTime(), report, role);
+                                advanced = true;
+                            }
+                        }
+                        player.advance(System.nanoTime());
+                        // Playlist reload: target duration after new media, half of it otherwise.
+                        long reloadNanos = (long) (current.targetSeconds * (advanced ? 1.0 : 0.5) * 1e9);
+                        sleepNanos(cycleStart + reloadNanos - System.nanoTime());
+                    } else {
+                        player.advance(System.nanoTime());
+                        sleepQuietly(1_000);
+                    }
+                }
+                player.advance(System.nanoTime());
+                report.players(role).add(player);
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        /**
+         * Operator clicking through cameras: every {@code SWITCH_SECONDS} a random camera is opened,
+         * alternating between the plain playlist and the fast-start variant. Records the time until
+         * the start segment is buffered (first frame) and how far behind live that frame is: the
+         * media between the start position and the playlist end plus the time to first frame.
+         */
+        void switchCameras(List<String> streamIds) {
+            if (!login()) {
+                return;
+            }
+            active.incrementAndGet();
+            boolean fastStart = ThreadLocalRandom.current().nextBoolean();
+            try {
+                while (System.nanoTime() < deadline) {
+                    long clickedAt = System.nanoTime();
+                    String variant = fastStart ? "switch-fast" : "switch-plain";
+                    String target = streamIds.get(ThreadLocalRandom.current().nextInt(streamIds.size()));
+                    Result manifest = fetch(variant, "manifest", "/hls/" + target + ".m3u8" + (fastStart ? "?start=live" : ""), false);
+                    if (manifest.status == 200 && manifest.body != null) {
+                        Playlist playlist = Playlist.parse(manifest.body);
+                        int start = playlist.startIndex();
+                        if (start >= 0) {
+                            Result segment = fetch(variant, "segment", "/hls/" + playlist.segments.get(start), true);
+                            if (segment.status == 200) {
+                                long firstFrameNanos = System.nanoTime() - clickedAt;
+                                report.startup(variant).add(firstFrameNanos);
+                                report.behindLive(variant).add(firstFrameNanos + (long) (playlist.secondsFrom(start) * 1e9));
+                            }
+                        }
+                    }
+                    fastStart = !fastStart;
+                    sleepNanos(clickedAt + (long) (config.switchSeconds * 1e9) - System.nanoTime());
+                }
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        /**
+         * Abusive client: re-downloads the whole playlist window back to back and ignores Retry-After.
+         */
+        void hammer() {
+            if (cookie == null) {
+                synchronized (this) {
+                    if (cookie == null && !login()) {
+                        return;
+                    }
+                }
+            }
+            active.incrementAndGet();
+            try {
+                while (System.nanoTime() < deadline) {
+                    Optional<Playlist> playlist = fetchPlaylist();
+                    if (playlist.isEmpty()) {
+                        sleepQuietly(200);
+                        continue;
+                    }
+                    for (String segment : playlist.get().segments) {
+                        if (System.nanoTime() >= deadline) {
+                            break;
+                        }
+                        fetch("segment", "/hls/" + segment, true);
+                    }
+                }
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        private Optional<Playlist> fetchPlaylist() {
+            Result result = fetch("manifest", "/hls/" + streamId + ".m3u8", false);
+            if (result.status != 200 || result.body == null) {
+                return Optional.empty();
+            }
+            return Optional.of(Playlist.parse(result.body));
+        }
+
+        private boolean login() {
+            Result result = HlsLoadTest.login(http, config, report, role, credentials);
+            cookie = result.cookie;
+            return cookie != null;
+        }
+
+        private Result fetch(String kind, String path, boolean discardBody) {
+            return fetch(role, kind, path, discardBody);
+        }
+
+        private Result fetch(String statsRole, String kind, String path, boolean discardBody) {
+            Result result = get(path, discardBody);
+            if (result.status == 401 && login()) {
+                result = get(path, discardBody);
+            }
+            report.stats(statsRole, kind).record(result);
+            return result;
+        }
+
+        private Result get(String path, boolean discardBody) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(config.backendUrl + path))
+                    .timeout(Duration.ofSeconds(config.requestTimeoutSeconds))
+                    .header("Cookie", cookie == null ? "" : cookie)
+                    .header("X-Client-Id", clientId)
+                    .GET()
+                    .build();
+            long startedAt = System.nanoTime();
+            try {
+                HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                String body = null;
+                long bytes = 0;
+                try (InputStream in = response.body()) {
+                    if (discardBody || response.statusCode() != 200) {
+                        byte[] buffer = new byte[16 * 1024];
+                        int read;
+                        while ((read = in.read(buffer)) >= 0) {
+                            bytes += read;
+                        }
+                    } else {
+                        byte[] all = in.readAllBytes();
+                        bytes = all.length;
+                        body = new String(all, StandardCharsets.UTF_8);
+                    }
+                }
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                return new Result(response.statusCode(), System.nanoTime() - startedAt, bytes, body, null, retryAfter);
+            } catch (IOException e) {
+                return Result.failed(System.nanoTime() - startedAt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Result.failed(System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    record Playlist(long firstSequence, double targetSeconds, double segmentSeconds, List<String> segments,
+                    List<Double> durations, double startOffsetSeconds) {
+        static Playlist parse(String body) {
+            long firstSequence = 0;
+            double target = 1;
+            double lastDuration = 0;
+            double startOffset = Double.NaN;
+            List<String> segments = new ArrayList<>();
+            List<Double> durations = new ArrayList<>();
+            for (String raw : body.split("\n")) {
+                String line = raw.trim();
+                if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                    firstSequence = Long.parseLong(line.substring("#EXT-X-MEDIA-SEQUENCE:".length()).trim());
+                } else if (line.startsWith("#EXT-X-TARGETDURATION:")) {
+                    target = Double.parseDouble(line.substring("#EXT-X-TARGETDURATION:".length()).trim());
+                } else if (line.startsWith("#EXT-X-START:")) {
+                    for (String attribute : line.substring("#EXT-X-START:".length()).split(",")) {
+                        if (attribute.startsWith("TIME-OFFSET=")) {
+                            startOffset = Double.parseDouble(attribute.substring("TIME-OFFSET=".length()));
+                        }
+                    }
+                } else if (line.startsWith("#EXTINF:")) {
+                    String value = line.substring("#EXTINF:".length());
+                    int comma = value.indexOf(',');
+                    lastDuration = Double.parseDouble(comma >= 0 ? value.substring(0, comma) : value);
+                } else if (!line.isEmpty() && !line.startsWith("#")) {
+                    segments.add(line);
+                    durations.add(lastDuration > 0 ? lastDuration : target);
+                }
+            }
+            return new Playlist(firstSequence, Math.max(0.1, target), lastDuration > 0 ? lastDuration : target, segments,
+                    durations, startOffset);
+        }
+
+        /**
+         * Segment a player starts with: the one holding {@code EXT-X-START} when present, otherwise
+         * three target durations from the live edge like hls.js. -1 for an empty playlist.
+         */
+        int startIndex() {
+            if (segments.isEmpty()) {
+                return -1;
+            }
+            if (Double.isNaN(startOffsetSeconds)) {
+                return Math.max(0, segments.size() - 3);
+            }
+            double total = secondsFrom(0);
+            double position = startOffsetSeconds < 0 ? total + startOffsetSeconds : startOffsetSeconds;
+            double segmentStart = 0;
+            for (int i = 0; i < durations.size(); i++) {
+                if (position < segmentStart + durations.get(i) - 1e-6) {
+                    return i;
+                }
+                segmentStart += durations.get(i);
+            }
+            return segments.size() - 1;
+        }
+
+        double secondsFrom(int index) {
+            double seconds = 0;
+            for (int i = index; i < durations.size(); i++) {
+                seconds += durations.get(i);
+            }
+            return seconds;
+        }
+    }
+
+    /**
+     * Buffer model: media time grows per downloaded segment and drains in real time once playback
+     * starts; running dry is a stall until one segment is buffered again.
+     */
+    static final class PlayerModel {
+        private final long createdAt;
+        private long lastUpdate;
+        private double bufferedSeconds;
+        private boolean playing;
+        private boolean stalled;
+        int stalls;
+        double stalledSeconds;
+        double playedSeconds;
+        long startupNanos = -1;
+
+        PlayerModel(long now) {
+            this.createdAt = now;
+            this.lastUpdate = now;
+        }
+
+        void onSegment(double seconds, long now, Report report, String role) {
+            advance(now);
+            bufferedSeconds += seconds;
+            if (!playing) {
+                playing = true;
+                startupNanos = now - createdAt;
+                report.startup(role).add(startupNanos);
+            } else if (stalled) {
+                stalled = false;
+            }
+        }
+
+        void advance(long now) {
+            double elapsed = (now - lastUpdate) / 1e9;
+            lastUpdate = now;
+            if (!playing) {
+                return;
+            }
+            if (stalled) {
+                stalledSeconds += elapsed;
+                return;
+            }
+            if (bufferedSeconds >= elapsed) {
+                bufferedSeconds -= elapsed;
+                playedSeconds += elapsed;
+                return;
+            }
+            playedSeconds += bufferedSeconds;
+            stalledSeconds += elapsed - bufferedSeconds;
+            bufferedSeconds = 0;
+            stalled = true;
+            stalls++;
+        }
+    }
+
+    // ---------------------------------------------------------------- login burst
+
+    private static void runLoginBurst(Config config, Report report, CpuSampler cpu) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ExecutorService pool = Executors.newFixedThreadPool(config.loginBurst, daemon("login"));
+        AtomicInteger active = new AtomicInteger();
+        ProgressPrinter progress = new ProgressPrinter(report, cpu, active);
+        for (int round = 1; round <= config.loginRounds; round++) {
+            CountDownLatch ready = new CountDownLatch(config.loginBurst);
+            CountDownLatch go = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(config.loginBurst);
+            for (int i = 0; i < config.loginBurst; i++) {
+                Credentials credentials = config.viewerUsers.get(i % config.viewerUsers.size());
+                boolean wrongPassword = ThreadLocalRandom.current().nextDouble() < config.loginBadRatio;
+                Credentials attempt = wrongPassword ? new Credentials(credentials.username, credentials.password + "-wrong") : credentials;
+                pool.execute(() -> {
+                    ready.countDown();
+                    try {
+                        go.await();
+                        active.incrementAndGet();
+                        login(http, config, report, wrongPassword ? "bad-password" : "login", attempt);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        active.decrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }
+            ready.await();
+            long startedAt = System.nanoTime();
+            go.countDown();
+            done.await();
+            log(String.format(Locale.ROOT, "round %d: %d logins in %.0f ms", round, config.loginBurst,
+                    (System.nanoTime() - startedAt) / 1e6));
+            progress.print();
+            if (round < config.loginRounds) {
+                Thread.sleep(config.loginPauseSeconds * 1000L);
+            }
+        }
+        report.finishedAt = System.nanoTime();
+        pool.shutdownNow();
+    }
+
+    private static Result login(HttpClient http, Config config, Report report, String role, Credentials credentials) {
+        String body = "{\"username\":\"" + jsonEscape(credentials.username) + "\",\"password\":\"" + jsonEscape(credentials.password) + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.backendUrl + "/api/auth/login"))
+                .timeout(Duration.ofSeconds(config.requestTimeoutSeconds))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long startedAt = System.nanoTime();
+        Result result;
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            String cookie = null;
+            for (String setCookie : response.headers().allValues("Set-Cookie")) {
+                if (setCookie.startsWith(config.authCookieName + "=")) {
+                    cookie = setCookie.substring(0, setCookie.indexOf(';') < 0 ? setCookie.length() : setCookie.indexOf(';'));
+                }
+            }
+            long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+            result = new Result(response.statusCode(), System.nanoTime() - startedAt, response.body().length(), null,
+                    response.statusCode() == 200 ? cookie : null, retryAfter);
+        } catch (IOException e) {
+            result = Result.failed(System.nanoTime() - startedAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = Result.failed(System.nanoTime() - startedAt);
+        }
+        report.stats(role, "login").record(result);
+        return result;
+    }
+
+    // ---------------------------------------------------------------- cold load
+
+    /**
+     * Each viewer logs in once, then loads the page until the duration ends, alternating between
+     * the bootstrap the frontend used before {@code /api/dashboard} ({@code /api/auth/me}, then
+     * stream and system health in parallel) and the single dashboard request. No conditional
+     * headers are sent, like a first visit. {@code RTT_MS} is slept before every request to model
+     * the network round trip; it counts towards page load time but not per-request latency.
+     */
+    private static void runColdLoad(Config config, Report report, CpuSampler cpu) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> cookies = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, config.viewers); i++) {
+            Credentials credentials = config.viewerUsers.get(i % config.viewerUsers.size());
+            Result result = login(http, config, report, "cold-load", credentials);
+            if (result.cookie == null) {
+                throw new IllegalStateException("Login failed for " + credentials.username + ": HTTP " + result.status);
+            }
+            cookies.add(result.cookie);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(cookies.size(), daemon("page"));
+        ExecutorService fanout = Executors.newCachedThreadPool(daemon("fanout"));
+        AtomicInteger active = new AtomicInteger();
+        ProgressPrinter progress = new ProgressPrinter(report, cpu, active);
+        report.startedAt = System.nanoTime();
+        long deadline = report.startedAt + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        for (String cookie : cookies) {
+            pool.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    boolean dashboard = ThreadLocalRandom.current().nextBoolean();
+                    while (System.nanoTime() < deadline) {
+                        long startedAt = System.nanoTime();
+                        boolean loaded = dashboard
+                                ? apiGet(http, config, report, "dashboard", "/api/dashboard", cookie).status == 200
+                                : loadLegacyPage(http, config, report, cookie, fanout);
+                        if (loaded) {
+                            report.pageLoad(dashboard ? "page-dashboard" : "page-legacy").add(System.nanoTime() - startedAt);
+                        }
+                        dashboard = !dashboard;
+                        sleepQuietly(config.pageLoadPauseMs);
+                    }
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        }
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(config.reportIntervalSeconds * 1000L, Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))));
+            progress.print();
+        }
+        pool.shutdown();
+        pool.awaitTermination(config.requestTimeoutSeconds * 3L + 5, TimeUnit.SECONDS);
+        report.finishedAt = System.nanoTime();
+        pool.shutdownNow();
+        fanout.shutdownNow();
+    }
+
+    private static boolean loadLegacyPage(HttpClient http, Config config, Report report, String cookie, ExecutorService fanout) {
+        if (apiGet(http, config, report, "legacy", "/api/auth/me", cookie).status != 200) {
+            return false;
+        }
+        CompletableFuture<Result> streamHealth = CompletableFuture.supplyAsync(
+                () -> apiGet(http, config, report, "legacy", "/api/streams/health", cookie), fanout);
+        Result systemHealth = apiGet(http, config, report, "legacy", "/api/system/health", cookie);
+        return streamHealth.join().status == 200 && systemHealth.status == 200;
+    }
+
+    private static Result apiGet(HttpClient http, Config config, Report report, String role, String path, String cookie) {
+        sleepQuietly(config.rttMs);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.backendUrl + path))
+                .timeout(Duration.ofSeconds(config.requestTimeoutSeconds))
+                .header("Cookie", cookie)
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        long startedAt = System.nanoTime();
+        Result result;
+        try {
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            result = new Result(response.statusCode(), System.nanoTime() - startedAt, response.body().length, null, null, 1);
+        } catch (IOException e) {
+            result = Result.failed(System.nanoTime() - startedAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = Result.failed(System.nanoTime() - startedAt);
+        }
+        report.stats(role, path.substring(path.lastIndexOf("/api/") + "/api/".length())).record(result);
+        return result;
+    }
+
+    // ---------------------------------------------------------------- measurement
+
+    record Result(int status, long nanos, long bytes, String body, String cookie, long retryAfterSeconds) {
+        static Result failed(long nanos) {
+            return new Result(-1, nanos, 0, null, null, 1);
+        }
+    }
+
+    /**
+     * Latency samples kept raw (one long per request) so percentiles are exact; a 10 minute run
+     * with a thousand viewers stays in the tens of megabytes.
+     */
+    static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        static double percentileMs(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+    }
+
+    static final class Stats {
+        final Samples latency = new Samples();
+        final LongAdder requests = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(Result result) {
+            requests.increment();
+            bytes.add(result.bytes);
+            statuses.computeIfAbsent(result.status, status -> new LongAdder()).increment();
+            latency.add(result.nanos);
+        }
+
+        long count(int status) {
+            LongAdder adder = statuses.get(status);
+            return adder == null ? 0 : adder.sum();
+        }
+    }
+
+    static final class Report {
+        final Config config;
+        volatile long startedAt = System.nanoTime();
+        volatile long finishedAt;
+        final Map<String, Stats> stats = new ConcurrentHashMap<>();
+        final Map<String, Samples> startup = new ConcurrentHashMap<>();
+        final Map<String, List<PlayerModel>> players = new ConcurrentHashMap<>();
+        final Map<String, Samples> behindLive = new ConcurrentHashMap<>();
+        final Map<String, Samples> pageLoads = new ConcurrentHashMap<>();
+
+        Report(Config config) {
+            this.config = config;
+        }
+
+        Stats stats(String role, String kind) {
+            return stats.computeIfAbsent(role + "/" + kind, key -> new Stats());
+        }
+
+        Samples startup(String role) {
+            return startup.computeIfAbsent(role, key -> new Samples());
+        }
+
+        Samples behindLive(String role) {
+            return behindLive.computeIfAbsent(role, key -> new Samples());
+        }
+
+        Samples pageLoad(String role) {
+            return pageLoads.computeIfAbsent(role, key -> new Samples());
+        }
+
+        List<PlayerModel> players(String role) {
+            return players.computeIfAbsent(role, key -> java.util.Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        long totalRequests() {
+            return stats.values().stream().mapToLong(s -> s.requests.sum()).sum();
+        }
+
+        long totalBytes() {
+            return stats.values().stream().mapToLong(s -> s.bytes.sum()).sum();
+        }
+
+        double elapsedSeconds() {
+            long end = finishedAt == 0 ? System.nanoTime() : finishedAt;
+            return Math.max(0.001, (end - startedAt) / 1e9);
+        }
+
+        void print(CpuSampler cpu) {
+            double seconds = elapsedSeconds();
+            System.out.println();
+            System.out.printf(Locale.ROOT, "=== %s: %.0fs, %d requests (%.1f req/s), %.2f MB/s%n", config.mode, seconds,
+                    totalRequests(), totalRequests() / seconds, totalBytes() / seconds / 1e6);
+            System.out.printf(Locale.ROOT, "%-22s %9s %9s %9s %9s %9s %10s  %s%n",
+                    "class", "requests", "p50 ms", "p90 ms", "p99 ms", "max ms", "MB/s", "statuses");
+            for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+                Stats s = entry.getValue();
+                long[] sorted = s.latency.sorted();
+                System.out.printf(Locale.ROOT, "%-22s %9d %9.1f %9.1f %9.1f %9.1f %10.2f  %s%n", entry.getKey(),
+                        s.requests.sum(), Samples.percentileMs(sorted, 50), Samples.percentileMs(sorted, 90),
+                        Samples.percentileMs(sorted, 99), Samples.percentileMs(sorted, 100),
+                        s.bytes.sum() / seconds / 1e6, statusSummary(s));
+            }
+            for (Map.Entry<String, List<PlayerModel>> entry : new TreeMap<>(players).entrySet()) {
+                PlaybackSummary playback = PlaybackSummary.of(entry.getValue(), startup(entry.getKey()));
+                System.out.printf(Locale.ROOT,
+                        "playback %-13s sessions=%d stalls=%d (%.1f%% of sessions) stalled=%.1f%% of watch time startup p50=%.0fms p99=%.0fms%n",
+                        entry.getKey(), playback.sessions, playback.stalls, playback.stalledSessionsPercent,
+                        playback.stalledTimePercent, playback.startupP50Ms, playback.startupP99Ms);
+            }
+            for (Map.Entry<String, Samples> entry : new TreeMap<>(behindLive).entrySet()) {
+                long[] firstFrame = startup(entry.getKey()).sorted();
+                long[] behind = entry.getValue().sorted();
+                System.out.printf(Locale.ROOT,
+                        "%-22s switches=%d first frame p50=%.0fms p90=%.0fms behind live p50=%.0fms p90=%.0fms%n",
+                        entry.getKey(), behind.length, Samples.percentileMs(firstFrame, 50), Samples.percentileMs(firstFrame, 90),
+                        Samples.percentileMs(behind, 50), Samples.percentileMs(behind, 90));
+            }
+            for (Map.Entry<String, Samples> entry : new TreeMap<>(pageLoads).entrySet()) {
+                long[] sorted = entry.getValue().sorted();
+                System.out.printf(Locale.ROOT, "%-22s loads=%d p50=%.0fms p90=%.0fms p99=%.0fms (rtt %dms per request)%n",
+                        entry.getKey(), sorted.length, Samples.percentileMs(sorted, 50), Samples.percentileMs(sorted, 90),
+                        Samples.percentileMs(sorted, 99), config.rttMs);
+            }
+            CpuSampler.Usage usage = cpu.overall();
+            if (usage != null) {
+                System.out.printf(Locale.ROOT, "backend cpu avg=%.0f%% peak=%.0f%% (100%% = one core)%n", usage.averagePercent, usage.peakPercent);
+            }
+        }
+
+        String toJson(CpuSampler cpu) {
+            double seconds = elapsedSeconds();
+            StringBuilder json = new StringBuilder();
+            json.append("{\"mode\":\"").append(config.mode).append('"')
+                    .append(",\"cameras\":").append(config.cameras)
+                    .append(",\"viewers\":").append(config.viewers)
+                    .append(",\"hlsTimeSeconds\":").append(config.hlsTimeSeconds)
+                    .append(",\"segmentKbps\":").append(config.segmentKbps)
+                    .append(",\"elapsedSeconds\":").append(fixed(seconds))
+                    .append(",\"requestsPerSecond\":").append(fixed(totalRequests() / seconds))
+                    .append(",\"bytesPerSecond\":").append(fixed(totalBytes() / seconds))
+                    .append(",\"classes\":{");
+            boolean first = true;
+            for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+                Stats s = entry.getValue();
+                long[] sorted = s.latency.sorted();
+                json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":{")
+                        .append("\"requests\":").append(s.requests.sum())
+                        .append(",\"bytes\":").append(s.bytes.sum())
+                        .append(",\"p50Ms\":").append(fixed(Samples.percentileMs(sorted, 50)))
+                        .append(",\"p90Ms\":").append(fixed(Samples.percentileMs(sorted, 90)))
+                        .append(",\"p99Ms\":").append(fixed(Samples.percentileMs(sorted, 99)))
+                        .append(",\"maxMs\":").append(fixed(Samples.percentileMs(sorted, 100)))
+                        .append(",\"statuses\":{");
+                boolean firstStatus = true;
+                for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(s.statuses).entrySet()) {
+                    json.append(firstStatus ? "" : ",").append('"').append(status.getKey()).append("\":").append(status.getValue().sum());
+                    firstStatus = false;
+                }
+                json.append("}}");
+                first = false;
+            }
+            json.append("},\"playback\":{");
+            first = true;
+            for (Map.Entry<String, List<PlayerModel>> entry : new TreeMap<>(players).entrySet()) {
+                PlaybackSummary playback = PlaybackSummary.of(entry.getValue(), startup(entry.getKey()));
+                json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":{")
+                        .append("\"sessions\":").append(playback.sessions)
+                        .append(",\"stalls\":").append(playback.stalls)
+                        .append(",\"stalledSessionsPercent\":").append(fixed(playback.stalledSessionsPercent))
+                        .append(",\"stalledTimePercent\":").append(fixed(playback.stalledTimePercent))
+                        .append(",\"startupP50Ms\":").append(fixed(playback.startupP50Ms))
+                        .append(",\"startupP99Ms\":").append(fixed(playback.startupP99Ms))
+                        .append('}');
+                first = false;
+            }
+            json.append("},\"switching\":{");
+            first = true;
+            for (Map.Entry<String, Samples> entry : new TreeMap<>(behindLive).entrySet()) {
+                long[] firstFrame = startup(entry.getKey()).sorted();
+                long[] behind = entry.getValue().sorted();
+                json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":{")
+                        .append("\"switches\":").append(behind.length)
+                        .append(",\"firstFrameP50Ms\":").append(fixed(Samples.percentileMs(firstFrame, 50)))
+                        .append(",\"firstFrameP90Ms\":").append(fixed(Samples.percentileMs(firstFrame, 90)))
+                        .append(",\"behindLiveP50Ms\":").append(fixed(Samples.percentileMs(behind, 50)))
+                        .append(",\"behindLiveP90Ms\":").append(fixed(Samples.percentileMs(behind, 90)))
+                        .append('}');
+                first = false;
+            }
+            json.append("},\"pageLoads\":{");
+            first = true;
+            for (Map.Entry<String, Samples> entry : new TreeMap<>(pageLoads).entrySet()) {
+                long[] sorted = entry.getValue().sorted();
+                json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":{")
+                        .append("\"loads\":").append(sorted.length)
+                        .append(",\"p50Ms\":").append(fixed(Samples.percentileMs(sorted, 50)))
+                        .append(",\"p90Ms\":").append(fixed(Samples.percentileMs(sorted, 90)))
+                        .append(",\"p99Ms\":").append(fixed(Samples.percentileMs(sorted, 99)))
+                        .append('}');
+                first = false;
+            }
+            json.append('}');
+            CpuSampler.Usage usage = cpu.overall();
+            if (usage != null) {
+                json.append(",\"backendCpu\":{\"averagePercent\":").append(fixed(usage.averagePercent))
+                        .append(",\"peakPercent\":").append(fixed(usage.peakPercent)).append('}');
+            }
+            return json.append("}\n").toString();
+        }
+
+        private static String statusSummary(Stats stats) {
+            StringBuilder summary = new StringBuilder();
+            for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(stats.statuses).entrySet()) {
+                summary.append(summary.length() == 0 ? "" : " ")
+                        .append(status.getKey() < 0 ? "io-error" : status.getKey().toString())
+                        .append('=').append(status.getValue().sum());
+            }
+            return summary.toString();
+        }
+
+        private static String fixed(double value) {
+            return String.format(Locale.ROOT, "%.3f", value);
+        }
+    }
+
+    record PlaybackSummary(int sessions, long stalls, double stalledSessionsPercent, double stalledTimePercent,
+                           double startupP50Ms, double startupP99Ms) {
+        static PlaybackSummary of(List<PlayerModel> players, Samples startup) {
+            List<PlayerModel> copy;
+            synchronized (players) {
+                copy = new ArrayList<>(players);
+            }
+            long stalls = 0;
+            int stalledSessions = 0;
+            double stalled = 0;
+            double watched = 0;
+            for (PlayerModel player : copy) {
+                stalls += player.stalls;
+                stalledSessions += player.stalls > 0 ? 1 : 0;
+                stalled += player.stalledSeconds;
+                watched += player.stalledSeconds + player.playedSeconds;
+            }
+            long[] sorted = startup.sorted();
+            return new PlaybackSummary(copy.size(), stalls,
+                    copy.isEmpty() ? 0 : 100.0 * stalledSessions / copy.size(),
+                    watched == 0 ? 0 : 100.0 * stalled / watched,
+                    Samples.percentileMs(sorted, 50), Samples.percentileMs(sorted, 99));
+        }
+    }
+
+    static final class ProgressPrinter {
+        private final Report report;
+        private final CpuSampler cpu;
+        private final AtomicInteger active;
+        private long lastRequests;
+        private long lastBytes;
+        private long lastAt = System.nanoTime();
+
+        ProgressPrinter(Report report, CpuSampler cpu, AtomicInteger active) {
+            this.report = report;
+            this.cpu = cpu;
+            this.active = active;
+        }
+
+        void print() {
+            long now = System.nanoTime();
+            double seconds = Math.max(0.001, (now - lastAt) / 1e9);
+            long requests = report.totalRequests();
+            long bytes = report.totalBytes();
+            long errors = report.stats.values().stream()
+                    .mapToLong(s -> s.count(-1) + s.statuses.entrySet().stream()
+                            .filter(e -> e.getKey() >= 500).mapToLong(e -> e.getValue().sum()).sum())
+                    .sum();
+            long throttled = report.stats.values().stream().mapToLong(s -> s.count(429)).sum();
+            Double cpuPercent = cpu.sample();
+            log(String.format(Locale.ROOT, "t+%3.0fs active=%d req/s=%.0f MB/s=%.2f 429=%d errors=%d cpu=%s",
+                    report.elapsedSeconds(), active.get(), (requests - lastRequests) / seconds,
+                    (bytes - lastBytes) / seconds / 1e6, throttled, errors,
+                    cpuPercent == null ? "n/a" : String.format(Locale.ROOT, "%.0f%%", cpuPercent)));
+            lastRequests = requests;
+            lastBytes = bytes;
+            lastAt = now;
+        }
+    }
+
+    /**
+     * Backend process CPU from /proc/&lt;pid&gt;/stat (utime + stime, USER_HZ = 100 on Linux).
+     */
+    static final class CpuSampler {
+        private static final double TICKS_PER_SECOND = 100.0;
+        private final Long pid;
+        private final long startTicks;
+        private final long startedAt = System.nanoTime();
+        private long lastTicks;
+        private long lastAt = startedAt;
+        private double peak;
+
+        private CpuSampler(Long pid) {
+            this.pid = pid;
+            this.startTicks = pid == null ? 0 : ticks();
+            this.lastTicks = startTicks;
+        }
+
+        static CpuSampler forBackend(String configuredPid) {
+            if (!configuredPid.isBlank()) {
+                return new CpuSampler(Long.parseLong(configuredPid.trim()));
+            }
+            Path proc = Path.of("/proc");
+            if (!Files.isDirectory(proc)) {
+                return new CpuSampler(null);
+            }
+            try (Stream<Path> entries = Files.list(proc)) {
+                for (Path entry : entries.filter(p -> p.getFileName().toString().chars().allMatch(Character::isDigit)).toList()) {
+                    try {
+                        String cmdline = new String(Files.readAllBytes(entry.resolve("cmdline")), StandardCharsets.UTF_8);
+                        if (cmdline.contains("com.yoojuno.cctv.CctvStreamingApplication") || cmdline.contains("cctv-streaming")) {
+                            return new CpuSampler(Long.parseLong(entry.getFileName().toString()));
+                        }
+                    } catch (IOException ignored) {
+                        // Process exited or is not readable.
+                    }
+                }
+            } catch (IOException ignored) {
+                // No /proc access: run without CPU numbers.
+            }
+            return new CpuSampler(null);
+        }
+
+        Optional<Long> pid() {
+            return Optional.ofNullable(pid);
+        }
+
+        synchronized Double sample() {
+            if (pid == null) {
+                return null;
+            }
+            long now = System.nanoTime();
+            long ticks = ticks();
+            double percent = (ticks - lastTicks) / TICKS_PER_SECOND / Math.max(0.001, (now - lastAt) / 1e9) * 100;
+            lastTicks = ticks;
+            lastAt = now;
+            peak = Math.max(peak, percent);
+            return percent;
+        }
+
+        synchronized Usage overall() {
+            if (pid == null) {
+                return null;
+            }
+            sample();
+            double seconds = Math.max(0.001, (lastAt - startedAt) / 1e9);
+            return new Usage((lastTicks - startTicks) / TICKS_PER_SECOND / seconds * 100, peak);
+        }
+
+        private long ticks() {
+            try {
+                String stat = Files.readString(Path.of("/proc", pid.toString(), "stat"));
+                // The command name may contain spaces; fields after ')' are fixed.
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+            } catch (IOException | RuntimeException e) {
+                return lastTicks;
+            }
+        }
+
+        record Usage(double averagePercent, double peakPercent) {
+        }
+    }
+
+    // ---------------------------------------------------------------- config & helpers
+
+    record Credentials(String username, String password) {
+        static List<Credentials> parseList(String raw) {
+            List<Credentials> result = new ArrayList<>();
+            for (String entry : raw.split(",")) {
+                String trimmed = entry.trim();
+                int colon = trimmed.indexOf(':');
+                if (colon > 0) {
+                    result.add(new Credentials(trimmed.substring(0, colon), trimmed.substring(colon + 1)));
+                }
+            }
+            if (result.isEmpty()) {
+                throw new IllegalArgumentException("No credentials in '" + raw + "' (expected user:password[,user:password])");
+            }
+            return result;
+        }
+    }
+
+    static final class Config {
+        String mode;
+        String backendUrl;
+        String hlsDir;
+        String streamPrefix;
+        String catalogFile;
+        String reportFile;
+        String backendPid;
+        String authCookieName;
+        int cameras;
+        double hlsTimeSeconds;
+        int hlsListSize;
+        double segmentKbps;
+        int viewers;
+        List<Credentials> viewerUsers;
+        Credentials greedyUser;
+        int greedyViewers;
+        int greedyParallel;
+        int warmupSeconds;
+        int rampSeconds;
+        int durationSeconds;
+        int reportIntervalSeconds;
+        int requestTimeoutSeconds;
+        int loginBurst;
+        int loginRounds;
+        int loginPauseSeconds;
+        double loginBadRatio;
+        double switchSeconds;
+        long rttMs;
+        long pageLoadPauseMs;
+        boolean keepFiles;
+
+        static Config fromEnv() {
+            Config config = new Config();
+            config.mode = env("MODE", "fleet");
+            config.backendUrl = env("BACKEND_URL", "http://127.0.0.1:8081").replaceAll("/+$", "");
+            config.hlsDir = env("HLS_DIR", "apps/backend/hls");
+            config.streamPrefix = env("STREAM_PREFIX", "load");
+            config.catalogFile = env("CATALOG_FILE", "");
+            config.reportFile = env("REPORT_FILE", "");
+            config.backendPid = env("BACKEND_PID", "");
+            config.authCookieName = env("AUTH_COOKIE_NAME", "CCTV_AUTH");
+            config.cameras = Math.max(1, Integer.parseInt(env("CAMERAS", "10")));
+            config.hlsTimeSeconds = Math.max(0.2, Double.parseDouble(env("HLS_TIME", "1")));
+            config.hlsListSize = Integer.parseInt(env("HLS_LIST_SIZE", "4"));
+            config.segmentKbps = Double.parseDouble(env("SEGMENT_KBPS", "800"));
+            config.viewers = Integer.parseInt(env("VIEWERS", "50"));
+            config.viewerUsers = Credentials.parseList(env("VIEWER_USERS", "admin:admin123"));
+            config.greedyUser = Credentials.parseList(env("GREEDY_USER", env("VIEWER_USERS", "admin:admin123"))).get(0);
+            config.greedyViewers = Integer.parseInt(env("GREEDY_VIEWERS", "1"));
+            config.greedyParallel = Math.max(1, Integer.parseInt(env("GREEDY_PARALLEL", "8")));
+            config.warmupSeconds = Integer.parseInt(env("WARMUP_SECONDS", "3"));
+            config.rampSeconds = Integer.parseInt(env("RAMP_SECONDS", "10"));
+            config.durationSeconds = Integer.parseInt(env("DURATION_SECONDS", "60"));
+            config.reportIntervalSeconds = Math.max(1, Integer.parseInt(env("REPORT_INTERVAL_SECONDS", "5")));
+            config.requestTimeoutSeconds = Math.max(1, Integer.parseInt(env("REQUEST_TIMEOUT_SECONDS", "10")));
+            config.loginBurst = Math.max(1, Integer.parseInt(env("LOGIN_BURST", "200")));
+            config.loginRounds = Math.max(1, Integer.parseInt(env("LOGIN_ROUNDS", "3")));
+            config.loginPauseSeconds = Integer.parseInt(env("LOGIN_PAUSE_SECONDS", "5"));
+            config.loginBadRatio = Double.parseDouble(env("LOGIN_BAD_RATIO", "0"));
+            config.switchSeconds = Math.max(0.5, Double.parseDouble(env("SWITCH_SECONDS", "4")));
+            config.rttMs = Math.max(0, Long.parseLong(env("RTT_MS", "0")));
+            config.pageLoadPauseMs = Math.max(0, Long.parseLong(env("PAGE_LOAD_PAUSE_MS", "500")));
+            config.keepFiles = Boolean.parseBoolean(env("KEEP_FILES", "false"));
+            return config;
+        }
+
+        private static String env(String name, String fallback) {
+            String value = System.getenv(name);
+            return value == null || value.isBlank() ? fallback : value.trim();
+        }
+    }
+
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, content);
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String jsonEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static Thread startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static java.util.concurrent.ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos > 0) {
+            sleepQuietly(TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("interrupted", e));
+        }
+    }
+
+    private static void log(String message) {
+        System.out.printf("[%tF %<tT] %s%n", System.currentTimeMillis(), message);
+    }
+}
@@ -0,0 +1,37 @@
+#!/usr/bin/env bash
+# Local HLS load test: synthetic camera fleet + simulated viewers against a running backend.
+# No cameras or ffmpeg required. See README.md (Load Test) for modes and settings.
+
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "$0")" && pwd)"
+ROOT_DIR="$(cd "$SCRIPT_DIR/../../.." && pwd)"
+
+export MODE="${MODE:-fleet}"
+export BACKEND_URL="${BACKEND_URL:-http://127.0.0.1:8081}"
+export HLS_DIR="${HLS_DIR:-$ROOT_DIR/apps/backend/hls}"
+export CAMERAS="${CAMERAS:-10}"
+export VIEWERS="${VIEWERS:-50}"
+export HLS_TIME="${HLS_TIME:-1}"
+export HLS_LIST_SIZE="${HLS_LIST_SIZE:-4}"
+export SEGMENT_KBPS="${SEGMENT_KBPS:-800}"
+export VIEWER_USERS="${VIEWER_USERS:-admin:admin123}"
+export RAMP_SECONDS="${RAMP_SECONDS:-10}"
+export DURATION_SECONDS="${DURATION_SECONDS:-60}"
+export REPORT_FILE="${REPORT_FILE:-}"
+
+log() {
+  printf '[%s] %s\n' "$(date '+%Y-%m-%d %H:%M:%S')" "$*"
+}
+
+if ! command -v java >/dev/null 2>&1; then
+  log "Error: java (17+) not found in PATH."
+  exit 1
+fi
+
+if ! curl -fsS -o /dev/null "$BACKEND_URL/health" 2>/dev/null; then
+  log "Warning: $BACKEND_URL/health is not reachable. Start the backend first (./scripts/dev-up.sh)."
+fi
+
+log "MODE=$MODE CAMERAS=$CAMERAS VIEWERS=$VIEWERS HLS_TIME=$HLS_TIME HLS_DIR=$HLS_DIR"
+exec java -Xss512k "$SCRIPT_DIR/HlsLoadTest.java"
@@ -1,12 +1,22 @@
 import { useEffect, useMemo, useRef, useState } from "react";
-import { fetchMe, fetchStreamHealth, fetchStreams, fetchSystemHealth, login, logout } from "./api/client";
+import {
+  fetchDashboard,
+  fetchStreamHealth,
+  fetchStreams,
+  fetchSystemHealth,
+  login,
+  logout,
+  refreshSession,
+} from "./api/client";
 import LoginForm from "./components/LoginForm";
 import StreamCard from "./components/StreamCard";
-import type { AuthSession, HlsStorageStatus, StreamHealth, StreamInfo } from "./types";
+import type { AuthSession, StorageSummary, StreamHealth, StreamInfo } from "./types";
 
 const HTTP_UNAUTHORIZED_PREFIX = "HTTP 401";
 const DEFAULT_HEALTH_POLL_MS = 4000;
 const MAX_HEALTH_BACKOFF_MS = 30000;
+const MIN_SESSION_REFRESH_MS = 30000;
+const SESSION_REFRESH_RETRY_MS = 15000;
 
 function isUnauthorizedError(error: unknown): boolean {
   return error instanceof Error && error.message.startsWith(HTTP_UNAUTHORIZED_PREFIX);
@@ -16,6 +26,7 @@ export default function App() {
   const [session, setSession] = useState<AuthSession | null>(null);
   const [streams, setStreams] = useState<StreamInfo[]>([]);
   const [streamHealthById, setStreamHealthById] = useState<Record<string, StreamHealth>>({});
+  const [viewersById, setViewersById] = useState<Record<string, number>>({});
   const [liveThresholdSeconds, setLiveThresholdSeconds] = useState<number>(0);
   const [loadingAuth, setLoadingAuth] = useState(false);
   const [loadingStreams, setLoadingStreams] = useState(false);
@@ -25,9 +36,12 @@ export default function App() {
   const [healthWarning, setHealthWarning] = useState<string | null>(null);
   const [healthPollMs, setHealthPollMs] = useState<number>(DEFAULT_HEALTH_POLL_MS);
   const [systemRecommendations, setSystemRecommendations] = useState<string[]>([]);
-  const [hlsStorage, setHlsStorage] = useState<HlsStorageStatus | null>(null);
+  const [hlsStorage, setHlsStorage] = useState<StorageSummary | null>(null);
   const skipNextAutoFetchRef = useRef(false);
   const healthPollMsRef = useRef(DEFAULT_HEALTH_POLL_MS);
+  const accessTtlSecondsRef = useRef(0);
+  // Health version from the dashboard bootstrap; the health poll continues from it.
+  const bootstrapHealthVersionRef = useRef<number | null>(null);
 
   const subtitle = useMemo(() => {
     if (!session) {
@@ -66,6 +80,7 @@ export default function App() {
     setSession(null);
     setStreams([]);
     setStreamHealthById({});
+    setViewersById({});
     setLiveThresholdSeconds(0);
     setStreamsError(null);
     setHealthWarning(null);
@@ -74,6 +89,7 @@ export default function App() {
     setHlsStorage(null);
     setLoadingStreams(false);
     healthPollMsRef.current = DEFAULT_HEALTH_POLL_MS;
+    bootstrapHealthVersionRef.current = null;
     setAuthError(nextAuthError);
   }
 
@@ -83,12 +99,29 @@ export default function App() {
 
   useEffect(() => {
     let cancelled = false;
-    fetchMe()
+    // One round trip for identity, streams, health and storage instead of four.
+    fetchDashboard()
       .then((response) => {
         if (cancelled) {
           return;
         }
         skipNextAutoFetchRef.current = true;
+        // A revalidated (304) body reports the token lifetime as of generatedAtEpochMs.
+        const elapsedSeconds = Math.max(0, (Date.now() - response.generatedAtEpochMs) / 1000);
+        accessTtlSecondsRef.current = Math.max(0, response.expiresInSeconds - elapsedSeconds);
+        const healthById: Record<string, StreamHealth> = {};
+        for (const item of response.health ?? []) {
+          healthById[item.id] = item;
+        }
+        const pollMs = Math.max(1000, response.recommendedPollMs || DEFAULT_HEALTH_POLL_MS);
+        healthPollMsRef.current = pollMs;
+        bootstrapHealthVersionRef.current = response.version;
+        setHealthPollMs(pollMs);
+        setStreamHealthById(healthById);
+        setViewersById(response.viewers ?? {});
+        setLiveThresholdSeconds(response.liveThresholdSeconds);
+        setSystemRecommendations(response.recommendations ?? []);
+        setHlsStorage(response.storage ?? null);
         setSession({
           username: response.username,
           displayName: response.displayName,
@@ -174,18 +207,39 @@ export default function App() {
     let cancelled = false;
     let timerId: number | null = null;
     let consecutiveFailures = 0;
+    const bootstrapVersion = bootstrapHealthVersionRef.current;
+    bootstrapHealthVersionRef.current = null;
+    let healthVersion: number | undefined = bootstrapVersion ?? undefined;
 
     const fetchHealth = async () => {
       try {
-        const [response, systemHealth] = await Promise.all([fetchStreamHealth(), fetchSystemHealth()]);
+        const [response, systemHealth] = await Promise.all([fetchStreamHealth(healthVersion), fetchSystemHealth()]);
         if (cancelled) {
           return;
         }
-        const nextMap: Record<string, StreamHealth> = {};
-        for (const item of response.streams) {
-          nextMap[item.id] = item;
+        healthVersion = response.version;
+        if (response.delta) {
+          const removed = response.removed ?? [];
+          if (response.streams.length > 0 || removed.length > 0) {
+            setStreamHealthById((previous) => {
+              const nextMap = { ...previous };
+              for (const id of removed) {
+                delete nextMap[id];
+              }
+              for (const item of response.streams) {
+                nextMap[item.id] = item;
+              }
+              return nextMap;
+            });
+          }
+        } else {
+          const nextMap: Record<string, StreamHealth> = {};
+          for (const item of response.streams) {
+            nextMap[item.id] = item;
+          }
+          setStreamHealthById(nextMap);
         }
-        setStreamHealthById(nextMap);
+        setViewersById(response.viewers ?? {});
         setLiveThresholdSeconds(response.liveThresholdSeconds);
         const nextPollMs = Math.max(1000, response.recommendedPollMs || DEFAULT_HEALTH_POLL_MS);
         setHealthPollMs(nextPollMs);
@@ -223,7 +277,59 @@ export default function App() {
       }
     };
 
-    void fetchHealth();
+    if (bootstrapVersion === null) {
+      void fetchHealth();
+    } else {
+      // Already seeded by the dashboard: the first poll is a delta one interval later.
+      timerId = window.setTimeout(() => {
+        void fetchHealth();
+      }, healthPollMsRef.current);
+    }
+
+    return () => {
+      cancelled = true;
+      if (timerId !== null) {
+        window.clearTimeout(timerId);
+      }
+    };
+  }, [session]);
+
+  // Renew the short-lived access cookie before it expires so running players never see a 401.
+  useEffect(() => {
+    if (!session) {
+      return;
+    }
+
+    let cancelled = false;
+    let timerId: number | null = null;
+
+    const schedule = (delayMs: number) => {
+      timerId = window.setTimeout(() => {
+        void renew();
+      }, delayMs);
+    };
+
+    const renew = async () => {
+      try {
+        const result = await refreshSession();
+        if (cancelled) {
+          return;
+        }
+        if (!result) {
+          cancelled = true;
+          expireSession();
+          return;
+        }
+        accessTtlSecondsRef.current = result.expiresInSeconds;
+        schedule(Math.max(MIN_SESSION_REFRESH_MS, result.expiresInSeconds * 800));
+      } catch {
+        if (!cancelled) {
+          schedule(SESSION_REFRESH_RETRY_MS);
+        }
+      }
+    };
+
+    schedule(Math.max(MIN_SESSION_REFRESH_MS, accessTtlSecondsRef.current * 800));
 
     return () => {
       cancelled = true;
@@ -238,6 +344,7 @@ export default function App() {
     setAuthError(null);
     try {
       const result = await login(username, password);
+      accessTtlSecondsRef.current = result.expiresInSeconds;
       const nextSession: AuthSession = {
         username: result.username,
         displayName: result.displayName,
@@ -368,6 +475,7 @@ export default function App() {
                 stream={stream}
                 health={streamHealthById[stream.id]}
                 liveThresholdSeconds={liveThresholdSeconds}
+                viewers={viewersById[stream.id]}
               />
             ))}
           </section>
@@ -1,4 +1,10 @@
-import type { AuthResponse, StreamsHealthResponse, StreamsResponse, SystemHealthResponse } from "../types";
+import type {
+  AuthResponse,
+  DashboardResponse,
+  StreamsHealthResponse,
+  StreamsResponse,
+  SystemHealthResponse,
+} from "../types";
 
 const API_BASE_URL = import.meta.env.VITE_API_BASE_URL
   ? import.meta.env.VITE_API_BASE_URL.replace(/\/$/, "")
@@ -23,7 +29,9 @@ async function parseJsonOrThrow<T>(response: Response): Promise<T> {
   }
 
   const suffix = details ? `: ${details}` : "";
-  throw new Error(`HTTP ${response.status}${suffix}`);
+  const retryAfter = response.headers.get("Retry-After");
+  const retryHint = retryAfter ? ` (retry in ${retryAfter}s)` : "";
+  throw new Error(`HTTP ${response.status}${suffix}${retryHint}`);
 }
 
 async function fetchOrThrow(input: RequestInfo | URL, init?: RequestInit): Promise<Response> {
@@ -38,6 +46,32 @@ async function fetchOrThrow(input: RequestInfo | URL, init?: RequestInit): Promi
   }
 }
 
+let refreshInFlight: Promise<AuthResponse | null> | null = null;
+
+/**
+ * Renews the access cookie from the refresh cookie. Concurrent callers share one request so the
+ * rotating refresh token is only consumed once. Resolves to null when the session is gone.
+ */
+export function refreshSession(): Promise<AuthResponse | null> {
+  if (!refreshInFlight) {
+    refreshInFlight = fetchOrThrow(`${API_BASE_URL}/api/auth/refresh`, { method: "POST" })
+      .then(async (response) => (response.ok ? ((await response.json()) as AuthResponse) : null))
+      .finally(() => {
+        refreshInFlight = null;
+      });
+  }
+  return refreshInFlight;
+}
+
+async function fetchWithRefresh(input: string, init?: RequestInit): Promise<Response> {
+  const response = await fetchOrThrow(input, init);
+  if (response.status !== 401) {
+    return response;
+  }
+  const renewed = await refreshSession().catch(() => null);
+  return renewed ? fetchOrThrow(input, init) : response;
+}
+
 export async function login(username: string, password: string): Promise<AuthResponse> {
   const response = await fetchOrThrow(`${API_BASE_URL}/api/auth/login`, {
     method: "POST",
@@ -50,12 +84,23 @@ export async function login(username: string, password: string): Promise<AuthRes
 }
 
 export async function fetchMe(): Promise<AuthResponse> {
-  const response = await fetchOrThrow(`${API_BASE_URL}/api/auth/me`, {
+  const response = await fetchWithRefresh(`${API_BASE_URL}/api/auth/me`, {
     method: "GET",
   });
   return parseJsonOrThrow<AuthResponse>(response);
 }
 
+/**
+ * Identity, streams, health and storage summary in one request; used to restore a session on
+ * page load.
+ */
+export async function fetchDashboard(): Promise<DashboardResponse> {
+  const response = await fetchWithRefresh(`${API_BASE_URL}/api/dashboard`, {
+    method: "GET",
+  });
+  return parseJsonOrThrow<DashboardResponse>(response);
+}
+
 export async function logout(): Promise<void> {
   const response = await fetchOrThrow(`${API_BASE_URL}/api/auth/logout`, {
     method: "POST",
@@ -66,21 +111,22 @@ export async function logout(): Promise<void> {
 }
 
 export async function fetchStreams(): Promise<StreamsResponse> {
-  const response = await fetchOrThrow(`${API_BASE_URL}/api/streams`, {
+  const response = await fetchWithRefresh(`${API_BASE_URL}/api/streams`, {
     method: "GET",
   });
   return parseJsonOrThrow<StreamsResponse>(response);
 }
 
-export async function fetchStreamHealth(): Promise<StreamsHealthResponse> {
-  const response = await fetchOrThrow(`${API_BASE_URL}/api/streams/health`, {
+export async function fetchStreamHealth(since?: number): Promise<StreamsHealthResponse> {
+  const query = since === undefined ? "" : `?since=${encodeURIComponent(String(since))}`;
+  const response = await fetchWithRefresh(`${API_BASE_URL}/api/streams/health${query}`, {
     method: "GET",
   });
   return parseJsonOrThrow<StreamsHealthResponse>(response);
 }
 
 export async function fetchSystemHealth(): Promise<SystemHealthResponse> {
-  const response = await fetchOrThrow(`${API_BASE_URL}/api/system/health`, {
+  const response = await fetchWithRefresh(`${API_BASE_URL}/api/system/health`, {
     method: "GET",
   });
   return parseJsonOrThrow<SystemHealthResponse>(response);
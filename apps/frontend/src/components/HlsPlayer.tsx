@@ -1,6 +1,13 @@
 import { useEffect, useMemo, useRef, useState } from "react";
+import { refreshSession } from "../api/client";
 import type { PlaybackMetrics, PlaybackStatus } from "../types";
-import { buildManifestUrl, computeLatencySeconds, getBufferedSeconds, getDroppedFrames } from "../utils/hls";
+import {
+  buildManifestUrl,
+  computeLatencySeconds,
+  getBufferedSeconds,
+  getClientId,
+  getDroppedFrames,
+} from "../utils/hls";
 import StatusBadge from "./StatusBadge";
 import type HlsType from "hls.js";
 
@@ -35,7 +42,8 @@ export default function HlsPlayer({ streamId }: HlsPlayerProps) {
   const manifestUrl = useMemo(() => {
     const baseUrl = (import.meta.env.VITE_HLS_BASE_URL || "/hls").replace(/\/$/, "");
     const overrideUrl = import.meta.env.VITE_HLS_URL;
-    return buildManifestUrl(baseUrl, streamId, overrideUrl);
+    const fastStart = import.meta.env.VITE_HLS_FAST_START !== "false";
+    return buildManifestUrl(baseUrl, streamId, overrideUrl, fastStart);
   }, [streamId]);
 
   useEffect(() => {
@@ -45,6 +53,7 @@ export default function HlsPlayer({ streamId }: HlsPlayerProps) {
     }
 
     let disposed = false;
+    const clientId = getClientId();
     let hls: HlsType | null = null;
     let retryTimer: number | null = null;
     let statsTimer: number | null = null;
@@ -54,6 +63,7 @@ export default function HlsPlayer({ streamId }: HlsPlayerProps) {
     let stallCount = 0;
     let fatalReloadCount = 0;
     let mediaRecoveryCount = 0;
+    let sessionRefreshAttempted = false;
     let stallRecoveryAttempts = 0;
     let lastVideoTime = 0;
     let lastProgressAtMs = Date.now();
@@ -256,18 +266,24 @@ export default function HlsPlayer({ streamId }: HlsPlayerProps) {
         maxLiveSyncPlaybackRate: 1.5,
         xhrSetup: (xhr) => {
           xhr.withCredentials = true;
+          xhr.setRequestHeader("X-Client-Id", clientId);
         },
-        fetchSetup: (context, initParams) =>
-          new Request(context.url, {
+        fetchSetup: (context, initParams) => {
+          const headers = new Headers(initParams.headers);
+          headers.set("X-Client-Id", clientId);
+          return new Request(context.url, {
             ...initParams,
+            headers,
             credentials: "include",
-          }),
+          });
+        },
       });
 
       hls.loadSource(manifestUrl);
       hls.attachMedia(video);
 
       hls.on(ctor.Events.MANIFEST_PARSED, () => {
+        sessionRefreshAttempted = false;
         retryCount = 0;
         notFoundRetryCount = 0;
         fatalReloadCount = 0;
@@ -285,6 +301,26 @@ export default function HlsPlayer({ streamId }: HlsPlayerProps) {
         }
         const httpCode = data.response?.code;
 
+        if (data.type === ctor.ErrorTypes.NETWORK_ERROR && httpCode === 401 && !sessionRefreshAttempted) {
+          sessionRefreshAttempted = true;
+          void refreshSession()
+            .catch(() => null)
+            .then((renewed) => {
+              if (disposed) {
+                return;
+              }
+              if (renewed) {
+                scheduleReload(0, "Session renewed. Resuming playback...");
+                return;
+              }
+              setStatus("fatal error");
+              setErrorMessage("Unauthorized while loading HLS. Please sign in again.");
+              hls?.destroy();
+              hls = null;
+            });
+          return;
+        }
+
         if (data.type === ctor.ErrorTypes.NETWORK_ERROR && (httpCode === 401 || httpCode === 403)) {
           setStatus("fatal error");
           setErrorMessage("Unauthorized while loading HLS. Please sign in again.");
@@ -6,6 +6,7 @@ interface StreamCardProps {
   stream: StreamInfo;
   health?: StreamHealth;
   liveThresholdSeconds: number;
+  viewers?: number;
 }
 
 function guidanceFromHealth(health: StreamHealth, liveThresholdSeconds: number): string {
@@ -49,15 +50,21 @@ function statePillClass(health?: StreamHealth): string {
   return "offline";
 }
 
-export default function StreamCard({ stream, health, liveThresholdSeconds }: StreamCardProps) {
+export default function StreamCard({ stream, health, liveThresholdSeconds, viewers }: StreamCardProps) {
   const [active, setActive] = useState(false);
   const liveState = health ? health.state : "CHECKING";
   const liveClass = statePillClass(health);
   const cardTone = health ? (health.state === "LIVE" ? "tone-live" : health.state === "STARTING" ? "tone-starting" : "tone-offline") : "tone-checking";
   const placeholderText = health ? guidanceFromHealth(health, liveThresholdSeconds) : "Checking stream health...";
 
+  // The server only re-sends a stream when its state changes, so a LIVE result keeps its first
+  // mtime; age is derived here from lastModifiedEpochMs for streams whose manifest has stopped.
+  const manifestAgeSeconds =
+    health && health.state !== "LIVE" && health.lastModifiedEpochMs > 0
+      ? Math.max(0, Math.floor((Date.now() - health.lastModifiedEpochMs) / 1000))
+      : health?.manifestAgeSeconds ?? -1;
   const manifestAgeText =
-    health && health.manifestAgeSeconds >= 0 ? `${health.manifestAgeSeconds}s ago` : "Not detected";
+    health?.state === "LIVE" ? "Live" : health && manifestAgeSeconds >= 0 ? `${manifestAgeSeconds}s ago` : "Not detected";
   const commandHint = `MJPEG_URL=http://<device-ip>:81/stream STREAM_ID=${stream.id} ./scripts/mjpeg_to_hls.sh`;
   const showCommandHint = !health || !health.live;
 
@@ -73,6 +80,7 @@ export default function StreamCard({ stream, health, liveThresholdSeconds }: Str
             <span className="stream-meta-pill">Manifest: {health?.manifestExists ? "YES" : "NO"}</span>
             <span className="stream-meta-pill">Segments: {health?.segmentCount ?? "-"}</span>
             <span className="stream-meta-pill">Updated: {manifestAgeText}</span>
+            <span className="stream-meta-pill">Viewers: {viewers ?? "-"}</span>
           </div>
         </div>
         <button type="button" className={`btn ${active ? "danger" : "ghost"}`} onClick={() => setActive((v) => !v)}>
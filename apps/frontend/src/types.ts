@@ -1,6 +1,9 @@
 export interface StreamInfo {
   id: string;
   name: string;
+  site?: string | null;
+  group?: string | null;
+  tags?: string[];
 }
 
 export interface AuthResponse {
@@ -12,6 +15,10 @@ export interface AuthResponse {
 
 export interface StreamsResponse {
   streams: StreamInfo[];
+  total: number;
+  offset: number;
+  limit: number;
+  viewers?: Record<string, number>;
 }
 
 export interface StreamHealth {
@@ -34,10 +41,16 @@ export interface StreamsHealthResponse {
   liveThresholdSeconds: number;
   recommendedPollMs: number;
   generatedAtEpochMs: number;
+  version: number;
+  delta: boolean;
+  /** Delta only: stream ids removed from the catalog since the cursor. */
+  removed?: string[];
+  viewers?: Record<string, number>;
 }
 
 export interface HlsStorageStatus {
-  path: string;
+  /** Only sent to admins (access to every stream). */
+  path: string | null;
   exists: boolean;
   readable: boolean;
   writable: boolean;
@@ -45,6 +58,14 @@ export interface HlsStorageStatus {
   segmentCount: number;
 }
 
+/** Storage totals used by the dashboard header; both storage payloads provide them. */
+export type StorageSummary = Pick<HlsStorageStatus, "exists" | "readable" | "writable" | "manifestCount" | "segmentCount">;
+
+export interface DashboardStorage extends StorageSummary {
+  layout: string;
+  volumes: number;
+}
+
 export interface StreamHealthSummary {
   total: number;
   live: number;
@@ -64,6 +85,22 @@ export interface SystemHealthResponse {
   recommendations: string[];
 }
 
+export interface DashboardResponse {
+  generatedAtEpochMs: number;
+  expiresInSeconds: number;
+  username: string;
+  displayName: string;
+  streams: StreamInfo[];
+  viewers?: Record<string, number>;
+  health: StreamHealth[];
+  liveThresholdSeconds: number;
+  recommendedPollMs: number;
+  version: number;
+  summary: StreamHealthSummary;
+  storage: DashboardStorage;
+  recommendations: string[];
+}
+
 export interface AuthSession {
   username: string;
   displayName: string;
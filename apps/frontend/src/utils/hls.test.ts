@@ -7,6 +7,11 @@ describe("hls utils", () => {
     expect(url).toBe("http://localhost:8081/hls/cam%201%2F2.m3u8");
   });
 
+  it("requests the fast-start variant when enabled", () => {
+    const url = buildManifestUrl("http://localhost:8081/hls", "mystream", undefined, true);
+    expect(url).toBe("http://localhost:8081/hls/mystream.m3u8?start=live");
+  });
+
   it("uses override url when provided", () => {
     const url = buildManifestUrl("http://localhost:8081/hls", "mystream", "http://cdn/live.m3u8");
     expect(url).toBe("http://cdn/live.m3u8");
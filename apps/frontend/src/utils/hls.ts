@@ -1,10 +1,14 @@
-export function buildManifestUrl(baseUrl: string, streamId: string, overrideUrl?: string): string {
+/**
+ * With `fastStart` the backend's live-edge variant is requested, which starts playback at
+ * the newest segment instead of several segments behind live.
+ */
+export function buildManifestUrl(baseUrl: string, streamId: string, overrideUrl?: string, fastStart = false): string {
   if (overrideUrl && overrideUrl.trim()) {
     return overrideUrl.trim();
   }
   const normalizedBase = baseUrl.endsWith("/") ? baseUrl.slice(0, -1) : baseUrl;
   const safeStreamId = encodeURIComponent(streamId.trim() || "mystream");
-  return `${normalizedBase}/${safeStreamId}.m3u8`;
+  return `${normalizedBase}/${safeStreamId}.m3u8${fastStart ? "?start=live" : ""}`;
 }
 
 export function getBufferedSeconds(video: HTMLVideoElement): number {
@@ -41,3 +45,25 @@ export function computeLatencySeconds(liveEdgeTime: number | null | undefined, c
   }
   return Math.max(0, liveEdgeTime - currentTime);
 }
+
+const CLIENT_ID_STORAGE_KEY = "cctv.clientId";
+
+/**
+ * Stable per-tab id sent with HLS requests so the backend can count viewers per browser tab.
+ */
+export function getClientId(): string {
+  try {
+    const existing = window.sessionStorage.getItem(CLIENT_ID_STORAGE_KEY);
+    if (existing) {
+      return existing;
+    }
+    const created =
+      typeof crypto !== "undefined" && typeof crypto.randomUUID === "function"
+        ? crypto.randomUUID()
+        : `${Date.now().toString(36)}-${Math.random().toString(36).slice(2, 10)}`;
+    window.sessionStorage.setItem(CLIENT_ID_STORAGE_KEY, created);
+    return created;
+  } catch {
+    return "anonymous";
+  }
+}
@@ -13,10 +13,12 @@ export default defineConfig({
       "/api": {
         target: backendTarget,
         changeOrigin: true,
+        xfwd: true,
       },
       "/hls": {
         target: backendTarget,
         changeOrigin: true,
+        xfwd: true,
       },
     },
   },
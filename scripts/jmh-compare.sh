@@ -0,0 +1,46 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Compares two JMH JSON result files (./gradlew jmh -PjmhResults=...) benchmark by benchmark.
+# Usage: scripts/jmh-compare.sh baseline.json candidate.json [threshold-percent]
+# Exits 1 when any benchmark got slower than the threshold (default 10%).
+
+if [ "$#" -lt 2 ]; then
+  echo "usage: $0 <baseline.json> <candidate.json> [threshold-percent]" >&2
+  exit 2
+fi
+
+python3 - "$1" "$2" "${3:-10}" <<'PY'
+import json
+import sys
+
+def load(path):
+    with open(path) as f:
+        results = {}
+        for run in json.load(f):
+            params = ",".join(f"{k}={v}" for k, v in sorted((run.get("params") or {}).items()))
+            key = run["benchmark"].rsplit(".", 2)[-2] + "." + run["benchmark"].rsplit(".", 1)[-1]
+            if params:
+                key += f" [{params}]"
+            metric = run["primaryMetric"]
+            results[key] = (metric["score"], metric.get("scoreError") or 0.0, metric["scoreUnit"], run.get("mode"))
+        return results
+
+baseline, candidate, threshold = load(sys.argv[1]), load(sys.argv[2]), float(sys.argv[3])
+regressions = 0
+print(f"{'benchmark':60} {'baseline':>14} {'candidate':>14} {'change':>8}")
+for key in sorted(baseline.keys() | candidate.keys()):
+    if key not in baseline or key not in candidate:
+        print(f"{key:60} {'-' if key not in baseline else round(baseline[key][0], 3):>14} "
+              f"{'-' if key not in candidate else round(candidate[key][0], 3):>14} {'n/a':>8}")
+        continue
+    before, _, unit, mode = baseline[key]
+    after = candidate[key][0]
+    # Throughput modes: higher is better. Time modes: lower is better.
+    change = (after - before) / before * 100 if before else 0.0
+    slower = -change if mode == "thrpt" else change
+    flag = "  REGRESSION" if slower > threshold else ""
+    regressions += 1 if flag else 0
+    print(f"{key:60} {before:>14.3f} {after:>14.3f} {change:>+7.1f}% {unit}{flag}")
+sys.exit(1 if regressions else 0)
+PY
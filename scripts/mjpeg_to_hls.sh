@@ -9,6 +9,14 @@ ROOT_DIR="$(cd "$SCRIPT_DIR/.." && pwd)"
 MJPEG_URL="${MJPEG_URL:-http://YOUR_DEVICE_IP:81/stream}"
 STREAM_ID="${STREAM_ID:-mystream}"
 HLS_DIR="${HLS_DIR:-$ROOT_DIR/apps/backend/hls}"
+# Optional: spread streams over several volumes exactly like the backend's hls.volumes/hls.layout.
+# Example: HLS_VOLUMES=ssd1=/mnt/ssd1/hls,ssd2=/mnt/ssd2/hls HLS_LAYOUT=per-stream (absolute paths)
+HLS_VOLUMES="${HLS_VOLUMES:-}"
+HLS_LAYOUT="${HLS_LAYOUT:-flat}"
+# Optional: upload segments/playlists to the backend ingest endpoint (HTTP PUT) instead of HLS_DIR.
+# Example: INGEST_URL=http://127.0.0.1:8081/ingest INGEST_TOKEN=... (requires ingest.enabled=true and ingest.token on the backend)
+INGEST_URL="${INGEST_URL:-}"
+INGEST_TOKEN="${INGEST_TOKEN:-}"
 # ESP32-CAM MJPEG streams can fluctuate heavily in delivered FPS.
 # Keep defaults conservative to prioritize smooth playback over peak quality.
 INPUT_FRAMERATE="${INPUT_FRAMERATE:-12}"
@@ -38,6 +46,56 @@ log() {
   printf '[%s] %s\n' "$(date '+%Y-%m-%d %H:%M:%S')" "$*"
 }
 
+sha256_hex() {
+  if command -v sha256sum >/dev/null 2>&1; then
+    sha256sum | cut -c1-15
+  else
+    shasum -a 256 | cut -c1-15
+  fi
+}
+
+# Prints "name<TAB>path" per configured volume.
+list_volumes() {
+  local entry name path
+  local -a entries
+  IFS=',' read -ra entries <<< "$HLS_VOLUMES"
+  for entry in "${entries[@]}"; do
+    entry="${entry#"${entry%%[![:space:]]*}"}"
+    entry="${entry%"${entry##*[![:space:]]}"}"
+    [ -n "$entry" ] || continue
+    if [[ "$entry" == ?*=* ]]; then
+      name="${entry%%=*}"
+      path="${entry#*=}"
+    else
+      name="$entry"
+      path="$entry"
+    fi
+    printf '%s\t%s\n' "$name" "$path"
+  done
+}
+
+stream_dir_on() {
+  if [ "$HLS_LAYOUT" = "per-stream" ]; then
+    echo "$1/$STREAM_ID"
+  else
+    echo "$1"
+  fi
+}
+
+# Rendezvous hashing: the volume with the highest first-60-bits of sha256("name:stream") wins,
+# matching HlsStorageLayout on the backend.
+resolve_volume_dir() {
+  local name path score best_score=-1 best_path=""
+  while IFS=$'\t' read -r name path; do
+    score=$((16#$(printf '%s:%s' "$name" "$STREAM_ID" | sha256_hex)))
+    if [ "$score" -gt "$best_score" ]; then
+      best_score="$score"
+      best_path="$path"
+    fi
+  done < <(list_volumes)
+  echo "$best_path"
+}
+
 calculate_delay_seconds() {
   local failures="$1"
   local delay_seconds="$RETRY_DELAY_SECONDS"
@@ -108,7 +166,15 @@ if [[ "$MJPEG_URL" == *"YOUR_DEVICE_IP"* ]] || [[ "$MJPEG_URL" == *"<device-ip>"
   exit 1
 fi
 
-mkdir -p "$HLS_DIR"
+if [ -n "$HLS_VOLUMES" ]; then
+  HLS_DIR="$(stream_dir_on "$(resolve_volume_dir)")"
+elif [ "$HLS_LAYOUT" = "per-stream" ]; then
+  HLS_DIR="$(stream_dir_on "$HLS_DIR")"
+fi
+
+if [ -z "$INGEST_URL" ]; then
+  mkdir -p "$HLS_DIR"
+fi
 
 if command -v flock >/dev/null 2>&1; then
   mkdir -p "$LOCK_DIR"
@@ -123,17 +189,50 @@ else
   log "Warning: 'flock' not found. Duplicate STREAM_ID processes are not guarded."
 fi
 
-HLS_FLAGS="append_list+program_date_time+independent_segments+omit_endlist"
-if [ "$HLS_DELETE" = "true" ]; then
-  HLS_FLAGS="delete_segments+$HLS_FLAGS"
-fi
-HLS_FLAGS="$HLS_FLAGS+temp_file"
+OUTPUT_ARGS=()
+if [ -n "$INGEST_URL" ]; then
+  # No append_list/temp_file over HTTP: there is no previous playlist to read back and each
+  # PUT replaces the object atomically on the server.
+  HLS_FLAGS="program_date_time+independent_segments+omit_endlist"
+  if [ "$HLS_DELETE" = "true" ]; then
+    HLS_FLAGS="delete_segments+$HLS_FLAGS"
+  fi
+  OUTPUT_ARGS+=(-method PUT)
+  if [ -n "$INGEST_TOKEN" ]; then
+    OUTPUT_ARGS+=(-headers "Authorization: Bearer ${INGEST_TOKEN}"$'\r\n')
+  fi
+  OUTPUT_ARGS+=(-hls_segment_filename "${INGEST_URL%/}/${STREAM_ID}_%05d.ts" "${INGEST_URL%/}/${STREAM_ID}.m3u8")
+  # ffmpeg rewrites this small file on every stats update; the stall watchdog watches it instead of the manifest.
+  PROGRESS_DIR="/dev/shm"
+  [ -d "$PROGRESS_DIR" ] && [ -w "$PROGRESS_DIR" ] || PROGRESS_DIR="${TMPDIR:-/tmp}"
+  PROGRESS_FILE="$PROGRESS_DIR/cctv_${STREAM_ID}.progress"
+else
+  HLS_FLAGS="append_list+program_date_time+independent_segments+omit_endlist"
+  if [ "$HLS_DELETE" = "true" ]; then
+    HLS_FLAGS="delete_segments+$HLS_FLAGS"
+  fi
+  HLS_FLAGS="$HLS_FLAGS+temp_file"
+  OUTPUT_ARGS+=(-hls_segment_filename "$HLS_DIR/${STREAM_ID}_%05d.ts" "$HLS_DIR/${STREAM_ID}.m3u8")
+  PROGRESS_FILE=""
 
-find "$HLS_DIR" -maxdepth 1 -type f \( -name "${STREAM_ID}.m3u8" -o -name "${STREAM_ID}_*.ts" \) -delete
+  find "$HLS_DIR" -maxdepth 1 -type f \( -name "${STREAM_ID}.m3u8" -o -name "${STREAM_ID}_*.ts" \) -delete
+  # After a volume is added the stream may move; drop what an earlier run left on the old volume.
+  if [ -n "$HLS_VOLUMES" ]; then
+    while IFS=$'\t' read -r _ volume_path; do
+      old_dir="$(stream_dir_on "$volume_path")"
+      [ "$old_dir" != "$HLS_DIR" ] && [ -d "$old_dir" ] || continue
+      find "$old_dir" -maxdepth 1 -type f \( -name "${STREAM_ID}.m3u8" -o -name "${STREAM_ID}_*.ts" \) -delete
+    done < <(list_volumes)
+  fi
+fi
 
 log "MJPEG_URL=$MJPEG_URL"
 log "STREAM_ID=$STREAM_ID"
-log "HLS_DIR=$HLS_DIR"
+if [ -n "$INGEST_URL" ]; then
+  log "INGEST_URL=$INGEST_URL"
+else
+  log "HLS_DIR=$HLS_DIR"
+fi
 log "INPUT_FRAMERATE=$INPUT_FRAMERATE"
 log "FRAMERATE=$FRAMERATE"
 log "KEYINT=$KEYINT"
@@ -173,7 +272,15 @@ while true; do
     continue
   fi
 
-  "$FFMPEG_BIN" -hide_banner -loglevel warning \
+  PROGRESS_ARGS=()
+  if [ -n "$PROGRESS_FILE" ]; then
+    rm -f "$PROGRESS_FILE"
+    PROGRESS_ARGS=(-progress "$PROGRESS_FILE")
+  fi
+
+  # Segment numbers start at the epoch second so a restarted converter never reuses a segment
+  # name; the backend lets players cache segments as immutable.
+  "$FFMPEG_BIN" -hide_banner -loglevel warning ${PROGRESS_ARGS[@]+"${PROGRESS_ARGS[@]}"} \
     -reconnect 1 -reconnect_streamed 1 -reconnect_delay_max 2 \
     -rw_timeout 5000000 \
     -r "$INPUT_FRAMERATE" \
@@ -186,11 +293,11 @@ while true; do
     -hls_time "$HLS_TIME" \
     -hls_list_size "$HLS_LIST_SIZE" \
     -hls_flags "$HLS_FLAGS" \
-    -hls_segment_filename "$HLS_DIR/${STREAM_ID}_%05d.ts" \
-    "$HLS_DIR/${STREAM_ID}.m3u8" &
+    -hls_start_number_source epoch \
+    "${OUTPUT_ARGS[@]}" &
   ffmpeg_pid=$!
 
-  manifest_file="$HLS_DIR/${STREAM_ID}.m3u8"
+  manifest_file="${PROGRESS_FILE:-$HLS_DIR/${STREAM_ID}.m3u8}"
   start_ts="$(date +%s)"
   last_update_ts="$start_ts"
   last_mtime=""
@@ -258,4 +365,7 @@ while true; do
   sleep "$delay_seconds"
 done
 
+if [ -n "$PROGRESS_FILE" ]; then
+  rm -f "$PROGRESS_FILE"
+fi
 log "mjpeg_to_hls stopped."